@@ -151,19 +151,21 @@ _main() {
     # TODO: python library
     # TODO: generalize to dependency file
 
-    # Upload artifact to dbfs
+    # Upload artifacts to dbfs, the jobs attach them from there
     echo "Uploading artifacts..."
-    blob_file_name="social-source-wrapper-1.0-SNAPSHOT.jar"
-    blob_local_path="../../src/social-source-wrapper/target/$blob_file_name"
     blob_jars_path="dbfs:/mnt/jars"
-    blob_dbfs_path="$blob_jars_path/$blob_file_name"
-
     echo "Ensuring directory $blob_jars_path"
     databricks fs mkdirs "$blob_jars_path"
-    echo "Uploading [$blob_local_path] to [$blob_jars_path]"
-    databricks fs cp --overwrite "$blob_local_path" "$blob_dbfs_path"
-    echo "Installing library [$blob_dbfs_path]"
-    databricks libraries install --cluster-id $cluster_id --jar "$blob_dbfs_path"
+    for module in social-source-wrapper enrichment-client topic-detection sql-sink; do
+        blob_file_name="$module-1.0-SNAPSHOT.jar"
+        blob_local_path="../../src/$module/target/$blob_file_name"
+        blob_dbfs_path="$blob_jars_path/$blob_file_name"
+
+        echo "Uploading [$blob_local_path] to [$blob_jars_path]"
+        databricks fs cp --overwrite "$blob_local_path" "$blob_dbfs_path"
+        echo "Installing library [$blob_dbfs_path]"
+        databricks libraries install --cluster-id $cluster_id --jar "$blob_dbfs_path"
+    done
 
     # Upload notebooks and dashboards
     echo "Uploading notebooks..."
@@ -78,6 +78,33 @@ if not exists (select * from sysobjects where name='${tableName}' and xtype='U')
         Language nvarchar(10),
         Topic nvarchar(255)
     )
+
+-- The SQL writer looks rows up by UniqueId to skip those already stored
+if not exists (select * from sys.indexes where name='IX_${tableName}_UniqueId')
+    create index IX_${tableName}_UniqueId on ${tableName} (UniqueId)
+
+-- Normalized layout of the SQL notebook: each tweet stored once, linked to its topics by id.
+-- Duplicate keys are ignored as writers of different partitions may add the same topic at once.
+if not exists (select * from sysobjects where name='tweet_content' and xtype='U')
+    create table tweet_content (
+        TweetId nvarchar(37) primary key with (ignore_dup_key = on),
+        TweetTime datetime,
+        Content nvarchar(max),
+        Language nvarchar(10)
+    )
+
+if not exists (select * from sysobjects where name='topics' and xtype='U')
+    create table topics (
+        TopicId bigint primary key with (ignore_dup_key = on),
+        Topic nvarchar(255)
+    )
+
+if not exists (select * from sysobjects where name='tweet_topics' and xtype='U')
+    create table tweet_topics (
+        TweetId nvarchar(37),
+        TopicId bigint,
+        primary key (TweetId, TopicId) with (ignore_dup_key = on)
+    )
 """
 
 statement.execute(ensureStatement)
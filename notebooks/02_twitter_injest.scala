@@ -3,19 +3,23 @@ import java.util.concurrent._
 import com.azure.messaging.eventhubs._
 import scala.collection.JavaConverters._
 import collection.JavaConversions._
+import social.pipeline.dedup.DeduplicationFilter
 import social.pipeline.impl.custom._
+import social.pipeline.impl.generator._
 import social.pipeline.impl.twitter._
 import social.pipeline.source._
 import twitter4j.conf.ConfigurationBuilder
 
 // Set notebook parameters:
-dbutils.widgets.text("queryTwitterTopic", "russia")
+dbutils.widgets.text("queryTwitterTopic", "russia")  // comma separated topics
 dbutils.widgets.text("socialSource", "TWITTER")
+dbutils.widgets.text("partitioning", "NONE")
 
 
 // Get notebook parameters:
 val queryTwitterTopic = dbutils.widgets.get("queryTwitterTopic")
 val socialSourceParam = dbutils.widgets.get("socialSource")
+val partitioning = dbutils.widgets.get("partitioning")
 
 println("Source used = " + socialSourceParam)
 
@@ -29,18 +33,60 @@ val connStr = s"Endpoint=sb://${eventhub_namespace}.servicebus.windows.net/;" +
                            s"SharedAccessKeyName=RootManageSharedAccessKey;" +
                            s"SharedAccessKey=${eventhub_key}"
 
-val  producer = new EventHubClientBuilder()
+val producer = new EventHubClientBuilder()
     .connectionString(connStr)
-    .buildProducerClient()
+    .buildAsyncProducerClient()
 
+// Ships the batches collected by the sink to Event Hubs, several of them can be in flight at once
+class EventHubTransport(client: EventHubProducerAsyncClient) extends social.pipeline.sink.MessageTransport {
+  private val maxBatchBytes = client.createBatch().block().getMaxSizeInBytes()
 
-// Send data to event hubs
-def sendEvent(message: String) = {
-  val messageData = new EventData(message)
-  val batch = producer.createBatch()
-  batch.tryAdd(messageData)
-  producer.get().send(batch)
-  System.out.println("Sent event: " + message + "\n")
+  override def getMaxBatchBytes(): Int = maxBatchBytes
+
+  override def send(batch: java.util.List[Array[Byte]]): CompletableFuture[Void] =
+    client.send(batch.asScala.map(body => new EventData(body)).asJava).toFuture()
+
+  override def send(batch: java.util.List[Array[Byte]], partitionKey: String): CompletableFuture[Void] =
+    client.send(batch.asScala.map(body => new EventData(body)).asJava,
+      new com.azure.messaging.eventhubs.models.SendOptions().setPartitionKey(partitionKey)).toFuture()
+
+  override def sendToPartition(batch: java.util.List[Array[Byte]], partitionId: String): CompletableFuture[Void] =
+    client.send(batch.asScala.map(body => new EventData(body)).asJava,
+      new com.azure.messaging.eventhubs.models.SendOptions().setPartitionId(partitionId)).toFuture()
+
+  override def close(): Unit = client.close()
+}
+
+// Send data to event hubs, messages are batched up to the Event Hub size limit or 100ms.
+// Messages are sent as JSON so the enrichment keeps the language reported by the source.
+// NONE spreads messages round-robin over the partitions.
+// TOPIC keys messages by their first topic, so all messages of a topic land in the same partition.
+// CONSISTENT maps first topics to partitions with a consistent hash ring, so adding partitions moves few topics.
+// HOT_KEY is CONSISTENT with the busiest topics (over 5% of the messages) spread over 4 partitions each.
+val sinkOptions = new social.pipeline.sink.SinkOptions()
+sinkOptions.setLingerMillis(100)
+val partitionCount = producer.getPartitionIds().collectList().block().size()
+val partitioner: social.pipeline.sink.MessagePartitioner = partitioning match {
+  case "TOPIC" => new social.pipeline.sink.PrimaryTopicPartitioner()
+  case "CONSISTENT" => new social.pipeline.sink.ConsistentHashPartitioner(partitionCount)
+  case "HOT_KEY" => new social.pipeline.sink.ConsistentHashPartitioner(
+    new social.pipeline.sink.HotKeySplitter(new social.pipeline.sink.PrimaryTopicPartitioner(), 4), partitionCount, 128)
+  case _ => null
+}
+val sink = new social.pipeline.sink.BatchingMessageSink(
+  new EventHubTransport(producer), social.pipeline.sink.MessageEncoders.json(), sinkOptions, partitioner)
+
+// Messages are spooled to local disk at full speed and a drainer thread ships them to Event Hubs,
+// so a slow or failing Event Hub does not stall the searches. The drainer resumes from the last
+// acknowledged message after a restart; records are synced to disk at most every second.
+val spoolOptions = new social.pipeline.spool.SpoolOptions()
+spoolOptions.setSync(social.pipeline.spool.SpoolOptions.Sync.INTERVAL)
+spoolOptions.setMaxBytes(4L * 1024 * 1024 * 1024)
+val spool = social.pipeline.spool.MessageSpool.open(java.nio.file.Paths.get("/local_disk0/social-spool"), spoolOptions)
+val drainer = new social.pipeline.spool.SpoolDrainer(spool, sink).start()
+
+def sendEvent(message: SocialMessage) = {
+  spool.append(message)
 }
 
 // Twitter configuration builder
@@ -71,30 +117,56 @@ if(socialSourceParam.equals("TWITTER")) {
   socialSource = new TwitterSource(cb)
 } else if(socialSourceParam.equals("CUSTOM")){
   socialSource = new PredefinedSource()
+} else if(socialSourceParam.equals("GENERATED")){
+  socialSource = new GeneratorSource()
 }
 
 println("Source id =" + socialSource)
 
-// Getting messages from source and sending them to EventHubs:
-val query = new SocialQuery(queryTwitterTopic)
-query.setCount(100)
-query.setLang("en")
+// Tweets already sent in the last hour are dropped, keeping at most 64MB of ids
+val deduplication = DeduplicationFilter.exact(64L * 1024 * 1024, 60 * 60 * 1000L)
+
+// Topics are comma separated, they are packed into as few OR searches as the query length limit allows
+val topics = queryTwitterTopic.split(",").map(_.trim).filter(_.nonEmpty).toList
+val template = new SocialQuery()
+template.setCount(100)
+template.setLang("en")
+val plan = new TopicQueryPlanner().plan(topics.asJava, template)
+println(s"${topics.size} topics searched with ${plan.size} queries")
+
+// The progress of every search is checkpointed once each page is synced to the spool, so a restarted
+// notebook resumes each search where it stopped instead of refetching from the newest tweets.
+// Checkpoints are kept per topic: adding or removing a topic repacks the searches, but each search
+// resumes from the least advanced of its topics, only a new topic makes its search start over.
+val checkpoints = new social.pipeline.checkpoint.FileCheckpointStore(java.nio.file.Paths.get("/local_disk0/social-ingest/checkpoints"))
+
+// Getting messages from source and sending them to EventHubs.
+// Each pass pages back through all tweets newer than the previous pass, so nothing is fetched twice.
+// Messages are tagged with the topics of the plan they mention, as one search covers several topics.
 val finished = false
 while (!finished) {
-
-  val lowestStatusId = socialSource.search(query)
-    .getMessages()
-    .foldLeft(Long.MaxValue) {(currLowestStatusId, message) =>
-      if(!message.isShareOrRetweet()) {
-        sendEvent(message.getText())
+  for (i <- 0 until plan.size) {
+    val query = plan.getQueries().get(i)
+    val messages = social.pipeline.checkpoint.PageCheckpointer.stream(socialSource, query, plan.getTopics(i), checkpoints, () => spool.sync(), -1, -1)
+    messages.asScala.foreach { message =>
+      if(!message.isShareOrRetweet() && deduplication.accept(message)) {
+        if (message.getTopics() == null || message.getTopics().isEmpty()) {
+          plan.assignTopics(message)
+        }
+        sendEvent(message)
       }
-      Thread.sleep(2000)
-      Math.min(message.getId(), currLowestStatusId)
-
     }
-  query.setMaxId(lowestStatusId - 1)
+  }
+  println(sink.getMetrics())
+  println(s"Spooled ${spool.getAppendedRecords()}, drained ${drainer.getDrainedRecords()}, backlog ${spool.getWriteOffset() - spool.getAcknowledgedOffset()} bytes")
+
+  // Searches are paced by the source's rate limiter, so only the custom source needs to be slowed down
+  socialSource match {
+    case twitterSource: TwitterSource => println(twitterSource.getRateLimiter())
+    case _ => Thread.sleep(2000)
+  }
 }
 
 // In case you forcibly want to close the connection to the Event Hub, use the following command:
-// eventHubClient.get().close()
+// drainer.close(); spool.close(); sink.close()
 
@@ -18,17 +18,24 @@ val writeConnectionString = s"Endpoint=sb://${eventhub_namespace}.servicebus.win
 val ehReadConf = EventHubsConf(readConnectionString)
 val ehWriteConf = EventHubsConf(writeConnectionString)
 
+// Routing of the enriched events, see the ingest notebook: NONE, TOPIC, CONSISTENT or HOT_KEY.
+// Routed events of a topic land in the same partition, so the threshold job can count them partition by partition.
+// CONSISTENT and HOT_KEY pick the partition themselves, enrichedPartitionCount must match the enriched Event Hub.
+dbutils.widgets.text("partitioning", "NONE")
+val partitioning = dbutils.widgets.get("partitioning")
+val enrichedPartitionCount = 4
+
 // COMMAND ----------
 
 import org.apache.spark.sql._
-import org.apache.spark.sql.functions.{col, from_json, to_json, udf, struct, array}
-import org.apache.spark.sql.types.{ArrayType, StringType, TimestampType}
-import org.apache.http.Header;
-import org.apache.http.HttpResponse;
-import org.apache.http.client.HttpClient;
-import org.apache.http.client.methods.HttpPost;
-import org.apache.http.entity.StringEntity
-import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.spark.sql.functions.{coalesce, col, from_json, to_json, udf, struct, array}
+import org.apache.spark.sql.types.{ArrayType, StringType, StructType, TimestampType}
+import social.pipeline.enrichment.{CachingEnricher, EnrichmentCache, EnrichmentClient, EnrichmentOptions, LanguageDetector}
+import social.pipeline.sentiment.SentimentScorer
+import social.pipeline.text.TopicExtractor
+import java.net.InetAddress
+import java.nio.file.{Files, Path, Paths}
+import scala.collection.JavaConverters._
 
 // Cognitive Services API connection settings
 // ===============================================================================================
@@ -55,101 +62,126 @@ val languagesUrl = host.replace("{requestType}", languagesPath)
 val sentimenUrl = host.replace("{requestType}", sentimentPath)
 val entitiesUrl = host.replace("{requestType}", entitiesPath)
 
-// Handles the call to Cognitive Services API.
-// Expects Documents as parameters and the address of the API to call.
-// Returns an instance of Documents in response.
-def processUsingApi(url: String, params: String) = {
-  
-  // A helper function to make the DBFS API request, request/response is encoded/decoded as JSON
-  val client = HttpClientBuilder.create().build();
-  val request = new HttpPost(url);
-
-  val postParams = new StringEntity(params);
-  request.addHeader("Content-Type", "application/json");
-  request.addHeader("Ocp-Apim-Subscription-Key", accessKey);
-  request.setEntity(postParams);
-  val response = client.execute(request);
-  val handler = new org.apache.http.impl.client.BasicResponseHandler()
-  handler.handleResponse(response).trim.toString
-}
-
-// COMMAND ----------
-
-import org.json4s._
-import org.json4s.JsonDSL._
-import org.json4s.jackson.JsonMethods._
-import org.apache.commons.lang.StringEscapeUtils.escapeJava
-
-def getLanguage (text: String): String = {
-  val jpayload = 
-     ("documents" -> 
-       List(
-         ("id" -> "1") ~
-         ("text" -> escapeJava(text))
-       ))
-  
-  val response = processUsingApi(languagesUrl, compact(render(jpayload)))
-
-  val jresult = parse(response, useBigDecimalForDouble = true);
-  var language = "en"
-
-  val jdocs = (jresult \ "documents").extract[List[JObject]]
-  if (jdocs.length > 0) {
-    val detectedLanguages = (jdocs(0) \ "detectedLanguages").extract[List[JObject]]
-    if (detectedLanguages.length > 0) {
-      val extractedLanguage = (detectedLanguages(0) \ "iso6391Name").extract[String]
-      if (extractedLanguage != null && !extractedLanguage.isEmpty()) {
-        language = extractedLanguage
+// Documents are sent to the API in batches of up to 1000 (the Text Analytics limit per request)
+val enrichmentOptions = new EnrichmentOptions(languagesUrl, entitiesUrl, accessKey)
+enrichmentOptions.setBatchSize(1000)
+
+// Entities come from the entities API by default. With entityExtraction set to LOCAL they are extracted in process
+// (hashtags, mentions, cashtags and the topics of the optional topicDictionary file) and the API is not called at all.
+dbutils.widgets.text("entityExtraction", "API")
+dbutils.widgets.text("topicDictionary", "")
+val localEntities = dbutils.widgets.get("entityExtraction") == "LOCAL"
+val topicDictionaryPath = dbutils.widgets.get("topicDictionary")
+val topicDictionary: java.util.Map[String, String] =
+  if (localEntities && topicDictionaryPath.nonEmpty) {
+    val reader = Files.newBufferedReader(Paths.get(topicDictionaryPath))
+    try TopicExtractor.readDictionary(reader) finally reader.close()
+  } else null
+
+// Results are cached per executor on the normalized text, retweets and repeated texts skip the API.
+// Each executor snapshots its cache to DBFS every few minutes and a new executor merges all snapshots on start.
+val cacheMaxEntries = 500000
+val cacheTtlMillis = 6 * 60 * 60 * 1000L
+val cacheSnapshotDir = "/dbfs/mnt/blob/03.enrichment.cache"
+val cacheSnapshotIntervalMillis = 5 * 60 * 1000L
+
+// One client, and so one pool of keep-alive connections and one cache, per executor JVM.
+// It is created lazily on the executor from the settings shipped with the task.
+// Languages come from the message when the source reported one and from the in process detector otherwise,
+// so the API is only called for the entities, if at all.
+object Enrichment {
+  @volatile private var enricher: CachingEnricher = null
+  private var snapshotFile: Path = null
+  private var lastSnapshot = System.currentTimeMillis()
+
+  def get(options: EnrichmentOptions, maxEntries: Int, ttlMillis: Long, snapshotDir: String,
+          localEntities: Boolean, topics: java.util.Map[String, String]): CachingEnricher = {
+    if (enricher == null) {
+      synchronized {
+        if (enricher == null) {
+          val cache = new EnrichmentCache(maxEntries, ttlMillis)
+          val dir = Paths.get(snapshotDir)
+          if (Files.isDirectory(dir)) {
+            val files = Files.list(dir)
+            try {
+              files.iterator().asScala.filter(_.toString.endsWith(".bin")).foreach(file => cache.load(file))
+            } finally {
+              files.close()
+            }
+          }
+          snapshotFile = dir.resolve(InetAddress.getLocalHost.getHostName + ".bin")
+          val client = new EnrichmentClient(options)
+          client.setLanguageDetector(LanguageDetector.getDefault)
+          if (localEntities) {
+            client.setTopicExtractor(if (topics != null) new TopicExtractor(topics) else new TopicExtractor())
+          }
+          enricher = new CachingEnricher(client, cache)
+        }
       }
     }
+    enricher
   }
 
-  return language
-}
-
-def getEntities (text: String): List[String] = {
-  val language = getLanguage(text)
-  val jpayload = 
-     ("documents" -> 
-       List(
-         ("id" -> "1") ~
-         ("language" -> language) ~
-         ("text" -> escapeJava(text))
-       ))
-
-  val response = processUsingApi(entitiesUrl, compact(render(jpayload)))
-  
-  var entities = List("None")
-  val jresult = parse(response, useBigDecimalForDouble = true);
-  val jdocs = (jresult \ "documents").extract[List[JObject]]
-  if (jdocs.length > 0) {
-    val jentities = (jdocs(0) \ "entities" \ "name")
-    if (jentities != JNothing) {
-      if (jentities.isInstanceOf[JString]) {
-        entities = List(jentities.extract[String])
-      } else {
-        entities = jentities.extract[List[String]]
-      }
+  def snapshotIfDue(intervalMillis: Long): Unit = synchronized {
+    if (enricher != null && System.currentTimeMillis() - lastSnapshot >= intervalMillis) {
+      enricher.getCache.save(snapshotFile)
+      lastSnapshot = System.currentTimeMillis()
+      println(s"Enrichment cache: ${enricher.getCache.size} entries, hit rate ${enricher.getHitRate}, " +
+        s"average API latency ${enricher.getAverageDelegateLatencyMillis} ms")
     }
   }
+}
+
+import social.pipeline.sink.{ConsistentHashPartitioner, HotKeySplitter, MessagePartitioner, PrimaryTopicPartitioner}
+import social.pipeline.source.SocialMessage
 
-  return entities
+def newPartitioner(): MessagePartitioner = partitioning match {
+  case "TOPIC" => new PrimaryTopicPartitioner()
+  case "CONSISTENT" => new ConsistentHashPartitioner(enrichedPartitionCount)
+  case "HOT_KEY" => new ConsistentHashPartitioner(new HotKeySplitter(new PrimaryTopicPartitioner(), 4), enrichedPartitionCount, 128)
+  case _ => null
 }
 
-// getEntities("I had a wonderful trip to Seattle and enjoyed seeing the Space Needle!")
-val extractLanguage = udf(getLanguage _)
-val extractEntities = udf(getEntities _, ArrayType(StringType))
+// The Event Hubs writer reads a target partition id from a "partition" column and a key to hash from "partitionKey"
+val partitionColumn = if (partitioning == "CONSISTENT" || partitioning == "HOT_KEY") "partition" else "partitionKey"
+
+// Rows are (text, language reported by the source or null, timestamp).
+// Sentiment is scored in process with the bundled lexicon, into one array reused for all batches of the partition.
+// The partition key comes from the first entity, it is null for events without entities or without partitioning.
+def enrichPartition(options: EnrichmentOptions, rows: Iterator[(String, String, String)]): Iterator[(String, String, String, Seq[String], Double, String)] = {
+  val enricher = Enrichment.get(options, cacheMaxEntries, cacheTtlMillis, cacheSnapshotDir, localEntities, topicDictionary)
+  val scorer = SentimentScorer.getDefault
+  val partitioner = newPartitioner()
+  val message = new SocialMessage()
+  var sentiments = new Array[Double](options.getBatchSize)
+  val enriched = rows.grouped(options.getBatchSize).flatMap { batch =>
+    val texts = batch.map(_._1).asJava
+    val results = enricher.enrich(texts, batch.map(_._2).asJava).asScala
+    sentiments = scorer.score(texts, sentiments)
+    batch.zip(results).zipWithIndex.map { case (((body, _, timestamp), result), i) =>
+      val entities = result.getEntities.asScala.toList
+      message.setTopics(result.getEntities)
+      val partitionKey = if (partitioner != null) partitioner.partitionKey(message) else null
+      (body, timestamp, result.getLanguage, if (entities.isEmpty) List("None") else entities, sentiments(i), partitionKey)
+    }
+  }
+  enriched ++ { Enrichment.snapshotIfDue(cacheSnapshotIntervalMillis); Iterator.empty }
+}
 
 // COMMAND ----------
 
+import org.json4s._
+import org.json4s.JsonDSL._
+import org.json4s.jackson.JsonMethods._
 import scala.collection.mutable.WrappedArray
 
-def toStringJsonFunc(content: String, timestamp: String, language: String, entities: WrappedArray[String]): String = {
+def toStringJsonFunc(content: String, timestamp: String, language: String, entities: WrappedArray[String], sentiment: Double): String = {
   val json = 
      ("content" -> content) ~ 
      ("timestamp" -> timestamp) ~
      ("language" -> language) ~
-     ("entities" -> entities)
+     ("entities" -> entities) ~
+     ("sentiment" -> sentiment)
   
   return compact(render(json))
 }
@@ -163,18 +195,25 @@ val reader = spark
   .options(ehReadConf.toMap)
   .load()
 
+// The ingest notebook sends messages as JSON, plain text bodies are still accepted
+val messageSchema = new StructType().add("text", StringType).add("lang", StringType)
+val options = enrichmentOptions
 val enriched = reader
-  .select($"body" cast "string", $"enqueuedTime" cast "String" as "timestamp")
-  .withColumn("Language", extractLanguage($"body"))
-  .withColumn("Entities", extractEntities($"body"))
-  .withColumn("body", toStringJson($"body", $"timestamp", $"Language", $"Entities"))
+  .select($"body" cast "string" as "body", $"enqueuedTime" cast "String" as "timestamp")
+  .withColumn("message", from_json($"body", messageSchema))
+  .select(coalesce($"message.text", $"body") as "body", $"message.lang" as "lang", $"timestamp")
+  .as[(String, String, String)]
+  .mapPartitions(rows => enrichPartition(options, rows))
+  .toDF("body", "timestamp", "Language", "Entities", "Sentiment", partitionColumn)
+  .withColumn("body", toStringJson($"body", $"timestamp", $"Language", $"Entities", $"Sentiment"))
 
 display(enriched)
 
 // COMMAND ----------
 
-// Write body data from a DataFrame to EventHubs. Events are distributed across partitions using round-robin model.
-val enrichedStream = enriched
+// Write body data from a DataFrame to EventHubs. Without partitioning, events are distributed across partitions
+// using round-robin model; otherwise each event goes to the partition in its partition column, or the one its partitionKey hashes to.
+val enrichedStream = (if (partitioning == "NONE") enriched.select($"body") else enriched.select($"body", col(partitionColumn)))
   .writeStream
   .format("eventhubs")
   .options(ehWriteConf.toMap)
@@ -34,30 +34,42 @@ val enrichedStream = spark
   .options(ehReadConf.toMap)
   .load()
 
-val generateUuid = udf(() => java.util.UUID.randomUUID.toString())
-
-// Cast the data as string (it comes in as binary by default)
+// Rows get an id derived from their content and time (see social.pipeline.sql.TweetRow and Tweet),
+// the writers skip ids already stored so a replayed micro-batch does not duplicate rows
 val streamDF = enrichedStream
   .selectExpr("CAST(body as STRING)")
   .select(from_json($"body", schema) as "data")
-  .withColumn("uniqueId", generateUuid())
   .withColumn("content", col("data.content"))
-  .withColumn("timestamp", col("data.timestamp"))
+  .withColumn("timestamp", col("data.timestamp").cast(TimestampType))
   .withColumn("language", col("data.language"))
   .withColumn("entities", col("data.entities"))
-  .select($"uniqueId", $"content", $"timestamp", $"language", explode($"entities").alias("topic"))
+  .select($"content", $"timestamp", $"language", $"entities")
 
 display(streamDF)
 
 // COMMAND ----------
 
-import java.sql.DriverManager
+import java.sql.{DriverManager, Timestamp}
+import scala.collection.JavaConverters._
 import org.apache.spark.sql.ForeachWriter
+import social.pipeline.sql.{NormalizedTweetSqlWriter, SqlSinkOptions, Tweet, TweetRow, TweetSqlWriter}
+
+// FLAT writes one row per topic of a tweet, with its content, to the table created by the initialize notebook.
+// NORMALIZED writes the content of a tweet once to tweet_content, its topics to tweet_topics and the
+// topic names to the topics dictionary, which takes a fraction of the space and write volume.
+val sqlLayout = "FLAT"
+
+// Rows are sent in batches of sqlBatchSize and committed once per partition of each micro-batch.
+// With sqlBulkCopy the batches are plain INSERTs into a temporary staging table, which the SQL Server
+// driver turns into bulk loads (useBulkCopyForBatchInsert), moved into the table on commit.
+val sqlBatchSize = 1000
+val sqlBulkCopy = false
 
 val sqlWriter = streamDF.writeStream.foreach(new ForeachWriter[Row] {
-  var connection:java.sql.Connection = _
-  var statement:java.sql.Statement = _
-   
+  var connection: java.sql.Connection = _
+  var writer: TweetSqlWriter = _
+  var normalizedWriter: NormalizedTweetSqlWriter = _
+
   // Load database configuation from environment secrets
   val serverName = dbutils.preview.secret.get("storage_scope", "sql_server_name") + ".database.windows.net"
   val database = dbutils.preview.secret.get("storage_scope", "sql_server_database")
@@ -67,29 +79,55 @@ val sqlWriter = streamDF.writeStream.foreach(new ForeachWriter[Row] {
   val jdbcPort = dbutils.preview.secret.get("storage_scope", "DBENV_SQL_JDBC_PORT").toInt
 
   val driver = "com.microsoft.sqlserver.jdbc.SQLServerDriver"
-  val jdbc_url = s"jdbc:sqlserver://${serverName}:${jdbcPort};database=${database};encrypt=true;trustServerCertificate=false;hostNameInCertificate=*.database.windows.net;loginTimeout=30;"
-  
-  def open(partitionId: Long, version: Long):Boolean = {
+  val jdbc_url = s"jdbc:sqlserver://${serverName}:${jdbcPort};database=${database};encrypt=true;trustServerCertificate=false;hostNameInCertificate=*.database.windows.net;loginTimeout=30;" +
+    (if (sqlBulkCopy) "useBulkCopyForBatchInsert=true;" else "")
+
+  def open(partitionId: Long, version: Long): Boolean = {
     Class.forName(driver)
     connection = DriverManager.getConnection(jdbc_url, writeuser, writepwd)
-    statement = connection.createStatement
+    val options = new SqlSinkOptions(tableName)
+    options.setBatchSize(sqlBatchSize)
+    if (sqlLayout == "NORMALIZED") {
+      options.setTableName("tweet_content")
+      normalizedWriter = new NormalizedTweetSqlWriter(connection, options)
+    } else {
+      options.setBulkCopy(sqlBulkCopy)
+      writer = new TweetSqlWriter(connection, options)
+    }
     true
   }
-  
+
   def process(value: Row): Unit = {
-    val uniqueId = value(0)
-    val content = (value(1) + "").replaceAll("'", "''")
-    val timestamp = value(2)
-    val language = value(3)
-    val topic = (value(4) + "").replaceAll("'", "''")
-    
-    val valueStr = s"'${uniqueId}', '${content}', '${timestamp}', '${language}', '${topic}'"
-    val statementStr = s"INSERT INTO ${tableName} (UniqueId, Content, TweetTime, Language, Topic) VALUES (${valueStr})"
-    statement.execute(statementStr)
+    val content = value.getString(0)
+    val timestamp = value.getAs[Timestamp](1)
+    val language = value.getString(2)
+    val topics = Option(value.getSeq[String](3)).getOrElse(Seq.empty)
+    if (normalizedWriter != null) {
+      normalizedWriter.write(Tweet.create(content, timestamp, language, topics.asJava))
+    } else {
+      topics.foreach(topic => writer.write(TweetRow.create(content, timestamp, language, topic)))
+    }
   }
 
+  // open may fail before a writer or the connection is assigned, close still runs then
   def close(errorOrNull: Throwable): Unit = {
-    connection.close
+    try {
+      if (normalizedWriter != null) {
+        if (errorOrNull == null) {
+          normalizedWriter.commit()
+        }
+        normalizedWriter.close()
+      } else if (writer != null) {
+        if (errorOrNull == null) {
+          writer.commit()
+        }
+        writer.close()
+      }
+    } finally {
+      if (connection != null) {
+        connection.close()
+      }
+    }
   }
 })
 
@@ -97,4 +135,3 @@ val streamingWriter = sqlWriter.start()
 
 // COMMAND ----------
 
-
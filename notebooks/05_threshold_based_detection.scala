@@ -18,6 +18,21 @@ val writeConnectionString = s"Endpoint=sb://${eventhub_namespace}.servicebus.win
 // This is the threshold above which, alerts will be sent to the alerts eventhub
 val alertThreshold = 5
 
+// SPARK counts every 10 minute window with a Spark window aggregation, each event lands in ten window states.
+// SLIDING counts per minute pane with social.pipeline.detection.SlidingWindowCounter, each event is counted once.
+// APPROXIMATE counts per minute pane with social.pipeline.detection.ApproximateWindowCounter in bounded memory:
+// counts may exceed the true count by up to approximateEpsilon of the mentions in the window (with 99% confidence),
+// and topics need more than 10 / approximateTopK of the mentions of their busiest minute to be tracked.
+// BURST ignores alertThreshold and alerts when a topic is mentioned burstZThreshold standard deviations more than its
+// usual count per minute, with social.pipeline.detection.BurstDetector. Its alerts cover a single minute.
+dbutils.widgets.text("countingMode", "SPARK")
+val countingMode = dbutils.widgets.get("countingMode")
+val windowMillis = 10 * 60 * 1000L
+val paneMillis = 60 * 1000L
+val approximateEpsilon = 0.0005
+val approximateTopK = 1000
+val burstZThreshold = 4.0
+
 val ehReadConf = EventHubsConf(readConnectionString)
 val ehWriteConf = EventHubsConf(writeConnectionString)
 
@@ -44,18 +59,22 @@ val enrichedStream = spark
   .load()
 
 // Cast the data as string (it comes in as binary by default)
-val streamDF = enrichedStream
+val topicsDF = enrichedStream
   .selectExpr("CAST(body as STRING)")
   .select(from_json($"body", schema) as "data")
   .withColumn("timestamp", col("data.timestamp").cast(TimestampType))
   .withColumn("entities", col("data.entities"))
   .select($"timestamp", explode($"entities").alias("topic"))
   .withWatermark("timestamp", "10 minute")
+
+val streamDF = topicsDF
   .groupBy(window($"timestamp", "10 minutes", "1 minute"), $"topic")
   .count()
   .selectExpr("cast (window.start as timestamp) AS windowStart", "cast (window.end as timestamp) AS windowEnd", "topic", "count")
 
-display(streamDF)
+if (countingMode == "SPARK") {
+  display(streamDF)
+}
 
 // COMMAND ----------
 
@@ -77,11 +96,79 @@ val toStringJson = udf(toStringJsonFunc _, StringType)
 
 // COMMAND ----------
 
-val alertStream = streamDF
-  .where(s"count >= ${alertThreshold}")
-  .selectExpr("cast(windowStart as string)", "cast(windowEnd as string)", "topic", "count")
-  .withColumn("body", toStringJson($"windowStart", $"windowEnd", $"topic", $"count"))
-  .select("body")
+import java.sql.Timestamp
+import org.apache.spark.sql.{Encoder, Encoders}
+import org.apache.spark.sql.streaming.{GroupState, GroupStateTimeout, OutputMode}
+import social.pipeline.detection.{ApproximateWindowCounter, BurstDetector, BurstDetectorOptions, SlidingWindowCounter, TopicAlert, TopicWindowCounter}
+import scala.collection.JavaConverters._
+
+// Topics are spread over buckets by hash, each bucket keeps one counter as its group state.
+// Windows close as the events and the watermark move past them, and the counter emits the alerts in the threshold JSON.
+// A group hands its events in arrival order, they are sorted by time first so a later event seen first does not close a window too soon.
+// An approximate counter holds about 4 MB of sketches whatever its number of topics, a few buckets are enough.
+val topicBuckets = if (countingMode == "APPROXIMATE") 8 else spark.conf.get("spark.sql.shuffle.partitions").toInt
+implicit val counterEncoder: Encoder[TopicWindowCounter] = Encoders.javaSerialization[TopicWindowCounter]
+
+def newCounter(): TopicWindowCounter =
+  if (countingMode == "APPROXIMATE") new ApproximateWindowCounter(windowMillis, paneMillis, alertThreshold, approximateEpsilon, 0.99, approximateTopK)
+  else new SlidingWindowCounter(windowMillis, paneMillis, alertThreshold)
+
+def countTopics(bucket: Int, events: Iterator[(Timestamp, String)], state: GroupState[TopicWindowCounter]): Iterator[String] = {
+  val counter = state.getOption.getOrElse(newCounter())
+  val alerts = new java.util.ArrayList[TopicAlert]()
+  events.toSeq.sortBy(_._1.getTime).foreach { case (timestamp, topic) => alerts.addAll(counter.add(topic, timestamp.getTime)) }
+  if (state.getCurrentWatermarkMs() > 0) {
+    alerts.addAll(counter.advanceTo(state.getCurrentWatermarkMs()))
+  }
+  if (counter.isEmpty) {
+    state.remove()
+  } else {
+    state.update(counter)
+    state.setTimeoutTimestamp(counter.getCurrentPaneStart + paneMillis)
+  }
+  alerts.asScala.iterator.map(_.toJson)
+}
+
+// Each bucket keeps the baselines of its topics, topics not mentioned for the idle time of the options are forgotten.
+// The detector drops a mention older than the current pane of its topic as late, so the events are sorted by time first.
+implicit val burstEncoder: Encoder[BurstDetector] = Encoders.javaSerialization[BurstDetector]
+val burstOptions = new BurstDetectorOptions()
+burstOptions.setPaneMillis(paneMillis)
+burstOptions.setZThreshold(burstZThreshold)
+burstOptions.setMinCount(alertThreshold)
+
+def detectBursts(bucket: Int, events: Iterator[(Timestamp, String)], state: GroupState[BurstDetector]): Iterator[String] = {
+  val detector = state.getOption.getOrElse(new BurstDetector(burstOptions))
+  val alerts = events.toSeq.sortBy(_._1.getTime).flatMap { case (timestamp, topic) => Option(detector.add(topic, timestamp.getTime)) }.map(_.toJson).toList
+  if (state.getCurrentWatermarkMs() > 0) {
+    detector.evictIdle(state.getCurrentWatermarkMs())
+  }
+  state.update(detector)
+  alerts.iterator
+}
+
+val alertStream =
+  if (countingMode == "BURST") {
+    topicsDF
+      .select($"timestamp", $"topic")
+      .as[(Timestamp, String)]
+      .groupByKey { case (_, topic) => Math.floorMod(topic.hashCode, topicBuckets) }
+      .flatMapGroupsWithState(OutputMode.Append, GroupStateTimeout.NoTimeout)(detectBursts)
+      .toDF("body")
+  } else if (countingMode == "SLIDING" || countingMode == "APPROXIMATE") {
+    topicsDF
+      .select($"timestamp", $"topic")
+      .as[(Timestamp, String)]
+      .groupByKey { case (_, topic) => Math.floorMod(topic.hashCode, topicBuckets) }
+      .flatMapGroupsWithState(OutputMode.Append, GroupStateTimeout.EventTimeTimeout)(countTopics)
+      .toDF("body")
+  } else {
+    streamDF
+      .where(s"count >= ${alertThreshold}")
+      .selectExpr("cast(windowStart as string)", "cast(windowEnd as string)", "topic", "count")
+      .withColumn("body", toStringJson($"windowStart", $"windowEnd", $"topic", $"count"))
+      .select("body")
+  }
 
 display(alertStream)
 
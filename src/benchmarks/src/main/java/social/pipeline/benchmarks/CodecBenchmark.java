@@ -0,0 +1,54 @@
+package social.pipeline.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import social.pipeline.codec.SocialMessageCodec;
+import social.pipeline.impl.generator.GeneratorSource;
+import social.pipeline.source.SocialMessage;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Binary encoding of a single message into a reused buffer, to compare with {@link GsonSerializationBenchmark}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CodecBenchmark {
+
+  private final SocialMessageCodec codec = new SocialMessageCodec();
+  private final ByteBuffer buffer = ByteBuffer.allocate(4096);
+  private final SocialMessage decoded = new SocialMessage();
+  private SocialMessage message;
+  private ByteBuffer encoded;
+
+  @Setup
+  public void setup() {
+    message = new GeneratorSource().next();
+    encoded = ByteBuffer.wrap(codec.toBytes(message));
+  }
+
+  @Benchmark
+  public int encode() {
+    buffer.clear();
+    return codec.encode(message, buffer);
+  }
+
+  @Benchmark
+  public SocialMessage decode() {
+    encoded.rewind();
+    return codec.decode(encoded, decoded);
+  }
+}
@@ -0,0 +1,49 @@
+package social.pipeline.benchmarks;
+
+import com.google.gson.Gson;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import social.pipeline.impl.generator.GeneratorSource;
+import social.pipeline.source.SocialMessage;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JSON serialization of a single message, as shipped between pipeline stages
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GsonSerializationBenchmark {
+
+  private final Gson gson = new Gson();
+  private SocialMessage message;
+  private String json;
+
+  @Setup
+  public void setup() {
+    message = new GeneratorSource().next();
+    json = gson.toJson(message);
+  }
+
+  @Benchmark
+  public String toJson() {
+    return gson.toJson(message);
+  }
+
+  @Benchmark
+  public SocialMessage fromJson() {
+    return gson.fromJson(json, SocialMessage.class);
+  }
+}
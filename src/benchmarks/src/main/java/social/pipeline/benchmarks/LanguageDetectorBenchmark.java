@@ -0,0 +1,53 @@
+package social.pipeline.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import social.pipeline.enrichment.LanguageDetector;
+import social.pipeline.impl.custom.JsonMessageReader;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * In process language detection of the texts of the bundled messages.json fixture, one operation is one text.
+ * Its accuracy on the same fixture is checked by LanguageDetectorTest in enrichment-client.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LanguageDetectorBenchmark {
+
+  private final LanguageDetector detector = LanguageDetector.getDefault();
+  private String[] texts;
+  private int next;
+
+  @Setup
+  public void setup() throws Exception {
+    List<String> loaded = new ArrayList<>();
+    try (JsonMessageReader reader = JsonMessageReader.openResource("/messages.json")) {
+      while (reader.hasNext()) {
+        loaded.add(reader.next().getText());
+      }
+    }
+    texts = loaded.toArray(new String[0]);
+  }
+
+  @Benchmark
+  public void detect(Blackhole blackhole) {
+    blackhole.consume(detector.detect(texts[next]));
+    next = next + 1 == texts.length ? 0 : next + 1;
+  }
+}
@@ -0,0 +1,46 @@
+package social.pipeline.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import social.pipeline.impl.custom.JsonMessageReader;
+import social.pipeline.impl.custom.PredefinedSource;
+import social.pipeline.source.SocialQuery;
+import social.pipeline.source.SocialQueryResult;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Loading the bundled messages.json fixture, fully and as a stream
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PredefinedSourceBenchmark {
+
+  private static final String MESSAGES_FILE = "/messages.json";
+
+  @Benchmark
+  public SocialQueryResult loadPredefinedSource() throws Exception {
+    return new PredefinedSource(MESSAGES_FILE).search(new SocialQuery("benchmark"));
+  }
+
+  @Benchmark
+  public void streamMessages(Blackhole blackhole) throws Exception {
+    try (JsonMessageReader reader = JsonMessageReader.openResource(MESSAGES_FILE)) {
+      while (reader.hasNext()) {
+        blackhole.consume(reader.next());
+      }
+    }
+  }
+}
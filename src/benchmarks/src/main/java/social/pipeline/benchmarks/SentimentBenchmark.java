@@ -0,0 +1,59 @@
+package social.pipeline.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import social.pipeline.impl.custom.JsonMessageReader;
+import social.pipeline.sentiment.SentimentScorer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sentiment scoring of the texts of the bundled messages.json fixture: one text per operation,
+ * and the whole fixture as one batch into a reused array
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SentimentBenchmark {
+
+  private final SentimentScorer scorer = SentimentScorer.getDefault();
+  private List<String> texts;
+  private double[] scores;
+  private int next;
+
+  @Setup
+  public void setup() throws Exception {
+    texts = new ArrayList<>();
+    try (JsonMessageReader reader = JsonMessageReader.openResource("/messages.json")) {
+      while (reader.hasNext()) {
+        texts.add(reader.next().getText());
+      }
+    }
+    scores = new double[texts.size()];
+  }
+
+  @Benchmark
+  public double score() {
+    double score = scorer.score(texts.get(next));
+    next = next + 1 == texts.size() ? 0 : next + 1;
+    return score;
+  }
+
+  @Benchmark
+  public double[] scoreBatch() {
+    return scorer.score(texts, scores);
+  }
+}
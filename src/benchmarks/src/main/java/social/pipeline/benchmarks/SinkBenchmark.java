@@ -0,0 +1,78 @@
+package social.pipeline.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import social.pipeline.impl.generator.GeneratorSource;
+import social.pipeline.sink.BatchingMessageSink;
+import social.pipeline.sink.InMemoryTransport;
+import social.pipeline.sink.MessageEncoders;
+import social.pipeline.sink.SinkOptions;
+import social.pipeline.source.SocialMessage;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Messages per second through the batching sink, against a transport with a simulated round trip
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SinkBenchmark {
+
+  @Param({"0", "5"})
+  public long latencyMillis;
+
+  @Param({"4"})
+  public int maxInFlight;
+
+  private GeneratorSource generator;
+  private SocialMessage message;
+  private BatchingMessageSink sink;
+
+  @Setup(Level.Iteration)
+  public void setup() {
+    generator = new GeneratorSource();
+    message = new SocialMessage();
+    SinkOptions options = new SinkOptions();
+    options.setMaxInFlight(maxInFlight);
+    sink = new BatchingMessageSink(new InMemoryTransport(256 * 1024, latencyMillis) {
+      @Override
+      public CompletableFuture<Void> send(List<byte[]> batch) {
+        // Drop the batch once sent, only the round trip matters here
+        return super.send(batch).thenRun(this::clear);
+      }
+    }, MessageEncoders.text(), options);
+  }
+
+  @TearDown(Level.Iteration)
+  public void tearDown() throws IOException {
+    sink.close();
+  }
+
+  @Benchmark
+  public void send() throws Exception {
+    sink.send(generator.next(message));
+  }
+
+  @Benchmark
+  public SocialMessage generate() {
+    return generator.next(message);
+  }
+}
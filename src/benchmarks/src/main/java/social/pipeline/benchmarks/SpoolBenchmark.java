@@ -0,0 +1,76 @@
+package social.pipeline.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import social.pipeline.impl.generator.GeneratorSource;
+import social.pipeline.source.SocialMessage;
+import social.pipeline.spool.MessageSpool;
+import social.pipeline.spool.SpoolOptions;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Messages per second appended to the spool with each sync mode, the records being acknowledged as they go
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SpoolBenchmark {
+
+  private static final int ACKNOWLEDGE_EVERY = 10000;
+
+  @Param({"OS", "INTERVAL", "ALWAYS"})
+  public SpoolOptions.Sync sync;
+
+  private GeneratorSource generator;
+  private SocialMessage message;
+  private Path directory;
+  private MessageSpool spool;
+  private int appended;
+
+  @Setup(Level.Iteration)
+  public void setup() throws IOException {
+    generator = new GeneratorSource();
+    message = new SocialMessage();
+    directory = Files.createTempDirectory("spool-benchmark");
+    SpoolOptions options = new SpoolOptions();
+    options.setSync(sync);
+    spool = MessageSpool.open(directory, options);
+  }
+
+  @TearDown(Level.Iteration)
+  public void tearDown() throws IOException {
+    spool.close();
+    try (Stream<Path> files = Files.walk(directory)) {
+      files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+    }
+  }
+
+  @Benchmark
+  public long append() throws IOException {
+    long offset = spool.append(generator.next(message));
+    if (++appended % ACKNOWLEDGE_EVERY == 0) {
+      spool.acknowledge(spool.getWriteOffset());
+    }
+    return offset;
+  }
+}
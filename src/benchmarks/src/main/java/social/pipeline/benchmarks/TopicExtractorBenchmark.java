@@ -0,0 +1,69 @@
+package social.pipeline.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import social.pipeline.impl.custom.JsonMessageReader;
+import social.pipeline.text.TopicExtractor;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Topic extraction from the texts of the bundled messages.json fixture, one operation is one text.
+ * The dictionary holds a few real entities of the fixture and filler aliases up to dictionarySize.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TopicExtractorBenchmark {
+
+  @Param({"10", "10000"})
+  public int dictionarySize;
+
+  private TopicExtractor extractor;
+  private String[] texts;
+  private int next;
+
+  @Setup
+  public void setup() throws Exception {
+    Map<String, String> dictionary = new HashMap<>();
+    dictionary.put("tel aviv", "Tel Aviv");
+    dictionary.put("lana del rey", "Lana Del Rey");
+    dictionary.put("israel", "Israel");
+    dictionary.put("gaza", "Gaza");
+    for (int i = dictionary.size(); i < dictionarySize; i++) {
+      dictionary.put("entity number " + i, "Entity " + i);
+    }
+    extractor = new TopicExtractor(dictionary);
+
+    List<String> loaded = new ArrayList<>();
+    try (JsonMessageReader reader = JsonMessageReader.openResource("/messages.json")) {
+      while (reader.hasNext()) {
+        loaded.add(reader.next().getText());
+      }
+    }
+    texts = loaded.toArray(new String[0]);
+  }
+
+  @Benchmark
+  public List<String> extract() {
+    List<String> topics = extractor.extract(texts[next]);
+    next = next + 1 == texts.length ? 0 : next + 1;
+    return topics;
+  }
+}
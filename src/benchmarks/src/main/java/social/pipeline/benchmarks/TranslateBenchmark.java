@@ -0,0 +1,61 @@
+package social.pipeline.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import social.pipeline.impl.twitter.TwitterSocialQueryResult;
+import social.pipeline.source.SocialMessage;
+import twitter4j.Status;
+import twitter4j.TwitterException;
+import twitter4j.TwitterObjectFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Translation of a page of twitter4j statuses into social messages
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TranslateBenchmark {
+
+  @Param({"100", "5000"})
+  public int pageSize;
+
+  private List<Status> statuses;
+
+  @Setup
+  public void setup() throws TwitterException {
+    statuses = new ArrayList<>(pageSize);
+    for (int i = 0; i < pageSize; i++) {
+      String status = "\"id\":" + i + ",\"text\":\"Meeting in Tel Aviv with other figures #" + i + "\","
+        + "\"created_at\":\"Mon Aug 20 15:07:22 +0000 2018\",\"retweet_count\":" + (i % 50) + ",\"favorite_count\":0,\"lang\":\"en\"";
+      // Statuses as parsed by twitter4j, every third one a retweet
+      String json = i % 3 == 0 ? "{" + status + ",\"retweeted_status\":{" + status + "}}" : "{" + status + "}";
+      statuses.add(TwitterObjectFactory.createStatus(json));
+    }
+  }
+
+  @Benchmark
+  public List<SocialMessage> translate() {
+    return TwitterSocialQueryResult.translate(statuses);
+  }
+
+  @Benchmark
+  public List<SocialMessage> translateParallel() {
+    return TwitterSocialQueryResult.translate(statuses, true);
+  }
+}
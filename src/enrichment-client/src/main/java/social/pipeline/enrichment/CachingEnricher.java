@@ -0,0 +1,128 @@
+package social.pipeline.enrichment;
+
+import social.pipeline.text.TextNormalizer;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Serves enrichment results from an {@link EnrichmentCache} keyed on the hash of the normalized text
+ * (see {@link TextNormalizer}), so retweets and near-identical messages are looked up once.
+ * Only the missing texts of a batch are passed on to the delegate, each distinct one once.
+ */
+public class CachingEnricher implements Enricher {
+
+  private final Enricher delegate;
+  private final EnrichmentCache cache;
+
+  private final AtomicLong hits = new AtomicLong();
+  private final AtomicLong misses = new AtomicLong();
+  private final AtomicLong delegateCalls = new AtomicLong();
+  private final AtomicLong delegateNanos = new AtomicLong();
+
+  public CachingEnricher(Enricher delegate, EnrichmentCache cache) {
+    this.delegate = delegate;
+    this.cache = cache;
+  }
+
+  @Override
+  public List<EnrichmentResult> enrich(List<String> texts, List<String> languages) throws IOException {
+    EnrichmentResult[] results = new EnrichmentResult[texts.size()];
+    long[] keys = new long[texts.size()];
+    Map<Long, Integer> missIndexes = new HashMap<>();
+    List<String> missTexts = new ArrayList<>();
+    List<String> missLanguages = languages != null ? new ArrayList<>() : null;
+
+    for (int i = 0; i < texts.size(); i++) {
+      String text = texts.get(i);
+      keys[i] = TextNormalizer.normalizedHash(text);
+      EnrichmentCache.Entry entry = cache.get(keys[i]);
+      if (entry != null) {
+        hits.incrementAndGet();
+        results[i] = new EnrichmentResult(text, entry.getLanguage(), entry.getEntities());
+      } else {
+        misses.incrementAndGet();
+        if (!missIndexes.containsKey(keys[i])) {
+          missIndexes.put(keys[i], missTexts.size());
+          missTexts.add(text);
+          if (missLanguages != null) {
+            missLanguages.add(languages.get(i));
+          }
+        }
+      }
+    }
+
+    if (missTexts.isEmpty()) {
+      return asList(results);
+    }
+
+    long start = System.nanoTime();
+    List<EnrichmentResult> fetched = delegate.enrich(missTexts, missLanguages);
+    delegateNanos.addAndGet(System.nanoTime() - start);
+    delegateCalls.incrementAndGet();
+
+    for (int i = 0; i < fetched.size(); i++) {
+      EnrichmentResult result = fetched.get(i);
+      cache.put(TextNormalizer.normalizedHash(missTexts.get(i)), result.getLanguage(), result.getEntities());
+    }
+    for (int i = 0; i < results.length; i++) {
+      if (results[i] == null) {
+        EnrichmentResult result = fetched.get(missIndexes.get(keys[i]));
+        results[i] = new EnrichmentResult(texts.get(i), result.getLanguage(), result.getEntities());
+      }
+    }
+    return asList(results);
+  }
+
+  private static List<EnrichmentResult> asList(EnrichmentResult[] results) {
+    List<EnrichmentResult> list = new ArrayList<>(results.length);
+    for (EnrichmentResult result : results) {
+      list.add(result);
+    }
+    return list;
+  }
+
+  public EnrichmentCache getCache() {
+    return cache;
+  }
+
+  public long getHits() {
+    return hits.get();
+  }
+
+  /**
+   * Texts not found in the cache, including repeats of the same text within a batch which are fetched only once
+   */
+  public long getMisses() {
+    return misses.get();
+  }
+
+  public double getHitRate() {
+    long total = hits.get() + misses.get();
+    return total == 0 ? 0 : (double) hits.get() / total;
+  }
+
+  /**
+   * Number of batches passed on to the delegate
+   */
+  public long getDelegateCalls() {
+    return delegateCalls.get();
+  }
+
+  /**
+   * Average time spent in the delegate per batch
+   */
+  public double getAverageDelegateLatencyMillis() {
+    long calls = delegateCalls.get();
+    return calls == 0 ? 0 : delegateNanos.get() / 1e6 / calls;
+  }
+
+  @Override
+  public void close() throws IOException {
+    delegate.close();
+  }
+}
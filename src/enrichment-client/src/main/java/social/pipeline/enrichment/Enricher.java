@@ -0,0 +1,76 @@
+package social.pipeline.enrichment;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Finds the language and entities of documents
+ */
+public interface Enricher extends Closeable {
+
+  /**
+   * @return one result per text, in order
+   */
+  default List<EnrichmentResult> enrich(List<String> texts) throws IOException {
+    return enrich(texts, null);
+  }
+
+  /**
+   * @param languages the already known language of each text, null entries (or a null list) when unknown
+   * @return one result per text, in order
+   */
+  List<EnrichmentResult> enrich(List<String> texts, List<String> languages) throws IOException;
+
+  /**
+   * Lazily enriches a stream of texts batchSize at a time, suited for Spark's mapPartitions
+   */
+  default Iterator<EnrichmentResult> enrichAll(Iterator<String> texts, int batchSize) {
+    return enrichAll(texts, null, batchSize);
+  }
+
+  /**
+   * Lazily enriches a stream of texts batchSize at a time, suited for Spark's mapPartitions
+   *
+   * @param languages the already known language of each text, read along with the texts; null entries
+   *                  (or a null iterator) when unknown
+   */
+  default Iterator<EnrichmentResult> enrichAll(Iterator<String> texts, Iterator<String> languages, int batchSize) {
+    return new Iterator<EnrichmentResult>() {
+      private Iterator<EnrichmentResult> batch = Collections.emptyIterator();
+
+      @Override
+      public boolean hasNext() {
+        if (!batch.hasNext() && texts.hasNext()) {
+          List<String> next = new ArrayList<>(batchSize);
+          List<String> nextLanguages = languages != null ? new ArrayList<>(batchSize) : null;
+          while (next.size() < batchSize && texts.hasNext()) {
+            next.add(texts.next());
+            if (nextLanguages != null) {
+              nextLanguages.add(languages.hasNext() ? languages.next() : null);
+            }
+          }
+          try {
+            batch = enrich(next, nextLanguages).iterator();
+          } catch (IOException e) {
+            throw new UncheckedIOException(e);
+          }
+        }
+        return batch.hasNext();
+      }
+
+      @Override
+      public EnrichmentResult next() {
+        if (!hasNext()) {
+          throw new NoSuchElementException();
+        }
+        return batch.next();
+      }
+    };
+  }
+}
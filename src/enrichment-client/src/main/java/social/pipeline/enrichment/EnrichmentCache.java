@@ -0,0 +1,236 @@
+package social.pipeline.enrichment;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Clock;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Least recently used cache of enrichment results keyed on a 64 bit text hash, bounded by
+ * a maximum number of entries and by the age of each entry.
+ * <p>
+ * The entries can be saved to and merged from a snapshot file, so a restarted executor starts
+ * warm. Snapshots are written to a temporary file and renamed into place, a reader never sees
+ * a partially written one. Instances are thread safe.
+ */
+public class EnrichmentCache {
+
+  private static final int SNAPSHOT_MAGIC = 0x454E5243;
+  private static final int SNAPSHOT_VERSION = 1;
+
+  private final int maxEntries;
+  private final long ttlMillis;
+  private final Clock clock;
+  private final LinkedHashMap<Long, Entry> entries;
+
+  private long evictions;
+  private long expirations;
+
+  public EnrichmentCache(int maxEntries, long ttlMillis) {
+    this(maxEntries, ttlMillis, Clock.systemUTC());
+  }
+
+  /**
+   * @param ttlMillis maximum age of an entry, non positive to keep entries until they are evicted for space
+   */
+  public EnrichmentCache(int maxEntries, long ttlMillis, Clock clock) {
+    this.maxEntries = maxEntries;
+    this.ttlMillis = ttlMillis > 0 ? ttlMillis : Long.MAX_VALUE;
+    this.clock = clock;
+    this.entries = new LinkedHashMap<Long, EnrichmentCache.Entry>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<Long, EnrichmentCache.Entry> eldest) {
+        if (size() > EnrichmentCache.this.maxEntries) {
+          evictions++;
+          return true;
+        }
+        return false;
+      }
+    };
+  }
+
+  /**
+   * @return the cached language and entities, or null if missing or expired
+   */
+  public synchronized Entry get(long key) {
+    Entry entry = entries.get(key);
+    if (entry == null) {
+      return null;
+    }
+    if (isExpired(entry, clock.millis())) {
+      entries.remove(key);
+      expirations++;
+      return null;
+    }
+    return entry;
+  }
+
+  public synchronized void put(long key, String language, List<String> entities) {
+    entries.put(key, new Entry(language, Collections.unmodifiableList(new ArrayList<>(entities)), clock.millis()));
+  }
+
+  /**
+   * Drops all expired entries
+   */
+  public synchronized void purgeExpired() {
+    long now = clock.millis();
+    Iterator<Entry> iterator = entries.values().iterator();
+    while (iterator.hasNext()) {
+      if (isExpired(iterator.next(), now)) {
+        iterator.remove();
+        expirations++;
+      }
+    }
+  }
+
+  private boolean isExpired(Entry entry, long now) {
+    return now - entry.createdAt >= ttlMillis;
+  }
+
+  /**
+   * Atomically replaces the snapshot file with the live entries, least recently used first.
+   * On file systems without atomic moves, such as some FUSE mounts, the file is replaced in place.
+   */
+  public void save(Path file) throws IOException {
+    List<Map.Entry<Long, Entry>> snapshot;
+    synchronized (this) {
+      purgeExpired();
+      snapshot = new ArrayList<>(entries.size());
+      for (Map.Entry<Long, Entry> entry : entries.entrySet()) {
+        snapshot.add(new AbstractMap.SimpleImmutableEntry<>(entry.getKey(), entry.getValue()));
+      }
+    }
+
+    Path parent = file.toAbsolutePath().getParent();
+    Files.createDirectories(parent);
+    Path temp = Files.createTempFile(parent, file.getFileName().toString(), ".tmp");
+    try {
+      try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+        out.writeInt(SNAPSHOT_MAGIC);
+        out.writeInt(SNAPSHOT_VERSION);
+        out.writeInt(snapshot.size());
+        for (Map.Entry<Long, Entry> entry : snapshot) {
+          Entry value = entry.getValue();
+          out.writeLong(entry.getKey());
+          out.writeLong(value.createdAt);
+          out.writeUTF(value.language);
+          out.writeInt(value.entities.size());
+          for (String entity : value.entities) {
+            out.writeUTF(entity);
+          }
+        }
+      }
+      try {
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+      } catch (AtomicMoveNotSupportedException e) {
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+      }
+    } finally {
+      Files.deleteIfExists(temp);
+    }
+  }
+
+  /**
+   * Merges the unexpired entries of a snapshot file into the cache, does nothing if the file does not exist
+   *
+   * @return the number of entries loaded
+   */
+  public int load(Path file) throws IOException {
+    if (!Files.exists(file)) {
+      return 0;
+    }
+    try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+      if (in.readInt() != SNAPSHOT_MAGIC) {
+        throw new IOException("Not an enrichment cache snapshot: " + file);
+      }
+      int version = in.readInt();
+      if (version != SNAPSHOT_VERSION) {
+        throw new IOException("Unsupported enrichment cache snapshot version " + version + ": " + file);
+      }
+      int count = in.readInt();
+      int loaded = 0;
+      long now = clock.millis();
+      for (int i = 0; i < count; i++) {
+        long key = in.readLong();
+        long createdAt = in.readLong();
+        String language = in.readUTF();
+        int entityCount = in.readInt();
+        List<String> entities = new ArrayList<>(entityCount);
+        for (int e = 0; e < entityCount; e++) {
+          entities.add(in.readUTF());
+        }
+        Entry entry = new Entry(language, Collections.unmodifiableList(entities), createdAt);
+        if (!isExpired(entry, now)) {
+          synchronized (this) {
+            entries.put(key, entry);
+          }
+          loaded++;
+        }
+      }
+      return loaded;
+    }
+  }
+
+  public synchronized int size() {
+    return entries.size();
+  }
+
+  public int getMaxEntries() {
+    return maxEntries;
+  }
+
+  /**
+   * Entries dropped to stay within the maximum number of entries
+   */
+  public synchronized long getEvictions() {
+    return evictions;
+  }
+
+  /**
+   * Entries dropped because they outlived the time to live
+   */
+  public synchronized long getExpirations() {
+    return expirations;
+  }
+
+  /**
+   * Cached language and entities of a text
+   */
+  public static class Entry {
+
+    private final String language;
+    private final List<String> entities;
+    private final long createdAt;
+
+    Entry(String language, List<String> entities, long createdAt) {
+      this.language = language;
+      this.entities = entities;
+      this.createdAt = createdAt;
+    }
+
+    public String getLanguage() {
+      return language;
+    }
+
+    public List<String> getEntities() {
+      return entities;
+    }
+
+    public long getCreatedAt() {
+      return createdAt;
+    }
+  }
+}
@@ -0,0 +1,274 @@
+package social.pipeline.enrichment;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.entity.ContentType;
+import org.apache.http.entity.StringEntity;
+import org.apache.http.impl.client.BasicResponseHandler;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import social.pipeline.text.TopicExtractor;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Client of the Text Analytics languages and entities APIs (or the function app stub exposing the same paths).
+ * Documents are sent in batches of up to {@link EnrichmentOptions#getBatchSize()} over a pool of keep-alive
+ * connections, and the language of each document is detected once and reused for its entity extraction.
+ * Instances are thread safe and meant to be shared, e.g. one per Spark executor.
+ */
+public class EnrichmentClient implements Enricher {
+
+  private static final String SUBSCRIPTION_KEY_HEADER = "Ocp-Apim-Subscription-Key";
+
+  private final EnrichmentOptions options;
+  private final PoolingHttpClientConnectionManager connectionManager;
+  private final CloseableHttpClient httpClient;
+
+  private volatile LanguageDetector languageDetector;
+  private volatile TopicExtractor topicExtractor;
+
+  private final AtomicLong requests = new AtomicLong();
+  private final AtomicLong documents = new AtomicLong();
+
+  public EnrichmentClient(EnrichmentOptions options) {
+    this.options = options;
+    this.connectionManager = new PoolingHttpClientConnectionManager();
+    connectionManager.setMaxTotal(options.getMaxConnections());
+    connectionManager.setDefaultMaxPerRoute(options.getMaxConnections());
+    RequestConfig requestConfig = RequestConfig.custom()
+      .setConnectTimeout(options.getTimeoutMillis())
+      .setSocketTimeout(options.getTimeoutMillis())
+      .setConnectionRequestTimeout(options.getTimeoutMillis())
+      .build();
+    this.httpClient = HttpClients.custom()
+      .setConnectionManager(connectionManager)
+      .setDefaultRequestConfig(requestConfig)
+      .build();
+  }
+
+  /**
+   * Detects the language of every text
+   *
+   * @return the ISO 639-1 language of each text, in order
+   */
+  public List<String> detectLanguages(List<String> texts) throws IOException {
+    List<String> languages = new ArrayList<>(texts.size());
+    for (int from = 0; from < texts.size(); from += options.getBatchSize()) {
+      List<String> batch = texts.subList(from, Math.min(from + options.getBatchSize(), texts.size()));
+      JsonArray request = new JsonArray();
+      for (int i = 0; i < batch.size(); i++) {
+        request.add(document(i, batch.get(i), null));
+      }
+
+      String[] detected = new String[batch.size()];
+      for (JsonElement element : post(options.getLanguagesUrl(), request)) {
+        JsonObject document = element.getAsJsonObject();
+        JsonArray candidates = document.getAsJsonArray("detectedLanguages");
+        if (candidates != null && candidates.size() > 0) {
+          JsonElement name = candidates.get(0).getAsJsonObject().get("iso6391Name");
+          if (name != null && !name.isJsonNull() && !name.getAsString().isEmpty()) {
+            detected[index(document, batch.size())] = name.getAsString();
+          }
+        }
+      }
+      for (String language : detected) {
+        languages.add(language != null ? language : options.getDefaultLanguage());
+      }
+    }
+    return languages;
+  }
+
+  /**
+   * Extracts the entity names of every text, in the given language of each text
+   *
+   * @return the entities of each text in order, empty when none were found
+   */
+  public List<List<String>> extractEntities(List<String> texts, List<String> languages) throws IOException {
+    List<List<String>> entities = new ArrayList<>(texts.size());
+    for (int from = 0; from < texts.size(); from += options.getBatchSize()) {
+      int to = Math.min(from + options.getBatchSize(), texts.size());
+      JsonArray request = new JsonArray();
+      for (int i = from; i < to; i++) {
+        request.add(document(i - from, texts.get(i), languages.get(i)));
+      }
+
+      List<List<String>> batchEntities = new ArrayList<>(Collections.nCopies(to - from, Collections.emptyList()));
+      for (JsonElement element : post(options.getEntitiesUrl(), request)) {
+        JsonObject document = element.getAsJsonObject();
+        JsonArray found = document.getAsJsonArray("entities");
+        if (found != null && found.size() > 0) {
+          List<String> names = new ArrayList<>(found.size());
+          for (JsonElement entity : found) {
+            names.add(entity.getAsJsonObject().get("name").getAsString());
+          }
+          batchEntities.set(index(document, to - from), names);
+        }
+      }
+      entities.addAll(batchEntities);
+    }
+    return entities;
+  }
+
+  /**
+   * Detects the missing languages and then extracts the entities of every text. Languages are
+   * detected by the {@link LanguageDetector} when one is set, and by the languages API otherwise.
+   * Entities are extracted by the {@link TopicExtractor} when one is set, and by the entities API otherwise.
+   */
+  @Override
+  public List<EnrichmentResult> enrich(List<String> texts, List<String> knownLanguages) throws IOException {
+    List<String> languages = new ArrayList<>(texts.size());
+    List<Integer> unknown = new ArrayList<>();
+    for (int i = 0; i < texts.size(); i++) {
+      String language = knownLanguages != null ? knownLanguages.get(i) : null;
+      if (!LanguageDetector.isKnown(language)) {
+        language = languageDetector != null
+          ? languageDetector.detect(texts.get(i), options.getDefaultLanguage())
+          : null;
+      }
+      if (language == null) {
+        unknown.add(i);
+      }
+      languages.add(language);
+    }
+
+    if (!unknown.isEmpty()) {
+      List<String> unknownTexts = new ArrayList<>(unknown.size());
+      for (int i : unknown) {
+        unknownTexts.add(texts.get(i));
+      }
+      List<String> detected = detectLanguages(unknownTexts);
+      for (int i = 0; i < unknown.size(); i++) {
+        languages.set(unknown.get(i), detected.get(i));
+      }
+    }
+
+    TopicExtractor extractor = topicExtractor;
+    List<List<String>> entities;
+    if (extractor != null) {
+      entities = new ArrayList<>(texts.size());
+      for (String text : texts) {
+        entities.add(extractor.extract(text));
+      }
+    } else {
+      entities = extractEntities(texts, languages);
+    }
+
+    List<EnrichmentResult> results = new ArrayList<>(texts.size());
+    for (int i = 0; i < texts.size(); i++) {
+      results.add(new EnrichmentResult(texts.get(i), languages.get(i), entities.get(i)));
+    }
+    return results;
+  }
+
+  /**
+   * Lazily enriches a stream of texts one API batch at a time, suited for Spark's mapPartitions
+   */
+  public Iterator<EnrichmentResult> enrichAll(Iterator<String> texts) {
+    return enrichAll(texts, null, options.getBatchSize());
+  }
+
+  /**
+   * Same as {@link #enrichAll(Iterator)}, with the already known language of each text, or null
+   */
+  public Iterator<EnrichmentResult> enrichAll(Iterator<String> texts, Iterator<String> languages) {
+    return enrichAll(texts, languages, options.getBatchSize());
+  }
+
+  private static JsonObject document(int id, String text, String language) {
+    JsonObject document = new JsonObject();
+    document.addProperty("id", Integer.toString(id));
+    if (language != null) {
+      document.addProperty("language", language);
+    }
+    document.addProperty("text", text);
+    return document;
+  }
+
+  private static int index(JsonObject document, int batchSize) throws IOException {
+    int index;
+    try {
+      index = Integer.parseInt(document.get("id").getAsString());
+    } catch (RuntimeException e) {
+      throw new IOException("Unexpected document id in response: " + document.get("id"), e);
+    }
+    if (index < 0 || index >= batchSize) {
+      throw new IOException("Unexpected document id in response: " + index);
+    }
+    return index;
+  }
+
+  private JsonArray post(String url, JsonArray documentsToSend) throws IOException {
+    JsonObject body = new JsonObject();
+    body.add("documents", documentsToSend);
+
+    HttpPost request = new HttpPost(url);
+    request.addHeader(SUBSCRIPTION_KEY_HEADER, options.getSubscriptionKey());
+    request.setEntity(new StringEntity(body.toString(), ContentType.APPLICATION_JSON));
+
+    requests.incrementAndGet();
+    documents.addAndGet(documentsToSend.size());
+    String response = httpClient.execute(request, new BasicResponseHandler());
+
+    JsonArray result = new JsonParser().parse(response).getAsJsonObject().getAsJsonArray("documents");
+    return result != null ? result : new JsonArray();
+  }
+
+  public LanguageDetector getLanguageDetector() {
+    return languageDetector;
+  }
+
+  /**
+   * Detects languages in process instead of calling the languages API, null to use the API
+   */
+  public void setLanguageDetector(LanguageDetector languageDetector) {
+    this.languageDetector = languageDetector;
+  }
+
+  public TopicExtractor getTopicExtractor() {
+    return topicExtractor;
+  }
+
+  /**
+   * Extracts entities in process instead of calling the entities API, null to use the API
+   */
+  public void setTopicExtractor(TopicExtractor topicExtractor) {
+    this.topicExtractor = topicExtractor;
+  }
+
+  /**
+   * Number of HTTP requests sent so far
+   */
+  public long getRequests() {
+    return requests.get();
+  }
+
+  /**
+   * Number of documents sent so far, over all requests
+   */
+  public long getDocuments() {
+    return documents.get();
+  }
+
+  /**
+   * Connections currently kept alive in the pool
+   */
+  public int getIdleConnections() {
+    return connectionManager.getTotalStats().getAvailable();
+  }
+
+  @Override
+  public void close() throws IOException {
+    httpClient.close();
+  }
+}
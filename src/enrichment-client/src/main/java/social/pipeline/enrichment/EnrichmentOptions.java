@@ -0,0 +1,93 @@
+package social.pipeline.enrichment;
+
+import java.io.Serializable;
+
+/**
+ * Endpoints and batching settings of an {@link EnrichmentClient}, serializable so it can be shipped to Spark executors
+ */
+public class EnrichmentOptions implements Serializable {
+
+  private static final long serialVersionUID = 1L;
+
+  private String languagesUrl;
+  private String entitiesUrl;
+  private String subscriptionKey = "";
+  private int batchSize = 1000;
+  private int maxConnections = 8;
+  private int timeoutMillis = 30_000;
+  private String defaultLanguage = "en";
+
+  public EnrichmentOptions() {
+  }
+
+  public EnrichmentOptions(String languagesUrl, String entitiesUrl, String subscriptionKey) {
+    this.languagesUrl = languagesUrl;
+    this.entitiesUrl = entitiesUrl;
+    this.subscriptionKey = subscriptionKey;
+  }
+
+  public String getLanguagesUrl() {
+    return languagesUrl;
+  }
+
+  public void setLanguagesUrl(String languagesUrl) {
+    this.languagesUrl = languagesUrl;
+  }
+
+  public String getEntitiesUrl() {
+    return entitiesUrl;
+  }
+
+  public void setEntitiesUrl(String entitiesUrl) {
+    this.entitiesUrl = entitiesUrl;
+  }
+
+  public String getSubscriptionKey() {
+    return subscriptionKey;
+  }
+
+  public void setSubscriptionKey(String subscriptionKey) {
+    this.subscriptionKey = subscriptionKey;
+  }
+
+  /**
+   * Maximum number of documents sent in one request, 1000 for the Text Analytics v2 API
+   */
+  public int getBatchSize() {
+    return batchSize;
+  }
+
+  public void setBatchSize(int batchSize) {
+    this.batchSize = batchSize;
+  }
+
+  /**
+   * Size of the keep-alive connection pool
+   */
+  public int getMaxConnections() {
+    return maxConnections;
+  }
+
+  public void setMaxConnections(int maxConnections) {
+    this.maxConnections = maxConnections;
+  }
+
+  public int getTimeoutMillis() {
+    return timeoutMillis;
+  }
+
+  public void setTimeoutMillis(int timeoutMillis) {
+    this.timeoutMillis = timeoutMillis;
+  }
+
+  /**
+   * Language used when the API does not detect one
+   */
+  public String getDefaultLanguage() {
+    return defaultLanguage;
+  }
+
+  public void setDefaultLanguage(String defaultLanguage) {
+    this.defaultLanguage = defaultLanguage;
+  }
+}
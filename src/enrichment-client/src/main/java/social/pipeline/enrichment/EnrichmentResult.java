@@ -0,0 +1,39 @@
+package social.pipeline.enrichment;
+
+import java.util.List;
+
+/**
+ * Language and entities found for one document
+ */
+public class EnrichmentResult {
+
+  private final String text;
+  private final String language;
+  private final List<String> entities;
+
+  public EnrichmentResult(String text, String language, List<String> entities) {
+    this.text = text;
+    this.language = language;
+    this.entities = entities;
+  }
+
+  public String getText() {
+    return text;
+  }
+
+  public String getLanguage() {
+    return language;
+  }
+
+  public List<String> getEntities() {
+    return entities;
+  }
+
+  @Override
+  public String toString() {
+    return "EnrichmentResult{" +
+      "language='" + language + '\'' +
+      ", entities=" + entities +
+      '}';
+  }
+}
@@ -0,0 +1,331 @@
+package social.pipeline.enrichment;
+
+import social.pipeline.source.SocialMessage;
+import social.pipeline.text.TextNormalizer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * In process language identification using character bigram and trigram profiles.
+ * <p>
+ * Each language is profiled from a sample text: n-grams of the lower cased words are hashed into a
+ * fixed number of buckets and their smoothed log probabilities are kept in one flat array. A text is
+ * scored against all languages in a single pass over its UTF-16 chars, skipping mentions, hashtags
+ * and URLs, without allocating. Texts mostly written in a non-Latin script are identified by the
+ * script alone. Instances are immutable and thread safe.
+ */
+public class LanguageDetector {
+
+  public static final String[] DEFAULT_LANGUAGES = {"en", "es", "fr", "de", "pt", "it", "nl", "sv", "tr", "pl", "cs"};
+
+  private static final String PROFILE_RESOURCE = "/language-profiles/%s.txt";
+  private static final String UNDEFINED = "und";
+
+  private static final int BUCKET_BITS = 14;
+  private static final int BUCKETS = 1 << BUCKET_BITS;
+  private static final int MIN_GRAMS = 3;
+  /**
+   * Below this many n-grams a text is short enough for names and loanwords to sway the scores
+   */
+  private static final int SHORT_TEXT_GRAMS = 200;
+  /**
+   * Least score gap per n-gram between the two best languages for a short text to overrule the fallback
+   */
+  private static final double MIN_SHORT_TEXT_MARGIN = 0.03;
+  private static final long BIGRAM_MARKER = 0x1FFFFFL << 42;
+
+  private static final String[] SCRIPT_LANGUAGES = {"ru", "ar", "he", "el", "th", "ko", "ja", "zh", "hi"};
+  private static final int LATIN_SCRIPT = -1;
+  private static final int UNSUPPORTED_SCRIPT = -2;
+  private static final int SCRIPT_CYRILLIC = 0;
+  private static final int SCRIPT_ARABIC = 1;
+  private static final int SCRIPT_HEBREW = 2;
+  private static final int SCRIPT_GREEK = 3;
+  private static final int SCRIPT_THAI = 4;
+  private static final int SCRIPT_HANGUL = 5;
+  private static final int SCRIPT_KANA = 6;
+  private static final int SCRIPT_HAN = 7;
+  private static final int SCRIPT_DEVANAGARI = 8;
+
+  private final String[] languages;
+  private final float[] logProbabilities;
+  private final ThreadLocal<Scratch> scratch;
+
+  /**
+   * Builds the profiles from a sample text per language
+   */
+  public LanguageDetector(Map<String, String> samples) {
+    this.languages = samples.keySet().toArray(new String[0]);
+    this.logProbabilities = new float[BUCKETS * languages.length];
+    this.scratch = ThreadLocal.withInitial(() -> new Scratch(languages.length));
+
+    int[] counts = new int[BUCKETS];
+    Scratch training = new Scratch(languages.length);
+    for (int l = 0; l < languages.length; l++) {
+      Arrays.fill(counts, 0);
+      int total = scan(samples.get(languages[l]), counts, training);
+      double denominator = Math.log(total + (double) BUCKETS);
+      for (int bucket = 0; bucket < BUCKETS; bucket++) {
+        logProbabilities[bucket * languages.length + l] = (float) (Math.log(counts[bucket] + 1.0) - denominator);
+      }
+    }
+  }
+
+  private static final class DefaultHolder {
+    private static final LanguageDetector INSTANCE = fromResources(DEFAULT_LANGUAGES);
+  }
+
+  /**
+   * Detector for {@link #DEFAULT_LANGUAGES}, built once from the bundled profiles
+   */
+  public static LanguageDetector getDefault() {
+    return DefaultHolder.INSTANCE;
+  }
+
+  /**
+   * Detector built from the bundled language-profiles/&lt;language&gt;.txt samples
+   */
+  public static LanguageDetector fromResources(String... languages) {
+    Map<String, String> samples = new LinkedHashMap<>();
+    for (String language : languages) {
+      String resource = String.format(PROFILE_RESOURCE, language);
+      try (InputStream in = LanguageDetector.class.getResourceAsStream(resource)) {
+        if (in == null) {
+          throw new IllegalArgumentException("No language profile for " + language);
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        for (int read; (read = in.read(buffer)) > 0; ) {
+          bytes.write(buffer, 0, read);
+        }
+        samples.put(language, new String(bytes.toByteArray(), StandardCharsets.UTF_8));
+      } catch (IOException e) {
+        throw new UncheckedIOException("Failed to read " + resource, e);
+      }
+    }
+    return new LanguageDetector(samples);
+  }
+
+  /**
+   * @return true if the language code names an actual language, Twitter uses "und" when it could not tell
+   */
+  public static boolean isKnown(String language) {
+    return language != null && !language.isEmpty() && !UNDEFINED.equals(language);
+  }
+
+  /**
+   * The language reported by the source if known, otherwise the detected one
+   *
+   * @return the language, or null if the text has too few letters to tell
+   */
+  public String detect(SocialMessage message) {
+    if (isKnown(message.getLang())) {
+      return message.getLang();
+    }
+    return message.getText() != null ? detect(message.getText()) : null;
+  }
+
+  /**
+   * @return the most likely language, or null if the text has too few letters to tell
+   */
+  public String detect(CharSequence text) {
+    return detect(text, null, false);
+  }
+
+  /**
+   * Like {@link #detect(CharSequence)}, but a short text whose best language wins by a narrow margin, such
+   * as an English headline full of Spanish looking names, gets the fallback as well
+   *
+   * @return the detected language, or fallback if the text has too few letters or the detection is unsure
+   */
+  public String detect(CharSequence text, String fallback) {
+    return detect(text, fallback, fallback != null);
+  }
+
+  private String detect(CharSequence text, String fallback, boolean unsureFallsBack) {
+    Scratch state = scratch.get();
+    Arrays.fill(state.scores, 0);
+    Arrays.fill(state.scripts, 0);
+    int grams = scan(text, null, state);
+
+    int script = -1;
+    for (int s = 0; s < state.scripts.length; s++) {
+      if (state.scripts[s] > 0 && (script < 0 || state.scripts[s] > state.scripts[script])) {
+        script = s;
+      }
+    }
+    if (script >= 0 && state.scripts[script] + (script == SCRIPT_HAN ? state.scripts[SCRIPT_KANA] : 0) > state.latinLetters) {
+      // Japanese mixes kana with Han characters, any kana sets it apart from Chinese
+      return SCRIPT_LANGUAGES[script == SCRIPT_HAN && state.scripts[SCRIPT_KANA] > 0 ? SCRIPT_KANA : script];
+    }
+    if (grams < MIN_GRAMS) {
+      return fallback;
+    }
+
+    int best = 0;
+    int second = -1;
+    for (int l = 1; l < languages.length; l++) {
+      if (state.scores[l] > state.scores[best]) {
+        second = best;
+        best = l;
+      } else if (second < 0 || state.scores[l] > state.scores[second]) {
+        second = l;
+      }
+    }
+    if (unsureFallsBack && second >= 0 && grams < SHORT_TEXT_GRAMS
+      && state.scores[best] - state.scores[second] < MIN_SHORT_TEXT_MARGIN * grams) {
+      return fallback;
+    }
+    return languages[best];
+  }
+
+  public String[] getLanguages() {
+    return languages.clone();
+  }
+
+  /**
+   * Feeds the n-grams of the Latin words of the text either into counts (training) or into the scores
+   *
+   * @return the number of n-grams seen
+   */
+  private int scan(CharSequence text, int[] counts, Scratch state) {
+    state.latinLetters = 0;
+    int grams = 0;
+    int previous2 = ' ';
+    int previous = ' ';
+    boolean tokenStart = true;
+    int length = text.length();
+    int i = 0;
+    while (i < length) {
+      if (tokenStart && isSkippedToken(text, i)) {
+        while (i < length && !Character.isWhitespace(text.charAt(i))) {
+          i++;
+        }
+        continue;
+      }
+
+      int codePoint = Character.codePointAt(text, i);
+      i += Character.charCount(codePoint);
+      tokenStart = Character.isWhitespace(codePoint);
+
+      int current = ' ';
+      if (Character.isLetter(codePoint)) {
+        int script = script(codePoint);
+        if (script == LATIN_SCRIPT) {
+          current = Character.toLowerCase(codePoint);
+          state.latinLetters++;
+        } else if (script != UNSUPPORTED_SCRIPT) {
+          state.scripts[script]++;
+        }
+      }
+      if (current == ' ' && previous == ' ') {
+        continue;
+      }
+
+      add(counts, state, BIGRAM_MARKER | ((long) previous << 21) | current);
+      grams++;
+      if (previous != ' ') {
+        add(counts, state, ((long) previous2 << 42) | ((long) previous << 21) | current);
+        grams++;
+      }
+      previous2 = previous;
+      previous = current;
+    }
+    if (previous != ' ') {
+      add(counts, state, BIGRAM_MARKER | ((long) previous << 21) | ' ');
+      add(counts, state, ((long) previous2 << 42) | ((long) previous << 21) | ' ');
+      grams += 2;
+    }
+    return grams;
+  }
+
+  private void add(int[] counts, Scratch state, long gram) {
+    int bucket = (int) (TextNormalizer.mix(gram) >>> (64 - BUCKET_BITS));
+    if (counts != null) {
+      counts[bucket]++;
+    } else {
+      int offset = bucket * languages.length;
+      double[] scores = state.scores;
+      for (int l = 0; l < scores.length; l++) {
+        scores[l] += logProbabilities[offset + l];
+      }
+    }
+  }
+
+  /**
+   * Mentions, hashtags, URLs and the retweet marker say nothing about the language
+   */
+  private static boolean isSkippedToken(CharSequence text, int i) {
+    char c = text.charAt(i);
+    if (c == '@' || c == '#') {
+      return true;
+    }
+    if (c == 'h' && startsWith(text, i, "http")) {
+      return true;
+    }
+    return c == 'R' && startsWith(text, i, "RT") && (i + 2 == text.length() || Character.isWhitespace(text.charAt(i + 2)));
+  }
+
+  private static boolean startsWith(CharSequence text, int i, String prefix) {
+    if (i + prefix.length() > text.length()) {
+      return false;
+    }
+    for (int j = 0; j < prefix.length(); j++) {
+      if (text.charAt(i + j) != prefix.charAt(j)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * @return the script index of a non-Latin letter, {@link #LATIN_SCRIPT} or {@link #UNSUPPORTED_SCRIPT}
+   */
+  private static int script(int codePoint) {
+    if (codePoint < 0x250 || (codePoint >= 0x1E00 && codePoint < 0x1F00)) {
+      return LATIN_SCRIPT;
+    }
+    switch (Character.UnicodeScript.of(codePoint)) {
+      case LATIN:
+        return LATIN_SCRIPT;
+      case CYRILLIC:
+        return SCRIPT_CYRILLIC;
+      case ARABIC:
+        return SCRIPT_ARABIC;
+      case HEBREW:
+        return SCRIPT_HEBREW;
+      case GREEK:
+        return SCRIPT_GREEK;
+      case THAI:
+        return SCRIPT_THAI;
+      case HANGUL:
+        return SCRIPT_HANGUL;
+      case HIRAGANA:
+      case KATAKANA:
+        return SCRIPT_KANA;
+      case HAN:
+        return SCRIPT_HAN;
+      case DEVANAGARI:
+        return SCRIPT_DEVANAGARI;
+      default:
+        return UNSUPPORTED_SCRIPT;
+    }
+  }
+
+  private static final class Scratch {
+    private final double[] scores;
+    private final int[] scripts = new int[SCRIPT_LANGUAGES.length];
+    private int latinLetters;
+
+    private Scratch(int languages) {
+      this.scores = new double[languages];
+    }
+  }
+}
@@ -0,0 +1,113 @@
+package social.pipeline.enrichment;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class CachingEnricherTest {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private final long[] now = {0};
+  private final Clock clock = new Clock() {
+    @Override
+    public ZoneOffset getZone() {
+      return ZoneOffset.UTC;
+    }
+
+    @Override
+    public Clock withZone(ZoneId zone) {
+      return this;
+    }
+
+    @Override
+    public Instant instant() {
+      return Instant.ofEpochMilli(now[0]);
+    }
+  };
+
+  private StubTextAnalyticsServer server;
+  private EnrichmentClient client;
+
+  @Before
+  public void setUp() throws Exception {
+    server = new StubTextAnalyticsServer();
+    client = new EnrichmentClient(new EnrichmentOptions(server.url("languages"), server.url("entities"), "key"));
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    client.close();
+    server.close();
+  }
+
+  @Test
+  public void test_retweets_are_served_from_cache() throws Exception {
+    CachingEnricher enricher = new CachingEnricher(client, new EnrichmentCache(100, -1, clock));
+
+    List<EnrichmentResult> first = enricher.enrich(Arrays.asList(
+      "hola Madrid https://t.co/a", "RT @bob: hola Madrid https://t.co/b", "Paris"));
+    Assert.assertEquals(1, server.getLanguageRequests().size());
+    Assert.assertEquals(2, server.getLanguageRequests().get(0).size());
+    Assert.assertEquals("es", first.get(1).getLanguage());
+    Assert.assertEquals("RT @bob: hola Madrid https://t.co/b", first.get(1).getText());
+    Assert.assertEquals(Collections.singletonList("Madrid"), first.get(1).getEntities());
+
+    List<EnrichmentResult> second = enricher.enrich(Arrays.asList("RT @carol:  hola   Madrid", "Paris"));
+    Assert.assertEquals(1, server.getLanguageRequests().size());
+    Assert.assertEquals(Collections.singletonList("Paris"), second.get(1).getEntities());
+    Assert.assertEquals(2, enricher.getHits());
+    Assert.assertEquals(3, enricher.getMisses());
+    Assert.assertEquals(1, enricher.getDelegateCalls());
+  }
+
+  @Test
+  public void test_size_and_ttl_eviction() {
+    EnrichmentCache cache = new EnrichmentCache(2, 1000, clock);
+    cache.put(1, "en", Collections.emptyList());
+    cache.put(2, "en", Collections.emptyList());
+    Assert.assertNotNull(cache.get(1));
+    cache.put(3, "en", Collections.emptyList());
+
+    Assert.assertNull(cache.get(2));
+    Assert.assertNotNull(cache.get(1));
+    Assert.assertEquals(1, cache.getEvictions());
+
+    now[0] = 1000;
+    Assert.assertNull(cache.get(1));
+    Assert.assertEquals(1, cache.getExpirations());
+  }
+
+  @Test
+  public void test_snapshot_survives_restart() throws Exception {
+    Path file = folder.getRoot().toPath().resolve("cache/enrichment.bin");
+    EnrichmentCache cache = new EnrichmentCache(100, 10_000, clock);
+    cache.put(1, "en", Arrays.asList("Seattle", "Space Needle"));
+    cache.put(2, "es", Collections.emptyList());
+    cache.save(file);
+
+    now[0] = 5000;
+    cache.put(3, "fr", Collections.emptyList());
+    cache.save(file);
+
+    now[0] = 12_000;
+    EnrichmentCache restarted = new EnrichmentCache(100, 10_000, clock);
+    Assert.assertEquals(1, restarted.load(file));
+    Assert.assertNull(restarted.get(1));
+    Assert.assertEquals("fr", restarted.get(3).getLanguage());
+    Assert.assertEquals(0, new EnrichmentCache(100, 10_000, clock).load(folder.getRoot().toPath().resolve("missing")));
+  }
+}
@@ -0,0 +1,90 @@
+package social.pipeline.enrichment;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import social.pipeline.text.TopicExtractor;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+public class EnrichmentClientTest {
+
+  private StubTextAnalyticsServer server;
+  private EnrichmentClient client;
+
+  @Before
+  public void setUp() throws Exception {
+    server = new StubTextAnalyticsServer();
+    EnrichmentOptions options = new EnrichmentOptions(server.url("languages"), server.url("entities"), "key");
+    options.setBatchSize(100);
+    client = new EnrichmentClient(options);
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    client.close();
+    server.close();
+  }
+
+  @Test
+  public void test_enrich_single_batch() throws Exception {
+    List<EnrichmentResult> results = client.enrich(Arrays.asList("hola Madrid", "visiting Tel Aviv today", "nothing here"));
+
+    Assert.assertEquals("es", results.get(0).getLanguage());
+    Assert.assertEquals(Arrays.asList("Madrid"), results.get(0).getEntities());
+    Assert.assertEquals("en", results.get(1).getLanguage());
+    Assert.assertEquals(Arrays.asList("Tel", "Aviv"), results.get(1).getEntities());
+    Assert.assertTrue(results.get(2).getEntities().isEmpty());
+    Assert.assertEquals(2, client.getRequests());
+  }
+
+  @Test
+  public void test_documents_are_coalesced_into_batches() throws Exception {
+    List<String> texts = new ArrayList<>();
+    for (int i = 0; i < 250; i++) {
+      texts.add((i % 2 == 0 ? "hola " : "hello ") + "Topic" + i);
+    }
+
+    Iterator<EnrichmentResult> results = client.enrichAll(texts.iterator());
+    int count = 0;
+    while (results.hasNext()) {
+      EnrichmentResult result = results.next();
+      Assert.assertEquals(count % 2 == 0 ? "es" : "en", result.getLanguage());
+      Assert.assertEquals(Arrays.asList("Topic" + count), result.getEntities());
+      count++;
+    }
+
+    Assert.assertEquals(250, count);
+    Assert.assertEquals(3, server.getLanguageRequests().size());
+    Assert.assertEquals(3, server.getEntityRequests().size());
+    Assert.assertEquals(100, server.getEntityRequests().get(0).size());
+    Assert.assertEquals("es", server.getEntityRequests().get(0).get(0).getAsJsonObject().get("language").getAsString());
+    Assert.assertTrue(client.getIdleConnections() > 0);
+  }
+
+  @Test
+  public void test_local_topic_extraction_skips_entities_api() throws Exception {
+    client.setTopicExtractor(new TopicExtractor(Collections.singletonMap("tel aviv", "Tel Aviv")));
+    List<EnrichmentResult> results = client.enrich(Arrays.asList("hola tel aviv #LanaDelRey"), Arrays.asList("es"));
+
+    Assert.assertEquals(Arrays.asList("Tel Aviv", "#lanadelrey"), results.get(0).getEntities());
+    Assert.assertEquals(0, client.getRequests());
+  }
+
+  @Test
+  public void test_enrich_all_passes_known_languages() throws Exception {
+    Iterator<EnrichmentResult> results = client.enrichAll(
+      Arrays.asList("hola Madrid", "hello Paris").iterator(), Arrays.asList("fr", null).iterator());
+
+    Assert.assertEquals("fr", results.next().getLanguage());
+    Assert.assertEquals("en", results.next().getLanguage());
+    Assert.assertFalse(results.hasNext());
+    // Only the text without a known language is sent to the languages API
+    Assert.assertEquals(1, server.getLanguageRequests().get(0).size());
+  }
+}
@@ -0,0 +1,103 @@
+package social.pipeline.enrichment;
+
+import org.junit.Assert;
+import org.junit.Test;
+import social.pipeline.impl.custom.JsonMessageReader;
+import social.pipeline.source.SocialMessage;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class LanguageDetectorTest {
+
+  private final LanguageDetector detector = LanguageDetector.getDefault();
+
+  @Test
+  public void test_detects_sentences() {
+    Assert.assertEquals("en", detector.detect("I am really looking forward to the weekend with my friends"));
+    Assert.assertEquals("es", detector.detect("Mañana vamos a la playa con mis amigos, qué ganas"));
+    Assert.assertEquals("fr", detector.detect("Je ne sais pas ce que nous allons faire ce soir"));
+    Assert.assertEquals("de", detector.detect("Ich weiß nicht, was wir heute Abend machen sollen"));
+    Assert.assertEquals("pt", detector.detect("Não sei o que vamos fazer hoje à noite, você vem?"));
+    Assert.assertEquals("it", detector.detect("Non so cosa faremo stasera, vieni anche tu?"));
+    Assert.assertEquals("ru", detector.detect("Я не знаю, что мы будем делать сегодня вечером"));
+    Assert.assertEquals("ja", detector.detect("今日はとても良い天気ですね"));
+  }
+
+  @Test
+  public void test_source_language_is_preferred() {
+    SocialMessage message = new SocialMessage("I am really looking forward to the weekend");
+    message.setLang("nl");
+    Assert.assertEquals("nl", detector.detect(message));
+    message.setLang("und");
+    Assert.assertEquals("en", detector.detect(message));
+  }
+
+  @Test
+  public void test_too_few_letters() {
+    Assert.assertNull(detector.detect("@someone https://t.co/abc #hashtag 2018"));
+    Assert.assertEquals("en", detector.detect("🙂", "en"));
+  }
+
+  @Test
+  public void test_unsure_short_text_falls_back() {
+    String headline = "Lana Del Rey defends decision to play Israel show";
+    Assert.assertEquals("en", detector.detect(headline, "en"));
+    Assert.assertEquals("es", detector.detect("Nos vemos mañana en Madrid", "en"));
+    Assert.assertEquals("fr", detector.detect("Merci beaucoup", "en"));
+  }
+
+  @Test
+  public void test_accuracy_on_messages_fixture() throws Exception {
+    Map<Long, String> labels = new HashMap<>();
+    try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+      getClass().getResourceAsStream("/messages-languages.csv"), StandardCharsets.UTF_8))) {
+      for (String line; (line = reader.readLine()) != null; ) {
+        if (!line.startsWith("#")) {
+          String[] fields = line.split(",");
+          labels.put(Long.parseLong(fields[0]), fields[1]);
+        }
+      }
+    }
+
+    int total = 0;
+    int correct = 0;
+    try (JsonMessageReader messages = JsonMessageReader.openResource("/messages.json")) {
+      while (messages.hasNext()) {
+        SocialMessage message = messages.next();
+        String expected = labels.get(message.getId());
+        String detected = detector.detect(message.getText(), "en");
+        total++;
+        if (expected.equals(detected)) {
+          correct++;
+        }
+      }
+    }
+    double accuracy = (double) correct / total;
+    Assert.assertEquals(100, total);
+    Assert.assertTrue("Accuracy " + accuracy, accuracy >= 0.95);
+  }
+
+  @Test
+  public void test_client_detects_languages_locally() throws Exception {
+    try (StubTextAnalyticsServer server = new StubTextAnalyticsServer();
+         EnrichmentClient client = new EnrichmentClient(
+           new EnrichmentOptions(server.url("languages"), server.url("entities"), "key"))) {
+      client.setLanguageDetector(detector);
+      List<EnrichmentResult> results = client.enrich(
+        Arrays.asList("Nos vemos mañana en Madrid", "See you tomorrow in Seattle", "Tot morgen in Amsterdam"),
+        Arrays.asList(null, null, "nl"));
+
+      Assert.assertEquals("es", results.get(0).getLanguage());
+      Assert.assertEquals("en", results.get(1).getLanguage());
+      Assert.assertEquals("nl", results.get(2).getLanguage());
+      Assert.assertTrue(server.getLanguageRequests().isEmpty());
+      Assert.assertEquals(1, server.getEntityRequests().size());
+    }
+  }
+}
@@ -0,0 +1,105 @@
+package social.pipeline.enrichment;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Local stand-in for the Text Analytics API: texts containing "hola" are Spanish, every capitalized word is an entity
+ */
+public class StubTextAnalyticsServer implements AutoCloseable {
+
+  private final HttpServer server;
+  private final List<JsonArray> languageRequests = new CopyOnWriteArrayList<>();
+  private final List<JsonArray> entityRequests = new CopyOnWriteArrayList<>();
+
+  public StubTextAnalyticsServer() throws IOException {
+    server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+    server.createContext("/languages", exchange -> respond(exchange, languages(read(exchange, languageRequests))));
+    server.createContext("/entities", exchange -> respond(exchange, entities(read(exchange, entityRequests))));
+    server.start();
+  }
+
+  public String url(String path) {
+    return "http://127.0.0.1:" + server.getAddress().getPort() + "/" + path;
+  }
+
+  public List<JsonArray> getLanguageRequests() {
+    return languageRequests;
+  }
+
+  public List<JsonArray> getEntityRequests() {
+    return entityRequests;
+  }
+
+  private static JsonArray read(HttpExchange exchange, List<JsonArray> requests) {
+    JsonArray documents = new JsonParser()
+      .parse(new InputStreamReader(exchange.getRequestBody(), StandardCharsets.UTF_8))
+      .getAsJsonObject().getAsJsonArray("documents");
+    requests.add(documents);
+    return documents;
+  }
+
+  private static JsonArray languages(JsonArray documents) {
+    JsonArray result = new JsonArray();
+    for (JsonElement element : documents) {
+      JsonObject request = element.getAsJsonObject();
+      JsonObject language = new JsonObject();
+      language.addProperty("iso6391Name", request.get("text").getAsString().contains("hola") ? "es" : "en");
+      JsonArray detected = new JsonArray();
+      detected.add(language);
+      JsonObject document = new JsonObject();
+      document.add("id", request.get("id"));
+      document.add("detectedLanguages", detected);
+      result.add(document);
+    }
+    return result;
+  }
+
+  private static JsonArray entities(JsonArray documents) {
+    JsonArray result = new JsonArray();
+    for (JsonElement element : documents) {
+      JsonObject request = element.getAsJsonObject();
+      JsonArray entities = new JsonArray();
+      for (String word : request.get("text").getAsString().split("\\s+")) {
+        if (!word.isEmpty() && Character.isUpperCase(word.charAt(0))) {
+          JsonObject entity = new JsonObject();
+          entity.addProperty("name", word);
+          entities.add(entity);
+        }
+      }
+      JsonObject document = new JsonObject();
+      document.add("id", request.get("id"));
+      document.add("entities", entities);
+      result.add(document);
+    }
+    return result;
+  }
+
+  private static void respond(HttpExchange exchange, JsonArray documents) throws IOException {
+    JsonObject body = new JsonObject();
+    body.add("documents", documents);
+    byte[] bytes = body.toString().getBytes(StandardCharsets.UTF_8);
+    exchange.getResponseHeaders().add("Content-Type", "application/json");
+    exchange.sendResponseHeaders(200, bytes.length);
+    try (OutputStream output = exchange.getResponseBody()) {
+      output.write(bytes);
+    }
+  }
+
+  @Override
+  public void close() {
+    server.stop(0);
+  }
+}
@@ -0,0 +1,34 @@
+package social.pipeline.checkpoint;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Collection;
+
+/**
+ * Durable storage of the {@link IngestCheckpoint}s of the queries being ingested.
+ * A checkpoint is durable once {@link #save} returns.
+ */
+public interface CheckpointStore extends Closeable {
+
+  /**
+   * @return a copy of the checkpoint of the key, null if there is none
+   */
+  IngestCheckpoint load(String key) throws IOException;
+
+  void save(IngestCheckpoint checkpoint) throws IOException;
+
+  /**
+   * Saves the checkpoints of several keys, a store that can should make them durable at once
+   */
+  default void saveAll(Collection<IngestCheckpoint> checkpoints) throws IOException {
+    for (IngestCheckpoint checkpoint : checkpoints) {
+      save(checkpoint);
+    }
+  }
+
+  void remove(String key) throws IOException;
+
+  @Override
+  default void close() throws IOException {
+  }
+}
@@ -0,0 +1,175 @@
+package social.pipeline.checkpoint;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * Checkpoints of all queries in one small binary file, rewritten on every save.
+ * <p>
+ * The file holds a magic number, a version, the checkpoints as a UTF key and four longs each, and the
+ * CRC32 of all of it. A save writes a temporary file next to it, forces it to the disk and renames it
+ * over the file atomically, so a crash leaves either the previous or the new checkpoints, never a mix.
+ * A file failing its checksum is rejected rather than resuming from wrong ids. Instances are thread safe.
+ */
+public class FileCheckpointStore implements CheckpointStore {
+
+  private static final int MAGIC = 0x434b5054;
+  private static final byte VERSION = 1;
+
+  private final Path file;
+  private final Path temporary;
+  private final Map<String, IngestCheckpoint> checkpoints = new LinkedHashMap<>();
+
+  public FileCheckpointStore(Path file) throws IOException {
+    this.file = file.toAbsolutePath();
+    this.temporary = this.file.resolveSibling(this.file.getFileName() + ".tmp");
+    if (this.file.getParent() != null) {
+      Files.createDirectories(this.file.getParent());
+    }
+    if (Files.exists(this.file)) {
+      read();
+    }
+  }
+
+  private void read() throws IOException {
+    byte[] content = Files.readAllBytes(file);
+    if (content.length < 4) {
+      throw new IOException("Checkpoint file " + file + " is truncated");
+    }
+    CRC32 crc = new CRC32();
+    crc.update(content, 0, content.length - 4);
+    if ((int) crc.getValue() != ByteBuffer.wrap(content, content.length - 4, 4).getInt()) {
+      throw new IOException("Checkpoint file " + file + " is corrupt");
+    }
+    try (DataInputStream input = new DataInputStream(new ByteArrayInputStream(content, 0, content.length - 4))) {
+      if (input.readInt() != MAGIC || input.readByte() != VERSION) {
+        throw new IOException("Not a checkpoint file: " + file);
+      }
+      int count = input.readInt();
+      for (int i = 0; i < count; i++) {
+        IngestCheckpoint checkpoint = new IngestCheckpoint(input.readUTF(), input.readLong(), input.readLong(), input.readLong(), input.readLong());
+        checkpoints.put(checkpoint.getKey(), checkpoint);
+      }
+    }
+  }
+
+  @Override
+  public synchronized IngestCheckpoint load(String key) {
+    IngestCheckpoint checkpoint = checkpoints.get(key);
+    return checkpoint != null ? checkpoint.copy() : null;
+  }
+
+  /**
+   * Copies of all checkpoints, in the order they were first saved
+   */
+  public synchronized List<IngestCheckpoint> loadAll() {
+    List<IngestCheckpoint> all = new ArrayList<>(checkpoints.size());
+    for (IngestCheckpoint checkpoint : checkpoints.values()) {
+      all.add(checkpoint.copy());
+    }
+    return all;
+  }
+
+  @Override
+  public synchronized void save(IngestCheckpoint checkpoint) throws IOException {
+    IngestCheckpoint previous = checkpoints.put(checkpoint.getKey(), checkpoint.copy());
+    try {
+      write();
+    } catch (IOException e) {
+      if (previous != null) {
+        checkpoints.put(previous.getKey(), previous);
+      } else {
+        checkpoints.remove(checkpoint.getKey());
+      }
+      throw e;
+    }
+  }
+
+  /**
+   * Saves all the checkpoints with a single rewrite of the file, so either all or none of them are durable
+   */
+  @Override
+  public synchronized void saveAll(Collection<IngestCheckpoint> saved) throws IOException {
+    Map<String, IngestCheckpoint> previous = new LinkedHashMap<>(checkpoints);
+    for (IngestCheckpoint checkpoint : saved) {
+      checkpoints.put(checkpoint.getKey(), checkpoint.copy());
+    }
+    try {
+      write();
+    } catch (IOException e) {
+      checkpoints.clear();
+      checkpoints.putAll(previous);
+      throw e;
+    }
+  }
+
+  @Override
+  public synchronized void remove(String key) throws IOException {
+    if (checkpoints.remove(key) != null) {
+      write();
+    }
+  }
+
+  private void write() throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 + checkpoints.size() * 64);
+    try (DataOutputStream output = new DataOutputStream(bytes)) {
+      output.writeInt(MAGIC);
+      output.writeByte(VERSION);
+      output.writeInt(checkpoints.size());
+      for (IngestCheckpoint checkpoint : checkpoints.values()) {
+        output.writeUTF(checkpoint.getKey());
+        output.writeLong(checkpoint.getSinceId());
+        output.writeLong(checkpoint.getHighId());
+        output.writeLong(checkpoint.getLowId());
+        output.writeLong(checkpoint.getUpdatedAt());
+      }
+    }
+    byte[] content = bytes.toByteArray();
+    CRC32 crc = new CRC32();
+    crc.update(content);
+    ByteBuffer buffer = ByteBuffer.allocate(content.length + 4).put(content).putInt((int) crc.getValue());
+    buffer.flip();
+
+    try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+      while (buffer.hasRemaining()) {
+        channel.write(buffer);
+      }
+      channel.force(true);
+    }
+    Files.move(temporary, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    syncDirectory();
+  }
+
+  /**
+   * Makes the rename durable where the platform allows syncing a directory
+   */
+  private void syncDirectory() {
+    if (file.getParent() == null) {
+      return;
+    }
+    try (FileChannel directory = FileChannel.open(file.getParent(), StandardOpenOption.READ)) {
+      directory.force(true);
+    } catch (IOException e) {
+      // Not supported on this platform, the rename reaches the disk with the next metadata flush
+    }
+  }
+
+  public Path getFile() {
+    return file;
+  }
+}
@@ -0,0 +1,110 @@
+package social.pipeline.checkpoint;
+
+/**
+ * Ingest progress of one query, saved in a {@link CheckpointStore}.
+ * <p>
+ * Each pass over a query pages from the newest message down to sinceId. Once a pass completes, every
+ * message up to the highest id it saw has been fetched, which becomes the sinceId of the next pass.
+ * While a pass is in progress, lowId is the lowest id of its last committed page, so an interrupted
+ * pass resumes below it instead of starting over.
+ */
+public class IngestCheckpoint {
+
+  private String key;
+  private long sinceId;
+  private long highId;
+  private long lowId;
+  private long updatedAt;
+
+  public IngestCheckpoint() {
+  }
+
+  public IngestCheckpoint(String key) {
+    this.key = key;
+  }
+
+  public IngestCheckpoint(String key, long sinceId, long highId, long lowId, long updatedAt) {
+    this.key = key;
+    this.sinceId = sinceId;
+    this.highId = highId;
+    this.lowId = lowId;
+    this.updatedAt = updatedAt;
+  }
+
+  /**
+   * True if a pass was interrupted after committing some of its pages
+   */
+  public boolean isPassInProgress() {
+    return lowId > 0;
+  }
+
+  /**
+   * The query, or topic, the checkpoint is for
+   */
+  public String getKey() {
+    return key;
+  }
+
+  public void setKey(String key) {
+    this.key = key;
+  }
+
+  /**
+   * Every message with an id up to sinceId was fetched by a completed pass, 0 if none completed
+   */
+  public long getSinceId() {
+    return sinceId;
+  }
+
+  public void setSinceId(long sinceId) {
+    this.sinceId = sinceId;
+  }
+
+  /**
+   * Highest id committed by the pass in progress, 0 if none is
+   */
+  public long getHighId() {
+    return highId;
+  }
+
+  public void setHighId(long highId) {
+    this.highId = highId;
+  }
+
+  /**
+   * Lowest id committed by the pass in progress, 0 if none is
+   */
+  public long getLowId() {
+    return lowId;
+  }
+
+  public void setLowId(long lowId) {
+    this.lowId = lowId;
+  }
+
+  /**
+   * Time of the last commit in epoch millis
+   */
+  public long getUpdatedAt() {
+    return updatedAt;
+  }
+
+  public void setUpdatedAt(long updatedAt) {
+    this.updatedAt = updatedAt;
+  }
+
+  public IngestCheckpoint copy() {
+    return new IngestCheckpoint(key, sinceId, highId, lowId, updatedAt);
+  }
+
+  @Override
+  public String toString() {
+    return "IngestCheckpoint{" +
+      "key='" + key + '\'' +
+      ", sinceId=" + sinceId +
+      ", highId=" + highId +
+      ", lowId=" + lowId +
+      ", updatedAt=" + updatedAt +
+      '}';
+  }
+}
@@ -0,0 +1,154 @@
+package social.pipeline.checkpoint;
+
+import social.pipeline.source.SocialMessageIterator;
+import social.pipeline.source.SocialQuery;
+import social.pipeline.source.SocialSource;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Commits the progress of a {@link SocialMessageIterator} to a {@link CheckpointStore} page by page,
+ * so that a restarted ingest resumes where it stopped.
+ * <p>
+ * Once every message of a page has been handed out, the flush makes them durable downstream (e.g. by
+ * syncing the spool they were appended to) and the checkpoint then records the ids of the page. A pass
+ * interrupted by a restart resumes below the lowest committed id and, once complete, the next pass
+ * starts above the highest id of the whole pass: no message is fetched twice and none is missed, but
+ * for those of a page that was not committed. Checkpoints are keyed by the query text, or by the
+ * topics a query packs: the query then resumes from the least advanced of its topics and every page
+ * is committed to all of them, so repacking the topics into other queries does not start them over.
+ */
+public class PageCheckpointer implements SocialMessageIterator.PageListener {
+
+  /**
+   * Makes the messages handed out so far durable downstream
+   */
+  public interface Flush {
+    void flush() throws IOException, InterruptedException;
+  }
+
+  private final CheckpointStore store;
+  private final IngestCheckpoint checkpoint;
+  private final List<String> keys;
+  private final Flush flush;
+
+  public PageCheckpointer(CheckpointStore store, IngestCheckpoint checkpoint, Flush flush) {
+    this(store, checkpoint, Collections.singletonList(checkpoint.getKey()), flush);
+  }
+
+  /**
+   * @param keys keys the checkpoint is saved under on every commit
+   */
+  public PageCheckpointer(CheckpointStore store, IngestCheckpoint checkpoint, List<String> keys, Flush flush) {
+    this.store = store;
+    this.checkpoint = checkpoint;
+    this.keys = keys;
+    this.flush = flush;
+  }
+
+  /**
+   * Streams the messages of the query from its checkpoint on, committing every page
+   */
+  public static SocialMessageIterator stream(SocialSource source, SocialQuery query, CheckpointStore store, Flush flush) throws IOException {
+    return stream(source, query, store, flush, -1, -1);
+  }
+
+  /**
+   * Streams the messages of the query from its checkpoint on, committing every page, and stops after
+   * maxMessages or maxDurationMillis (non positive for no limit); the next stream resumes after the last committed page
+   */
+  public static SocialMessageIterator stream(SocialSource source, SocialQuery query, CheckpointStore store, Flush flush,
+                                             long maxMessages, long maxDurationMillis) throws IOException {
+    return stream(source, query, Collections.singletonList(query.getQuery()), store, flush, maxMessages, maxDurationMillis);
+  }
+
+  /**
+   * Streams the messages of a query packing several topics, checkpointed under each of the keys
+   * (e.g. the topics); a key without checkpoint, like a topic just added, fetches the query from the newest message down
+   */
+  public static SocialMessageIterator stream(SocialSource source, SocialQuery query, List<String> keys, CheckpointStore store,
+                                             Flush flush, long maxMessages, long maxDurationMillis) throws IOException {
+    IngestCheckpoint checkpoint = merge(query.getQuery(), keys, store);
+    SocialMessageIterator iterator = source.stream(resume(query, checkpoint), maxMessages, maxDurationMillis);
+    iterator.setPageListener(new PageCheckpointer(store, checkpoint, keys, flush));
+    return iterator;
+  }
+
+  /**
+   * The checkpoint of the keys: their common one if they have the same, otherwise a new pass above the
+   * lowest sinceId, which fetches again what the more advanced keys had but misses nothing
+   */
+  private static IngestCheckpoint merge(String key, List<String> keys, CheckpointStore store) throws IOException {
+    IngestCheckpoint common = null;
+    long sinceId = Long.MAX_VALUE;
+    boolean same = true;
+    for (String checkpointKey : keys) {
+      IngestCheckpoint checkpoint = store.load(checkpointKey);
+      if (checkpoint == null) {
+        return new IngestCheckpoint(key);
+      }
+      sinceId = Math.min(sinceId, checkpoint.getSinceId());
+      if (common == null) {
+        common = checkpoint;
+      } else if (common.getSinceId() != checkpoint.getSinceId() || common.getHighId() != checkpoint.getHighId()
+        || common.getLowId() != checkpoint.getLowId()) {
+        same = false;
+      }
+    }
+    if (common == null) {
+      return new IngestCheckpoint(key);
+    }
+    return same ? new IngestCheckpoint(key, common.getSinceId(), common.getHighId(), common.getLowId(), common.getUpdatedAt())
+      : new IngestCheckpoint(key, sinceId, 0, 0, 0);
+  }
+
+  /**
+   * The query continuing from the checkpoint: above its sinceId, and below its lowId if a pass was interrupted
+   */
+  public static SocialQuery resume(SocialQuery query, IngestCheckpoint checkpoint) {
+    SocialQuery resumed = query.copy();
+    resumed.setSinceId(Math.max(query.getSinceId(), checkpoint.getSinceId()));
+    if (checkpoint.isPassInProgress()) {
+      resumed.setMaxId(checkpoint.getLowId() - 1);
+    }
+    return resumed;
+  }
+
+  @Override
+  public void onPageConsumed(SocialMessageIterator iterator) throws IOException {
+    try {
+      flush.flush();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while flushing the page");
+    }
+    if (iterator.getHighestId() != Long.MIN_VALUE) {
+      checkpoint.setHighId(Math.max(checkpoint.getHighId(), iterator.getHighestId()));
+      checkpoint.setLowId(checkpoint.isPassInProgress() ? Math.min(checkpoint.getLowId(), iterator.getLowestId()) : iterator.getLowestId());
+    }
+    if (iterator.isExhausted()) {
+      checkpoint.setSinceId(Math.max(checkpoint.getSinceId(), checkpoint.getHighId()));
+      checkpoint.setHighId(0);
+      checkpoint.setLowId(0);
+    }
+    checkpoint.setUpdatedAt(System.currentTimeMillis());
+    List<IngestCheckpoint> saved = new ArrayList<>(keys.size());
+    for (String key : keys) {
+      IngestCheckpoint copy = checkpoint.copy();
+      copy.setKey(key);
+      saved.add(copy);
+    }
+    store.saveAll(saved);
+  }
+
+  /**
+   * The checkpoint as of the last committed page
+   */
+  public IngestCheckpoint getCheckpoint() {
+    return checkpoint.copy();
+  }
+}
@@ -0,0 +1,417 @@
+package social.pipeline.codec;
+
+import social.pipeline.source.SocialMessage;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compact binary encoding of a {@link SocialMessage}.
+ * <p>
+ * Layout (version 1): schema version byte, flags byte, then zigzag varint id, timestamp,
+ * number of shares and likes, followed by the optional fields announced in the flags:
+ * lang and source as a dictionary index byte (or {@link #LITERAL} and a string), the text,
+ * the sentiment as an 8 byte double, the reactions as a count and name/value pairs, and the
+ * topics as a count and strings. Strings are a varint byte length and UTF-8 bytes.
+ * Reaction names, reaction values and topics may be null: they are written as a varint of
+ * their length, or zigzag value, plus one, 0 meaning null.
+ * <p>
+ * The dictionaries are part of the schema and may only be appended to. Instances keep a scratch
+ * buffer and are not thread safe.
+ */
+public class SocialMessageCodec {
+
+  public static final byte VERSION = 1;
+
+  static final int LITERAL = 0xFF;
+
+  private static final String[] LANGUAGES = {
+    "en", "es", "fr", "de", "pt", "ja", "ar", "it", "ru", "tr", "ko", "nl", "in", "hi", "th", "und",
+    "tl", "pl", "zh", "fa", "sv", "ur", "iw", "ca", "el", "uk", "cs", "da", "fi", "no", "ro", "hu"
+  };
+  private static final String[] SOURCES = {"Twitter", "GENERATED", "CUSTOM"};
+
+  private static final int HAS_TEXT = 1;
+  private static final int HAS_LANG = 1 << 1;
+  private static final int HAS_SOURCE = 1 << 2;
+  private static final int RETWEET = 1 << 3;
+  private static final int HAS_REACTIONS = 1 << 4;
+  private static final int HAS_TOPICS = 1 << 5;
+  private static final int HAS_SENTIMENT = 1 << 6;
+
+  private byte[] scratch = new byte[256];
+
+  /**
+   * Writes the message at the buffer's position
+   *
+   * @return the number of bytes written
+   * @throws java.nio.BufferOverflowException if the buffer has less than {@link #encodedSize} bytes remaining
+   */
+  public int encode(SocialMessage message, ByteBuffer buffer) {
+    int start = buffer.position();
+    int flags = flags(message);
+    buffer.put(VERSION);
+    buffer.put((byte) flags);
+    writeLong(buffer, message.getId());
+    writeLong(buffer, message.getTimestamp());
+    writeLong(buffer, message.getNumOfShares());
+    writeLong(buffer, message.getNumOfLikes());
+    if ((flags & HAS_LANG) != 0) {
+      writeDictionary(buffer, LANGUAGES, message.getLang());
+    }
+    if ((flags & HAS_SOURCE) != 0) {
+      writeDictionary(buffer, SOURCES, message.getSource());
+    }
+    if ((flags & HAS_TEXT) != 0) {
+      writeString(buffer, message.getText());
+    }
+    if ((flags & HAS_SENTIMENT) != 0) {
+      buffer.putDouble(message.getSentiment());
+    }
+    if ((flags & HAS_REACTIONS) != 0) {
+      writeUnsigned(buffer, message.getReactions().size());
+      for (Map.Entry<String, Integer> reaction : message.getReactions().entrySet()) {
+        writeNullableString(buffer, reaction.getKey());
+        writeNullableInt(buffer, reaction.getValue());
+      }
+    }
+    if ((flags & HAS_TOPICS) != 0) {
+      List<String> topics = message.getTopics();
+      writeUnsigned(buffer, topics.size());
+      for (int i = 0; i < topics.size(); i++) {
+        writeNullableString(buffer, topics.get(i));
+      }
+    }
+    return buffer.position() - start;
+  }
+
+  /**
+   * Exact number of bytes {@link #encode} writes for the message
+   */
+  public int encodedSize(SocialMessage message) {
+    int flags = flags(message);
+    int size = 2 + longSize(message.getId()) + longSize(message.getTimestamp())
+      + longSize(message.getNumOfShares()) + longSize(message.getNumOfLikes());
+    if ((flags & HAS_LANG) != 0) {
+      size += dictionarySize(LANGUAGES, message.getLang());
+    }
+    if ((flags & HAS_SOURCE) != 0) {
+      size += dictionarySize(SOURCES, message.getSource());
+    }
+    if ((flags & HAS_TEXT) != 0) {
+      size += stringSize(message.getText());
+    }
+    if ((flags & HAS_SENTIMENT) != 0) {
+      size += Double.BYTES;
+    }
+    if ((flags & HAS_REACTIONS) != 0) {
+      size += unsignedSize(message.getReactions().size());
+      for (Map.Entry<String, Integer> reaction : message.getReactions().entrySet()) {
+        size += nullableStringSize(reaction.getKey()) + nullableIntSize(reaction.getValue());
+      }
+    }
+    if ((flags & HAS_TOPICS) != 0) {
+      List<String> topics = message.getTopics();
+      size += unsignedSize(topics.size());
+      for (int i = 0; i < topics.size(); i++) {
+        size += nullableStringSize(topics.get(i));
+      }
+    }
+    return size;
+  }
+
+  public byte[] toBytes(SocialMessage message) {
+    byte[] bytes = new byte[encodedSize(message)];
+    encode(message, ByteBuffer.wrap(bytes));
+    return bytes;
+  }
+
+  public SocialMessage decode(ByteBuffer buffer) {
+    return decode(buffer, new SocialMessage());
+  }
+
+  /**
+   * Reads a message from the buffer's position into the given instance, overwriting all its fields
+   *
+   * @throws IllegalArgumentException if the bytes are not a valid encoded message
+   */
+  public SocialMessage decode(ByteBuffer buffer, SocialMessage message) {
+    int version = buffer.get();
+    if (version != VERSION) {
+      throw new IllegalArgumentException("Unsupported social message schema version " + version);
+    }
+    int flags = buffer.get();
+    message.setId(readLong(buffer));
+    message.setTimestamp(readLong(buffer));
+    message.setNumOfShares((int) readLong(buffer));
+    message.setNumOfLikes((int) readLong(buffer));
+    message.setShareOrRetweet((flags & RETWEET) != 0);
+    message.setLang((flags & HAS_LANG) != 0 ? readDictionary(buffer, LANGUAGES) : null);
+    message.setSource((flags & HAS_SOURCE) != 0 ? readDictionary(buffer, SOURCES) : null);
+    message.setText((flags & HAS_TEXT) != 0 ? readString(buffer) : null);
+    message.setSentiment((flags & HAS_SENTIMENT) != 0 ? buffer.getDouble() : 0);
+
+    Map<String, Integer> reactions = null;
+    if ((flags & HAS_REACTIONS) != 0) {
+      int count = readCount(buffer);
+      reactions = new HashMap<>(count * 2);
+      for (int i = 0; i < count; i++) {
+        String name = readNullableString(buffer);
+        reactions.put(name, readNullableInt(buffer));
+      }
+    }
+    message.setReactions(reactions);
+
+    List<String> topics = null;
+    if ((flags & HAS_TOPICS) != 0) {
+      int count = readCount(buffer);
+      topics = new ArrayList<>(count);
+      for (int i = 0; i < count; i++) {
+        topics.add(readNullableString(buffer));
+      }
+    }
+    message.setTopics(topics);
+    return message;
+  }
+
+  private static int flags(SocialMessage message) {
+    int flags = 0;
+    if (message.getText() != null) {
+      flags |= HAS_TEXT;
+    }
+    if (message.getLang() != null) {
+      flags |= HAS_LANG;
+    }
+    if (message.getSource() != null) {
+      flags |= HAS_SOURCE;
+    }
+    if (message.isShareOrRetweet()) {
+      flags |= RETWEET;
+    }
+    if (message.getReactions() != null) {
+      flags |= HAS_REACTIONS;
+    }
+    if (message.getTopics() != null) {
+      flags |= HAS_TOPICS;
+    }
+    if (message.getSentiment() != 0) {
+      flags |= HAS_SENTIMENT;
+    }
+    return flags;
+  }
+
+  private static int indexOf(String[] dictionary, String value) {
+    for (int i = 0; i < dictionary.length; i++) {
+      if (dictionary[i].equals(value)) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  private static void writeDictionary(ByteBuffer buffer, String[] dictionary, String value) {
+    int index = indexOf(dictionary, value);
+    if (index >= 0) {
+      buffer.put((byte) index);
+    } else {
+      buffer.put((byte) LITERAL);
+      writeString(buffer, value);
+    }
+  }
+
+  private static int dictionarySize(String[] dictionary, String value) {
+    return indexOf(dictionary, value) >= 0 ? 1 : 1 + stringSize(value);
+  }
+
+  private String readDictionary(ByteBuffer buffer, String[] dictionary) {
+    int index = buffer.get() & 0xFF;
+    if (index == LITERAL) {
+      return readString(buffer);
+    }
+    if (index >= dictionary.length) {
+      throw new IllegalArgumentException("Unknown dictionary entry " + index);
+    }
+    return dictionary[index];
+  }
+
+  private static void writeLong(ByteBuffer buffer, long value) {
+    writeUnsigned(buffer, (value << 1) ^ (value >> 63));
+  }
+
+  private static long readLong(ByteBuffer buffer) {
+    long encoded = readUnsigned(buffer);
+    return (encoded >>> 1) ^ -(encoded & 1);
+  }
+
+  private static int longSize(long value) {
+    return unsignedSize((value << 1) ^ (value >> 63));
+  }
+
+  private static void writeUnsigned(ByteBuffer buffer, long value) {
+    while ((value & ~0x7FL) != 0) {
+      buffer.put((byte) ((value & 0x7F) | 0x80));
+      value >>>= 7;
+    }
+    buffer.put((byte) value);
+  }
+
+  private static long readUnsigned(ByteBuffer buffer) {
+    long value = 0;
+    for (int shift = 0; shift < 64; shift += 7) {
+      byte b = buffer.get();
+      value |= (long) (b & 0x7F) << shift;
+      if (b >= 0) {
+        return value;
+      }
+    }
+    throw new IllegalArgumentException("Malformed varint");
+  }
+
+  /**
+   * Reads the number of elements of a collection, each takes at least one byte
+   */
+  private static int readCount(ByteBuffer buffer) {
+    long count = readUnsigned(buffer);
+    if (count < 0 || count > buffer.remaining()) {
+      throw new IllegalArgumentException("Count " + count + " exceeds the " + buffer.remaining() + " bytes left");
+    }
+    return (int) count;
+  }
+
+  private static void writeNullableInt(ByteBuffer buffer, Integer value) {
+    writeUnsigned(buffer, value == null ? 0 : zigzag(value) + 1);
+  }
+
+  private static Integer readNullableInt(ByteBuffer buffer) {
+    long encoded = readUnsigned(buffer);
+    if (encoded == 0) {
+      return null;
+    }
+    encoded--;
+    return (int) ((encoded >>> 1) ^ -(encoded & 1));
+  }
+
+  private static int nullableIntSize(Integer value) {
+    return value == null ? 1 : unsignedSize(zigzag(value) + 1);
+  }
+
+  private static long zigzag(long value) {
+    return (value << 1) ^ (value >> 63);
+  }
+
+  private static int unsignedSize(long value) {
+    int size = 1;
+    while ((value & ~0x7FL) != 0) {
+      value >>>= 7;
+      size++;
+    }
+    return size;
+  }
+
+  private static int utf8Length(String value) {
+    int length = 0;
+    for (int i = 0; i < value.length(); i++) {
+      char c = value.charAt(i);
+      if (c < 0x80) {
+        length += 1;
+      } else if (c < 0x800) {
+        length += 2;
+      } else if (Character.isSurrogate(c)) {
+        if (Character.isHighSurrogate(c) && i + 1 < value.length() && Character.isLowSurrogate(value.charAt(i + 1))) {
+          length += 4;
+          i++;
+        } else {
+          length += 1;
+        }
+      } else {
+        length += 3;
+      }
+    }
+    return length;
+  }
+
+  private static int stringSize(String value) {
+    int length = utf8Length(value);
+    return unsignedSize(length) + length;
+  }
+
+  private static int nullableStringSize(String value) {
+    if (value == null) {
+      return 1;
+    }
+    int length = utf8Length(value);
+    return unsignedSize(length + 1L) + length;
+  }
+
+  private static void writeNullableString(ByteBuffer buffer, String value) {
+    if (value == null) {
+      buffer.put((byte) 0);
+    } else {
+      writeUtf8(buffer, value, utf8Length(value) + 1L);
+    }
+  }
+
+  /**
+   * Encodes the string straight into the buffer, unpaired surrogates are written as '?' like String.getBytes does
+   */
+  private static void writeString(ByteBuffer buffer, String value) {
+    writeUtf8(buffer, value, utf8Length(value));
+  }
+
+  private static void writeUtf8(ByteBuffer buffer, String value, long header) {
+    writeUnsigned(buffer, header);
+    for (int i = 0; i < value.length(); i++) {
+      char c = value.charAt(i);
+      if (c < 0x80) {
+        buffer.put((byte) c);
+      } else if (c < 0x800) {
+        buffer.put((byte) (0xC0 | (c >> 6)));
+        buffer.put((byte) (0x80 | (c & 0x3F)));
+      } else if (Character.isSurrogate(c)) {
+        if (Character.isHighSurrogate(c) && i + 1 < value.length() && Character.isLowSurrogate(value.charAt(i + 1))) {
+          int codePoint = Character.toCodePoint(c, value.charAt(++i));
+          buffer.put((byte) (0xF0 | (codePoint >> 18)));
+          buffer.put((byte) (0x80 | ((codePoint >> 12) & 0x3F)));
+          buffer.put((byte) (0x80 | ((codePoint >> 6) & 0x3F)));
+          buffer.put((byte) (0x80 | (codePoint & 0x3F)));
+        } else {
+          buffer.put((byte) '?');
+        }
+      } else {
+        buffer.put((byte) (0xE0 | (c >> 12)));
+        buffer.put((byte) (0x80 | ((c >> 6) & 0x3F)));
+        buffer.put((byte) (0x80 | (c & 0x3F)));
+      }
+    }
+  }
+
+  private String readNullableString(ByteBuffer buffer) {
+    long header = readUnsigned(buffer);
+    return header == 0 ? null : readUtf8(buffer, header - 1);
+  }
+
+  private String readString(ByteBuffer buffer) {
+    return readUtf8(buffer, readUnsigned(buffer));
+  }
+
+  private String readUtf8(ByteBuffer buffer, long encodedLength) {
+    if (encodedLength < 0 || encodedLength > buffer.remaining()) {
+      throw new IllegalArgumentException("String of " + encodedLength + " bytes exceeds the " + buffer.remaining() + " bytes left");
+    }
+    int length = (int) encodedLength;
+    if (buffer.hasArray()) {
+      String value = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), length, StandardCharsets.UTF_8);
+      buffer.position(buffer.position() + length);
+      return value;
+    }
+    if (scratch.length < length) {
+      scratch = new byte[Math.max(length, scratch.length * 2)];
+    }
+    buffer.get(scratch, 0, length);
+    return new String(scratch, 0, length, StandardCharsets.UTF_8);
+  }
+}
@@ -0,0 +1,100 @@
+package social.pipeline.dedup;
+
+import social.pipeline.text.TextNormalizer;
+
+import java.util.Arrays;
+
+/**
+ * Bloom filter over 64 bit keys, the k bit positions are derived from one mixed hash by double hashing
+ */
+public class BloomFilter implements LongMembership {
+
+  private final long[] bits;
+  private final long bitCount;
+  private final int hashes;
+  private long size;
+
+  public BloomFilter(long bitCount, int hashes) {
+    long words = Math.max((bitCount + 63) / 64, 1);
+    this.bits = new long[(int) words];
+    this.bitCount = words * 64;
+    this.hashes = Math.max(hashes, 1);
+  }
+
+  /**
+   * Filter using the given memory with the number of hashes minimizing false positives at the expected number of keys
+   */
+  public static BloomFilter withMemory(long bytes, long expectedKeys) {
+    long bitCount = Math.max(bytes * 8, 64);
+    int hashes = (int) Math.round((double) bitCount / Math.max(expectedKeys, 1) * Math.log(2));
+    return new BloomFilter(bitCount, Math.max(1, Math.min(hashes, 16)));
+  }
+
+  /**
+   * Number of keys a filter of the given memory holds before its false positive rate exceeds the target
+   */
+  public static long capacityFor(long bytes, double falsePositiveRate) {
+    double bitCount = bytes * 8.0;
+    return Math.max(1, (long) (-bitCount * Math.log(2) * Math.log(2) / Math.log(falsePositiveRate)));
+  }
+
+  @Override
+  public boolean contains(long key) {
+    long hash = TextNormalizer.mix(key);
+    long h1 = hash;
+    long h2 = (hash >>> 32) | 1;
+    for (int i = 0; i < hashes; i++) {
+      long bit = Long.remainderUnsigned(h1 + i * h2, bitCount);
+      if ((bits[(int) (bit >>> 6)] & (1L << bit)) == 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  @Override
+  public boolean add(long key) {
+    long hash = TextNormalizer.mix(key);
+    long h1 = hash;
+    long h2 = (hash >>> 32) | 1;
+    boolean added = false;
+    for (int i = 0; i < hashes; i++) {
+      long bit = Long.remainderUnsigned(h1 + i * h2, bitCount);
+      int word = (int) (bit >>> 6);
+      long mask = 1L << bit;
+      if ((bits[word] & mask) == 0) {
+        bits[word] |= mask;
+        added = true;
+      }
+    }
+    if (added) {
+      size++;
+    }
+    return added;
+  }
+
+  @Override
+  public long size() {
+    return size;
+  }
+
+  public int getHashes() {
+    return hashes;
+  }
+
+  @Override
+  public void clear() {
+    Arrays.fill(bits, 0L);
+    size = 0;
+  }
+
+  @Override
+  public double falsePositiveRate() {
+    return Math.pow(1 - Math.exp(-(double) hashes * size / bitCount), hashes);
+  }
+
+  @Override
+  public long memoryBytes() {
+    return (long) bits.length * Long.BYTES;
+  }
+}
@@ -0,0 +1,178 @@
+package social.pipeline.dedup;
+
+import social.pipeline.source.SocialMessage;
+import social.pipeline.text.TextNormalizer;
+
+import java.time.Clock;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.function.Supplier;
+
+/**
+ * Drops messages that were already seen, by id and optionally by the normalized text of retweets.
+ * <p>
+ * Keys are remembered in two generations of a fixed size set: new keys go into the current
+ * generation, and once it is full or older than the window it replaces the previous one, which is
+ * forgotten. Memory therefore stays within the configured ceiling, while every key is remembered
+ * for at least one full generation.
+ * <p>
+ * The exact mode uses primitive hash sets and never drops a new message. The Bloom mode remembers
+ * several times more keys in the same memory, at the cost of dropping a new message with the
+ * reported {@link #getFalsePositiveRate()}. Instances are not thread safe.
+ */
+public class DeduplicationFilter {
+
+  private static final long TEXT_KEY_SALT = 0x9E3779B97F4A7C15L;
+
+  private final LongMembership[] generations;
+  private final long generationCapacity;
+  private final long windowMillis;
+  private final Clock clock;
+
+  private int current;
+  private long generationStart;
+  private boolean deduplicateRetweetText;
+
+  private long accepted;
+  private long duplicates;
+  private long rotations;
+
+  DeduplicationFilter(Supplier<LongMembership> generation, long generationCapacity, long windowMillis, Clock clock) {
+    this.generations = new LongMembership[]{generation.get(), generation.get()};
+    this.generationCapacity = generationCapacity;
+    this.windowMillis = windowMillis > 0 ? windowMillis : Long.MAX_VALUE;
+    this.clock = clock;
+    this.generationStart = clock.millis();
+  }
+
+  /**
+   * Exact filter using at most maxMemoryBytes
+   *
+   * @param windowMillis maximum age of a generation, non positive to rotate only when full
+   */
+  public static DeduplicationFilter exact(long maxMemoryBytes, long windowMillis) {
+    int capacity = LongHashSet.withMemory(maxMemoryBytes / 2).capacity();
+    return new DeduplicationFilter(() -> new LongHashSet(capacity), capacity, windowMillis, Clock.systemUTC());
+  }
+
+  /**
+   * Bloom filter based deduplication using at most maxMemoryBytes, each generation holds as many keys
+   * as fit under the target false positive rate
+   *
+   * @param windowMillis maximum age of a generation, non positive to rotate only when full
+   */
+  public static DeduplicationFilter bloom(long maxMemoryBytes, double falsePositiveRate, long windowMillis) {
+    long generationBytes = maxMemoryBytes / 2;
+    // Both generations are checked, so each one gets half of the false positive budget
+    long capacity = BloomFilter.capacityFor(generationBytes, falsePositiveRate / 2);
+    return new DeduplicationFilter(() -> BloomFilter.withMemory(generationBytes, capacity), capacity, windowMillis,
+      Clock.systemUTC());
+  }
+
+  /**
+   * Also drops retweets whose normalized text was already seen, even under a different id
+   */
+  public void setDeduplicateRetweetText(boolean deduplicateRetweetText) {
+    this.deduplicateRetweetText = deduplicateRetweetText;
+  }
+
+  /**
+   * @return true if the message was not seen before and should be passed on
+   */
+  public boolean accept(SocialMessage message) {
+    rotateIfNeeded();
+    boolean seen = !remember(message.getId());
+    if (deduplicateRetweetText && message.isShareOrRetweet() && message.getText() != null) {
+      long textKey = TextNormalizer.normalizedHash(message.getText()) ^ TEXT_KEY_SALT;
+      seen |= !remember(textKey);
+    }
+    if (seen) {
+      duplicates++;
+      return false;
+    }
+    accepted++;
+    return true;
+  }
+
+  /**
+   * Lazily filters the messages of an iterator
+   */
+  public Iterator<SocialMessage> filter(Iterator<SocialMessage> messages) {
+    return new Iterator<SocialMessage>() {
+      private SocialMessage next;
+
+      @Override
+      public boolean hasNext() {
+        while (next == null && messages.hasNext()) {
+          SocialMessage candidate = messages.next();
+          if (accept(candidate)) {
+            next = candidate;
+          }
+        }
+        return next != null;
+      }
+
+      @Override
+      public SocialMessage next() {
+        if (!hasNext()) {
+          throw new NoSuchElementException();
+        }
+        SocialMessage result = next;
+        next = null;
+        return result;
+      }
+    };
+  }
+
+  /**
+   * @return true if the key is new
+   */
+  private boolean remember(long key) {
+    LongMembership previous = generations[current ^ 1];
+    if (previous.contains(key)) {
+      return false;
+    }
+    return generations[current].add(key);
+  }
+
+  private void rotateIfNeeded() {
+    long now = clock.millis();
+    // Leave room for the id and text keys of one message
+    if (generations[current].size() + 2 > generationCapacity || now - generationStart >= windowMillis) {
+      current ^= 1;
+      generations[current].clear();
+      generationStart = now;
+      rotations++;
+    }
+  }
+
+  public long getAccepted() {
+    return accepted;
+  }
+
+  public long getDuplicates() {
+    return duplicates;
+  }
+
+  public long getRotations() {
+    return rotations;
+  }
+
+  /**
+   * Chance that a new key is reported as seen at the current fill of both generations
+   */
+  public double getFalsePositiveRate() {
+    return 1 - (1 - generations[0].falsePositiveRate()) * (1 - generations[1].falsePositiveRate());
+  }
+
+  public long getMemoryBytes() {
+    return generations[0].memoryBytes() + generations[1].memoryBytes();
+  }
+
+  /**
+   * Number of keys each generation holds before it is rotated
+   */
+  public long getGenerationCapacity() {
+    return generationCapacity;
+  }
+}
@@ -0,0 +1,103 @@
+package social.pipeline.dedup;
+
+import social.pipeline.text.TextNormalizer;
+
+import java.util.Arrays;
+
+/**
+ * Open addressing set of primitive longs with linear probing and no boxing.
+ * The table does not grow: it holds up to {@link #capacity()} keys, half of its slots.
+ */
+public class LongHashSet implements LongMembership {
+
+  private static final long EMPTY = 0L;
+
+  private final long[] table;
+  private final int mask;
+  private final int capacity;
+  private boolean containsEmpty;
+  private int size;
+
+  public LongHashSet(int capacity) {
+    int slots = Integer.highestOneBit(Math.max(capacity, 2) * 2 - 1) << 1;
+    this.table = new long[slots];
+    this.mask = slots - 1;
+    this.capacity = slots / 2;
+  }
+
+  /**
+   * Largest set whose table fits in the given number of bytes
+   */
+  public static LongHashSet withMemory(long bytes) {
+    long slots = Long.highestOneBit(Math.max(bytes / Long.BYTES, 4));
+    return new LongHashSet((int) Math.min(slots / 2, 1 << 29));
+  }
+
+  @Override
+  public boolean contains(long key) {
+    if (key == EMPTY) {
+      return containsEmpty;
+    }
+    int slot = slot(key);
+    while (table[slot] != EMPTY) {
+      if (table[slot] == key) {
+        return true;
+      }
+      slot = (slot + 1) & mask;
+    }
+    return false;
+  }
+
+  @Override
+  public boolean add(long key) {
+    if (key == EMPTY) {
+      boolean added = !containsEmpty;
+      containsEmpty = true;
+      size += added ? 1 : 0;
+      return added;
+    }
+    int slot = slot(key);
+    while (table[slot] != EMPTY) {
+      if (table[slot] == key) {
+        return false;
+      }
+      slot = (slot + 1) & mask;
+    }
+    if (size >= capacity) {
+      throw new IllegalStateException("LongHashSet is full (" + capacity + " keys)");
+    }
+    table[slot] = key;
+    size++;
+    return true;
+  }
+
+  private int slot(long key) {
+    return (int) TextNormalizer.mix(key) & mask;
+  }
+
+  @Override
+  public long size() {
+    return size;
+  }
+
+  public int capacity() {
+    return capacity;
+  }
+
+  @Override
+  public void clear() {
+    Arrays.fill(table, EMPTY);
+    containsEmpty = false;
+    size = 0;
+  }
+
+  @Override
+  public double falsePositiveRate() {
+    return 0;
+  }
+
+  @Override
+  public long memoryBytes() {
+    return (long) table.length * Long.BYTES;
+  }
+}
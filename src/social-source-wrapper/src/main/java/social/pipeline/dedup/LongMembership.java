@@ -0,0 +1,28 @@
+package social.pipeline.dedup;
+
+/**
+ * Set of 64 bit keys with a fixed memory footprint, possibly answering with false positives
+ */
+public interface LongMembership {
+
+  boolean contains(long key);
+
+  /**
+   * @return true if the key was not (reported as) present before
+   */
+  boolean add(long key);
+
+  /**
+   * Number of keys added since the last clear
+   */
+  long size();
+
+  void clear();
+
+  /**
+   * Chance that {@link #contains} answers true for a key that was never added, at the current fill
+   */
+  double falsePositiveRate();
+
+  long memoryBytes();
+}
@@ -10,6 +10,9 @@ import java.util.List;
 public class CustomSocialQueryResult implements SocialQueryResult {
 
   List<SocialMessage> messages = new ArrayList<SocialMessage>();
+  private SocialQuery query;
+  private SocialQuery nextQuery;
+  private boolean hasNext;
 
   public CustomSocialQueryResult(){
 
@@ -24,19 +27,45 @@ public class CustomSocialQueryResult implements SocialQueryResult {
     return messages;
   }
 
+  public void setQuery(SocialQuery query) {
+    this.query = query;
+  }
+
+  public void setHasNext(boolean hasNext) {
+    this.hasNext = hasNext;
+  }
+
   @Override
   public String getQuery() {
-    return null;
+    return query == null ? null : query.getQuery();
+  }
+
+  /**
+   * Sets the query of the next page, for sources paging with maxId and sinceId
+   */
+  public void setNextQuery(SocialQuery nextQuery) {
+    this.nextQuery = nextQuery;
   }
 
+  /**
+   * Next page of the same query. Unless the source set it, the source keeps its own position so the paging ids are cleared.
+   */
   @Override
   public SocialQuery nextQuery() {
-    return null;
+    if (!hasNext || query == null) {
+      return null;
+    }
+    if (nextQuery != null) {
+      return nextQuery;
+    }
+    SocialQuery next = query.copy();
+    next.setMaxId(-1L);
+    return next;
   }
 
   @Override
   public boolean hasNext() {
-    return false;
+    return hasNext;
   }
 
 }
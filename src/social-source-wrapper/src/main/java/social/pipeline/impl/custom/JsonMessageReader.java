@@ -0,0 +1,98 @@
+package social.pipeline.impl.custom;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonIOException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import social.pipeline.source.SocialMessage;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Reads a JSON array of messages one element at a time, so only the current message is held in memory
+ */
+public class JsonMessageReader implements Iterator<SocialMessage>, Closeable {
+
+  private static final TypeAdapter<SocialMessage> ADAPTER = new Gson().getAdapter(SocialMessage.class);
+  private static final int BUFFER_SIZE = 64 * 1024;
+
+  private final JsonReader reader;
+  private boolean done;
+
+  public JsonMessageReader(InputStream input) throws IOException {
+    this.reader = new JsonReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+    this.reader.beginArray();
+  }
+
+  /**
+   * Opens a file, transparently decompressing it when its name ends with .gz
+   */
+  public static JsonMessageReader open(Path path) throws IOException {
+    InputStream input = new BufferedInputStream(Files.newInputStream(path), BUFFER_SIZE);
+    if (path.getFileName().toString().endsWith(".gz")) {
+      input = new GZIPInputStream(input, BUFFER_SIZE);
+    }
+    return new JsonMessageReader(input);
+  }
+
+  /**
+   * Opens a classpath resource, transparently decompressing it when its name ends with .gz
+   */
+  public static JsonMessageReader openResource(String resource) throws IOException {
+    InputStream input = JsonMessageReader.class.getResourceAsStream(resource);
+    if (input == null) {
+      throw new FileNotFoundException("Resource not found: " + resource);
+    }
+    input = new BufferedInputStream(input, BUFFER_SIZE);
+    if (resource.endsWith(".gz")) {
+      input = new GZIPInputStream(input, BUFFER_SIZE);
+    }
+    return new JsonMessageReader(input);
+  }
+
+  @Override
+  public boolean hasNext() {
+    if (done) {
+      return false;
+    }
+    try {
+      if (reader.hasNext()) {
+        return true;
+      }
+      reader.endArray();
+      done = true;
+      return false;
+    } catch (IOException e) {
+      throw new JsonIOException(e);
+    }
+  }
+
+  @Override
+  public SocialMessage next() {
+    if (!hasNext()) {
+      throw new NoSuchElementException();
+    }
+    try {
+      return ADAPTER.read(reader);
+    } catch (IOException e) {
+      throw new JsonIOException(e);
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    done = true;
+    reader.close();
+  }
+}
@@ -1,16 +1,14 @@
 package social.pipeline.impl.custom;
 
-import com.google.gson.Gson;
 import social.pipeline.source.SocialMessage;
 import social.pipeline.source.SocialQuery;
 import social.pipeline.source.SocialQueryResult;
 import social.pipeline.source.SocialSource;
 
 import java.io.IOException;
-import java.io.InputStream;
-import java.util.Arrays;
+import java.util.ArrayList;
 import java.util.List;
-import org.apache.commons.io.IOUtils;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Source for a set of messages stored in a resource file
@@ -43,20 +41,10 @@ public class PredefinedSource implements SocialSource {
   }
 
   private static List<SocialMessage> loadMessagesFromFile(String filename) throws IOException {
-    InputStream is =
-      PredefinedSource.class.getResourceAsStream(filename);
-    String jsonTxt = IOUtils.toString(is);
-    //JSONArray jsonArray = new JSONArray(jsonTxt);
-    SocialMessage[] messagesArray = new Gson().fromJson(jsonTxt, SocialMessage[].class);
-    List<SocialMessage> messages = Arrays.asList(messagesArray);
-
-//
-//    Iterator iter = jsonArray.iterator();
-//    while(iter.hasNext()){
-//      JSONObject cur = (JSONObject) iter.next();
-//      messages.add(new SocialMessage((String) cur.get("text")));
-//    }
-
+    List<SocialMessage> messages = new ArrayList<>();
+    try (JsonMessageReader reader = JsonMessageReader.openResource(filename)) {
+      reader.forEachRemaining(messages::add);
+    }
     return messages;
 
   }
@@ -68,6 +56,20 @@ public class PredefinedSource implements SocialSource {
     return res;
   }
 
+  /**
+   * The messages are in memory, so the result is ready at once and no thread is needed
+   */
+  @Override
+  public CompletableFuture<SocialQueryResult> searchAsync(SocialQuery query) {
+    try {
+      return CompletableFuture.completedFuture(search(query));
+    } catch (Exception e) {
+      CompletableFuture<SocialQueryResult> failed = new CompletableFuture<>();
+      failed.completeExceptionally(e);
+      return failed;
+    }
+  }
+
   public void setMessages(List<SocialMessage> messages){
     this.messages = messages;
   }
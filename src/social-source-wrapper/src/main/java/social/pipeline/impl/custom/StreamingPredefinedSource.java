@@ -0,0 +1,61 @@
+package social.pipeline.impl.custom;
+
+import social.pipeline.source.SocialMessage;
+import social.pipeline.source.SocialQuery;
+import social.pipeline.source.SocialQueryResult;
+import social.pipeline.source.SocialSource;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Source replaying a (possibly gzipped) JSON file of messages page by page, without loading the whole file.
+ * Every search returns the next page of the file, sized by the query count, until the file is exhausted.
+ */
+public class StreamingPredefinedSource implements SocialSource, Closeable {
+
+  private static final int DEFAULT_PAGE_SIZE = 100;
+
+  private final JsonMessageReader reader;
+
+  public StreamingPredefinedSource(Path file) throws IOException {
+    this.reader = JsonMessageReader.open(file);
+  }
+
+  public StreamingPredefinedSource(String resource) throws IOException {
+    this.reader = JsonMessageReader.openResource(resource);
+  }
+
+  @Override
+  public synchronized SocialQueryResult search(SocialQuery query) throws Exception {
+    int pageSize = query.getCount() > 0 ? query.getCount() : DEFAULT_PAGE_SIZE;
+    List<SocialMessage> page = new ArrayList<>(Math.min(pageSize, DEFAULT_PAGE_SIZE));
+    while (page.size() < pageSize && reader.hasNext()) {
+      page.add(reader.next());
+    }
+
+    CustomSocialQueryResult res = new CustomSocialQueryResult();
+    res.setMessages(page);
+    res.setQuery(query);
+    res.setHasNext(reader.hasNext());
+    return res;
+  }
+
+  @Override
+  public void setOAuthConsumer(String key, String secret) {
+
+  }
+
+  @Override
+  public void setOAuthAccessToken(String accessToken, String tokenSecret) {
+
+  }
+
+  @Override
+  public void close() throws IOException {
+    reader.close();
+  }
+}
@@ -0,0 +1,171 @@
+package social.pipeline.impl.generator;
+
+/**
+ * Shape and volume of the messages produced by a {@link GeneratorSource}
+ */
+public class GeneratorOptions {
+
+  private long seed = 42L;
+  private int topicCount = 1000;
+  private double zipfExponent = 1.1;
+  private String[] languages = {"en", "es", "fr", "de", "pt", "ja", "ar"};
+  private double[] languageWeights = {0.55, 0.15, 0.08, 0.07, 0.07, 0.05, 0.03};
+  private double retweetRatio = 0.3;
+  private long startTimestamp = 1534777642000L;
+  private long timeStepMillis = 10;
+  private long maxSkewMillis = 0;
+  private double burstProbability = 0.0001;
+  private int burstLength = 500;
+  private double messagesPerSecond = 0;
+  private long maxMessages = -1;
+  private int messagesPerPass = 1000;
+  private int historySize = 100_000;
+
+  public long getSeed() {
+    return seed;
+  }
+
+  public void setSeed(long seed) {
+    this.seed = seed;
+  }
+
+  public int getTopicCount() {
+    return topicCount;
+  }
+
+  public void setTopicCount(int topicCount) {
+    this.topicCount = topicCount;
+  }
+
+  /**
+   * Skew of the topic popularity, the i-th most popular topic is drawn with probability ~ 1 / i^exponent
+   */
+  public double getZipfExponent() {
+    return zipfExponent;
+  }
+
+  public void setZipfExponent(double zipfExponent) {
+    this.zipfExponent = zipfExponent;
+  }
+
+  public String[] getLanguages() {
+    return languages;
+  }
+
+  /**
+   * Languages and their relative weights, both arrays must have the same length
+   */
+  public void setLanguages(String[] languages, double[] weights) {
+    if (languages.length != weights.length || languages.length == 0) {
+      throw new IllegalArgumentException("Every language needs exactly one weight");
+    }
+    this.languages = languages;
+    this.languageWeights = weights;
+  }
+
+  public double[] getLanguageWeights() {
+    return languageWeights;
+  }
+
+  public double getRetweetRatio() {
+    return retweetRatio;
+  }
+
+  public void setRetweetRatio(double retweetRatio) {
+    this.retweetRatio = retweetRatio;
+  }
+
+  public long getStartTimestamp() {
+    return startTimestamp;
+  }
+
+  public void setStartTimestamp(long startTimestamp) {
+    this.startTimestamp = startTimestamp;
+  }
+
+  /**
+   * Event time between two consecutive messages
+   */
+  public long getTimeStepMillis() {
+    return timeStepMillis;
+  }
+
+  public void setTimeStepMillis(long timeStepMillis) {
+    this.timeStepMillis = timeStepMillis;
+  }
+
+  /**
+   * Messages are stamped up to this much earlier than their position in the stream, producing late arrivals
+   */
+  public long getMaxSkewMillis() {
+    return maxSkewMillis;
+  }
+
+  public void setMaxSkewMillis(long maxSkewMillis) {
+    this.maxSkewMillis = maxSkewMillis;
+  }
+
+  /**
+   * Chance per message that a burst on a random topic starts
+   */
+  public double getBurstProbability() {
+    return burstProbability;
+  }
+
+  public void setBurstProbability(double burstProbability) {
+    this.burstProbability = burstProbability;
+  }
+
+  public int getBurstLength() {
+    return burstLength;
+  }
+
+  public void setBurstLength(int burstLength) {
+    this.burstLength = burstLength;
+  }
+
+  /**
+   * Target production rate, non positive to produce as fast as possible
+   */
+  public double getMessagesPerSecond() {
+    return messagesPerSecond;
+  }
+
+  public void setMessagesPerSecond(double messagesPerSecond) {
+    this.messagesPerSecond = messagesPerSecond;
+  }
+
+  /**
+   * Total number of messages to produce, non positive for an endless stream.
+   * Searches still end every pass, see {@link #getMessagesPerPass()}.
+   */
+  public long getMaxMessages() {
+    return maxMessages;
+  }
+
+  public void setMaxMessages(long maxMessages) {
+    this.maxMessages = maxMessages;
+  }
+
+  /**
+   * Number of new messages posted when a search starts a pass, i.e. has no maxId
+   */
+  public int getMessagesPerPass() {
+    return messagesPerPass;
+  }
+
+  public void setMessagesPerPass(int messagesPerPass) {
+    this.messagesPerPass = messagesPerPass;
+  }
+
+  /**
+   * Number of the latest posted messages searches can return, older ones are gone as from the Twitter search index
+   */
+  public int getHistorySize() {
+    return historySize;
+  }
+
+  public void setHistorySize(int historySize) {
+    this.historySize = historySize;
+  }
+}
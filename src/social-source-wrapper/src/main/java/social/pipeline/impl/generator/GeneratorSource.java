@@ -0,0 +1,233 @@
+package social.pipeline.impl.generator;
+
+import social.pipeline.impl.custom.CustomSocialQueryResult;
+import social.pipeline.source.SocialMessage;
+import social.pipeline.source.SocialQuery;
+import social.pipeline.source.SocialQueryResult;
+import social.pipeline.source.SocialSource;
+import social.pipeline.source.SourceName;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Source producing synthetic messages for load tests, deterministic for a given seed.
+ * Topics follow a Zipf distribution, with occasional bursts on a random (usually quiet) topic.
+ * All texts and topic lists are built up front and shared between messages, so producing a
+ * message into an existing instance with {@link #next(SocialMessage)} does not allocate.
+ * <p>
+ * {@link #search} pages like the Twitter search, newest first within sinceId and maxId. A search
+ * without maxId starts a pass: it first posts {@link GeneratorOptions#getMessagesPerPass()} new
+ * messages, kept with the earlier ones in a history of {@link GeneratorOptions#getHistorySize()}
+ * messages. A pass then pages down to sinceId, or to the oldest message of the history, and ends.
+ * Instances are thread safe.
+ */
+public class GeneratorSource implements SocialSource {
+
+  public static final String SOURCE_NAME = SourceName.GENERATED.name();
+
+  private static final int DEFAULT_PAGE_SIZE = 100;
+  private static final int TEXT_VARIANTS = 8;
+  private static final double BURST_TOPIC_SHARE = 0.8;
+  private static final String[] WORDS = {
+    "breaking", "news", "today", "people", "watch", "live", "update", "city", "great", "new",
+    "world", "report", "game", "happy", "vote", "music", "stop", "love", "week", "market"
+  };
+
+  private final GeneratorOptions options;
+  private final SplittableRandom random;
+  private final ZipfDistribution topicDistribution;
+  private final double[] languageCumulative;
+  private final String[][] texts;
+  private final String[][] retweetTexts;
+  private final List<List<String>> topics;
+  private final long intervalNanos;
+  private final SocialMessage[] history;
+
+  private long produced;
+  private long nextId = 1;
+  private long eventTime;
+  private int burstTopic = -1;
+  private int burstRemaining;
+  private long nextEmitNanos;
+
+  public GeneratorSource() {
+    this(new GeneratorOptions());
+  }
+
+  public GeneratorSource(GeneratorOptions options) {
+    this.options = options;
+    this.random = new SplittableRandom(options.getSeed());
+    this.topicDistribution = new ZipfDistribution(options.getTopicCount(), options.getZipfExponent());
+    this.languageCumulative = cumulative(options.getLanguageWeights());
+    this.eventTime = options.getStartTimestamp();
+    this.intervalNanos = options.getMessagesPerSecond() > 0 ? (long) (1e9 / options.getMessagesPerSecond()) : 0;
+    this.history = new SocialMessage[Math.max(options.getHistorySize(), 1)];
+
+    int topicCount = options.getTopicCount();
+    texts = new String[topicCount][TEXT_VARIANTS];
+    retweetTexts = new String[topicCount][TEXT_VARIANTS];
+    topics = new ArrayList<>(topicCount);
+    SplittableRandom textRandom = new SplittableRandom(options.getSeed() ^ 0x5DEECE66DL);
+    for (int topic = 0; topic < topicCount; topic++) {
+      String hashtag = "#topic" + topic;
+      topics.add(Collections.singletonList(hashtag));
+      for (int variant = 0; variant < TEXT_VARIANTS; variant++) {
+        StringBuilder text = new StringBuilder();
+        int words = 4 + textRandom.nextInt(12);
+        int hashtagAt = textRandom.nextInt(words);
+        for (int w = 0; w < words; w++) {
+          if (w > 0) {
+            text.append(' ');
+          }
+          text.append(w == hashtagAt ? hashtag : WORDS[textRandom.nextInt(WORDS.length)]);
+        }
+        texts[topic][variant] = text.toString();
+        retweetTexts[topic][variant] = "RT @user" + textRandom.nextInt(100_000) + ": " + texts[topic][variant];
+      }
+    }
+  }
+
+  private static double[] cumulative(double[] weights) {
+    double[] result = new double[weights.length];
+    double sum = 0;
+    for (int i = 0; i < weights.length; i++) {
+      sum += weights[i];
+      result[i] = sum;
+    }
+    for (int i = 0; i < result.length; i++) {
+      result[i] /= sum;
+    }
+    return result;
+  }
+
+  public synchronized boolean hasNext() {
+    return options.getMaxMessages() <= 0 || produced < options.getMaxMessages();
+  }
+
+  public synchronized SocialMessage next() {
+    return next(new SocialMessage());
+  }
+
+  /**
+   * Overwrites all fields of the given message with the next generated message
+   */
+  public synchronized SocialMessage next(SocialMessage message) {
+    pace();
+    produced++;
+
+    int topic = nextTopic();
+    boolean retweet = random.nextDouble() < options.getRetweetRatio();
+    int variant = random.nextInt(TEXT_VARIANTS);
+
+    eventTime += options.getTimeStepMillis();
+    long skew = options.getMaxSkewMillis() > 0 ? random.nextLong(options.getMaxSkewMillis() + 1) : 0;
+
+    message.setId(nextId++);
+    message.setText(retweet ? retweetTexts[topic][variant] : texts[topic][variant]);
+    message.setTimestamp(eventTime - skew);
+    message.setSource(SOURCE_NAME);
+    message.setLang(options.getLanguages()[nextLanguage()]);
+    message.setShareOrRetweet(retweet);
+    message.setNumOfShares(retweet ? 1 + random.nextInt(1000) : random.nextInt(10));
+    message.setNumOfLikes(random.nextInt(100));
+    message.setTopics(topics.get(topic));
+    message.setReactions(null);
+    message.setSentiment(0);
+    return message;
+  }
+
+  private int nextTopic() {
+    if (burstRemaining > 0) {
+      burstRemaining--;
+      if (random.nextDouble() < BURST_TOPIC_SHARE) {
+        return burstTopic;
+      }
+    } else if (random.nextDouble() < options.getBurstProbability()) {
+      burstTopic = random.nextInt(options.getTopicCount());
+      burstRemaining = options.getBurstLength();
+    }
+    return topicDistribution.sample(random);
+  }
+
+  private int nextLanguage() {
+    double u = random.nextDouble();
+    for (int i = 0; i < languageCumulative.length - 1; i++) {
+      if (u < languageCumulative[i]) {
+        return i;
+      }
+    }
+    return languageCumulative.length - 1;
+  }
+
+  private void pace() {
+    if (intervalNanos == 0) {
+      return;
+    }
+    long now = System.nanoTime();
+    if (nextEmitNanos == 0) {
+      nextEmitNanos = now;
+    }
+    if (nextEmitNanos > now) {
+      LockSupport.parkNanos(nextEmitNanos - now);
+    }
+    nextEmitNanos += intervalNanos;
+  }
+
+  @Override
+  public synchronized SocialQueryResult search(SocialQuery query) throws Exception {
+    if (query.getMaxId() <= 0) {
+      for (int i = 0; i < options.getMessagesPerPass() && hasNext(); i++) {
+        SocialMessage message = next();
+        history[(int) ((message.getId() - 1) % history.length)] = message;
+      }
+    }
+    long newest = nextId - 1;
+    long upper = query.getMaxId() > 0 ? Math.min(query.getMaxId(), newest) : newest;
+    long lower = Math.max(Math.max(query.getSinceId(), 0) + 1, Math.max(newest - history.length + 1, 1));
+
+    int pageSize = query.getCount() > 0 ? query.getCount() : DEFAULT_PAGE_SIZE;
+    List<SocialMessage> page = new ArrayList<>((int) Math.max(Math.min(pageSize, upper - lower + 1), 0));
+    long id = upper;
+    for (; id >= lower && page.size() < pageSize; id--) {
+      SocialMessage message = history[(int) ((id - 1) % history.length)];
+      // Messages taken with next() instead of a search were not posted
+      if (message != null && message.getId() == id) {
+        page.add(message);
+      }
+    }
+
+    CustomSocialQueryResult res = new CustomSocialQueryResult();
+    res.setMessages(page);
+    res.setQuery(query);
+    res.setHasNext(!page.isEmpty() && id >= lower);
+    SocialQuery next = query.copy();
+    next.setMaxId(id);
+    res.setNextQuery(next);
+    return res;
+  }
+
+  public long getProduced() {
+    return produced;
+  }
+
+  /**
+   * The hashtag generated for the topic of the given popularity rank
+   */
+  public String getTopic(int rank) {
+    return topics.get(rank).get(0);
+  }
+
+  @Override
+  public void setOAuthConsumer(String key, String secret) {
+
+  }
+
+  @Override
+  public void setOAuthAccessToken(String accessToken, String tokenSecret) {
+
+  }
+}
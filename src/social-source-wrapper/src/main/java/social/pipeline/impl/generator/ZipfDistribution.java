@@ -0,0 +1,45 @@
+package social.pipeline.impl.generator;
+
+import java.util.SplittableRandom;
+
+/**
+ * Samples ranks 0..n-1 where rank k is drawn with probability proportional to 1 / (k + 1)^exponent
+ */
+public class ZipfDistribution {
+
+  private final double[] cumulative;
+
+  public ZipfDistribution(int n, double exponent) {
+    if (n <= 0) {
+      throw new IllegalArgumentException("Zipf distribution needs at least one rank");
+    }
+    cumulative = new double[n];
+    double sum = 0;
+    for (int k = 0; k < n; k++) {
+      sum += 1.0 / Math.pow(k + 1, exponent);
+      cumulative[k] = sum;
+    }
+    for (int k = 0; k < n; k++) {
+      cumulative[k] /= sum;
+    }
+  }
+
+  public int sample(SplittableRandom random) {
+    double u = random.nextDouble();
+    int low = 0;
+    int high = cumulative.length - 1;
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      if (cumulative[mid] < u) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    return low;
+  }
+
+  public int size() {
+    return cumulative.length;
+  }
+}
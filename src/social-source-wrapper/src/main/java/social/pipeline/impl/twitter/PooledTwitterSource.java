@@ -0,0 +1,144 @@
+package social.pipeline.impl.twitter;
+
+import social.pipeline.source.SocialQuery;
+import social.pipeline.source.SocialQueryResult;
+import social.pipeline.source.SocialSource;
+import twitter4j.conf.ConfigurationBuilder;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Source spreading searches over several Twitter credentials, each with its own rate limit window.
+ * Every search is routed to the credential with the most remaining quota, counting searches
+ * that are still in flight against it.
+ */
+public class PooledTwitterSource implements SocialSource, Closeable {
+
+  private final List<TwitterSource> members;
+  private final AtomicIntegerArray inFlight;
+  private final ExecutorService executor;
+
+  /**
+   * @param credentials one configuration builder (with OAuth consumer and access token) per credential set
+   */
+  public PooledTwitterSource(Collection<ConfigurationBuilder> credentials) {
+    this(toSources(credentials), credentials.size());
+  }
+
+  /**
+   * @param members     sources to route searches to, each must use its own credentials
+   * @param concurrency number of queries {@link #searchAll} runs at the same time
+   */
+  public PooledTwitterSource(List<TwitterSource> members, int concurrency) {
+    if (members.isEmpty()) {
+      throw new IllegalArgumentException("At least one twitter source is required");
+    }
+    this.members = new ArrayList<>(members);
+    this.inFlight = new AtomicIntegerArray(members.size());
+    AtomicInteger threads = new AtomicInteger();
+    this.executor = Executors.newFixedThreadPool(Math.max(concurrency, 1), runnable -> {
+      Thread thread = new Thread(runnable, "pooled-twitter-search-" + threads.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    });
+  }
+
+  private static List<TwitterSource> toSources(Collection<ConfigurationBuilder> credentials) {
+    List<TwitterSource> sources = new ArrayList<>(credentials.size());
+    for (ConfigurationBuilder builder : credentials) {
+      sources.add(new TwitterSource(builder));
+    }
+    return sources;
+  }
+
+  @Override
+  public SocialQueryResult search(SocialQuery query) throws Exception {
+    int member = acquireMember();
+    try {
+      return members.get(member).search(query);
+    } finally {
+      inFlight.decrementAndGet(member);
+    }
+  }
+
+  /**
+   * Runs the queries concurrently across the pool
+   *
+   * @return the results in the same order as the queries
+   * @throws InterruptedException if interrupted while waiting, the searches not done yet are cancelled
+   */
+  public List<SocialQueryResult> searchAll(List<SocialQuery> queries) throws Exception {
+    List<Future<SocialQueryResult>> futures = new ArrayList<>(queries.size());
+    for (SocialQuery query : queries) {
+      futures.add(executor.submit(() -> search(query)));
+    }
+
+    List<SocialQueryResult> results = new ArrayList<>(queries.size());
+    try {
+      for (Future<SocialQueryResult> future : futures) {
+        results.add(future.get());
+      }
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof Exception) {
+        throw (Exception) e.getCause();
+      }
+      throw e;
+    } finally {
+      if (results.size() < futures.size()) {
+        futures.forEach(future -> future.cancel(true));
+      }
+    }
+    return results;
+  }
+
+  private synchronized int acquireMember() {
+    int best = 0;
+    long bestQuota = Long.MIN_VALUE;
+    for (int i = 0; i < members.size(); i++) {
+      int remaining = members.get(i).getRateLimiter().getTokensRemaining();
+      // Credentials that were not used yet have an unknown, but full, window
+      long quota = (remaining < 0 ? Integer.MAX_VALUE : remaining) - inFlight.get(i);
+      if (quota > bestQuota) {
+        best = i;
+        bestQuota = quota;
+      }
+    }
+    inFlight.incrementAndGet(best);
+    return best;
+  }
+
+  public List<TwitterSource> getMembers() {
+    return members;
+  }
+
+  /**
+   * Not supported: one consumer on every member would merge their rate limit windows, while each member
+   * still counts on a full quota. Configure the credentials of each member instead.
+   */
+  @Override
+  public void setOAuthConsumer(String key, String secret) {
+    throw new UnsupportedOperationException("Credentials of a pooled source are set on each of its members");
+  }
+
+  /**
+   * Not supported, see {@link #setOAuthConsumer}
+   */
+  @Override
+  public void setOAuthAccessToken(String accessToken, String tokenSecret) {
+    throw new UnsupportedOperationException("Credentials of a pooled source are set on each of its members");
+  }
+
+  @Override
+  public void close() {
+    executor.shutdownNow();
+  }
+}
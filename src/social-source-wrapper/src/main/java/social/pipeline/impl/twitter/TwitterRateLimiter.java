@@ -0,0 +1,153 @@
+package social.pipeline.impl.twitter;
+
+import twitter4j.RateLimitStatus;
+
+import java.time.Clock;
+
+/**
+ * Token bucket pacing Twitter API calls to the rate limit window reported by the API.
+ * The bucket is refilled from the {@link RateLimitStatus} of every response, and the remaining
+ * tokens are spread evenly over the time left until the window resets.
+ * Until the first status is known calls are not delayed.
+ */
+public class TwitterRateLimiter {
+
+  private static final long WINDOW_MILLIS = 15 * 60 * 1000L;
+  private static final long INITIAL_BACKOFF_MILLIS = 1000L;
+  private static final long MAX_BACKOFF_MILLIS = WINDOW_MILLIS;
+
+  private final Clock clock;
+
+  private boolean known;
+  private int limit;
+  private int tokens;
+  private long resetAt;
+  private long nextCallAt;
+  private int consecutiveThrottles;
+
+  private long callsIssued;
+  private long throttledCalls;
+  private long totalWaitMillis;
+
+  public TwitterRateLimiter() {
+    this(Clock.systemUTC());
+  }
+
+  public TwitterRateLimiter(Clock clock) {
+    this.clock = clock;
+  }
+
+  /**
+   * Blocks until a call is allowed by the current window budget
+   *
+   * @return the number of milliseconds spent waiting
+   */
+  public long acquire() throws InterruptedException {
+    long wait;
+    synchronized (this) {
+      long now = clock.millis();
+      long start = Math.max(now, nextCallAt);
+      if (known) {
+        if (start >= resetAt) {
+          tokens = limit;
+          resetAt = start + WINDOW_MILLIS;
+        } else if (tokens <= 0) {
+          start = resetAt;
+          tokens = limit;
+          resetAt = start + WINDOW_MILLIS;
+        }
+        nextCallAt = start + (resetAt - start) / Math.max(tokens, 1);
+        tokens--;
+      }
+      wait = start - now;
+      callsIssued++;
+      totalWaitMillis += wait;
+    }
+    if (wait > 0) {
+      sleep(wait);
+    }
+    return wait;
+  }
+
+  /**
+   * Resets the bucket to the budget reported by the API
+   */
+  public synchronized void update(RateLimitStatus status) {
+    if (status == null) {
+      return;
+    }
+    known = true;
+    limit = status.getLimit();
+    tokens = status.getRemaining();
+    resetAt = status.getResetTimeInSeconds() * 1000L;
+    consecutiveThrottles = 0;
+  }
+
+  /**
+   * Registers a rejected (429) call and holds back further calls until the window resets,
+   * or with an exponential backoff when the API did not say when that is
+   *
+   * @return the number of milliseconds the next call will be delayed
+   */
+  public synchronized long onRateLimited(RateLimitStatus status) {
+    long now = clock.millis();
+    throttledCalls++;
+    consecutiveThrottles++;
+
+    long backoff;
+    if (status != null && status.getResetTimeInSeconds() * 1000L > now) {
+      update(status);
+      backoff = resetAt - now;
+    } else {
+      backoff = Math.min(INITIAL_BACKOFF_MILLIS << Math.min(consecutiveThrottles - 1, 20), MAX_BACKOFF_MILLIS);
+    }
+    tokens = 0;
+    nextCallAt = Math.max(nextCallAt, now + backoff);
+    return backoff;
+  }
+
+  protected void sleep(long millis) throws InterruptedException {
+    Thread.sleep(millis);
+  }
+
+  public synchronized long getCallsIssued() {
+    return callsIssued;
+  }
+
+  public synchronized long getThrottledCalls() {
+    return throttledCalls;
+  }
+
+  public synchronized long getTotalWaitMillis() {
+    return totalWaitMillis;
+  }
+
+  /**
+   * Tokens left in the current window, or -1 if the API has not reported a budget yet
+   */
+  public synchronized int getTokensRemaining() {
+    if (!known) {
+      return -1;
+    }
+    return clock.millis() >= resetAt ? limit : Math.max(tokens, 0);
+  }
+
+  public synchronized int getLimit() {
+    return limit;
+  }
+
+  public synchronized long getResetAt() {
+    return resetAt;
+  }
+
+  @Override
+  public synchronized String toString() {
+    return "TwitterRateLimiter{" +
+      "callsIssued=" + callsIssued +
+      ", throttledCalls=" + throttledCalls +
+      ", tokensRemaining=" + (known ? Math.max(tokens, 0) : -1) +
+      ", limit=" + limit +
+      ", totalWaitMillis=" + totalWaitMillis +
+      '}';
+  }
+}
@@ -7,32 +7,88 @@ import twitter4j.Query;
 import twitter4j.QueryResult;
 import twitter4j.Status;
 
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.RandomAccess;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
 
+/**
+ * Result of a Twitter search, each tweet is translated once, on first access.
+ * {@link #getMessages()} and {@link #getMessagesView()} share the translated messages.
+ */
 public class TwitterSocialQueryResult implements SocialQueryResult {
 
   public static final String SOURCE_NAME = "Twitter";
+
+  /**
+   * Lists smaller than this are translated sequentially even when parallel translation is requested
+   */
+  static final int PARALLEL_THRESHOLD = 256;
+
   private final QueryResult queryResult;
+  private final boolean parallel;
+
+  private StatusMessageList view;
+  private List<SocialMessage> messages;
+  private SocialQuery nextQuery;
+  private boolean nextQueryTranslated;
 
   public TwitterSocialQueryResult(QueryResult queryResult) {
+    this(queryResult, false);
+  }
+
+  /**
+   * @param parallel translate large pages on the common fork-join pool
+   */
+  public TwitterSocialQueryResult(QueryResult queryResult, boolean parallel) {
     this.queryResult = queryResult;
+    this.parallel = parallel;
   }
 
   @Override
-  public List<SocialMessage> getMessages() {
-    return translate(queryResult.getTweets());
+  public synchronized List<SocialMessage> getMessages() {
+    if (messages == null) {
+      StatusMessageList statuses = view();
+      messages = statuses == null ? null : statuses.translateAll(parallel);
+    }
+    return messages;
   }
 
+  /**
+   * Read-only view of the tweets, each one is translated only when it is first read.
+   * Cheaper than {@link #getMessages()} when only some of the messages are used.
+   */
+  public synchronized List<SocialMessage> getMessagesView() {
+    return view();
+  }
+
+  private StatusMessageList view() {
+    if (view == null) {
+      List<Status> statuses = queryResult.getTweets();
+      view = statuses == null ? null : new StatusMessageList(statuses);
+    }
+    return view;
+  }
 
   @Override
   public String getQuery() {
     return queryResult.getQuery();
   }
 
+  /**
+   * A copy of the query for the next page on every call, callers adjust its ids
+   */
   @Override
-  public SocialQuery nextQuery() {
-    return translate(queryResult.nextQuery());
+  public synchronized SocialQuery nextQuery() {
+    if (!nextQueryTranslated) {
+      nextQuery = translate(queryResult.nextQuery());
+      nextQueryTranslated = true;
+    }
+    return nextQuery != null ? nextQuery.copy() : null;
   }
 
   @Override
@@ -41,31 +97,86 @@ public class TwitterSocialQueryResult implements SocialQueryResult {
   }
 
   public static List<SocialMessage> translate(List<Status> statuses) {
+    return translate(statuses, false);
+  }
+
+  public static List<SocialMessage> translate(List<Status> statuses, boolean parallel) {
     if (statuses == null) {
       return null;
     }
 
-    List<SocialMessage> socialMessages = statuses.stream().map(status -> {
-      SocialMessage message = new SocialMessage(status.getText());
-      message.setId(status.getId());
-      message.setNumOfLikes(status.getFavoriteCount());
-      message.setNumOfShares(status.getRetweetCount());
-      message.setSource(SOURCE_NAME);
-      message.setLang(status.getLang());
-      message.setShareOrRetweet(status.isRetweet());
-      message.setTimestamp(status.getCreatedAt().getTime());
-      return message;
-    }).collect(Collectors.toList());
+    Stream<Status> stream = parallel && statuses.size() >= PARALLEL_THRESHOLD
+      ? statuses.parallelStream()
+      : statuses.stream();
+    return stream.map(TwitterSocialQueryResult::translate).collect(Collectors.toList());
+  }
 
-    return socialMessages;
+  public static SocialMessage translate(Status status) {
+    SocialMessage message = new SocialMessage(status.getText());
+    message.setId(status.getId());
+    message.setNumOfLikes(status.getFavoriteCount());
+    message.setNumOfShares(status.getRetweetCount());
+    message.setSource(SOURCE_NAME);
+    message.setLang(status.getLang());
+    message.setShareOrRetweet(status.isRetweet());
+    message.setTimestamp(status.getCreatedAt().getTime());
+    return message;
   }
 
   public static SocialQuery translate(Query query){
+    if (query == null) {
+      return null;
+    }
+
     SocialQuery socialQuery = new SocialQuery();
     socialQuery.setLang(query.getLang());
     socialQuery.setQuery(query.getQuery());
     socialQuery.setCount(query.getCount());
+    socialQuery.setMaxId(query.getMaxId());
+    socialQuery.setSinceId(query.getSinceId());
 
     return socialQuery;
   }
+
+  /**
+   * Translates statuses on access and keeps the translated message for later reads, thread safe
+   */
+  private static class StatusMessageList extends AbstractList<SocialMessage> implements RandomAccess {
+
+    private final List<Status> statuses;
+    private final SocialMessage[] translated;
+
+    StatusMessageList(List<Status> statuses) {
+      this.statuses = statuses;
+      this.translated = new SocialMessage[statuses.size()];
+    }
+
+    @Override
+    public synchronized SocialMessage get(int index) {
+      SocialMessage message = translated[index];
+      if (message == null) {
+        message = translate(statuses.get(index));
+        translated[index] = message;
+      }
+      return message;
+    }
+
+    /**
+     * Translates the statuses not read yet, returns all the messages as a new list
+     */
+    synchronized List<SocialMessage> translateAll(boolean parallel) {
+      IntStream indexes = IntStream.range(0, translated.length);
+      if (parallel && translated.length >= PARALLEL_THRESHOLD) {
+        indexes = indexes.parallel();
+      }
+      // Each index is written by one worker, the caller sees them all once the stream completes
+      indexes.filter(i -> translated[i] == null).forEach(i -> translated[i] = translate(statuses.get(i)));
+      return new ArrayList<>(Arrays.asList(translated));
+    }
+
+    @Override
+    public int size() {
+      return translated.length;
+    }
+  }
 }
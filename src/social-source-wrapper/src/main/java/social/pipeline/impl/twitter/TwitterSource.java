@@ -1,18 +1,26 @@
 package social.pipeline.impl.twitter;
 
+import social.pipeline.source.AsyncSearchExecutor;
 import social.pipeline.source.SocialQuery;
 import social.pipeline.source.SocialQueryResult;
 import social.pipeline.source.SocialSource;
 import twitter4j.Query;
 import twitter4j.QueryResult;
 import twitter4j.Twitter;
+import twitter4j.TwitterException;
 import twitter4j.TwitterFactory;
 import twitter4j.auth.AccessToken;
 import twitter4j.conf.ConfigurationBuilder;
 
+import java.util.concurrent.CompletableFuture;
+
 public class TwitterSource implements SocialSource {
 
+  private static final int MAX_RATE_LIMIT_RETRIES = 3;
+
   private Twitter twitterApi;
+  private TwitterRateLimiter rateLimiter = new TwitterRateLimiter();
+  private AsyncSearchExecutor asyncExecutor;
 
   public TwitterSource(Twitter twitterApi){
     this.twitterApi = twitterApi;
@@ -33,11 +41,65 @@ public class TwitterSource implements SocialSource {
     Query twitterQuery = new Query(query.getQuery());
     twitterQuery.setCount(query.getCount());
     twitterQuery.setLang(query.getLang());
-    QueryResult twitterResult = twitterApi.search(twitterQuery);
+    if (query.getMaxId() > 0) {
+      twitterQuery.setMaxId(query.getMaxId());
+    }
+    if (query.getSinceId() > 0) {
+      twitterQuery.setSinceId(query.getSinceId());
+    }
+    QueryResult twitterResult = searchWithinRateLimit(twitterQuery);
     SocialQueryResult res = new TwitterSocialQueryResult(twitterResult);
     return res;
   }
 
+  /**
+   * Runs the search on the executor of this source, or the shared one if it has none. Waiting for the
+   * rate limit happens on the executor thread and is interrupted as well when the future is cancelled.
+   */
+  @Override
+  public CompletableFuture<SocialQueryResult> searchAsync(SocialQuery query) {
+    AsyncSearchExecutor executor = asyncExecutor != null ? asyncExecutor : AsyncSearchExecutor.getDefault();
+    return executor.search(this, query);
+  }
+
+  private QueryResult searchWithinRateLimit(Query twitterQuery) throws Exception {
+    for (int attempt = 0; ; attempt++) {
+      rateLimiter.acquire();
+      try {
+        QueryResult twitterResult = twitterApi.search(twitterQuery);
+        if (twitterResult != null) {
+          rateLimiter.update(twitterResult.getRateLimitStatus());
+        }
+        return twitterResult;
+      } catch (TwitterException e) {
+        if (!isRateLimited(e) || attempt >= MAX_RATE_LIMIT_RETRIES) {
+          throw e;
+        }
+        rateLimiter.onRateLimited(e.getRateLimitStatus());
+      }
+    }
+  }
+
+  private static boolean isRateLimited(TwitterException e) {
+    return e.exceededRateLimitation() || e.getStatusCode() == 429;
+  }
+
+  public TwitterRateLimiter getRateLimiter() {
+    return rateLimiter;
+  }
+
+  public void setRateLimiter(TwitterRateLimiter rateLimiter) {
+    this.rateLimiter = rateLimiter;
+  }
+
+  public AsyncSearchExecutor getAsyncExecutor() {
+    return asyncExecutor;
+  }
+
+  public void setAsyncExecutor(AsyncSearchExecutor asyncExecutor) {
+    this.asyncExecutor = asyncExecutor;
+  }
+
   @Override
   public void setOAuthConsumer(String key, String secret) {
     twitterApi.setOAuthConsumer(key,secret);
@@ -0,0 +1,169 @@
+package social.pipeline.sentiment;
+
+import social.pipeline.text.TextNormalizer;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Sentiment words, negations and intensifiers keyed on the {@link TextNormalizer#wordHash} of the word.
+ * <p>
+ * The entries are kept in an open addressing table of primitive arrays, so a word of a text is
+ * looked up from its char range without building a string. Instances are immutable and thread safe.
+ */
+public final class SentimentLexicon {
+
+  public static final String DEFAULT_RESOURCE = "/sentiment-lexicon.txt";
+
+  /** Kind of a word that is not in the lexicon */
+  public static final byte NONE = 0;
+  /** A word with a sentiment score, see {@link #score} */
+  public static final byte WORD = 1;
+  /** A word flipping the sentiment of the words that follow it */
+  public static final byte NEGATION = 2;
+  /** A word multiplying the score of the next sentiment word by its {@link #score} */
+  public static final byte BOOSTER = 3;
+
+  private static final String NEGATE = "negate";
+
+  private final long[] keys;
+  private final float[] scores;
+  private final byte[] kinds;
+  private final int mask;
+  private int size;
+
+  private SentimentLexicon(int capacity) {
+    int slots = Integer.highestOneBit(Math.max(capacity, 2) * 2 - 1) << 1;
+    this.keys = new long[slots];
+    this.scores = new float[slots];
+    this.kinds = new byte[slots];
+    this.mask = slots - 1;
+  }
+
+  private static final class DefaultHolder {
+    private static final SentimentLexicon INSTANCE = fromResource(DEFAULT_RESOURCE);
+  }
+
+  /**
+   * The bundled English lexicon, loaded once
+   */
+  public static SentimentLexicon getDefault() {
+    return DefaultHolder.INSTANCE;
+  }
+
+  public static SentimentLexicon fromResource(String resource) {
+    try (InputStream in = SentimentLexicon.class.getResourceAsStream(resource)) {
+      if (in == null) {
+        throw new IllegalArgumentException("No sentiment lexicon at " + resource);
+      }
+      return read(new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8)));
+    } catch (IOException e) {
+      throw new UncheckedIOException("Failed to read " + resource, e);
+    }
+  }
+
+  /**
+   * Reads a lexicon with one word per line followed by a tab and either a score, "negate" or
+   * x&lt;factor&gt; for an intensifier. Empty lines and lines starting with # are ignored,
+   * a word listed twice keeps its last entry.
+   */
+  public static SentimentLexicon read(BufferedReader reader) throws IOException {
+    List<String[]> entries = new ArrayList<>();
+    int lineNumber = 0;
+    for (String line; (line = reader.readLine()) != null; ) {
+      lineNumber++;
+      if (line.trim().isEmpty() || line.startsWith("#")) {
+        continue;
+      }
+      String[] columns = line.split("\t");
+      if (columns.length != 2 || columns[0].trim().isEmpty()) {
+        throw new IOException("Invalid sentiment lexicon line " + lineNumber + ": " + line);
+      }
+      entries.add(new String[]{columns[0].trim(), columns[1].trim(), String.valueOf(lineNumber)});
+    }
+
+    SentimentLexicon lexicon = new SentimentLexicon(entries.size());
+    for (String[] entry : entries) {
+      String value = entry[1];
+      try {
+        if (NEGATE.equals(value)) {
+          lexicon.put(entry[0], NEGATION, -1);
+        } else if (value.startsWith("x")) {
+          lexicon.put(entry[0], BOOSTER, Float.parseFloat(value.substring(1)));
+        } else {
+          lexicon.put(entry[0], WORD, Float.parseFloat(value));
+        }
+      } catch (NumberFormatException e) {
+        throw new IOException("Invalid sentiment lexicon line " + entry[2] + ": " + entry[0] + "\t" + value, e);
+      }
+    }
+    return lexicon;
+  }
+
+  private void put(String word, byte kind, float score) {
+    long key = TextNormalizer.wordHash(word, 0, word.length());
+    int slot = find(key);
+    if (kinds[slot] == NONE) {
+      size++;
+    }
+    keys[slot] = key;
+    kinds[slot] = kind;
+    scores[slot] = score;
+  }
+
+  /**
+   * @return the slot holding the key, or the empty slot where it would be inserted
+   */
+  private int find(long key) {
+    int slot = (int) TextNormalizer.mix(key) & mask;
+    while (kinds[slot] != NONE && keys[slot] != key) {
+      slot = (slot + 1) & mask;
+    }
+    return slot;
+  }
+
+  /**
+   * Slot of a word in the lexicon, pass it to {@link #kind} and {@link #score}
+   *
+   * @param key the {@link TextNormalizer#wordHash} of the word
+   */
+  public int lookup(long key) {
+    return find(key);
+  }
+
+  /**
+   * @return the kind of the word in the slot, {@link #NONE} if the word is not in the lexicon
+   */
+  public byte kind(int slot) {
+    return kinds[slot];
+  }
+
+  /**
+   * @return the score of a {@link #WORD} or the factor of a {@link #BOOSTER}
+   */
+  public float score(int slot) {
+    return scores[slot];
+  }
+
+  /**
+   * Score of a single word, 0 if it is not a sentiment word
+   */
+  public float score(String word) {
+    int slot = find(TextNormalizer.wordHash(word, 0, word.length()));
+    return kinds[slot] == WORD ? scores[slot] : 0;
+  }
+
+  public byte kind(String word) {
+    return kinds[find(TextNormalizer.wordHash(word, 0, word.length()))];
+  }
+
+  public int size() {
+    return size;
+  }
+}
@@ -0,0 +1,208 @@
+package social.pipeline.sentiment;
+
+import social.pipeline.source.SocialMessage;
+import social.pipeline.text.TextNormalizer;
+
+import java.util.List;
+
+/**
+ * Scores the sentiment of a message text between -1 (negative) and 1 (positive) from the words and
+ * emoji of a {@link SentimentLexicon}.
+ * <p>
+ * The text is scanned once, without allocating: each word is looked up from its char range.
+ * A negation flips and dampens the sentiment words among the next {@value #NEGATION_SCOPE} words,
+ * an intensifier scales the next sentiment word, a word in capitals within a text that is not
+ * all capitals is emphasized, and exclamation marks strengthen the whole text. Punctuation ends
+ * the scope of negations and intensifiers. Mentions and URLs are skipped, the words of hashtags
+ * are scored. The sum is normalized with {@code s / sqrt(s * s + 15)}. Instances are thread safe.
+ */
+public class SentimentScorer {
+
+  static final int NEGATION_SCOPE = 3;
+  private static final double NEGATION_FACTOR = -0.75;
+  private static final double CAPS_FACTOR = 1.25;
+  private static final double EXCLAMATION_EMPHASIS = 0.3;
+  private static final int MAX_EXCLAMATIONS = 4;
+  private static final double NORMALIZATION_ALPHA = 15;
+
+  private final SentimentLexicon lexicon;
+
+  public SentimentScorer(SentimentLexicon lexicon) {
+    this.lexicon = lexicon;
+  }
+
+  private static final class DefaultHolder {
+    private static final SentimentScorer INSTANCE = new SentimentScorer(SentimentLexicon.getDefault());
+  }
+
+  /**
+   * Scorer using the bundled English lexicon
+   */
+  public static SentimentScorer getDefault() {
+    return DefaultHolder.INSTANCE;
+  }
+
+  /**
+   * Sets the sentiment of the message from its text, 0 if it has none
+   */
+  public SocialMessage apply(SocialMessage message) {
+    message.setSentiment(message.getText() != null ? score(message.getText()) : 0);
+    return message;
+  }
+
+  /**
+   * Sets the sentiment of every message of the batch
+   */
+  public void applyAll(List<? extends SocialMessage> messages) {
+    for (SocialMessage message : messages) {
+      apply(message);
+    }
+  }
+
+  /**
+   * Scores a batch of texts into the given array, or a new one if it is null or too small.
+   * Null texts score 0.
+   *
+   * @return the array holding the scores, in the order of the texts
+   */
+  public double[] score(List<? extends CharSequence> texts, double[] scores) {
+    if (scores == null || scores.length < texts.size()) {
+      scores = new double[texts.size()];
+    }
+    for (int i = 0; i < texts.size(); i++) {
+      CharSequence text = texts.get(i);
+      scores[i] = text != null ? score(text) : 0;
+    }
+    return scores;
+  }
+
+  public double score(CharSequence text) {
+    int length = text.length();
+    boolean allCaps = !containsLowerCase(text);
+    double total = 0;
+    double boost = 1;
+    int negated = 0;
+    int exclamations = 0;
+
+    int i = 0;
+    while (i < length) {
+      char c = text.charAt(i);
+      if ((c == '@' || c == 'h') && (i == 0 || Character.isWhitespace(text.charAt(i - 1))) && isSkippedToken(text, i)) {
+        while (i < length && !Character.isWhitespace(text.charAt(i))) {
+          i++;
+        }
+        continue;
+      }
+
+      int start = i;
+      int codePoint = Character.codePointAt(text, i);
+      if (Character.isLetterOrDigit(c)) {
+        boolean capitals = true;
+        int letters = 0;
+        while (i < length) {
+          char w = text.charAt(i);
+          if (Character.isLetterOrDigit(w)) {
+            if (Character.isLetter(w)) {
+              letters++;
+              capitals &= Character.isUpperCase(w);
+            }
+          } else if (!isApostrophe(w) || i + 1 >= length || !Character.isLetter(text.charAt(i + 1))) {
+            break;
+          }
+          i++;
+        }
+
+        int slot = lexicon.lookup(TextNormalizer.wordHash(text, start, i));
+        byte kind = lexicon.kind(slot);
+        if (kind == SentimentLexicon.NEGATION || (kind == SentimentLexicon.NONE && endsWithNegation(text, start, i))) {
+          negated = NEGATION_SCOPE;
+          continue;
+        }
+        if (kind == SentimentLexicon.BOOSTER) {
+          boost *= lexicon.score(slot);
+        } else {
+          if (kind == SentimentLexicon.WORD) {
+            double score = lexicon.score(slot) * boost;
+            if (capitals && letters > 1 && !allCaps) {
+              score *= CAPS_FACTOR;
+            }
+            total += negated > 0 ? score * NEGATION_FACTOR : score;
+          }
+          boost = 1;
+        }
+        if (negated > 0) {
+          negated--;
+        }
+        continue;
+      }
+
+      i += Character.charCount(codePoint);
+      if (Character.getType(codePoint) == Character.OTHER_SYMBOL) {
+        int slot = lexicon.lookup(TextNormalizer.wordHash(text, start, i));
+        if (lexicon.kind(slot) == SentimentLexicon.WORD) {
+          double score = lexicon.score(slot) * boost;
+          total += negated > 0 ? score * NEGATION_FACTOR : score;
+        }
+        boost = 1;
+      } else if (isClause(c)) {
+        negated = 0;
+        boost = 1;
+        if (c == '!') {
+          exclamations++;
+        }
+      }
+    }
+
+    if (total != 0 && exclamations > 0) {
+      total += Math.signum(total) * EXCLAMATION_EMPHASIS * Math.min(exclamations, MAX_EXCLAMATIONS);
+    }
+    return total / Math.sqrt(total * total + NORMALIZATION_ALPHA);
+  }
+
+  public SentimentLexicon getLexicon() {
+    return lexicon;
+  }
+
+  private static boolean containsLowerCase(CharSequence text) {
+    for (int i = 0; i < text.length(); i++) {
+      if (Character.isLowerCase(text.charAt(i))) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static boolean isSkippedToken(CharSequence text, int i) {
+    return text.charAt(i) == '@' || startsWith(text, i, "http://") || startsWith(text, i, "https://");
+  }
+
+  private static boolean startsWith(CharSequence text, int i, String prefix) {
+    if (i + prefix.length() > text.length()) {
+      return false;
+    }
+    for (int j = 0; j < prefix.length(); j++) {
+      if (text.charAt(i + j) != prefix.charAt(j)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static boolean isApostrophe(char c) {
+    return c == '\'' || c == '\u2019';
+  }
+
+  /**
+   * Contractions such as "haven't" negate whether or not they are in the lexicon
+   */
+  private static boolean endsWithNegation(CharSequence text, int start, int end) {
+    return end - start > 3
+      && isApostrophe(text.charAt(end - 2))
+      && (text.charAt(end - 1) == 't' || text.charAt(end - 1) == 'T')
+      && (text.charAt(end - 3) == 'n' || text.charAt(end - 3) == 'N');
+  }
+
+  private static boolean isClause(char c) {
+    return c == '.' || c == ',' || c == ';' || c == ':' || c == '!' || c == '?';
+  }
+}
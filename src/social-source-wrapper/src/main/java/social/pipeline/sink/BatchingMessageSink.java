@@ -0,0 +1,289 @@
+package social.pipeline.sink;
+
+import social.pipeline.source.SocialMessage;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Collects messages into batches and sends them through a {@link MessageTransport}.
+ * A batch is sent once it reaches the transport's size limit, the configured number of events,
+ * or has been open for the linger time. Up to {@link SinkOptions#getMaxInFlight()} batches are
+ * sent concurrently; beyond that {@link #send} blocks, which keeps memory bounded when the
+ * downstream system slows down.
+ * With a {@link MessagePartitioner} every partition key has its own batch, sent with that key, so the
+ * events of a key land in the same partition; up to {@link SinkOptions#getMaxOpenBatches()} batches are
+ * filled at once, the oldest one is sent when a new key needs room.
+ * A failed batch is reported by the next call to {@link #send}, and by the next {@link #flush} or
+ * {@link #close} in any case: a flush that returns normally means every message sent before it
+ * was accepted downstream.
+ */
+public class BatchingMessageSink implements Closeable {
+
+  private final MessageTransport transport;
+  private final Function<SocialMessage, byte[]> encoder;
+  private final SinkOptions options;
+  private final int maxBatchBytes;
+  private final Semaphore inFlight;
+  private final ScheduledExecutorService lingerTimer;
+  private final SinkMetrics metrics = new SinkMetrics();
+  private final MessagePartitioner partitioner;
+
+  /**
+   * Open batches by partition key, oldest first, the batch without key is under null
+   */
+  private final Map<String, Batch> batches = new LinkedHashMap<>();
+  /**
+   * Batches taken out of {@link #batches} whose send has not completed, guarded by this
+   */
+  private int pendingBatches;
+  private boolean closed;
+  /**
+   * Failure not reported by {@link #send} yet
+   */
+  private volatile Throwable sendFailure;
+  /**
+   * Failure since the last {@link #flush}, guarded by this
+   */
+  private Throwable flushFailure;
+
+  public BatchingMessageSink(MessageTransport transport) {
+    this(transport, MessageEncoders.json(), new SinkOptions());
+  }
+
+  public BatchingMessageSink(MessageTransport transport, Function<SocialMessage, byte[]> encoder, SinkOptions options) {
+    this(transport, encoder, options, null);
+  }
+
+  /**
+   * @param partitioner computes the partition key of every message, null to send them without key
+   */
+  public BatchingMessageSink(MessageTransport transport, Function<SocialMessage, byte[]> encoder, SinkOptions options,
+                             MessagePartitioner partitioner) {
+    this.transport = transport;
+    this.partitioner = partitioner;
+    this.encoder = encoder;
+    this.options = options;
+    this.maxBatchBytes = transport.getMaxBatchBytes();
+    this.inFlight = new Semaphore(Math.max(options.getMaxInFlight(), 1));
+    this.lingerTimer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "sink-linger");
+      thread.setDaemon(true);
+      return thread;
+    });
+    long period = Math.max(options.getLingerMillis() / 2, 1);
+    lingerTimer.scheduleAtFixedRate(this::sendLingeringBatch, period, period, TimeUnit.MILLISECONDS);
+  }
+
+  public void send(SocialMessage message) throws IOException, InterruptedException {
+    send(partitioner != null ? partitioner.partitionKey(message) : null, encoder.apply(message));
+  }
+
+  public void send(byte[] payload) throws IOException, InterruptedException {
+    send(null, payload);
+  }
+
+  /**
+   * Adds the payload to the batch of the partition key
+   *
+   * @param partitionKey key, or partition id if the partitioner returns ids, null to send without key
+   */
+  public void send(String partitionKey, byte[] payload) throws IOException, InterruptedException {
+    checkFailure();
+    int size = payload.length + options.getEventOverheadBytes();
+    if (size > maxBatchBytes) {
+      throw new IllegalArgumentException("Message of " + payload.length + " bytes exceeds the batch limit of " + maxBatchBytes);
+    }
+
+    List<Batch> taken = new ArrayList<>(2);
+    synchronized (this) {
+      if (closed) {
+        throw new IllegalStateException("Sink is closed");
+      }
+      Batch batch = batches.get(partitionKey);
+      if (batch != null && batch.bytes + size > maxBatchBytes) {
+        taken.add(take(partitionKey));
+        batch = null;
+      }
+      if (batch == null) {
+        if (batches.size() >= Math.max(options.getMaxOpenBatches(), 1)) {
+          taken.add(take(batches.keySet().iterator().next()));
+        }
+        batch = new Batch(partitionKey);
+        batches.put(partitionKey, batch);
+      }
+      batch.events.add(payload);
+      batch.bytes += size;
+      if (batch.events.size() >= options.getMaxBatchEvents()) {
+        taken.add(take(partitionKey));
+      }
+    }
+    dispatchAll(taken);
+  }
+
+  /**
+   * Sends the open batches and waits until every batch taken so far, by this or another thread, was sent
+   *
+   * @throws IOException if a batch failed since the last flush
+   */
+  public void flush() throws IOException, InterruptedException {
+    List<Batch> open = new ArrayList<>();
+    synchronized (this) {
+      while (!batches.isEmpty()) {
+        open.add(take(batches.keySet().iterator().next()));
+      }
+    }
+    dispatchAll(open);
+    Throwable error;
+    synchronized (this) {
+      while (pendingBatches > 0) {
+        wait();
+      }
+      error = flushFailure;
+      flushFailure = null;
+    }
+    if (error != null) {
+      sendFailure = null;
+      throw new IOException("Failed to send a batch of messages", error);
+    }
+  }
+
+  /**
+   * Removes the batch of the key from the open batches, it is pending until its send completes
+   */
+  private Batch take(String partitionKey) {
+    pendingBatches++;
+    return batches.remove(partitionKey);
+  }
+
+  private synchronized void completed(Batch batch, Throwable error) {
+    if (error != null) {
+      sendFailure = error;
+      flushFailure = error;
+      metrics.recordFailure();
+    }
+    pendingBatches--;
+    notifyAll();
+  }
+
+  /**
+   * Sends the batches in order; if interrupted, the batches not sent yet fail
+   */
+  private void dispatchAll(List<Batch> taken) throws InterruptedException {
+    for (int i = 0; i < taken.size(); i++) {
+      try {
+        dispatch(taken.get(i));
+      } catch (InterruptedException e) {
+        for (int j = i; j < taken.size(); j++) {
+          completed(taken.get(j), e);
+        }
+        throw e;
+      }
+    }
+  }
+
+  private void dispatch(Batch batch) throws InterruptedException {
+    List<byte[]> events = batch.events;
+    inFlight.acquire();
+    long bytes = 0;
+    for (byte[] event : events) {
+      bytes += event.length;
+    }
+    long totalBytes = bytes;
+    long start = System.nanoTime();
+
+    CompletableFuture<Void> sent;
+    try {
+      if (batch.partitionKey == null) {
+        sent = transport.send(events);
+      } else if (partitioner != null && partitioner.isPartitionId()) {
+        sent = transport.sendToPartition(events, batch.partitionKey);
+      } else {
+        sent = transport.send(events, batch.partitionKey);
+      }
+    } catch (RuntimeException e) {
+      sent = new CompletableFuture<>();
+      sent.completeExceptionally(e);
+    }
+    sent.whenComplete((ignored, error) -> {
+      if (error == null) {
+        metrics.recordBatch(events.size(), totalBytes, System.nanoTime() - start);
+      }
+      inFlight.release();
+      completed(batch, error);
+    });
+  }
+
+  private void sendLingeringBatch() {
+    List<Batch> lingering = new ArrayList<>();
+    synchronized (this) {
+      long now = System.currentTimeMillis();
+      // Batches are in the order they were opened, the first one young enough ends the scan
+      while (!batches.isEmpty()) {
+        String oldest = batches.keySet().iterator().next();
+        if (now - batches.get(oldest).openedAt < options.getLingerMillis()) {
+          break;
+        }
+        lingering.add(take(oldest));
+      }
+    }
+    try {
+      dispatchAll(lingering);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private void checkFailure() throws IOException {
+    Throwable error = sendFailure;
+    if (error != null) {
+      sendFailure = null;
+      throw new IOException("Failed to send a batch of messages", error);
+    }
+  }
+
+  public SinkMetrics getMetrics() {
+    return metrics;
+  }
+
+  @Override
+  public void close() throws IOException {
+    synchronized (this) {
+      if (closed) {
+        return;
+      }
+      closed = true;
+    }
+    try {
+      lingerTimer.shutdown();
+      lingerTimer.awaitTermination(options.getLingerMillis() + 1000, TimeUnit.MILLISECONDS);
+      flush();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted while flushing the sink", e);
+    } finally {
+      transport.close();
+    }
+  }
+
+  private static final class Batch {
+    final String partitionKey;
+    final List<byte[]> events = new ArrayList<>();
+    final long openedAt = System.currentTimeMillis();
+    int bytes;
+
+    Batch(String partitionKey) {
+      this.partitionKey = partitionKey;
+    }
+  }
+}
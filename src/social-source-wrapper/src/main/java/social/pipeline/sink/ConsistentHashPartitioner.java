@@ -0,0 +1,97 @@
+package social.pipeline.sink;
+
+import social.pipeline.source.SocialMessage;
+import social.pipeline.text.TextNormalizer;
+
+import java.util.Arrays;
+
+/**
+ * Maps the keys of another partitioner to partition ids with a consistent hash ring.
+ * <p>
+ * Every partition owns virtualNodes points of the ring and a key goes to the owner of the first point
+ * at or after its hash. The more virtual nodes, the more even the share of keys per partition. When
+ * the number of partitions grows from n to n + 1, only about 1 / (n + 1) of the keys move, whereas the
+ * transport's own hashing of partition keys remaps most of them. The ring only depends on the number
+ * of partitions and virtual nodes, so every producer routes a key to the same partition.
+ * Instances are immutable and thread safe.
+ */
+public class ConsistentHashPartitioner implements MessagePartitioner {
+
+  private static final long serialVersionUID = 1L;
+
+  private final MessagePartitioner keys;
+  private final int partitions;
+  private final long[] points;
+  private final int[] owners;
+  private final String[] partitionIds;
+
+  public ConsistentHashPartitioner(int partitions) {
+    this(new PrimaryTopicPartitioner(), partitions, 128);
+  }
+
+  /**
+   * @param keys         partitioner computing the keys placed on the ring, it must not return partition ids
+   * @param partitions   number of partitions, with ids 0 to partitions - 1
+   * @param virtualNodes number of points of every partition on the ring
+   */
+  public ConsistentHashPartitioner(MessagePartitioner keys, int partitions, int virtualNodes) {
+    if (partitions <= 0 || virtualNodes <= 0) {
+      throw new IllegalArgumentException("Partitions and virtual nodes must be positive");
+    }
+    if (keys.isPartitionId()) {
+      throw new IllegalArgumentException("Keys must not be partition ids");
+    }
+    this.keys = keys;
+    this.partitions = partitions;
+    this.partitionIds = new String[partitions];
+    long[] ring = new long[partitions * virtualNodes];
+    Integer[] order = new Integer[ring.length];
+    for (int partition = 0, i = 0; partition < partitions; partition++) {
+      partitionIds[partition] = Integer.toString(partition);
+      for (int node = 0; node < virtualNodes; node++, i++) {
+        ring[i] = TextNormalizer.hash(partition + "#" + node);
+        order[i] = i;
+      }
+    }
+    // Points with the same hash keep the order of their partitions
+    Arrays.sort(order, (a, b) -> Long.compare(ring[a], ring[b]));
+    this.points = new long[ring.length];
+    this.owners = new int[ring.length];
+    for (int i = 0; i < order.length; i++) {
+      points[i] = ring[order[i]];
+      owners[i] = order[i] / virtualNodes;
+    }
+  }
+
+  @Override
+  public String partitionKey(SocialMessage message) {
+    String key = keys.partitionKey(message);
+    return key == null ? null : partitionIds[partition(key)];
+  }
+
+  /**
+   * Partition owning the key on the ring
+   */
+  public int partition(String key) {
+    long hash = TextNormalizer.hash(key);
+    int index = Arrays.binarySearch(points, hash);
+    if (index < 0) {
+      index = -index - 1;
+    } else {
+      // Equal points are owned by the lowest partition, the first of them in ring order
+      while (index > 0 && points[index - 1] == hash) {
+        index--;
+      }
+    }
+    return owners[index == points.length ? 0 : index];
+  }
+
+  public int getPartitions() {
+    return partitions;
+  }
+
+  @Override
+  public boolean isPartitionId() {
+    return true;
+  }
+}
@@ -0,0 +1,115 @@
+package social.pipeline.sink;
+
+import social.pipeline.source.SocialMessage;
+import social.pipeline.text.TextNormalizer;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Spreads the messages of hot keys over several sub-keys, so one busy topic does not overload a partition.
+ * <p>
+ * Keys are counted over windows of windowMessages keyed messages. A key with at least hotShare of the
+ * messages of a window is hot during the next window: its messages get one of splits sub-keys,
+ * "key#1" to "key#(splits - 1)" or the key itself, picked from the message id so a replayed message
+ * keeps its sub-key. The other keys are left as they are. Downstream, the count of a hot key is the sum
+ * of the partial counts of its sub-keys, which are at most splits partitions instead of all of them.
+ * <p>
+ * At most maxTrackedKeys keys are counted per window, keys first seen beyond that are not counted.
+ * It can be wrapped by a {@link ConsistentHashPartitioner} to map the sub-keys to partitions.
+ * Instances are thread safe.
+ */
+public class HotKeySplitter implements MessagePartitioner {
+
+  private static final long serialVersionUID = 1L;
+
+  private final MessagePartitioner keys;
+  private final int splits;
+  private final double hotShare;
+  private final int windowMessages;
+  private final int maxTrackedKeys;
+
+  private final Map<String, int[]> counts = new HashMap<>();
+  private Set<String> hotKeys = Collections.emptySet();
+  private int windowCount;
+  private long sequence;
+
+  public HotKeySplitter(MessagePartitioner keys, int splits) {
+    this(keys, splits, 0.05, 10_000, 10_000);
+  }
+
+  /**
+   * @param keys           partitioner computing the keys to split, it must not return partition ids
+   * @param splits         number of sub-keys of a hot key, including the key itself
+   * @param hotShare       share of the messages of a window above which a key is hot
+   * @param windowMessages number of keyed messages per window
+   * @param maxTrackedKeys number of distinct keys counted per window
+   */
+  public HotKeySplitter(MessagePartitioner keys, int splits, double hotShare, int windowMessages, int maxTrackedKeys) {
+    if (splits <= 0 || hotShare <= 0 || hotShare > 1 || windowMessages <= 0 || maxTrackedKeys <= 0) {
+      throw new IllegalArgumentException("Invalid hot key splitter settings");
+    }
+    if (keys.isPartitionId()) {
+      throw new IllegalArgumentException("Keys must not be partition ids");
+    }
+    this.keys = keys;
+    this.splits = splits;
+    this.hotShare = hotShare;
+    this.windowMessages = windowMessages;
+    this.maxTrackedKeys = maxTrackedKeys;
+  }
+
+  @Override
+  public String partitionKey(SocialMessage message) {
+    String key = keys.partitionKey(message);
+    if (key == null) {
+      return null;
+    }
+    int split;
+    synchronized (this) {
+      count(key);
+      if (splits == 1 || !hotKeys.contains(key)) {
+        return key;
+      }
+      split = message.getId() > 0
+        ? (int) Long.remainderUnsigned(TextNormalizer.mix(message.getId()), splits)
+        : (int) (sequence++ % splits);
+    }
+    return split == 0 ? key : key + "#" + split;
+  }
+
+  private void count(String key) {
+    int[] count = counts.get(key);
+    if (count != null) {
+      count[0]++;
+    } else if (counts.size() < maxTrackedKeys) {
+      counts.put(key, new int[]{1});
+    }
+    if (++windowCount >= windowMessages) {
+      long threshold = (long) Math.ceil(hotShare * windowCount);
+      Set<String> hot = new HashSet<>();
+      for (Map.Entry<String, int[]> entry : counts.entrySet()) {
+        if (entry.getValue()[0] >= threshold) {
+          hot.add(entry.getKey());
+        }
+      }
+      hotKeys = hot;
+      counts.clear();
+      windowCount = 0;
+    }
+  }
+
+  /**
+   * The keys split during the current window
+   */
+  public synchronized Set<String> getHotKeys() {
+    return Collections.unmodifiableSet(new HashSet<>(hotKeys));
+  }
+
+  public int getSplits() {
+    return splits;
+  }
+}
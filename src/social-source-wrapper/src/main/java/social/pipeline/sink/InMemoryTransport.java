@@ -0,0 +1,108 @@
+package social.pipeline.sink;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Transport keeping sent batches in memory, used as a stand-in for EventHub in tests and benchmarks
+ */
+public class InMemoryTransport implements MessageTransport {
+
+  private final int maxBatchBytes;
+  private final long latencyMillis;
+  private final ScheduledExecutorService scheduler;
+  private final List<List<byte[]>> batches = Collections.synchronizedList(new ArrayList<>());
+  private final List<String> partitionKeys = Collections.synchronizedList(new ArrayList<>());
+
+  public InMemoryTransport(int maxBatchBytes) {
+    this(maxBatchBytes, 0);
+  }
+
+  /**
+   * @param latencyMillis simulated round trip of every send
+   */
+  public InMemoryTransport(int maxBatchBytes, long latencyMillis) {
+    this.maxBatchBytes = maxBatchBytes;
+    this.latencyMillis = latencyMillis;
+    this.scheduler = latencyMillis > 0 ? Executors.newSingleThreadScheduledExecutor() : null;
+  }
+
+  @Override
+  public int getMaxBatchBytes() {
+    return maxBatchBytes;
+  }
+
+  @Override
+  public CompletableFuture<Void> send(List<byte[]> batch) {
+    return send(batch, null);
+  }
+
+  /**
+   * Records the key with the batch, partition ids are recorded as keys
+   */
+  @Override
+  public CompletableFuture<Void> send(List<byte[]> batch, String partitionKey) {
+    if (scheduler == null) {
+      add(batch, partitionKey);
+      return CompletableFuture.completedFuture(null);
+    }
+    CompletableFuture<Void> result = new CompletableFuture<>();
+    scheduler.schedule(() -> {
+      add(batch, partitionKey);
+      result.complete(null);
+    }, latencyMillis, TimeUnit.MILLISECONDS);
+    return result;
+  }
+
+  @Override
+  public CompletableFuture<Void> sendToPartition(List<byte[]> batch, String partitionId) {
+    return send(batch, partitionId);
+  }
+
+  private void add(List<byte[]> batch, String partitionKey) {
+    synchronized (batches) {
+      batches.add(batch);
+      partitionKeys.add(partitionKey);
+    }
+  }
+
+  public List<List<byte[]>> getBatches() {
+    synchronized (batches) {
+      return new ArrayList<>(batches);
+    }
+  }
+
+  /**
+   * Partition key of every batch of {@link #getBatches()}, null for batches sent without one
+   */
+  public List<String> getPartitionKeys() {
+    synchronized (batches) {
+      return new ArrayList<>(partitionKeys);
+    }
+  }
+
+  public void clear() {
+    synchronized (batches) {
+      batches.clear();
+      partitionKeys.clear();
+    }
+  }
+
+  public int getEventCount() {
+    synchronized (batches) {
+      return batches.stream().mapToInt(List::size).sum();
+    }
+  }
+
+  @Override
+  public void close() {
+    if (scheduler != null) {
+      scheduler.shutdown();
+    }
+  }
+}
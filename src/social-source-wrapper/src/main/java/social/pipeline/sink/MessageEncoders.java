@@ -0,0 +1,41 @@
+package social.pipeline.sink;
+
+import com.google.gson.Gson;
+import social.pipeline.codec.SocialMessageCodec;
+import social.pipeline.source.SocialMessage;
+
+import java.nio.charset.StandardCharsets;
+import java.util.function.Function;
+
+/**
+ * Encoders turning a {@link SocialMessage} into the payload of an event
+ */
+public final class MessageEncoders {
+
+  private static final Gson GSON = new Gson();
+
+  private MessageEncoders() {
+  }
+
+  /**
+   * Only the message text, as the ingest notebook has always sent it
+   */
+  public static Function<SocialMessage, byte[]> text() {
+    return message -> message.getText().getBytes(StandardCharsets.UTF_8);
+  }
+
+  /**
+   * The whole message as JSON
+   */
+  public static Function<SocialMessage, byte[]> json() {
+    return message -> GSON.toJson(message).getBytes(StandardCharsets.UTF_8);
+  }
+
+  /**
+   * The whole message in the compact {@link SocialMessageCodec} format, the encoder must not be shared between threads
+   */
+  public static Function<SocialMessage, byte[]> binary() {
+    SocialMessageCodec codec = new SocialMessageCodec();
+    return codec::toBytes;
+  }
+}
@@ -0,0 +1,25 @@
+package social.pipeline.sink;
+
+import social.pipeline.source.SocialMessage;
+
+import java.io.Serializable;
+
+/**
+ * Computes the key routing a message to an EventHub partition, so that messages of the same topic
+ * land in the same partition and can be counted there without a shuffle.
+ * Messages without a key are spread by the transport.
+ */
+public interface MessagePartitioner extends Serializable {
+
+  /**
+   * @return the partition key of the message, or null to let the transport pick a partition
+   */
+  String partitionKey(SocialMessage message);
+
+  /**
+   * True if the keys are partition ids, used as is, rather than keys hashed to a partition by the transport
+   */
+  default boolean isPartitionId() {
+    return false;
+  }
+}
@@ -0,0 +1,37 @@
+package social.pipeline.sink;
+
+import java.io.Closeable;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Ships batches of encoded messages to a downstream system, such as an EventHub
+ */
+public interface MessageTransport extends Closeable {
+
+  /**
+   * Maximum size in bytes of a single batch accepted by {@link #send}
+   */
+  int getMaxBatchBytes();
+
+  /**
+   * Sends a batch asynchronously, the returned future completes once the batch was accepted downstream
+   */
+  CompletableFuture<Void> send(List<byte[]> batch);
+
+  /**
+   * Sends a batch whose events all have the partition key, so they land in the same partition.
+   * Transports without partitions send it as any other batch.
+   */
+  default CompletableFuture<Void> send(List<byte[]> batch, String partitionKey) {
+    return send(batch);
+  }
+
+  /**
+   * Sends a batch to the partition with the given id, see {@link MessagePartitioner#isPartitionId()}.
+   * Transports without partitions send it as any other batch.
+   */
+  default CompletableFuture<Void> sendToPartition(List<byte[]> batch, String partitionId) {
+    return send(batch);
+  }
+}
@@ -0,0 +1,19 @@
+package social.pipeline.sink;
+
+import social.pipeline.source.SocialMessage;
+
+import java.util.List;
+
+/**
+ * Keys a message by its first topic, messages without topics have no key
+ */
+public class PrimaryTopicPartitioner implements MessagePartitioner {
+
+  private static final long serialVersionUID = 1L;
+
+  @Override
+  public String partitionKey(SocialMessage message) {
+    List<String> topics = message.getTopics();
+    return topics == null || topics.isEmpty() ? null : topics.get(0);
+  }
+}
@@ -0,0 +1,78 @@
+package social.pipeline.sink;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counters of a {@link BatchingMessageSink}, safe to read while the sink is in use
+ */
+public class SinkMetrics {
+
+  private final AtomicLong batchesSent = new AtomicLong();
+  private final AtomicLong eventsSent = new AtomicLong();
+  private final AtomicLong bytesSent = new AtomicLong();
+  private final AtomicLong failedBatches = new AtomicLong();
+  private final AtomicLong totalLatencyNanos = new AtomicLong();
+  private final AtomicLong maxLatencyNanos = new AtomicLong();
+  private final AtomicLong lastLatencyNanos = new AtomicLong();
+
+  void recordBatch(int events, long bytes, long latencyNanos) {
+    batchesSent.incrementAndGet();
+    eventsSent.addAndGet(events);
+    bytesSent.addAndGet(bytes);
+    totalLatencyNanos.addAndGet(latencyNanos);
+    maxLatencyNanos.accumulateAndGet(latencyNanos, Math::max);
+    lastLatencyNanos.set(latencyNanos);
+  }
+
+  void recordFailure() {
+    failedBatches.incrementAndGet();
+  }
+
+  public long getBatchesSent() {
+    return batchesSent.get();
+  }
+
+  public long getEventsSent() {
+    return eventsSent.get();
+  }
+
+  public long getBytesSent() {
+    return bytesSent.get();
+  }
+
+  public long getFailedBatches() {
+    return failedBatches.get();
+  }
+
+  public double getAverageEventsPerBatch() {
+    long batches = batchesSent.get();
+    return batches == 0 ? 0 : (double) eventsSent.get() / batches;
+  }
+
+  public double getAverageBatchLatencyMillis() {
+    long batches = batchesSent.get();
+    return batches == 0 ? 0 : (double) totalLatencyNanos.get() / batches / TimeUnit.MILLISECONDS.toNanos(1);
+  }
+
+  public double getMaxBatchLatencyMillis() {
+    return (double) maxLatencyNanos.get() / TimeUnit.MILLISECONDS.toNanos(1);
+  }
+
+  public double getLastBatchLatencyMillis() {
+    return (double) lastLatencyNanos.get() / TimeUnit.MILLISECONDS.toNanos(1);
+  }
+
+  @Override
+  public String toString() {
+    return "SinkMetrics{" +
+      "batchesSent=" + getBatchesSent() +
+      ", eventsSent=" + getEventsSent() +
+      ", bytesSent=" + getBytesSent() +
+      ", failedBatches=" + getFailedBatches() +
+      ", averageEventsPerBatch=" + String.format("%.1f", getAverageEventsPerBatch()) +
+      ", averageBatchLatencyMillis=" + String.format("%.2f", getAverageBatchLatencyMillis()) +
+      ", maxBatchLatencyMillis=" + String.format("%.2f", getMaxBatchLatencyMillis()) +
+      '}';
+  }
+}
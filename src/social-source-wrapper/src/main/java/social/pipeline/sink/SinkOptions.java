@@ -0,0 +1,65 @@
+package social.pipeline.sink;
+
+/**
+ * Batching and pipelining settings of a {@link BatchingMessageSink}
+ */
+public class SinkOptions {
+
+  private int maxBatchEvents = 1000;
+  private long lingerMillis = 50;
+  private int maxInFlight = 4;
+  private int eventOverheadBytes = 64;
+  private int maxOpenBatches = 64;
+
+  public int getMaxBatchEvents() {
+    return maxBatchEvents;
+  }
+
+  public void setMaxBatchEvents(int maxBatchEvents) {
+    this.maxBatchEvents = maxBatchEvents;
+  }
+
+  /**
+   * How long a partially filled batch may wait for more messages before it is sent anyway
+   */
+  public long getLingerMillis() {
+    return lingerMillis;
+  }
+
+  public void setLingerMillis(long lingerMillis) {
+    this.lingerMillis = lingerMillis;
+  }
+
+  /**
+   * Number of batches that may be sent concurrently, further sends block until one completes
+   */
+  public int getMaxInFlight() {
+    return maxInFlight;
+  }
+
+  public void setMaxInFlight(int maxInFlight) {
+    this.maxInFlight = maxInFlight;
+  }
+
+  /**
+   * Bytes accounted per event on top of its payload for the transport's envelope
+   */
+  public int getEventOverheadBytes() {
+    return eventOverheadBytes;
+  }
+
+  public void setEventOverheadBytes(int eventOverheadBytes) {
+    this.eventOverheadBytes = eventOverheadBytes;
+  }
+
+  /**
+   * Number of partition keys with a batch being filled, a new key beyond it sends the oldest batch
+   */
+  public int getMaxOpenBatches() {
+    return maxOpenBatches;
+  }
+
+  public void setMaxOpenBatches(int maxOpenBatches) {
+    this.maxOpenBatches = maxOpenBatches;
+  }
+}
@@ -0,0 +1,171 @@
+package social.pipeline.source;
+
+import java.io.Closeable;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs the blocking searches of {@link SocialSource#searchAsync} on a bounded number of threads.
+ * <p>
+ * At most threads searches run at the same time and at most maxPending wait for a thread; a search
+ * submitted beyond that fails at once with a {@link RejectedExecutionException} rather than queuing
+ * without bound. A search still running after timeoutMillis (non positive for no timeout) fails with a
+ * {@link TimeoutException}. Cancelling the future of a search, or its timing out, interrupts the thread
+ * running it. Threads are daemons, so an executor that is not closed does not keep the JVM alive.
+ */
+public class AsyncSearchExecutor implements Closeable {
+
+  private static final int DEFAULT_THREADS = 8;
+  private static final int DEFAULT_MAX_PENDING = 1024;
+  private static final long DEFAULT_TIMEOUT_MILLIS = 60000;
+
+  private static AsyncSearchExecutor defaultExecutor;
+
+  private final ThreadPoolExecutor searches;
+  private final ScheduledExecutorService timeouts;
+  private final long timeoutMillis;
+  private final boolean shared;
+
+  public AsyncSearchExecutor(int threads, int maxPending, long timeoutMillis) {
+    this(threads, maxPending, timeoutMillis, false);
+  }
+
+  private AsyncSearchExecutor(int threads, int maxPending, long timeoutMillis, boolean shared) {
+    if (threads <= 0 || maxPending <= 0) {
+      throw new IllegalArgumentException("Threads and pending searches must be positive");
+    }
+    this.searches = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+      new ArrayBlockingQueue<>(maxPending), daemonThreads("social-search"));
+    this.timeouts = Executors.newSingleThreadScheduledExecutor(daemonThreads("social-search-timeout"));
+    this.timeoutMillis = timeoutMillis;
+    this.shared = shared;
+  }
+
+  /**
+   * Executor shared by the sources that were not given one: 8 threads, 1024 pending searches and a one minute timeout.
+   * Closing it does nothing, as other sources may still be using it.
+   */
+  public static synchronized AsyncSearchExecutor getDefault() {
+    if (defaultExecutor == null) {
+      defaultExecutor = new AsyncSearchExecutor(DEFAULT_THREADS, DEFAULT_MAX_PENDING, DEFAULT_TIMEOUT_MILLIS, true);
+    }
+    return defaultExecutor;
+  }
+
+  private static ThreadFactory daemonThreads(String name) {
+    AtomicInteger count = new AtomicInteger();
+    return runnable -> {
+      Thread thread = new Thread(runnable, name + "-" + count.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    };
+  }
+
+  public CompletableFuture<SocialQueryResult> search(SocialSource source, SocialQuery query) {
+    return search(source, query, timeoutMillis);
+  }
+
+  /**
+   * Runs the search on one of the threads of the executor
+   *
+   * @return the future result, failed with the exception of the search, a timeout or a rejection
+   */
+  public CompletableFuture<SocialQueryResult> search(SocialSource source, SocialQuery query, long timeoutMillis) {
+    SearchTask task = new SearchTask(source, query);
+    try {
+      searches.execute(task);
+    } catch (RejectedExecutionException e) {
+      task.result.completeExceptionally(e);
+      return task.result;
+    }
+
+    ScheduledFuture<?> timeout = timeoutMillis > 0
+      ? timeouts.schedule(() -> task.result.completeExceptionally(new TimeoutException("Search timed out after " + timeoutMillis + " ms: " + query.getQuery())),
+      timeoutMillis, TimeUnit.MILLISECONDS)
+      : null;
+    task.result.whenComplete((value, error) -> {
+      if (timeout != null) {
+        timeout.cancel(false);
+      }
+      if (error != null && !searches.remove(task)) {
+        // Cancelled or timed out while running, a search that failed by itself is already done
+        task.interrupt();
+      }
+    });
+    return task.result;
+  }
+
+  private static class SearchTask implements Runnable {
+
+    private final SocialSource source;
+    private final SocialQuery query;
+    private final CompletableFuture<SocialQueryResult> result = new CompletableFuture<>();
+    private Thread runner;
+
+    SearchTask(SocialSource source, SocialQuery query) {
+      this.source = source;
+      this.query = query;
+    }
+
+    @Override
+    public void run() {
+      synchronized (this) {
+        if (result.isDone()) {
+          return;
+        }
+        runner = Thread.currentThread();
+      }
+      try {
+        result.complete(source.search(query));
+      } catch (Throwable e) {
+        result.completeExceptionally(e);
+      } finally {
+        synchronized (this) {
+          runner = null;
+        }
+        // An interrupt that came too late must not reach the next search of the thread
+        Thread.interrupted();
+      }
+    }
+
+    synchronized void interrupt() {
+      if (runner != null) {
+        runner.interrupt();
+      }
+    }
+  }
+
+  /**
+   * Searches running or waiting for a thread
+   */
+  public int getPendingSearches() {
+    return searches.getActiveCount() + searches.getQueue().size();
+  }
+
+  public long getTimeoutMillis() {
+    return timeoutMillis;
+  }
+
+  /**
+   * Interrupts the running searches and fails those waiting for a thread, unless this is the {@link #getDefault() default} executor
+   */
+  @Override
+  public void close() {
+    if (shared) {
+      return;
+    }
+    for (Runnable waiting : searches.shutdownNow()) {
+      ((SearchTask) waiting).result.completeExceptionally(new RejectedExecutionException("Search executor closed"));
+    }
+    timeouts.shutdownNow();
+  }
+}
@@ -0,0 +1,183 @@
+package social.pipeline.source;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Iterates over the messages of a query page by page, following {@link SocialQueryResult#nextQuery()}.
+ * Paging moves towards older messages: every page lowers maxId below the lowest id seen so far,
+ * while sinceId stays fixed, so the same message is never fetched twice within one pass.
+ * A {@link PageListener} is told when each page has been fully handed out, to commit progress page by page.
+ */
+public class SocialMessageIterator implements Iterator<SocialMessage> {
+
+  /**
+   * Told when every message of a page has been handed out, before the next page is fetched
+   */
+  public interface PageListener {
+
+    /**
+     * Called from {@link #hasNext()} once the caller is done with the messages of the page, also
+     * after the last page of the pass, when {@link #isExhausted()} is true
+     *
+     * @throws IOException rethrown by hasNext as an {@link UncheckedIOException}
+     */
+    void onPageConsumed(SocialMessageIterator iterator) throws IOException;
+  }
+
+  private final SocialSource source;
+  private final long maxMessages;
+  private final long deadline;
+
+  private SocialQuery currentQuery;
+  private Iterator<SocialMessage> page = Collections.emptyIterator();
+  private boolean exhausted;
+  private boolean pageOpen;
+  private PageListener pageListener;
+
+  private long emitted;
+  private int pagesFetched;
+  private long lowestId = Long.MAX_VALUE;
+  private long highestId = Long.MIN_VALUE;
+
+  public SocialMessageIterator(SocialSource source, SocialQuery query) {
+    this(source, query, -1, -1);
+  }
+
+  public SocialMessageIterator(SocialSource source, SocialQuery query, long maxMessages, long maxDurationMillis) {
+    this.source = source;
+    this.currentQuery = query.copy();
+    this.maxMessages = maxMessages > 0 ? maxMessages : Long.MAX_VALUE;
+    this.deadline = maxDurationMillis > 0 ? System.currentTimeMillis() + maxDurationMillis : Long.MAX_VALUE;
+  }
+
+  @Override
+  public boolean hasNext() {
+    if (emitted >= maxMessages) {
+      return false;
+    }
+    while (!page.hasNext()) {
+      if (pageOpen) {
+        pageOpen = false;
+        notifyPageConsumed();
+      }
+      if (exhausted || System.currentTimeMillis() >= deadline) {
+        return false;
+      }
+      fetchPage();
+    }
+    return true;
+  }
+
+  @Override
+  public SocialMessage next() {
+    if (!hasNext()) {
+      throw new NoSuchElementException();
+    }
+    emitted++;
+    return page.next();
+  }
+
+  private void fetchPage() {
+    SocialQueryResult result;
+    try {
+      result = source.search(currentQuery);
+    } catch (Exception e) {
+      throw new SocialSourceException("Failed to fetch page for query " + currentQuery.getQuery(), e);
+    }
+    pagesFetched++;
+    pageOpen = true;
+
+    List<SocialMessage> messages = result.getMessages();
+    if (messages == null || messages.isEmpty()) {
+      exhausted = true;
+      return;
+    }
+
+    long pageLowestId = Long.MAX_VALUE;
+    for (SocialMessage message : messages) {
+      pageLowestId = Math.min(pageLowestId, message.getId());
+      highestId = Math.max(highestId, message.getId());
+    }
+    lowestId = Math.min(lowestId, pageLowestId);
+    page = messages.iterator();
+
+    SocialQuery next = result.hasNext() ? result.nextQuery() : null;
+    if (next == null) {
+      exhausted = true;
+      return;
+    }
+    if (next.getMaxId() <= 0) {
+      next.setMaxId(pageLowestId - 1);
+    } else if (currentQuery.getMaxId() > 0 && next.getMaxId() >= currentQuery.getMaxId()) {
+      // The source did not move the cursor, stop instead of fetching the same page forever
+      exhausted = true;
+      return;
+    }
+    if (next.getSinceId() <= 0) {
+      next.setSinceId(currentQuery.getSinceId());
+    }
+    if (next.getLang() == null) {
+      next.setLang(currentQuery.getLang());
+    }
+    if (next.getCount() <= 0) {
+      next.setCount(currentQuery.getCount());
+    }
+    currentQuery = next;
+  }
+
+  private void notifyPageConsumed() {
+    if (pageListener != null) {
+      try {
+        pageListener.onPageConsumed(this);
+      } catch (IOException e) {
+        throw new UncheckedIOException("Failed to commit page of query " + currentQuery.getQuery(), e);
+      }
+    }
+  }
+
+  public PageListener getPageListener() {
+    return pageListener;
+  }
+
+  public void setPageListener(PageListener pageListener) {
+    this.pageListener = pageListener;
+  }
+
+  /**
+   * The query that will be used for the next page, it can be persisted to resume paging later on
+   */
+  public SocialQuery getCurrentQuery() {
+    return currentQuery;
+  }
+
+  public boolean isExhausted() {
+    return exhausted && !page.hasNext();
+  }
+
+  public long getEmitted() {
+    return emitted;
+  }
+
+  public int getPagesFetched() {
+    return pagesFetched;
+  }
+
+  /**
+   * Lowest message id fetched so far, or Long.MAX_VALUE if nothing was fetched
+   */
+  public long getLowestId() {
+    return lowestId;
+  }
+
+  /**
+   * Highest message id fetched so far, or Long.MIN_VALUE if nothing was fetched
+   */
+  public long getHighestId() {
+    return highestId;
+  }
+}
@@ -6,6 +6,7 @@ public class SocialQuery {
   private String lang;
   private int count;
   private long maxId = -1L;
+  private long sinceId = -1L;
 
   public SocialQuery() {
   }
@@ -44,7 +45,30 @@ public class SocialQuery {
     this.count = count;
   }
 
+  public long getMaxId() {
+    return maxId;
+  }
+
   public void setMaxId(long maxId) {
     this.maxId = maxId;
   }
+
+  public long getSinceId() {
+    return sinceId;
+  }
+
+  public void setSinceId(long sinceId) {
+    this.sinceId = sinceId;
+  }
+
+  /**
+   * Creates a copy of this query, so paging state can be advanced without touching the caller's query
+   */
+  public SocialQuery copy() {
+    SocialQuery copy = new SocialQuery(query, count);
+    copy.setLang(lang);
+    copy.setMaxId(maxId);
+    copy.setSinceId(sinceId);
+    return copy;
+  }
 }
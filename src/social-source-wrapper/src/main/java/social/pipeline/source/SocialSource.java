@@ -1,9 +1,33 @@
 package social.pipeline.source;
 
+import java.util.concurrent.CompletableFuture;
+
 public interface SocialSource {
   SocialQueryResult search(SocialQuery query) throws Exception;
 
+  /**
+   * Runs the search without blocking the caller, by default on the shared {@link AsyncSearchExecutor}.
+   * Cancelling the future interrupts the search.
+   */
+  default CompletableFuture<SocialQueryResult> searchAsync(SocialQuery query) {
+    return AsyncSearchExecutor.getDefault().search(this, query);
+  }
+
   void setOAuthConsumer(String key, String secret);
 
   void setOAuthAccessToken(String accessToken, String tokenSecret);
+
+  /**
+   * Streams all messages matching the query, following result pages until the source runs out of them
+   */
+  default SocialMessageIterator stream(SocialQuery query) {
+    return new SocialMessageIterator(this, query);
+  }
+
+  /**
+   * Streams messages matching the query, stopping after maxMessages or maxDurationMillis (non positive for no limit)
+   */
+  default SocialMessageIterator stream(SocialQuery query, long maxMessages, long maxDurationMillis) {
+    return new SocialMessageIterator(this, query, maxMessages, maxDurationMillis);
+  }
 }
@@ -0,0 +1,13 @@
+package social.pipeline.source;
+
+/**
+ * Unchecked wrapper for failures of a {@link SocialSource} that surface outside of {@link SocialSource#search}
+ */
+public class SocialSourceException extends RuntimeException {
+
+  private static final long serialVersionUID = 1L;
+
+  public SocialSourceException(String message, Throwable cause) {
+    super(message, cause);
+  }
+}
@@ -2,5 +2,6 @@ package social.pipeline.source;
 
 public enum SourceName {
   TWITTER,
-  CUSTOM
+  CUSTOM,
+  GENERATED
 }
@@ -0,0 +1,140 @@
+package social.pipeline.source;
+
+import social.pipeline.text.TopicExtractor;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Searches of a {@link TopicQueryPlanner}, each covering several topics, and the matcher sending the
+ * messages found back to their topics.
+ * <p>
+ * A message is attributed to every topic found in its text as whole words, case insensitively, with
+ * one pass over the text whatever the number of topics. A message may match no topic, e.g. when the
+ * provider matched a link or a user name, and is then left out of the demultiplexed results.
+ * Instances are immutable and thread safe.
+ */
+public class TopicQueryPlan {
+
+  private final List<SocialQuery> queries;
+  private final List<List<String>> queryTopics;
+  private final List<String> topics = new ArrayList<>();
+  private final TopicExtractor matcher;
+
+  TopicQueryPlan(List<SocialQuery> queries, List<List<String>> queryTopics) {
+    this.queries = queries;
+    this.queryTopics = new ArrayList<>(queryTopics.size());
+    Map<String, String> dictionary = new LinkedHashMap<>();
+    for (List<String> bin : queryTopics) {
+      this.queryTopics.add(Collections.unmodifiableList(bin));
+      for (String topic : bin) {
+        topics.add(topic);
+        dictionary.put(topic, topic);
+      }
+    }
+    this.matcher = new TopicExtractor(dictionary);
+    matcher.setExtractHashtags(false);
+    matcher.setExtractMentions(false);
+    matcher.setExtractCashtags(false);
+  }
+
+  /**
+   * The searches to run, callers must copy a query before paging with it
+   */
+  public List<SocialQuery> getQueries() {
+    return Collections.unmodifiableList(queries);
+  }
+
+  /**
+   * The topics covered by the search at the given index of {@link #getQueries()}
+   */
+  public List<String> getTopics(int query) {
+    return queryTopics.get(query);
+  }
+
+  /**
+   * All topics of the plan, without duplicates
+   */
+  public List<String> getTopics() {
+    return Collections.unmodifiableList(topics);
+  }
+
+  /**
+   * Topics of the plan found in the text, each once, in order of appearance
+   */
+  public List<String> match(CharSequence text) {
+    return matcher.extract(text);
+  }
+
+  /**
+   * Sets the topics of the message to the topics of the plan found in its text
+   *
+   * @return true if the message matches at least one topic
+   */
+  public boolean assignTopics(SocialMessage message) {
+    List<String> matched = message.getText() != null ? match(message.getText()) : new ArrayList<>(0);
+    message.setTopics(matched);
+    return !matched.isEmpty();
+  }
+
+  /**
+   * Groups the messages by matching topic, a message matching several topics is in each of their lists
+   *
+   * @return the messages of each topic with at least one, in the order of the plan topics
+   */
+  public Map<String, List<SocialMessage>> demultiplex(Iterable<SocialMessage> messages) {
+    Map<String, List<SocialMessage>> byTopic = new LinkedHashMap<>();
+    for (String topic : topics) {
+      byTopic.put(topic, new ArrayList<>());
+    }
+    List<String> matched = new ArrayList<>(4);
+    for (SocialMessage message : messages) {
+      if (message.getText() == null) {
+        continue;
+      }
+      matched.clear();
+      matcher.extract(message.getText(), matched);
+      for (String topic : matched) {
+        byTopic.get(topic).add(message);
+      }
+    }
+    byTopic.values().removeIf(List::isEmpty);
+    return byTopic;
+  }
+
+  /**
+   * Runs the first page of every search of the plan concurrently and demultiplexes their messages.
+   * A message found by several searches, as it mentions topics of each, is kept once.
+   */
+  public CompletableFuture<Map<String, List<SocialMessage>>> searchAsync(SocialSource source) {
+    List<CompletableFuture<SocialQueryResult>> results = new ArrayList<>(queries.size());
+    for (SocialQuery query : queries) {
+      results.add(source.searchAsync(query.copy()));
+    }
+    return CompletableFuture.allOf(results.toArray(new CompletableFuture<?>[0])).thenApply(done -> {
+      List<SocialMessage> messages = new ArrayList<>();
+      Set<Long> ids = new HashSet<>();
+      for (CompletableFuture<SocialQueryResult> result : results) {
+        for (SocialMessage message : result.join().getMessages()) {
+          if (message.getId() == 0 || ids.add(message.getId())) {
+            messages.add(message);
+          }
+        }
+      }
+      return demultiplex(messages);
+    });
+  }
+
+  /**
+   * Number of searches, the number of topics divided by the packing factor
+   */
+  public int size() {
+    return queries.size();
+  }
+}
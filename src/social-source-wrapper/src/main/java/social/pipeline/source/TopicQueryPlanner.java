@@ -0,0 +1,112 @@
+package social.pipeline.source;
+
+import social.pipeline.text.AhoCorasick;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Packs topics into as few searches as possible: each search is an OR of topics, up to the query length
+ * limit of the provider (500 chars for the Twitter standard search).
+ * <p>
+ * Topics are packed first fit by decreasing length, which takes at most 11/9 of the optimal number of
+ * searches plus one. Topics of several words are searched as quoted phrases. Topics that are equal once case
+ * folded are searched once. The text of the template query, if any, is added to every search as an
+ * extra clause, e.g. "-filter:retweets". A topic too long to fit in a search by itself is rejected.
+ */
+public class TopicQueryPlanner {
+
+  public static final int TWITTER_MAX_QUERY_LENGTH = 500;
+
+  private static final String OR = " OR ";
+
+  private final int maxQueryLength;
+
+  public TopicQueryPlanner() {
+    this(TWITTER_MAX_QUERY_LENGTH);
+  }
+
+  public TopicQueryPlanner(int maxQueryLength) {
+    this.maxQueryLength = maxQueryLength;
+  }
+
+  /**
+   * @param template lang, count and extra clause of the searches, the template is not modified
+   */
+  public TopicQueryPlan plan(List<String> topics, SocialQuery template) {
+    Map<String, String> terms = new LinkedHashMap<>();
+    for (String topic : topics) {
+      String normalized = normalize(topic);
+      if (!normalized.isEmpty()) {
+        terms.putIfAbsent(foldKey(normalized), normalized);
+      }
+    }
+
+    String clause = template.getQuery() != null ? template.getQuery().trim() : "";
+    // "(" + terms + ") " + clause, or the terms alone
+    int capacity = clause.isEmpty() ? maxQueryLength : maxQueryLength - clause.length() - 3;
+
+    List<String> sorted = new ArrayList<>(terms.values());
+    sorted.sort(Comparator.comparingInt((String topic) -> term(topic).length()).reversed());
+    List<List<String>> bins = new ArrayList<>();
+    List<Integer> lengths = new ArrayList<>();
+    for (String topic : sorted) {
+      int length = term(topic).length();
+      if (length > capacity) {
+        throw new IllegalArgumentException("Topic does not fit in a query of " + maxQueryLength + " chars: " + topic);
+      }
+      int bin = 0;
+      while (bin < bins.size() && lengths.get(bin) + OR.length() + length > capacity) {
+        bin++;
+      }
+      if (bin == bins.size()) {
+        bins.add(new ArrayList<>());
+        lengths.add(length);
+      } else {
+        lengths.set(bin, lengths.get(bin) + OR.length() + length);
+      }
+      bins.get(bin).add(topic);
+    }
+
+    List<SocialQuery> queries = new ArrayList<>(bins.size());
+    for (List<String> bin : bins) {
+      StringBuilder query = new StringBuilder();
+      for (String topic : bin) {
+        query.append(query.length() > 0 ? OR : "").append(term(topic));
+      }
+      SocialQuery search = template.copy();
+      search.setQuery(clause.isEmpty() ? query.toString() : "(" + query + ") " + clause);
+      queries.add(search);
+    }
+    return new TopicQueryPlan(queries, bins);
+  }
+
+  /**
+   * Trims the topic, collapses its whitespace and drops double quotes, which would break the query
+   */
+  static String normalize(String topic) {
+    return topic.replace('"', ' ').trim().replaceAll("\\s+", " ");
+  }
+
+  private static String foldKey(String topic) {
+    StringBuilder key = new StringBuilder(topic.length());
+    for (int i = 0; i < topic.length(); i++) {
+      key.append(AhoCorasick.fold(topic.charAt(i)));
+    }
+    return key.toString();
+  }
+
+  /**
+   * The topic as a search term, quoted if it has several words
+   */
+  static String term(String topic) {
+    return topic.indexOf(' ') >= 0 ? '"' + topic + '"' : topic;
+  }
+
+  public int getMaxQueryLength() {
+    return maxQueryLength;
+  }
+}
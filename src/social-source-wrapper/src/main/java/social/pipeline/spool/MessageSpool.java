@@ -0,0 +1,405 @@
+package social.pipeline.spool;
+
+import social.pipeline.codec.SocialMessageCodec;
+import social.pipeline.source.SocialMessage;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only spool of messages on local disk, decoupling a source from a slower or failing sink.
+ * <p>
+ * Records are appended to memory-mapped segment files, each named after the offset of its first byte,
+ * and are addressed by offset. A record is a 4 byte length, the CRC32 of the payload and the payload,
+ * the message in the {@link SocialMessageCodec} format. Messages are encoded straight into the mapped
+ * segment and readers get a view of it, so records are never copied through the heap. When the
+ * record does not fit in the current segment, a new one is started.
+ * <p>
+ * A consumer reads from the {@link #getAcknowledgedOffset acknowledged offset} and
+ * {@link #acknowledge acknowledges} the records it has shipped; the offset is kept in a file replaced
+ * atomically, so after a restart reading resumes at the first record not acknowledged. Segments whose
+ * records are all acknowledged are deleted once older than the retention. On opening, the records of
+ * each segment are checked up to the first torn or corrupt one, which ends the segment.
+ * <p>
+ * How soon appended records reach the disk is set by {@link SpoolOptions#getSync()}. One thread may
+ * append while another reads and acknowledges. Mapped segments are released by the garbage collector,
+ * deleting them relies on the file system allowing it while they are mapped, as Linux does.
+ */
+public class MessageSpool implements Closeable {
+
+  private static final String SEGMENT_SUFFIX = ".spool";
+  private static final String ACK_FILE = "acknowledged";
+  private static final int HEADER_BYTES = 8;
+
+  /**
+   * Receives the records of {@link #read}
+   */
+  public interface RecordHandler {
+
+    /**
+     * @param payload read-only view of the encoded message in the segment, valid during the call only
+     */
+    void onRecord(long offset, ByteBuffer payload) throws IOException, InterruptedException;
+  }
+
+  private static final class Segment {
+
+    final long base;
+    final Path path;
+    final MappedByteBuffer buffer;
+    final int capacity;
+    // Bytes of complete records, published to readers after each append
+    volatile int end;
+    volatile boolean sealed;
+    long sealedAt;
+
+    Segment(long base, Path path, MappedByteBuffer buffer) {
+      this.base = base;
+      this.path = path;
+      this.buffer = buffer;
+      this.capacity = buffer.capacity();
+    }
+  }
+
+  private final Path directory;
+  private final SpoolOptions options;
+  private final SocialMessageCodec codec = new SocialMessageCodec();
+  private final CRC32 crc = new CRC32();
+  private final List<Segment> segments = new ArrayList<>();
+  private final Object ackLock = new Object();
+
+  private Segment head;
+  private ByteBuffer writeBuffer;
+  private long lastSync;
+  private long appendedRecords;
+  private volatile long acknowledged;
+  private boolean closed;
+
+  private MessageSpool(Path directory, SpoolOptions options) {
+    this.directory = directory;
+    this.options = options;
+  }
+
+  /**
+   * Opens the spool in the directory, recovering the segments left by a previous run
+   */
+  public static MessageSpool open(Path directory, SpoolOptions options) throws IOException {
+    if (options.getSegmentBytes() <= HEADER_BYTES) {
+      throw new IllegalArgumentException("Segments of " + options.getSegmentBytes() + " bytes are too small");
+    }
+    MessageSpool spool = new MessageSpool(directory, options);
+    spool.recover();
+    return spool;
+  }
+
+  private void recover() throws IOException {
+    Files.createDirectories(directory);
+    List<Long> bases = new ArrayList<>();
+    try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + SEGMENT_SUFFIX)) {
+      for (Path file : files) {
+        String name = file.getFileName().toString();
+        bases.add(Long.parseLong(name.substring(0, name.length() - SEGMENT_SUFFIX.length())));
+      }
+    }
+    bases.sort(null);
+
+    long ackOffset = readAcknowledged();
+    for (long base : bases) {
+      Path path = segmentPath(base);
+      Segment segment = new Segment(base, path, map(path, (int) Files.size(path)));
+      segment.end = scan(segment);
+      segment.sealed = true;
+      segment.sealedAt = Files.getLastModifiedTime(path).toMillis();
+      segments.add(segment);
+    }
+    if (segments.isEmpty()) {
+      segments.add(createSegment(ackOffset));
+    }
+    head = segments.get(segments.size() - 1);
+    head.sealed = false;
+    // Appends overwrite the tail of the last segment, clear what a torn write may have left there
+    for (int i = head.end; i < head.capacity; i++) {
+      if (head.buffer.get(i) != 0) {
+        head.buffer.put(i, (byte) 0);
+      }
+    }
+    writeBuffer = head.buffer.duplicate();
+    acknowledged = Math.max(Math.min(ackOffset, getWriteOffset()), segments.get(0).base);
+    lastSync = System.currentTimeMillis();
+  }
+
+  /**
+   * Length of the valid records at the start of the segment
+   */
+  private int scan(Segment segment) {
+    CRC32 check = new CRC32();
+    int position = 0;
+    while (position + HEADER_BYTES <= segment.capacity) {
+      int length = segment.buffer.getInt(position);
+      if (length <= 0 || length > segment.capacity - position - HEADER_BYTES) {
+        break;
+      }
+      check.reset();
+      check.update(slice(segment.buffer, position + HEADER_BYTES, length));
+      if ((int) check.getValue() != segment.buffer.getInt(position + 4)) {
+        break;
+      }
+      position += HEADER_BYTES + length;
+    }
+    return position;
+  }
+
+  /**
+   * Appends the message, syncing it to the disk as set by the options
+   *
+   * @return the offset of the record
+   * @throws IOException if a new segment is needed and would exceed the maximum spool size
+   */
+  public synchronized long append(SocialMessage message) throws IOException {
+    if (closed) {
+      throw new IllegalStateException("Spool is closed");
+    }
+    int length = codec.encodedSize(message);
+    int size = HEADER_BYTES + length;
+    if (size > options.getSegmentBytes()) {
+      throw new IllegalArgumentException("Message of " + length + " bytes does not fit in a segment");
+    }
+    if (size > head.capacity - head.end) {
+      roll();
+    }
+
+    int position = head.end;
+    writeBuffer.position(position + HEADER_BYTES);
+    codec.encode(message, writeBuffer);
+    crc.reset();
+    crc.update(slice(head.buffer, position + HEADER_BYTES, length));
+    writeBuffer.putInt(position + 4, (int) crc.getValue());
+    writeBuffer.putInt(position, length);
+    head.end = position + size;
+    appendedRecords++;
+
+    if (options.getSync() == SpoolOptions.Sync.ALWAYS
+      || (options.getSync() == SpoolOptions.Sync.INTERVAL && System.currentTimeMillis() - lastSync >= options.getSyncIntervalMillis())) {
+      sync();
+    }
+    return head.base + position;
+  }
+
+  private void roll() throws IOException {
+    if (getSegmentBytes() + options.getSegmentBytes() > options.getMaxBytes()) {
+      throw new IOException("Spool is full: " + getSegmentBytes() + " bytes in " + segments.size() + " segments");
+    }
+    if (options.getSync() != SpoolOptions.Sync.OS) {
+      head.buffer.force();
+    }
+    Segment next = createSegment(head.base + head.capacity);
+    segments.add(next);
+    // Readers reaching the end of a sealed segment move on to the next one, which must already be listed
+    head.sealedAt = System.currentTimeMillis();
+    head.sealed = true;
+    head = next;
+    writeBuffer = next.buffer.duplicate();
+  }
+
+  private Segment createSegment(long base) throws IOException {
+    Path path = segmentPath(base);
+    return new Segment(base, path, map(path, options.getSegmentBytes()));
+  }
+
+  private Path segmentPath(long base) {
+    return directory.resolve(String.format("%020d%s", base, SEGMENT_SUFFIX));
+  }
+
+  private static MappedByteBuffer map(Path path, int size) throws IOException {
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+      // The mapping stays valid once the channel is closed
+      return channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+    }
+  }
+
+  private static ByteBuffer slice(ByteBuffer buffer, int position, int length) {
+    ByteBuffer view = buffer.duplicate();
+    view.limit(position + length).position(position);
+    return view.slice();
+  }
+
+  /**
+   * Forces the records appended so far to the disk
+   */
+  public synchronized void sync() {
+    head.buffer.force();
+    lastSync = System.currentTimeMillis();
+  }
+
+  /**
+   * Hands the records from the offset on to the handler, at most maxRecords of them
+   *
+   * @return the offset following the last record handled, where the next read starts
+   */
+  public long read(long offset, int maxRecords, RecordHandler handler) throws IOException, InterruptedException {
+    Segment segment = segmentAt(offset);
+    if (segment != null && offset < segment.base) {
+      offset = segment.base;
+    }
+    int count = 0;
+    while (segment != null && count < maxRecords) {
+      int position = (int) (offset - segment.base);
+      if (position >= segment.end) {
+        boolean sealed = segment.sealed;
+        if (position < segment.end) {
+          continue;
+        }
+        if (!sealed) {
+          break;
+        }
+        offset = segment.base + segment.capacity;
+        segment = segmentAt(offset);
+        continue;
+      }
+      int length = segment.buffer.getInt(position);
+      handler.onRecord(offset, slice(segment.buffer, position + HEADER_BYTES, length).asReadOnlyBuffer());
+      offset += HEADER_BYTES + length;
+      count++;
+    }
+    return offset;
+  }
+
+  /**
+   * The segment holding the offset, the first one if the offset is older, null if it is past the last one
+   */
+  private synchronized Segment segmentAt(long offset) {
+    for (Segment segment : segments) {
+      if (offset < segment.base + segment.capacity) {
+        return segment;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Records all records before the offset as shipped, so they are not read again after a restart
+   */
+  public void acknowledge(long offset) throws IOException {
+    synchronized (ackLock) {
+      if (offset <= acknowledged) {
+        return;
+      }
+      if (offset > getWriteOffset()) {
+        throw new IllegalArgumentException("Offset " + offset + " is past the last record " + getWriteOffset());
+      }
+      writeAcknowledged(offset);
+      acknowledged = offset;
+    }
+    deleteAcknowledgedSegments();
+  }
+
+  private void writeAcknowledged(long offset) throws IOException {
+    Path temporary = directory.resolve(ACK_FILE + ".tmp");
+    ByteBuffer content = ByteBuffer.allocate(8).putLong(offset);
+    content.flip();
+    try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+      while (content.hasRemaining()) {
+        channel.write(content);
+      }
+      if (options.getSync() != SpoolOptions.Sync.OS) {
+        channel.force(false);
+      }
+    }
+    Files.move(temporary, directory.resolve(ACK_FILE), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+  }
+
+  private long readAcknowledged() throws IOException {
+    Path file = directory.resolve(ACK_FILE);
+    if (!Files.exists(file)) {
+      return 0;
+    }
+    byte[] content = Files.readAllBytes(file);
+    return content.length == 8 ? ByteBuffer.wrap(content).getLong() : 0;
+  }
+
+  /**
+   * Deletes the sealed segments whose records are all acknowledged and that are older than the retention
+   *
+   * @return the number of segments deleted
+   */
+  public synchronized int deleteAcknowledgedSegments() throws IOException {
+    long now = System.currentTimeMillis();
+    int deleted = 0;
+    while (segments.size() > 1) {
+      Segment oldest = segments.get(0);
+      if (oldest.base + oldest.capacity > acknowledged || now - oldest.sealedAt < options.getRetentionMillis()) {
+        break;
+      }
+      Files.deleteIfExists(oldest.path);
+      segments.remove(0);
+      deleted++;
+    }
+    return deleted;
+  }
+
+  /**
+   * Offset of the first record not acknowledged, where a consumer starts reading
+   */
+  public long getAcknowledgedOffset() {
+    return acknowledged;
+  }
+
+  /**
+   * Offset following the last record appended
+   */
+  public long getWriteOffset() {
+    Segment current;
+    synchronized (this) {
+      current = head;
+    }
+    return current.base + current.end;
+  }
+
+  /**
+   * Records appended since the spool was opened
+   */
+  public synchronized long getAppendedRecords() {
+    return appendedRecords;
+  }
+
+  public synchronized int getSegmentCount() {
+    return segments.size();
+  }
+
+  /**
+   * Disk space of the segments
+   */
+  public synchronized long getSegmentBytes() {
+    long bytes = 0;
+    for (Segment segment : segments) {
+      bytes += segment.capacity;
+    }
+    return bytes;
+  }
+
+  public Path getDirectory() {
+    return directory;
+  }
+
+  /**
+   * Forces the records to the disk, the segments stay on disk for the next run
+   */
+  @Override
+  public synchronized void close() {
+    if (!closed) {
+      closed = true;
+      head.buffer.force();
+    }
+  }
+}
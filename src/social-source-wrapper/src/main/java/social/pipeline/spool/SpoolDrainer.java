@@ -0,0 +1,125 @@
+package social.pipeline.spool;
+
+import social.pipeline.codec.SocialMessageCodec;
+import social.pipeline.sink.BatchingMessageSink;
+import social.pipeline.source.SocialMessage;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ships the records of a {@link MessageSpool} through a {@link BatchingMessageSink} on its own thread.
+ * <p>
+ * Records are read in batches of maxBatchRecords from the acknowledged offset, decoded straight from
+ * the spool into one reused message and sent; once the sink has flushed them, the batch is acknowledged.
+ * When the sink fails, the drainer waits retryMillis and reads again from the acknowledged offset, so
+ * messages are delivered at least once and in order. When the spool is empty it polls every idleMillis.
+ */
+public class SpoolDrainer implements Closeable {
+
+  private final MessageSpool spool;
+  private final BatchingMessageSink sink;
+  private final int maxBatchRecords;
+  private final long idleMillis;
+  private final long retryMillis;
+  private final Thread thread;
+
+  private volatile boolean closed;
+  private volatile long drainedRecords;
+  private volatile long failures;
+  private volatile Throwable lastFailure;
+
+  public SpoolDrainer(MessageSpool spool, BatchingMessageSink sink) {
+    this(spool, sink, 1000, 50, 1000);
+  }
+
+  public SpoolDrainer(MessageSpool spool, BatchingMessageSink sink, int maxBatchRecords, long idleMillis, long retryMillis) {
+    this.spool = spool;
+    this.sink = sink;
+    this.maxBatchRecords = maxBatchRecords;
+    this.idleMillis = idleMillis;
+    this.retryMillis = retryMillis;
+    this.thread = new Thread(this::drain, "spool-drainer");
+    thread.setDaemon(true);
+  }
+
+  public SpoolDrainer start() {
+    thread.start();
+    return this;
+  }
+
+  private void drain() {
+    SocialMessageCodec codec = new SocialMessageCodec();
+    SocialMessage message = new SocialMessage();
+    long[] batchRecords = new long[1];
+    long offset = spool.getAcknowledgedOffset();
+    while (!closed) {
+      try {
+        batchRecords[0] = 0;
+        long next = spool.read(offset, maxBatchRecords, (recordOffset, payload) -> {
+          sink.send(codec.decode(payload, message));
+          batchRecords[0]++;
+        });
+        if (next == offset) {
+          TimeUnit.MILLISECONDS.sleep(idleMillis);
+          continue;
+        }
+        sink.flush();
+        spool.acknowledge(next);
+        drainedRecords += batchRecords[0];
+        offset = next;
+      } catch (InterruptedException e) {
+        break;
+      } catch (IOException | RuntimeException e) {
+        failures++;
+        lastFailure = e;
+        offset = spool.getAcknowledgedOffset();
+        try {
+          // Let the batches still in flight settle, their failures are covered by reading again
+          sink.flush();
+        } catch (IOException | RuntimeException ignored) {
+        } catch (InterruptedException interrupted) {
+          break;
+        }
+        try {
+          TimeUnit.MILLISECONDS.sleep(retryMillis);
+        } catch (InterruptedException interrupted) {
+          break;
+        }
+      }
+    }
+  }
+
+  /**
+   * Records shipped and acknowledged since the drainer started
+   */
+  public long getDrainedRecords() {
+    return drainedRecords;
+  }
+
+  /**
+   * Batches that failed and were read again
+   */
+  public long getFailures() {
+    return failures;
+  }
+
+  public Throwable getLastFailure() {
+    return lastFailure;
+  }
+
+  /**
+   * Stops the drainer, interrupting its current batch; the records not acknowledged stay in the spool
+   */
+  @Override
+  public void close() {
+    closed = true;
+    thread.interrupt();
+    try {
+      thread.join(TimeUnit.SECONDS.toMillis(10));
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
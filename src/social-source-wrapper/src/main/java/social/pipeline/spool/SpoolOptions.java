@@ -0,0 +1,81 @@
+package social.pipeline.spool;
+
+/**
+ * Segment size, durability and retention settings of a {@link MessageSpool}
+ */
+public class SpoolOptions {
+
+  /**
+   * When appended records are forced from the page cache to the disk
+   */
+  public enum Sync {
+    /**
+     * Never, the operating system writes the pages back on its own. Records survive a crash of the
+     * process but not of the machine. The fastest.
+     */
+    OS,
+    /**
+     * On the first append after syncIntervalMillis since the last sync, bounding what a crash of the machine loses
+     */
+    INTERVAL,
+    /**
+     * After every append, nothing acknowledged by {@link MessageSpool#append} is lost. The slowest.
+     */
+    ALWAYS
+  }
+
+  private int segmentBytes = 64 * 1024 * 1024;
+  private Sync sync = Sync.INTERVAL;
+  private long syncIntervalMillis = 1000;
+  private long retentionMillis = 0;
+  private long maxBytes = Long.MAX_VALUE;
+
+  /**
+   * Size of a segment file, which bounds the size of a record
+   */
+  public int getSegmentBytes() {
+    return segmentBytes;
+  }
+
+  public void setSegmentBytes(int segmentBytes) {
+    this.segmentBytes = segmentBytes;
+  }
+
+  public Sync getSync() {
+    return sync;
+  }
+
+  public void setSync(Sync sync) {
+    this.sync = sync;
+  }
+
+  public long getSyncIntervalMillis() {
+    return syncIntervalMillis;
+  }
+
+  public void setSyncIntervalMillis(long syncIntervalMillis) {
+    this.syncIntervalMillis = syncIntervalMillis;
+  }
+
+  /**
+   * How long segments whose records are all acknowledged are kept, e.g. to replay them; 0 deletes them at once
+   */
+  public long getRetentionMillis() {
+    return retentionMillis;
+  }
+
+  public void setRetentionMillis(long retentionMillis) {
+    this.retentionMillis = retentionMillis;
+  }
+
+  /**
+   * Disk space the segments may take, appends fail once a new segment would exceed it
+   */
+  public long getMaxBytes() {
+    return maxBytes;
+  }
+
+  public void setMaxBytes(long maxBytes) {
+    this.maxBytes = maxBytes;
+  }
+}
@@ -0,0 +1,267 @@
+package social.pipeline.text;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Case insensitive multi-pattern matcher: finds every occurrence of any of the patterns in one pass
+ * over the text, whatever the number of patterns.
+ * <p>
+ * Chars are folded with {@link #fold(char)} on both sides. The automaton is stored in primitive
+ * arrays, transitions from the root of ASCII chars in a direct table and all others in an open
+ * addressing table keyed on state and char, so matching does not allocate. Patterns that are equal
+ * after folding share a state, only the first of them is reported. Instances are immutable and
+ * thread safe.
+ */
+public final class AhoCorasick {
+
+  private static final int ROOT = 0;
+  private static final int NONE = -1;
+  private static final int ASCII = 128;
+
+  private final String[] patterns;
+
+  private int stateCount = 1;
+  private int[] fail;
+  private int[] output;
+  private int[] outputLink;
+  private int[] depth;
+
+  private final int[] rootTransitions = new int[ASCII];
+  private long[] transitionKeys;
+  private int[] transitionTargets;
+
+  /**
+   * Receives the matches found by {@link #match}
+   */
+  public interface MatchListener {
+
+    /**
+     * @param pattern index of the pattern in the list the automaton was built from
+     * @param start   index of the first char of the match in the text
+     * @param end     index after the last char of the match
+     */
+    void onMatch(int pattern, int start, int end);
+  }
+
+  public AhoCorasick(List<String> patterns) {
+    this.patterns = patterns.toArray(new String[0]);
+    int capacity = 1;
+    for (String pattern : this.patterns) {
+      capacity += pattern.length();
+    }
+    fail = new int[capacity];
+    output = new int[capacity];
+    outputLink = new int[capacity];
+    depth = new int[capacity];
+    Arrays.fill(output, NONE);
+    Arrays.fill(rootTransitions, NONE);
+    int tableSize = Integer.highestOneBit(Math.max(16, capacity * 2 - 1)) << 1;
+    transitionKeys = new long[tableSize];
+    transitionTargets = new int[tableSize];
+    Arrays.fill(transitionKeys, NONE);
+
+    for (int p = 0; p < this.patterns.length; p++) {
+      addPattern(p);
+    }
+    buildFailureLinks();
+    fail = Arrays.copyOf(fail, stateCount);
+    output = Arrays.copyOf(output, stateCount);
+    outputLink = Arrays.copyOf(outputLink, stateCount);
+    depth = Arrays.copyOf(depth, stateCount);
+  }
+
+  /**
+   * Case folding applied to patterns and text, lower casing of a single UTF-16 char
+   */
+  public static char fold(char c) {
+    if (c < ASCII) {
+      return c >= 'A' && c <= 'Z' ? (char) (c + ('a' - 'A')) : c;
+    }
+    return Character.toLowerCase(c);
+  }
+
+  private void addPattern(int index) {
+    String pattern = patterns[index];
+    if (pattern.isEmpty()) {
+      throw new IllegalArgumentException("Empty pattern at index " + index);
+    }
+    int state = ROOT;
+    for (int i = 0; i < pattern.length(); i++) {
+      char c = fold(pattern.charAt(i));
+      int next = transition(state, c);
+      if (next == NONE) {
+        next = stateCount++;
+        depth[next] = depth[state] + 1;
+        putTransition(state, c, next);
+      }
+      state = next;
+    }
+    if (output[state] == NONE) {
+      output[state] = index;
+    }
+  }
+
+  private void buildFailureLinks() {
+    // The trie only stores edges, recover the parent and incoming char of every state first
+    char[] incoming = new char[stateCount];
+    int[] parent = new int[stateCount];
+    for (int slot = 0; slot < transitionKeys.length; slot++) {
+      long key = transitionKeys[slot];
+      if (key != NONE) {
+        int child = transitionTargets[slot];
+        parent[child] = (int) (key >>> 16);
+        incoming[child] = (char) key;
+      }
+    }
+    for (int c = 0; c < ASCII; c++) {
+      if (rootTransitions[c] != NONE) {
+        parent[rootTransitions[c]] = ROOT;
+        incoming[rootTransitions[c]] = (char) c;
+      }
+    }
+
+    // Counting sort of the states by depth gives a breadth first order
+    int[] queue = new int[stateCount - 1];
+    int maxDepth = 0;
+    for (int s = 1; s < stateCount; s++) {
+      maxDepth = Math.max(maxDepth, depth[s]);
+    }
+    int[] start = new int[maxDepth + 2];
+    for (int s = 1; s < stateCount; s++) {
+      start[depth[s] + 1]++;
+    }
+    for (int d = 1; d < start.length; d++) {
+      start[d] += start[d - 1];
+    }
+    for (int s = 1; s < stateCount; s++) {
+      queue[start[depth[s]]++] = s;
+    }
+
+    fail[ROOT] = ROOT;
+    outputLink[ROOT] = NONE;
+    for (int state : queue) {
+      if (depth[state] == 1) {
+        fail[state] = ROOT;
+      } else {
+        int f = fail[parent[state]];
+        char c = incoming[state];
+        while (f != ROOT && transition(f, c) == NONE) {
+          f = fail[f];
+        }
+        int next = transition(f, c);
+        fail[state] = next != NONE ? next : ROOT;
+      }
+      int f = fail[state];
+      outputLink[state] = output[f] != NONE ? f : outputLink[f];
+    }
+  }
+
+  private int transition(int state, char c) {
+    if (state == ROOT && c < ASCII) {
+      return rootTransitions[c];
+    }
+    long key = key(state, c);
+    int mask = transitionKeys.length - 1;
+    for (int slot = slot(key, mask); ; slot = (slot + 1) & mask) {
+      long existing = transitionKeys[slot];
+      if (existing == key) {
+        return transitionTargets[slot];
+      }
+      if (existing == NONE) {
+        return NONE;
+      }
+    }
+  }
+
+  private void putTransition(int state, char c, int target) {
+    if (state == ROOT && c < ASCII) {
+      rootTransitions[c] = target;
+      return;
+    }
+    long key = key(state, c);
+    int mask = transitionKeys.length - 1;
+    int slot = slot(key, mask);
+    while (transitionKeys[slot] != NONE) {
+      slot = (slot + 1) & mask;
+    }
+    transitionKeys[slot] = key;
+    transitionTargets[slot] = target;
+  }
+
+  private static long key(int state, char c) {
+    return ((long) state << 16) | c;
+  }
+
+  private static int slot(long key, int mask) {
+    return (int) TextNormalizer.mix(key) & mask;
+  }
+
+  /**
+   * The state reached from the given one on the next char of the text, starting at {@link #initialState()}
+   */
+  public int next(int state, char c) {
+    c = fold(c);
+    while (true) {
+      int next = transition(state, c);
+      if (next != NONE) {
+        return next;
+      }
+      if (state == ROOT) {
+        return ROOT;
+      }
+      state = fail[state];
+    }
+  }
+
+  public int initialState() {
+    return ROOT;
+  }
+
+  /**
+   * Reports every pattern ending at the given state, end being the index after the char that led to it
+   */
+  public void matches(int state, int end, MatchListener listener) {
+    if (output[state] != NONE) {
+      listener.onMatch(output[state], end - depth[state], end);
+    }
+    for (int s = outputLink[state]; s != NONE; s = outputLink[s]) {
+      listener.onMatch(output[s], end - depth[s], end);
+    }
+  }
+
+  /**
+   * @return true if a pattern ends at the given state
+   */
+  public boolean hasMatch(int state) {
+    return output[state] != NONE || outputLink[state] != NONE;
+  }
+
+  /**
+   * Reports all occurrences of all patterns in the text, overlapping ones included, ordered by end index
+   */
+  public void match(CharSequence text, MatchListener listener) {
+    int state = ROOT;
+    for (int i = 0; i < text.length(); i++) {
+      state = next(state, text.charAt(i));
+      if (hasMatch(state)) {
+        matches(state, i + 1, listener);
+      }
+    }
+  }
+
+  public int size() {
+    return patterns.length;
+  }
+
+  public String getPattern(int index) {
+    return patterns[index];
+  }
+
+  /**
+   * Number of states of the automaton, one per distinct folded prefix plus the root
+   */
+  public int getStateCount() {
+    return stateCount;
+  }
+}
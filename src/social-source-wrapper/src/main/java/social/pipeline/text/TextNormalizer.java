@@ -0,0 +1,132 @@
+package social.pipeline.text;
+
+/**
+ * Normalizes message text so retweets and near-identical messages compare equal:
+ * a leading "RT @user:" is dropped, URLs are removed, letters are lower cased and
+ * whitespace runs are collapsed into a single space.
+ */
+public final class TextNormalizer {
+
+  private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+  private static final long FNV_PRIME = 0x100000001b3L;
+
+  private TextNormalizer() {
+  }
+
+  public static String normalize(String text) {
+    StringBuilder normalized = new StringBuilder(text.length());
+    scan(text, normalized);
+    return normalized.toString();
+  }
+
+  /**
+   * 64 bit hash of the normalized text, computed without building it.
+   * Equal to {@code hash(normalize(text))}.
+   */
+  public static long normalizedHash(String text) {
+    return scan(text, null);
+  }
+
+  /**
+   * 64 bit FNV-1a hash of the characters, finished with a murmur3 mix so all bits are usable
+   */
+  public static long hash(CharSequence text) {
+    long hash = FNV_OFFSET;
+    for (int i = 0; i < text.length(); i++) {
+      hash = (hash ^ text.charAt(i)) * FNV_PRIME;
+    }
+    return mix(hash);
+  }
+
+  /**
+   * Hash of a word of the text, lower cased with apostrophes ignored so "Don't" and "dont" hash alike.
+   * Equal to {@code hash(word)} for a lower cased word without apostrophes.
+   */
+  public static long wordHash(CharSequence text, int start, int end) {
+    long hash = FNV_OFFSET;
+    for (int i = start; i < end; i++) {
+      char c = text.charAt(i);
+      if (c == '\'' || c == '\u2019') {
+        continue;
+      }
+      hash = (hash ^ AhoCorasick.fold(c)) * FNV_PRIME;
+    }
+    return mix(hash);
+  }
+
+  public static long mix(long hash) {
+    hash ^= hash >>> 33;
+    hash *= 0xff51afd7ed558ccdL;
+    hash ^= hash >>> 33;
+    hash *= 0xc4ceb9fe1a85ec53L;
+    hash ^= hash >>> 33;
+    return hash;
+  }
+
+  private static long scan(String text, StringBuilder out) {
+    long hash = FNV_OFFSET;
+    int length = text.length();
+    int i = skipWhitespace(text, 0);
+    i = skipRetweetPrefix(text, i);
+
+    boolean pendingSpace = false;
+    boolean emitted = false;
+    while (i < length) {
+      i = skipWhitespace(text, i);
+      if (i >= length) {
+        break;
+      }
+      if (startsWithIgnoreCase(text, i, "http://") || startsWithIgnoreCase(text, i, "https://")) {
+        while (i < length && !Character.isWhitespace(text.charAt(i))) {
+          i++;
+        }
+        continue;
+      }
+      if (pendingSpace && emitted) {
+        hash = (hash ^ ' ') * FNV_PRIME;
+        if (out != null) {
+          out.append(' ');
+        }
+      }
+      while (i < length && !Character.isWhitespace(text.charAt(i))) {
+        char c = Character.toLowerCase(text.charAt(i++));
+        hash = (hash ^ c) * FNV_PRIME;
+        if (out != null) {
+          out.append(c);
+        }
+      }
+      emitted = true;
+      pendingSpace = true;
+    }
+    return mix(hash);
+  }
+
+  private static int skipWhitespace(String text, int i) {
+    while (i < text.length() && Character.isWhitespace(text.charAt(i))) {
+      i++;
+    }
+    return i;
+  }
+
+  private static int skipRetweetPrefix(String text, int i) {
+    if (!startsWithIgnoreCase(text, i, "RT @")) {
+      return i;
+    }
+    int end = i + 4;
+    while (end < text.length() && isHandleChar(text.charAt(end))) {
+      end++;
+    }
+    if (end < text.length() && text.charAt(end) == ':') {
+      end++;
+    }
+    return end;
+  }
+
+  private static boolean isHandleChar(char c) {
+    return c == '_' || (c < 0x80 && Character.isLetterOrDigit(c));
+  }
+
+  private static boolean startsWithIgnoreCase(String text, int offset, String prefix) {
+    return text.regionMatches(true, offset, prefix, 0, prefix.length());
+  }
+}
@@ -0,0 +1,213 @@
+package social.pipeline.text;
+
+import social.pipeline.source.SocialMessage;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Extracts the topics of a message text in a single pass: hashtags and mentions (lower cased),
+ * cashtags (upper cased) and the entities of a dictionary, matched case insensitively on whole
+ * words with an {@link AhoCorasick} automaton and reported under their canonical name.
+ * Each topic is reported once per text, in order of appearance. Once configured, instances are thread safe.
+ */
+public class TopicExtractor {
+
+  private static final int MAX_MENTION_LENGTH = 15;
+  private static final int MAX_CASHTAG_LENGTH = 6;
+
+  private final AhoCorasick dictionary;
+  private final String[] topicNames;
+
+  private boolean extractHashtags = true;
+  private boolean extractMentions = true;
+  private boolean extractCashtags = true;
+
+  public TopicExtractor() {
+    this(Collections.emptyMap());
+  }
+
+  /**
+   * @param dictionary canonical topic name of each alias to match, e.g. "tel aviv" and "tlv" to "Tel Aviv"
+   */
+  public TopicExtractor(Map<String, String> dictionary) {
+    List<String> aliases = new ArrayList<>(dictionary.size());
+    this.topicNames = new String[dictionary.size()];
+    for (Map.Entry<String, String> entry : dictionary.entrySet()) {
+      topicNames[aliases.size()] = entry.getValue();
+      aliases.add(entry.getKey());
+    }
+    this.dictionary = new AhoCorasick(aliases);
+  }
+
+  /**
+   * Reads a dictionary with one topic per line: the canonical name, optionally followed by tab
+   * separated aliases. The canonical name is always an alias of itself, lines starting with # are ignored.
+   */
+  public static Map<String, String> readDictionary(BufferedReader reader) throws IOException {
+    Map<String, String> dictionary = new LinkedHashMap<>();
+    for (String line; (line = reader.readLine()) != null; ) {
+      if (line.trim().isEmpty() || line.startsWith("#")) {
+        continue;
+      }
+      String[] names = line.split("\t");
+      String topic = names[0].trim();
+      for (String alias : names) {
+        if (!alias.trim().isEmpty()) {
+          dictionary.putIfAbsent(alias.trim(), topic);
+        }
+      }
+    }
+    return dictionary;
+  }
+
+  /**
+   * Sets the topics of the message from its text, an empty list if it has none
+   */
+  public SocialMessage apply(SocialMessage message) {
+    message.setTopics(message.getText() != null ? extract(message.getText()) : new ArrayList<>(0));
+    return message;
+  }
+
+  public List<String> extract(CharSequence text) {
+    List<String> topics = new ArrayList<>(4);
+    extract(text, topics);
+    return topics;
+  }
+
+  /**
+   * Appends the topics of the text to the list, skipping those already in it
+   */
+  public void extract(CharSequence text, List<String> topics) {
+    int length = text.length();
+    int state = dictionary.initialState();
+    char tokenType = 0;
+    int tokenStart = 0;
+
+    for (int i = 0; i < length; i++) {
+      char c = text.charAt(i);
+      if (tokenType != 0 && !isWordChar(c)) {
+        addToken(text, tokenType, tokenStart, i, topics);
+        tokenType = 0;
+      }
+      if (tokenType == 0 && (c == '#' || c == '@' || c == '$') && (i == 0 || !isWordChar(text.charAt(i - 1)))) {
+        tokenType = c;
+        tokenStart = i;
+      }
+
+      state = dictionary.next(state, c);
+      if (dictionary.hasMatch(state)) {
+        int end = i + 1;
+        dictionary.matches(state, end, (pattern, start, matchEnd) -> {
+          if (isWordBoundary(text, start, matchEnd)) {
+            addTopic(topicNames[pattern], topics);
+          }
+        });
+      }
+    }
+    if (tokenType != 0) {
+      addToken(text, tokenType, tokenStart, length, topics);
+    }
+  }
+
+  private void addToken(CharSequence text, char type, int start, int end, List<String> topics) {
+    int nameLength = end - start - 1;
+    if (nameLength <= 0) {
+      return;
+    }
+    switch (type) {
+      case '#':
+        if (extractHashtags && containsLetter(text, start + 1, end)) {
+          addTopic(text.subSequence(start, end).toString().toLowerCase(Locale.ROOT), topics);
+        }
+        break;
+      case '@':
+        if (extractMentions && nameLength <= MAX_MENTION_LENGTH) {
+          addTopic(text.subSequence(start, end).toString().toLowerCase(Locale.ROOT), topics);
+        }
+        break;
+      case '$':
+        if (extractCashtags && nameLength <= MAX_CASHTAG_LENGTH && onlyLetters(text, start + 1, end)) {
+          addTopic(text.subSequence(start, end).toString().toUpperCase(Locale.ROOT), topics);
+        }
+        break;
+      default:
+        break;
+    }
+  }
+
+  private static void addTopic(String topic, List<String> topics) {
+    if (!topics.contains(topic)) {
+      topics.add(topic);
+    }
+  }
+
+  private static boolean isWordChar(char c) {
+    return Character.isLetterOrDigit(c) || c == '_';
+  }
+
+  /**
+   * A dictionary match must not start or end in the middle of a word
+   */
+  private static boolean isWordBoundary(CharSequence text, int start, int end) {
+    boolean startsWord = !isWordChar(text.charAt(start));
+    boolean endsWord = !isWordChar(text.charAt(end - 1));
+    return (start == 0 || startsWord || !isWordChar(text.charAt(start - 1)))
+      && (end == text.length() || endsWord || !isWordChar(text.charAt(end)));
+  }
+
+  private static boolean containsLetter(CharSequence text, int start, int end) {
+    for (int i = start; i < end; i++) {
+      if (Character.isLetter(text.charAt(i))) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static boolean onlyLetters(CharSequence text, int start, int end) {
+    for (int i = start; i < end; i++) {
+      if (!Character.isLetter(text.charAt(i))) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  public boolean isExtractHashtags() {
+    return extractHashtags;
+  }
+
+  public void setExtractHashtags(boolean extractHashtags) {
+    this.extractHashtags = extractHashtags;
+  }
+
+  public boolean isExtractMentions() {
+    return extractMentions;
+  }
+
+  public void setExtractMentions(boolean extractMentions) {
+    this.extractMentions = extractMentions;
+  }
+
+  public boolean isExtractCashtags() {
+    return extractCashtags;
+  }
+
+  public void setExtractCashtags(boolean extractCashtags) {
+    this.extractCashtags = extractCashtags;
+  }
+
+  /**
+   * Number of aliases in the dictionary
+   */
+  public int getDictionarySize() {
+    return dictionary.size();
+  }
+}
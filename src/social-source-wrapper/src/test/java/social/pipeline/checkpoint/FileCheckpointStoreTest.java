@@ -0,0 +1,60 @@
+package social.pipeline.checkpoint;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+public class FileCheckpointStoreTest {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  @Test
+  public void test_checkpoints_survive_a_reopen() throws Exception {
+    Path file = folder.getRoot().toPath().resolve("state/checkpoints");
+    FileCheckpointStore store = new FileCheckpointStore(file);
+    for (int i = 0; i < 200; i++) {
+      store.save(new IngestCheckpoint("topic " + i, 1000L + i, 0, 0, 42));
+    }
+    store.save(new IngestCheckpoint("topic 7", 2000, 2100, 2050, 43));
+    store.remove("topic 8");
+
+    FileCheckpointStore reopened = new FileCheckpointStore(file);
+    Assert.assertEquals(199, reopened.loadAll().size());
+    IngestCheckpoint checkpoint = reopened.load("topic 7");
+    Assert.assertEquals(2000, checkpoint.getSinceId());
+    Assert.assertEquals(2100, checkpoint.getHighId());
+    Assert.assertEquals(2050, checkpoint.getLowId());
+    Assert.assertTrue(checkpoint.isPassInProgress());
+    Assert.assertNull(reopened.load("topic 8"));
+    Assert.assertFalse(Files.exists(file.resolveSibling("checkpoints.tmp")));
+    // About 40 bytes per topic
+    Assert.assertTrue(Files.size(file) < 200 * 48);
+
+    // Copies are returned, changing one does not change the store
+    checkpoint.setSinceId(0);
+    Assert.assertEquals(2000, reopened.load("topic 7").getSinceId());
+  }
+
+  @Test
+  public void test_rejects_a_corrupt_file() throws Exception {
+    Path file = folder.getRoot().toPath().resolve("checkpoints");
+    new FileCheckpointStore(file).save(new IngestCheckpoint("topic", 1000, 0, 0, 42));
+    try (RandomAccessFile content = new RandomAccessFile(file.toFile(), "rw")) {
+      content.seek(20);
+      content.write(0x7f);
+    }
+    try {
+      new FileCheckpointStore(file);
+      Assert.fail();
+    } catch (IOException e) {
+      Assert.assertTrue(e.getMessage().endsWith("is corrupt"));
+    }
+  }
+}
@@ -0,0 +1,162 @@
+package social.pipeline.checkpoint;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import social.pipeline.impl.custom.CustomSocialQueryResult;
+import social.pipeline.source.SocialMessage;
+import social.pipeline.source.SocialMessageIterator;
+import social.pipeline.source.SocialQuery;
+import social.pipeline.source.SocialQueryResult;
+import social.pipeline.source.SocialSource;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.TreeSet;
+
+public class PageCheckpointerTest {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  /**
+   * Serves messages with ids 1..total, newest first, honoring maxId and sinceId like the Twitter search API
+   */
+  private static class GrowingSource implements SocialSource {
+
+    private long total;
+
+    @Override
+    public SocialQueryResult search(SocialQuery query) {
+      long from = query.getMaxId() > 0 ? Math.min(query.getMaxId(), total) : total;
+      List<SocialMessage> page = new ArrayList<>();
+      for (long id = from; id > Math.max(query.getSinceId(), 0) && page.size() < query.getCount(); id--) {
+        SocialMessage message = new SocialMessage("message " + id);
+        message.setId(id);
+        page.add(message);
+      }
+      CustomSocialQueryResult result = new CustomSocialQueryResult() {
+        @Override
+        public SocialQuery nextQuery() {
+          return new SocialQuery(query.getQuery());
+        }
+
+        @Override
+        public boolean hasNext() {
+          return page.size() == query.getCount();
+        }
+      };
+      result.setMessages(page);
+      return result;
+    }
+
+    @Override
+    public void setOAuthConsumer(String key, String secret) {
+    }
+
+    @Override
+    public void setOAuthAccessToken(String accessToken, String tokenSecret) {
+    }
+  }
+
+  private static List<Long> drain(SocialMessageIterator iterator) {
+    List<Long> ids = new ArrayList<>();
+    while (iterator.hasNext()) {
+      ids.add(iterator.next().getId());
+    }
+    return ids;
+  }
+
+  @Test
+  public void test_resumes_an_interrupted_pass_without_gaps() throws Exception {
+    Path file = folder.getRoot().toPath().resolve("checkpoints");
+    GrowingSource source = new GrowingSource();
+    source.total = 25;
+    SocialQuery query = new SocialQuery("topic", 10);
+    int[] flushes = new int[1];
+    TreeSet<Long> fetched = new TreeSet<>();
+
+    // Stops in the middle of the second page, only the first one is committed
+    try (CheckpointStore store = new FileCheckpointStore(file)) {
+      fetched.addAll(drain(PageCheckpointer.stream(source, query, store, () -> flushes[0]++, 15, -1)));
+      IngestCheckpoint checkpoint = store.load("topic");
+      Assert.assertEquals(0, checkpoint.getSinceId());
+      Assert.assertEquals(25, checkpoint.getHighId());
+      Assert.assertEquals(16, checkpoint.getLowId());
+      Assert.assertEquals(1, flushes[0]);
+    }
+
+    // After a restart the pass goes on below the first page, newer messages wait for the next pass
+    source.total = 30;
+    try (CheckpointStore store = new FileCheckpointStore(file)) {
+      List<Long> resumed = drain(PageCheckpointer.stream(source, query, store, () -> flushes[0]++));
+      Assert.assertEquals(15L, (long) resumed.get(0));
+      Assert.assertEquals(1L, (long) resumed.get(resumed.size() - 1));
+      fetched.addAll(resumed);
+      IngestCheckpoint checkpoint = store.load("topic");
+      Assert.assertEquals(25, checkpoint.getSinceId());
+      Assert.assertFalse(checkpoint.isPassInProgress());
+    }
+
+    try (CheckpointStore store = new FileCheckpointStore(file)) {
+      List<Long> next = drain(PageCheckpointer.stream(source, query, store, () -> flushes[0]++));
+      Assert.assertEquals(5, next.size());
+      fetched.addAll(next);
+      Assert.assertEquals(30, store.load("topic").getSinceId());
+    }
+    Assert.assertEquals(30, fetched.size());
+    Assert.assertEquals(1L, (long) fetched.first());
+    Assert.assertEquals(30L, (long) fetched.last());
+  }
+
+  @Test
+  public void test_topic_checkpoints_survive_repacking() throws Exception {
+    GrowingSource source = new GrowingSource();
+    source.total = 25;
+    try (CheckpointStore store = new FileCheckpointStore(folder.getRoot().toPath().resolve("checkpoints"))) {
+      Assert.assertEquals(25, drain(PageCheckpointer.stream(source, new SocialQuery("a OR b", 10), Arrays.asList("a", "b"), store,
+        () -> { }, -1, -1)).size());
+      Assert.assertEquals(25, store.load("a").getSinceId());
+      Assert.assertEquals(25, store.load("b").getSinceId());
+
+      // Packed into another query, a topic goes on from its own checkpoint
+      source.total = 33;
+      Assert.assertEquals(8, drain(PageCheckpointer.stream(source, new SocialQuery("b OR c", 10), Arrays.asList("b"), store,
+        () -> { }, -1, -1)).size());
+      Assert.assertEquals(33, store.load("b").getSinceId());
+
+      // The query resumes from its least advanced topic, and a new topic fetches everything
+      Assert.assertEquals(8, drain(PageCheckpointer.stream(source, new SocialQuery("a OR b", 10), Arrays.asList("a", "b"), store,
+        () -> { }, -1, -1)).size());
+      Assert.assertEquals(33, drain(PageCheckpointer.stream(source, new SocialQuery("a OR c", 10), Arrays.asList("a", "c"), store,
+        () -> { }, -1, -1)).size());
+      Assert.assertEquals(33, store.load("c").getSinceId());
+      Assert.assertNull(store.load("a OR b"));
+    }
+  }
+
+  @Test
+  public void test_failed_flush_does_not_commit_the_page() throws Exception {
+    GrowingSource source = new GrowingSource();
+    source.total = 25;
+    FileCheckpointStore store = new FileCheckpointStore(folder.getRoot().toPath().resolve("checkpoints"));
+    SocialMessageIterator iterator = PageCheckpointer.stream(source, new SocialQuery("topic", 10), store, () -> {
+      throw new IOException("EventHub is down");
+    });
+    for (int i = 0; i < 10; i++) {
+      iterator.next();
+    }
+    try {
+      iterator.hasNext();
+      Assert.fail();
+    } catch (UncheckedIOException e) {
+      Assert.assertEquals("EventHub is down", e.getCause().getMessage());
+    }
+    Assert.assertNull(store.load("topic"));
+  }
+}
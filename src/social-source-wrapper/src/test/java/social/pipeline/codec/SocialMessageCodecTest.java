@@ -0,0 +1,112 @@
+package social.pipeline.codec;
+
+import com.google.gson.Gson;
+import org.junit.Assert;
+import org.junit.Test;
+import social.pipeline.impl.custom.PredefinedSource;
+import social.pipeline.source.SocialMessage;
+import social.pipeline.source.SocialQuery;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class SocialMessageCodecTest {
+
+  private final SocialMessageCodec codec = new SocialMessageCodec();
+
+  private SocialMessage roundTrip(SocialMessage message, ByteBuffer buffer) {
+    buffer.clear();
+    int written = codec.encode(message, buffer);
+    Assert.assertEquals(codec.encodedSize(message), written);
+    buffer.flip();
+    SocialMessage decoded = codec.decode(buffer);
+    Assert.assertFalse(buffer.hasRemaining());
+    return decoded;
+  }
+
+  @Test
+  public void test_round_trip_all_fields() {
+    SocialMessage message = new SocialMessage("Tel Aviv תל אביב 😀 #news", 1534777642000L);
+    message.setId(1031558317531975680L);
+    message.setLang("en");
+    message.setSource("Twitter");
+    message.setShareOrRetweet(true);
+    message.setNumOfShares(10);
+    message.setNumOfLikes(3);
+    message.setSentiment(-0.25);
+    message.setReactions(Collections.singletonMap("like", 7));
+    message.setTopics(Arrays.asList("#news", "Tel Aviv"));
+
+    for (ByteBuffer buffer : Arrays.asList(ByteBuffer.allocate(512), ByteBuffer.allocateDirect(512))) {
+      SocialMessage decoded = roundTrip(message, buffer);
+      Assert.assertEquals(message.getText(), decoded.getText());
+      Assert.assertEquals(message.getId(), decoded.getId());
+      Assert.assertEquals(message.getTimestamp(), decoded.getTimestamp());
+      Assert.assertEquals("en", decoded.getLang());
+      Assert.assertEquals("Twitter", decoded.getSource());
+      Assert.assertTrue(decoded.isShareOrRetweet());
+      Assert.assertEquals(10, decoded.getNumOfShares());
+      Assert.assertEquals(3, decoded.getNumOfLikes());
+      Assert.assertEquals(-0.25, decoded.getSentiment(), 0);
+      Assert.assertEquals(message.getReactions(), decoded.getReactions());
+      Assert.assertEquals(message.getTopics(), decoded.getTopics());
+    }
+  }
+
+  @Test
+  public void test_round_trip_missing_and_unknown_values() {
+    SocialMessage message = new SocialMessage();
+    message.setLang("eo");
+    message.setSource("Mastodon");
+
+    SocialMessage decoded = roundTrip(message, ByteBuffer.allocate(64));
+    Assert.assertNull(decoded.getText());
+    Assert.assertNull(decoded.getTopics());
+    Assert.assertNull(decoded.getReactions());
+    Assert.assertEquals("eo", decoded.getLang());
+    Assert.assertEquals("Mastodon", decoded.getSource());
+  }
+
+  @Test
+  public void test_smaller_than_json() throws Exception {
+    List<SocialMessage> messages = new PredefinedSource().search(new SocialQuery("size")).getMessages();
+    Gson gson = new Gson();
+    long binary = 0;
+    long json = 0;
+    for (SocialMessage message : messages) {
+      binary += codec.toBytes(message).length;
+      json += gson.toJson(message).getBytes(StandardCharsets.UTF_8).length;
+    }
+    Assert.assertTrue(binary * 3 < json * 2);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void test_rejects_unknown_version() {
+    codec.decode(ByteBuffer.wrap(new byte[]{(byte) (SocialMessageCodec.VERSION + 1), 0}));
+  }
+
+  @Test
+  public void test_null_topics_and_reactions() {
+    SocialMessage message = new SocialMessage("with nulls");
+    message.setTopics(Arrays.asList("Israel", null));
+    Map<String, Integer> reactions = new HashMap<>();
+    reactions.put("like", null);
+    reactions.put(null, -3);
+    message.setReactions(reactions);
+
+    SocialMessage decoded = roundTrip(message, ByteBuffer.allocate(256));
+    Assert.assertEquals(Arrays.asList("Israel", null), decoded.getTopics());
+    Assert.assertEquals(reactions, decoded.getReactions());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void test_rejects_length_beyond_buffer() {
+    // A text announced with 100 bytes, followed by 2
+    codec.decode(ByteBuffer.wrap(new byte[]{SocialMessageCodec.VERSION, 1, 0, 0, 0, 0, 100, 'h', 'i'}));
+  }
+}
@@ -0,0 +1,112 @@
+package social.pipeline.dedup;
+
+import org.junit.Assert;
+import org.junit.Test;
+import social.pipeline.source.SocialMessage;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.Iterator;
+
+public class DeduplicationFilterTest {
+
+  private static SocialMessage message(long id, String text, boolean retweet) {
+    SocialMessage message = new SocialMessage(text);
+    message.setId(id);
+    message.setShareOrRetweet(retweet);
+    return message;
+  }
+
+  @Test
+  public void test_exact_drops_repeated_ids() {
+    DeduplicationFilter filter = DeduplicationFilter.exact(1024 * 1024, -1);
+    Iterator<SocialMessage> filtered = filter.filter(Arrays.asList(
+      message(1, "a", false), message(2, "b", false), message(1, "a", false), message(0, "c", false), message(0, "c", false)
+    ).iterator());
+
+    int count = 0;
+    while (filtered.hasNext()) {
+      filtered.next();
+      count++;
+    }
+    Assert.assertEquals(3, count);
+    Assert.assertEquals(2, filter.getDuplicates());
+    Assert.assertEquals(0, filter.getFalsePositiveRate(), 0);
+  }
+
+  @Test
+  public void test_retweet_text_deduplication() {
+    DeduplicationFilter filter = DeduplicationFilter.exact(1024 * 1024, -1);
+    filter.setDeduplicateRetweetText(true);
+
+    Assert.assertTrue(filter.accept(message(1, "RT @alice: Big news https://t.co/1", true)));
+    Assert.assertFalse(filter.accept(message(2, "RT @bob: big   news https://t.co/2", true)));
+    Assert.assertTrue(filter.accept(message(3, "big news", false)));
+  }
+
+  @Test
+  public void test_memory_is_bounded_and_old_ids_forgotten() {
+    DeduplicationFilter filter = DeduplicationFilter.exact(64 * 1024, -1);
+    long capacity = filter.getGenerationCapacity();
+    for (long id = 1; id <= capacity * 3; id++) {
+      Assert.assertTrue(filter.accept(message(id, "x", false)));
+    }
+    Assert.assertTrue(filter.getMemoryBytes() <= 64 * 1024);
+    Assert.assertTrue(filter.getRotations() >= 2);
+    Assert.assertFalse(filter.accept(message(capacity * 3, "x", false)));
+    Assert.assertTrue(filter.accept(message(1, "x", false)));
+  }
+
+  @Test
+  public void test_window_rotation() {
+    long[] now = {0};
+    Clock clock = new Clock() {
+      @Override
+      public ZoneOffset getZone() {
+        return ZoneOffset.UTC;
+      }
+
+      @Override
+      public Clock withZone(ZoneId zone) {
+        return this;
+      }
+
+      @Override
+      public Instant instant() {
+        return Instant.ofEpochMilli(now[0]);
+      }
+    };
+    DeduplicationFilter filter = new DeduplicationFilter(() -> new LongHashSet(1000), 1000, 60_000, clock);
+
+    Assert.assertTrue(filter.accept(message(1, "x", false)));
+    now[0] = 61_000;
+    Assert.assertFalse(filter.accept(message(1, "x", false)));
+    now[0] = 122_000;
+    filter.accept(message(2, "x", false));
+    Assert.assertTrue(filter.accept(message(1, "x", false)));
+  }
+
+  @Test
+  public void test_bloom_false_positive_rate() {
+    double target = 0.01;
+    DeduplicationFilter filter = DeduplicationFilter.bloom(256 * 1024, target, -1);
+    long keys = filter.getGenerationCapacity() / 2;
+    for (long id = 1; id <= keys; id++) {
+      filter.accept(message(id, "x", false));
+    }
+
+    long falsePositives = 0;
+    long probes = 100_000;
+    for (long id = keys + 1; id <= keys + probes; id++) {
+      if (!filter.accept(message(id, "x", false))) {
+        falsePositives++;
+      }
+    }
+    double measured = (double) falsePositives / probes;
+    Assert.assertTrue("measured " + measured, measured < target);
+    Assert.assertTrue(filter.getFalsePositiveRate() < target);
+  }
+}
@@ -0,0 +1,68 @@
+package social.pipeline.impl.custom;
+
+import com.google.gson.Gson;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import social.pipeline.source.SocialMessage;
+import social.pipeline.source.SocialMessageIterator;
+import social.pipeline.source.SocialQuery;
+import social.pipeline.source.SocialQueryResult;
+
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+public class StreamingPredefinedSourceTest {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private Path writeGzippedMessages(int count) throws Exception {
+    List<SocialMessage> messages = new ArrayList<>();
+    for (int i = 0; i < count; i++) {
+      SocialMessage message = new SocialMessage("message " + i, 1534777642000L + i);
+      message.setId(i);
+      messages.add(message);
+    }
+    Path file = folder.newFile("messages.json.gz").toPath();
+    try (Writer writer = new OutputStreamWriter(new GZIPOutputStream(Files.newOutputStream(file)), StandardCharsets.UTF_8)) {
+      new Gson().toJson(messages, writer);
+    }
+    return file;
+  }
+
+  @Test
+  public void test_resource_pages() throws Exception {
+    try (StreamingPredefinedSource source = new StreamingPredefinedSource("/test_messages.json")) {
+      SocialQueryResult first = source.search(new SocialQuery("my query", 1));
+      Assert.assertEquals("Hello", first.getMessages().get(0).getText());
+      Assert.assertTrue(first.hasNext());
+
+      SocialQueryResult second = source.search(first.nextQuery());
+      Assert.assertEquals("Hi", second.getMessages().get(0).getText());
+      Assert.assertFalse(second.hasNext());
+    }
+  }
+
+  @Test
+  public void test_stream_gzipped_file() throws Exception {
+    Path file = writeGzippedMessages(250);
+    try (StreamingPredefinedSource source = new StreamingPredefinedSource(file)) {
+      SocialMessageIterator iterator = source.stream(new SocialQuery("my query", 100));
+      int count = 0;
+      while (iterator.hasNext()) {
+        Assert.assertEquals("message " + count, iterator.next().getText());
+        count++;
+      }
+      Assert.assertEquals(250, count);
+      Assert.assertEquals(3, iterator.getPagesFetched());
+    }
+  }
+}
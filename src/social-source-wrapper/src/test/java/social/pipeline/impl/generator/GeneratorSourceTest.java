@@ -0,0 +1,119 @@
+package social.pipeline.impl.generator;
+
+import org.junit.Assert;
+import org.junit.Test;
+import social.pipeline.source.SocialMessage;
+import social.pipeline.source.SocialMessageIterator;
+import social.pipeline.source.SocialQuery;
+import social.pipeline.source.SocialQueryResult;
+
+public class GeneratorSourceTest {
+
+  @Test
+  public void test_deterministic_by_seed() {
+    GeneratorSource first = new GeneratorSource();
+    GeneratorSource second = new GeneratorSource();
+    for (int i = 0; i < 1000; i++) {
+      SocialMessage a = first.next();
+      SocialMessage b = second.next();
+      Assert.assertEquals(a.getText(), b.getText());
+      Assert.assertEquals(a.getLang(), b.getLang());
+      Assert.assertEquals(a.getTimestamp(), b.getTimestamp());
+    }
+  }
+
+  @Test
+  public void test_topic_and_retweet_distribution() {
+    GeneratorOptions options = new GeneratorOptions();
+    options.setBurstProbability(0);
+    options.setRetweetRatio(0.25);
+    GeneratorSource source = new GeneratorSource(options);
+
+    int[] counts = new int[options.getTopicCount()];
+    int retweets = 0;
+    SocialMessage message = new SocialMessage();
+    for (int i = 0; i < 100_000; i++) {
+      source.next(message);
+      counts[Integer.parseInt(message.getTopics().get(0).substring("#topic".length()))]++;
+      if (message.isShareOrRetweet()) {
+        retweets++;
+        Assert.assertTrue(message.getText().startsWith("RT @"));
+      }
+    }
+    Assert.assertTrue(counts[0] > counts[1]);
+    Assert.assertTrue(counts[1] > counts[10]);
+    Assert.assertTrue(counts[10] > counts[500]);
+    Assert.assertEquals(0.25, retweets / 100_000.0, 0.01);
+  }
+
+  @Test
+  public void test_stream_stops_at_max_messages() {
+    GeneratorOptions options = new GeneratorOptions();
+    options.setMaxMessages(250);
+    GeneratorSource source = new GeneratorSource(options);
+
+    SocialMessageIterator iterator = source.stream(new SocialQuery("load test", 100));
+    int count = 0;
+    while (iterator.hasNext()) {
+      Assert.assertTrue(iterator.next().getText().contains("#topic"));
+      count++;
+    }
+    Assert.assertEquals(250, count);
+  }
+
+  @Test
+  public void test_passes_page_within_since_and_max_id() throws Exception {
+    GeneratorOptions options = new GeneratorOptions();
+    options.setMessagesPerPass(250);
+    GeneratorSource source = new GeneratorSource(options);
+
+    SocialMessageIterator first = source.stream(new SocialQuery("load test", 100));
+    long previous = Long.MAX_VALUE;
+    int count = 0;
+    while (first.hasNext()) {
+      long id = first.next().getId();
+      Assert.assertTrue(id < previous);
+      previous = id;
+      count++;
+    }
+    Assert.assertEquals(250, count);
+    Assert.assertEquals(250, first.getHighestId());
+
+    // The next pass only sees the messages posted since the first one
+    SocialQuery since = new SocialQuery("load test", 100);
+    since.setSinceId(first.getHighestId());
+    SocialMessageIterator second = source.stream(since);
+    count = 0;
+    while (second.hasNext()) {
+      Assert.assertTrue(second.next().getId() > 250);
+      count++;
+    }
+    Assert.assertEquals(250, count);
+
+    // Resuming below maxId posts nothing new and ends at sinceId
+    SocialQuery resume = new SocialQuery("load test", 100);
+    resume.setMaxId(120);
+    resume.setSinceId(100);
+    SocialQueryResult page = source.search(resume);
+    Assert.assertEquals(20, page.getMessages().size());
+    Assert.assertEquals(120, page.getMessages().get(0).getId());
+    Assert.assertFalse(page.hasNext());
+    Assert.assertEquals(500, source.getProduced());
+  }
+
+  @Test
+  public void test_history_bounds_the_oldest_message() throws Exception {
+    GeneratorOptions options = new GeneratorOptions();
+    options.setMessagesPerPass(300);
+    options.setHistorySize(200);
+    GeneratorSource source = new GeneratorSource(options);
+
+    SocialMessageIterator iterator = source.stream(new SocialQuery("load test", 100));
+    int count = 0;
+    while (iterator.hasNext()) {
+      Assert.assertTrue(iterator.next().getId() > 100);
+      count++;
+    }
+    Assert.assertEquals(200, count);
+  }
+}
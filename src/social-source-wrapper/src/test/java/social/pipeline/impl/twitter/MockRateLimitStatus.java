@@ -0,0 +1,36 @@
+package social.pipeline.impl.twitter;
+
+import twitter4j.RateLimitStatus;
+
+public class MockRateLimitStatus implements RateLimitStatus {
+
+  private final int limit;
+  private final int remaining;
+  private final long resetAtMillis;
+
+  public MockRateLimitStatus(int limit, int remaining, long resetAtMillis) {
+    this.limit = limit;
+    this.remaining = remaining;
+    this.resetAtMillis = resetAtMillis;
+  }
+
+  @Override
+  public int getRemaining() {
+    return remaining;
+  }
+
+  @Override
+  public int getLimit() {
+    return limit;
+  }
+
+  @Override
+  public int getResetTimeInSeconds() {
+    return (int) (resetAtMillis / 1000);
+  }
+
+  @Override
+  public int getSecondsUntilReset() {
+    return (int) ((resetAtMillis - System.currentTimeMillis()) / 1000);
+  }
+}
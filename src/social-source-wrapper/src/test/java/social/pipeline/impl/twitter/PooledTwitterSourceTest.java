@@ -0,0 +1,105 @@
+package social.pipeline.impl.twitter;
+
+import org.junit.Assert;
+import org.junit.Test;
+import social.pipeline.source.SocialQuery;
+import social.pipeline.source.SocialQueryResult;
+import twitter4j.Query;
+import twitter4j.QueryResult;
+import twitter4j.Twitter;
+
+import java.lang.reflect.Proxy;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class PooledTwitterSourceTest {
+
+  /**
+   * Twitter API answering every search with the given remaining quota, counting the searches it served
+   */
+  private static TwitterSource member(int remaining, AtomicInteger calls) {
+    long resetAt = System.currentTimeMillis() + 15 * 60 * 1000L;
+    Twitter twitter = (Twitter) Proxy.newProxyInstance(Twitter.class.getClassLoader(), new Class[]{Twitter.class},
+      (proxy, method, args) -> {
+        calls.incrementAndGet();
+        Query query = (Query) args[0];
+        return Proxy.newProxyInstance(QueryResult.class.getClassLoader(), new Class[]{QueryResult.class},
+          (resultProxy, resultMethod, resultArgs) -> {
+            switch (resultMethod.getName()) {
+              case "getQuery":
+                return query.getQuery();
+              case "getRateLimitStatus":
+                return new MockRateLimitStatus(180, remaining, resetAt);
+              default:
+                return null;
+            }
+          });
+      });
+    return new TwitterSource(twitter);
+  }
+
+  @Test
+  public void test_routes_to_most_remaining_quota() throws Exception {
+    AtomicInteger lowCalls = new AtomicInteger();
+    AtomicInteger highCalls = new AtomicInteger();
+    TwitterSource low = member(5, lowCalls);
+    TwitterSource high = member(170, highCalls);
+    low.getRateLimiter().update(new MockRateLimitStatus(180, 5, System.currentTimeMillis() + 60_000L));
+    high.getRateLimiter().update(new MockRateLimitStatus(180, 170, System.currentTimeMillis() + 60_000L));
+
+    try (PooledTwitterSource pool = new PooledTwitterSource(Arrays.asList(low, high), 2)) {
+      pool.search(new SocialQuery("russia"));
+      pool.search(new SocialQuery("russia"));
+    }
+    Assert.assertEquals(0, lowCalls.get());
+    Assert.assertEquals(2, highCalls.get());
+  }
+
+  @Test
+  public void test_unused_credentials_are_tried_first() throws Exception {
+    AtomicInteger firstCalls = new AtomicInteger();
+    AtomicInteger secondCalls = new AtomicInteger();
+
+    try (PooledTwitterSource pool = new PooledTwitterSource(
+      Arrays.asList(member(100, firstCalls), member(100, secondCalls)), 2)) {
+      pool.search(new SocialQuery("russia"));
+      pool.search(new SocialQuery("russia"));
+    }
+    Assert.assertEquals(1, firstCalls.get());
+    Assert.assertEquals(1, secondCalls.get());
+  }
+
+  @Test
+  public void test_search_all_keeps_order() throws Exception {
+    try (PooledTwitterSource pool = new PooledTwitterSource(
+      Arrays.asList(member(100, new AtomicInteger()), member(100, new AtomicInteger())), 4)) {
+      List<SocialQueryResult> results = pool.searchAll(Arrays.asList(
+        new SocialQuery("russia"), new SocialQuery("israel"), new SocialQuery("brazil")));
+
+      Assert.assertEquals("russia", results.get(0).getQuery());
+      Assert.assertEquals("israel", results.get(1).getQuery());
+      Assert.assertEquals("brazil", results.get(2).getQuery());
+    }
+  }
+
+  @Test
+  public void test_credentials_are_not_set_on_the_pool() throws Exception {
+    AtomicInteger calls = new AtomicInteger();
+    try (PooledTwitterSource pool = new PooledTwitterSource(Arrays.asList(member(10, calls), member(10, calls)), 1)) {
+      try {
+        pool.setOAuthConsumer("key", "secret");
+        Assert.fail();
+      } catch (UnsupportedOperationException e) {
+        Assert.assertTrue(e.getMessage().contains("each of its members"));
+      }
+      try {
+        pool.setOAuthAccessToken("token", "tokenSecret");
+        Assert.fail();
+      } catch (UnsupportedOperationException e) {
+        Assert.assertTrue(e.getMessage().contains("each of its members"));
+      }
+    }
+    Assert.assertEquals(0, calls.get());
+  }
+}
@@ -0,0 +1,90 @@
+package social.pipeline.impl.twitter;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
+public class TwitterRateLimiterTest {
+
+  private static class ManualClock extends Clock {
+
+    private long millis;
+
+    ManualClock(long millis) {
+      this.millis = millis;
+    }
+
+    @Override
+    public ZoneId getZone() {
+      return ZoneOffset.UTC;
+    }
+
+    @Override
+    public Clock withZone(ZoneId zone) {
+      return this;
+    }
+
+    @Override
+    public Instant instant() {
+      return Instant.ofEpochMilli(millis);
+    }
+  }
+
+  private static TwitterRateLimiter limiter(ManualClock clock) {
+    return new TwitterRateLimiter(clock) {
+      @Override
+      protected void sleep(long millis) {
+        clock.millis += millis;
+      }
+    };
+  }
+
+  @Test
+  public void test_no_wait_before_first_status() throws Exception {
+    ManualClock clock = new ManualClock(1000_000L);
+    TwitterRateLimiter limiter = limiter(clock);
+
+    Assert.assertEquals(0, limiter.acquire());
+    Assert.assertEquals(0, limiter.acquire());
+    Assert.assertEquals(-1, limiter.getTokensRemaining());
+    Assert.assertEquals(2, limiter.getCallsIssued());
+  }
+
+  @Test
+  public void test_paces_remaining_budget_over_window() throws Exception {
+    ManualClock clock = new ManualClock(1000_000L);
+    TwitterRateLimiter limiter = limiter(clock);
+    limiter.update(new MockRateLimitStatus(180, 10, 1000_000L + 100_000L));
+
+    Assert.assertEquals(0, limiter.acquire());
+    Assert.assertEquals(10_000, limiter.acquire());
+    Assert.assertEquals(8, limiter.getTokensRemaining());
+    Assert.assertEquals(10_000, limiter.getTotalWaitMillis());
+  }
+
+  @Test
+  public void test_waits_for_reset_when_empty() throws Exception {
+    ManualClock clock = new ManualClock(1000_000L);
+    TwitterRateLimiter limiter = limiter(clock);
+    limiter.update(new MockRateLimitStatus(180, 0, 1000_000L + 60_000L));
+
+    Assert.assertEquals(60_000, limiter.acquire());
+    Assert.assertEquals(179, limiter.getTokensRemaining());
+  }
+
+  @Test
+  public void test_backs_off_when_throttled() throws Exception {
+    ManualClock clock = new ManualClock(1000_000L);
+    TwitterRateLimiter limiter = limiter(clock);
+
+    Assert.assertEquals(1000, limiter.onRateLimited(null));
+    Assert.assertEquals(2000, limiter.onRateLimited(null));
+    Assert.assertEquals(30_000, limiter.onRateLimited(new MockRateLimitStatus(180, 0, 1000_000L + 30_000L)));
+    Assert.assertEquals(30_000, limiter.acquire());
+    Assert.assertEquals(3, limiter.getThrottledCalls());
+  }
+}
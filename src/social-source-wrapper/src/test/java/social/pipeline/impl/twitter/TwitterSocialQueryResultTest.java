@@ -5,11 +5,15 @@ import org.junit.Test;
 import social.pipeline.source.SocialMessage;
 import social.pipeline.source.SocialQuery;
 import twitter4j.Query;
+import twitter4j.QueryResult;
 import twitter4j.Status;
 
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Date;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class TwitterSocialQueryResultTest {
 
@@ -93,5 +97,100 @@ public class TwitterSocialQueryResultTest {
 
   }
 
+  @Test
+  public void test_next_query_is_a_copy() {
+    Query next = new Query("russia");
+    next.setMaxId(100);
+    TwitterSocialQueryResult result = new TwitterSocialQueryResult((QueryResult) Proxy.newProxyInstance(
+      QueryResult.class.getClassLoader(), new Class[]{QueryResult.class},
+      (proxy, method, args) -> method.getName().equals("nextQuery") ? next : null));
+
+    SocialQuery first = result.nextQuery();
+    first.setMaxId(50);
+    first.setSinceId(10);
+    SocialQuery second = result.nextQuery();
+    Assert.assertEquals(100, second.getMaxId());
+    Assert.assertEquals(next.getSinceId(), second.getSinceId());
+  }
+
+  private static List<Status> statuses(int count) {
+    List<Status> statuses = new ArrayList<>();
+    Date date = new Date();
+    for (int i = 0; i < count; i++) {
+      statuses.add(new MockStatus("Hello " + i, false, date, i, 0, "en"));
+    }
+    return statuses;
+  }
+
+  private static QueryResult queryResult(List<Status> tweets, AtomicInteger reads) {
+    return (QueryResult) Proxy.newProxyInstance(QueryResult.class.getClassLoader(), new Class[]{QueryResult.class},
+      (proxy, method, args) -> {
+        if (method.getName().equals("getTweets")) {
+          reads.incrementAndGet();
+          return tweets;
+        }
+        return null;
+      });
+  }
+
+  @Test
+  public void test_messages_translated_once() {
+    AtomicInteger reads = new AtomicInteger();
+    TwitterSocialQueryResult result = new TwitterSocialQueryResult(queryResult(statuses(3), reads));
+
+    List<SocialMessage> first = result.getMessages();
+    List<SocialMessage> second = result.getMessages();
+    Assert.assertSame(first, second);
+    Assert.assertEquals(1, reads.get());
+  }
+
+  @Test
+  public void test_messages_view_translates_on_access() {
+    TwitterSocialQueryResult result = new TwitterSocialQueryResult(queryResult(statuses(3), new AtomicInteger()));
+
+    List<SocialMessage> view = result.getMessagesView();
+    Assert.assertEquals(3, view.size());
+    Assert.assertEquals("Hello 2", view.get(2).getText());
+    Assert.assertSame(view.get(2), view.get(2));
+  }
+
+  @Test
+  public void test_view_and_messages_share_translations() {
+    AtomicInteger[] translations = new AtomicInteger[3];
+    List<Status> statuses = new ArrayList<>();
+    Date date = new Date();
+    for (int i = 0; i < translations.length; i++) {
+      AtomicInteger count = translations[i] = new AtomicInteger();
+      statuses.add(new MockStatus("Hello " + i, false, date, i, 0, "en") {
+        @Override
+        public String getText() {
+          count.incrementAndGet();
+          return super.getText();
+        }
+      });
+    }
+    TwitterSocialQueryResult result = new TwitterSocialQueryResult(queryResult(statuses, new AtomicInteger()));
+
+    List<SocialMessage> view = result.getMessagesView();
+    SocialMessage second = view.get(1);
+    Assert.assertEquals(0, translations[0].get());
+    Assert.assertEquals(1, translations[1].get());
+    Assert.assertEquals(0, translations[2].get());
+
+    List<SocialMessage> messages = result.getMessages();
+    Assert.assertSame(second, messages.get(1));
+    Assert.assertSame(view.get(2), messages.get(2));
+    for (AtomicInteger count : translations) {
+      Assert.assertEquals(1, count.get());
+    }
+  }
+
+  @Test
+  public void test_parallel_translation_keeps_order() {
+    List<SocialMessage> translated = TwitterSocialQueryResult.translate(statuses(1000), true);
+    for (int i = 0; i < translated.size(); i++) {
+      Assert.assertEquals(i, translated.get(i).getId());
+    }
+  }
 
 }
@@ -1,11 +1,17 @@
 package social.pipeline.impl.twitter;
 
+import org.junit.Assert;
+import org.junit.Test;
 import social.pipeline.source.SocialMessage;
 import social.pipeline.source.SocialQuery;
 import social.pipeline.source.SocialQueryResult;
+import twitter4j.Query;
+import twitter4j.Twitter;
 import twitter4j.conf.ConfigurationBuilder;
 
 import java.io.InputStream;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Properties;
 
@@ -43,4 +49,22 @@ public class TwitterSourceTest {
     messages.stream().forEach(e -> System.out.println(e));
   }
 
+  @Test
+  public void test_query_paging_ids() throws Exception {
+    List<Query> queries = new ArrayList<>();
+    Twitter twitter = (Twitter) Proxy.newProxyInstance(Twitter.class.getClassLoader(), new Class[]{Twitter.class},
+      (proxy, method, args) -> {
+        queries.add((Query) args[0]);
+        return null;
+      });
+
+    SocialQuery query = new SocialQuery("russia", 100);
+    query.setMaxId(1000L);
+    query.setSinceId(10L);
+    new TwitterSource(twitter).search(query);
+
+    Assert.assertEquals(1000L, queries.get(0).getMaxId());
+    Assert.assertEquals(10L, queries.get(0).getSinceId());
+  }
+
 }
@@ -0,0 +1,88 @@
+package social.pipeline.sentiment;
+
+import org.junit.Assert;
+import org.junit.Test;
+import social.pipeline.source.SocialMessage;
+
+import java.io.BufferedReader;
+import java.io.StringReader;
+import java.util.Arrays;
+import java.util.List;
+
+public class SentimentScorerTest {
+
+  private final SentimentScorer scorer = SentimentScorer.getDefault();
+
+  @Test
+  public void test_positive_negative_and_neutral() {
+    Assert.assertTrue(scorer.score("What a great show, I love it") > 0.5);
+    Assert.assertTrue(scorer.score("This is a terrible and disgusting decision") < -0.5);
+    Assert.assertEquals(0, scorer.score("The meeting is at noon in the main hall"), 0);
+    Assert.assertEquals(0, scorer.score(""), 0);
+  }
+
+  @Test
+  public void test_scores_stay_within_bounds() {
+    double score = scorer.score("love love love love great great amazing awesome perfect best wonderful!!!!!!");
+    Assert.assertTrue(score > 0.9 && score < 1);
+  }
+
+  @Test
+  public void test_negation_flips_until_end_of_clause() {
+    double good = scorer.score("the concert was good");
+    Assert.assertTrue(scorer.score("the concert was not good") < 0);
+    Assert.assertTrue(scorer.score("the concert wasn't good") < 0);
+    Assert.assertTrue(scorer.score("I haven’t enjoyed it") < 0);
+    Assert.assertEquals(good, scorer.score("not today. the concert was good"), 1e-9);
+    Assert.assertEquals(good, scorer.score("not that it matters, the concert was good"), 1e-9);
+  }
+
+  @Test
+  public void test_emphasis() {
+    double good = scorer.score("the food is good");
+    Assert.assertTrue(scorer.score("the food is very good") > good);
+    Assert.assertTrue(scorer.score("the food is slightly good") < good);
+    Assert.assertTrue(scorer.score("the food is GOOD") > good);
+    Assert.assertEquals(good, scorer.score("THE FOOD IS GOOD"), 1e-9);
+    Assert.assertTrue(scorer.score("the food is good!!") > good);
+    Assert.assertTrue(scorer.score("the food is bad!!") < scorer.score("the food is bad"));
+  }
+
+  @Test
+  public void test_skips_mentions_and_urls_and_scores_hashtags_and_emoji() {
+    Assert.assertEquals(0, scorer.score("@love_bot shared https://example.com/great"), 0);
+    Assert.assertTrue(scorer.score("Saturday #happy") > 0);
+    Assert.assertTrue(scorer.score("Saturday 😍") > 0);
+    Assert.assertTrue(scorer.score("Monday 😭💔") < 0);
+  }
+
+  @Test
+  public void test_batch_scores_reuse_array_and_apply_sets_sentiment() {
+    List<String> texts = Arrays.asList("great news", null, "awful news");
+    double[] scores = new double[4];
+    Assert.assertSame(scores, scorer.score(texts, scores));
+    Assert.assertEquals(scorer.score("great news"), scores[0], 0);
+    Assert.assertEquals(0, scores[1], 0);
+    Assert.assertTrue(scores[2] < 0);
+    Assert.assertEquals(3, scorer.score(texts, new double[1]).length);
+
+    List<SocialMessage> messages = Arrays.asList(new SocialMessage("I love it"), new SocialMessage(null));
+    scorer.applyAll(messages);
+    Assert.assertEquals(scorer.score("I love it"), messages.get(0).getSentiment(), 0);
+    Assert.assertEquals(0, messages.get(1).getSentiment(), 0);
+  }
+
+  @Test
+  public void test_custom_lexicon() throws Exception {
+    SentimentLexicon lexicon = SentimentLexicon.read(new BufferedReader(new StringReader(
+      "# test\nrad\t2\nnah\tnegate\nmega\tx2\n")));
+    Assert.assertEquals(3, lexicon.size());
+    Assert.assertEquals(SentimentLexicon.NEGATION, lexicon.kind("NAH"));
+    Assert.assertEquals(2, lexicon.score("Rad"), 0);
+    Assert.assertEquals(0, lexicon.score("great"), 0);
+
+    SentimentScorer custom = new SentimentScorer(lexicon);
+    Assert.assertTrue(custom.score("nah rad") < 0 && -custom.score("nah rad") < custom.score("rad"));
+    Assert.assertTrue(custom.score("mega rad") > custom.score("rad"));
+  }
+}
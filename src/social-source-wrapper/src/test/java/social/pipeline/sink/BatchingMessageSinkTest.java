@@ -0,0 +1,175 @@
+package social.pipeline.sink;
+
+import org.junit.Assert;
+import org.junit.Test;
+import social.pipeline.source.SocialMessage;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+public class BatchingMessageSinkTest {
+
+  private static SinkOptions options(int maxBatchEvents, long lingerMillis) {
+    SinkOptions options = new SinkOptions();
+    options.setMaxBatchEvents(maxBatchEvents);
+    options.setLingerMillis(lingerMillis);
+    options.setEventOverheadBytes(0);
+    return options;
+  }
+
+  @Test
+  public void test_batches_by_event_count() throws Exception {
+    InMemoryTransport transport = new InMemoryTransport(1024 * 1024);
+    try (BatchingMessageSink sink = new BatchingMessageSink(transport, MessageEncoders.text(), options(10, 60_000))) {
+      for (int i = 0; i < 25; i++) {
+        sink.send(new SocialMessage("message " + i));
+      }
+      Assert.assertEquals(2, transport.getBatches().size());
+      sink.flush();
+      Assert.assertEquals(3, transport.getBatches().size());
+      Assert.assertEquals(25, sink.getMetrics().getEventsSent());
+    }
+  }
+
+  @Test
+  public void test_batches_by_size() throws Exception {
+    InMemoryTransport transport = new InMemoryTransport(100);
+    try (BatchingMessageSink sink = new BatchingMessageSink(transport, MessageEncoders.text(), options(1000, 60_000))) {
+      for (int i = 0; i < 10; i++) {
+        sink.send(new byte[30]);
+      }
+      sink.flush();
+    }
+    List<List<byte[]>> batches = transport.getBatches();
+    Assert.assertEquals(4, batches.size());
+    Assert.assertEquals(3, batches.get(0).size());
+    Assert.assertEquals(1, batches.get(3).size());
+  }
+
+  @Test
+  public void test_linger_sends_partial_batch() throws Exception {
+    InMemoryTransport transport = new InMemoryTransport(1024 * 1024);
+    try (BatchingMessageSink sink = new BatchingMessageSink(transport, MessageEncoders.text(), options(1000, 10))) {
+      sink.send(new SocialMessage("lonely"));
+      long deadline = System.currentTimeMillis() + 5000;
+      while (transport.getEventCount() == 0 && System.currentTimeMillis() < deadline) {
+        Thread.sleep(5);
+      }
+      Assert.assertEquals(1, transport.getEventCount());
+    }
+  }
+
+  @Test
+  public void test_pipelined_sends_complete() throws Exception {
+    InMemoryTransport transport = new InMemoryTransport(1024 * 1024, 20);
+    SinkOptions options = options(5, 60_000);
+    options.setMaxInFlight(3);
+    try (BatchingMessageSink sink = new BatchingMessageSink(transport, MessageEncoders.json(), options)) {
+      for (int i = 0; i < 50; i++) {
+        sink.send(new SocialMessage("message " + i));
+      }
+      sink.flush();
+      Assert.assertEquals(50, transport.getEventCount());
+      Assert.assertEquals(10, sink.getMetrics().getBatchesSent());
+      Assert.assertTrue(sink.getMetrics().getAverageBatchLatencyMillis() >= 15);
+    }
+  }
+
+  @Test
+  public void test_batches_by_partition_key() throws Exception {
+    InMemoryTransport transport = new InMemoryTransport(1024 * 1024);
+    SinkOptions options = options(3, 60_000);
+    options.setMaxOpenBatches(1);
+    try (BatchingMessageSink sink = new BatchingMessageSink(transport, MessageEncoders.text(), options, new PrimaryTopicPartitioner())) {
+      for (String topic : Arrays.asList("Israel", "Israel", "Israel", "climate", "climate", "Tel Aviv")) {
+        SocialMessage message = new SocialMessage(topic + " news");
+        message.setTopics(Arrays.asList(topic, "news"));
+        sink.send(message);
+      }
+      // Israel filled its batch, Tel Aviv needed room so the open batch of climate was sent
+      Assert.assertEquals(Arrays.asList("Israel", "climate"), transport.getPartitionKeys());
+      sink.send(new SocialMessage("no topic"));
+      sink.flush();
+    }
+    Assert.assertEquals(Arrays.asList("Israel", "climate", "Tel Aviv", null), transport.getPartitionKeys());
+    List<List<byte[]>> batches = transport.getBatches();
+    Assert.assertEquals(3, batches.get(0).size());
+    Assert.assertEquals(2, batches.get(1).size());
+    Assert.assertEquals("Tel Aviv news", new String(batches.get(2).get(0), "UTF-8"));
+  }
+
+  @Test
+  public void test_flush_waits_for_lingering_batch() throws Exception {
+    CompletableFuture<Void> held = new CompletableFuture<>();
+    InMemoryTransport transport = new InMemoryTransport(1024 * 1024) {
+      @Override
+      public CompletableFuture<Void> send(List<byte[]> batch) {
+        CompletableFuture<Void> sent = super.send(batch);
+        return getBatches().size() == 1 ? held : sent;
+      }
+    };
+    SinkOptions options = options(1000, 5);
+    options.setMaxInFlight(1);
+    try (BatchingMessageSink sink = new BatchingMessageSink(transport, MessageEncoders.text(), options)) {
+      sink.send(new SocialMessage("first"));
+      // The first batch holds the only in-flight permit, so the linger timer takes the second batch
+      // out of the sink and waits for the permit while flush runs
+      while (transport.getEventCount() == 0) {
+        Thread.sleep(1);
+      }
+      sink.send(new SocialMessage("second"));
+      Thread.sleep(50);
+      new Thread(() -> {
+        try {
+          Thread.sleep(50);
+        } catch (InterruptedException ignored) {
+        }
+        held.complete(null);
+      }).start();
+      sink.flush();
+      Assert.assertEquals(2, transport.getEventCount());
+    }
+  }
+
+  @Test
+  public void test_flush_reports_failure_seen_by_send() throws Exception {
+    MessageTransport failing = new InMemoryTransport(1024) {
+      @Override
+      public CompletableFuture<Void> send(List<byte[]> batch) {
+        CompletableFuture<Void> result = new CompletableFuture<>();
+        result.completeExceptionally(new IllegalStateException("EventHub is down"));
+        return result;
+      }
+    };
+    BatchingMessageSink sink = new BatchingMessageSink(failing, MessageEncoders.text(), options(1, 60_000));
+    sink.send(new SocialMessage("lost"));
+    try {
+      sink.send(new SocialMessage("also lost"));
+      Assert.fail("The failed batch should be reported");
+    } catch (IOException expected) {
+    }
+    try {
+      sink.flush();
+      Assert.fail("Flush should report the failed batch though send did");
+    } catch (IOException expected) {
+    }
+    sink.flush();
+  }
+
+  @Test(expected = IOException.class)
+  public void test_failed_batch_is_reported() throws Exception {
+    MessageTransport failing = new InMemoryTransport(1024) {
+      @Override
+      public CompletableFuture<Void> send(List<byte[]> batch) {
+        CompletableFuture<Void> result = new CompletableFuture<>();
+        result.completeExceptionally(new IllegalStateException("EventHub is down"));
+        return result;
+      }
+    };
+    BatchingMessageSink sink = new BatchingMessageSink(failing, MessageEncoders.text(), options(1, 60_000));
+    sink.send(new SocialMessage("lost"));
+    sink.flush();
+  }
+}
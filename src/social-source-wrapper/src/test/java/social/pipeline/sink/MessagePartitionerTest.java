@@ -0,0 +1,72 @@
+package social.pipeline.sink;
+
+import org.junit.Assert;
+import org.junit.Test;
+import social.pipeline.source.SocialMessage;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+public class MessagePartitionerTest {
+
+  private static SocialMessage message(long id, String topic) {
+    SocialMessage message = new SocialMessage("about " + topic);
+    message.setId(id);
+    message.setTopics(Collections.singletonList(topic));
+    return message;
+  }
+
+  @Test
+  public void test_primary_topic_key() {
+    PrimaryTopicPartitioner partitioner = new PrimaryTopicPartitioner();
+    Assert.assertEquals("Israel", partitioner.partitionKey(message(1, "Israel")));
+    Assert.assertNull(partitioner.partitionKey(new SocialMessage("no topics")));
+  }
+
+  @Test
+  public void test_consistent_hash_spreads_keys_and_moves_few() {
+    ConsistentHashPartitioner eight = new ConsistentHashPartitioner(new PrimaryTopicPartitioner(), 8, 128);
+    ConsistentHashPartitioner nine = new ConsistentHashPartitioner(new PrimaryTopicPartitioner(), 9, 128);
+    int[] counts = new int[8];
+    int moved = 0;
+    for (int i = 0; i < 10_000; i++) {
+      String topic = "topic " + i;
+      int partition = eight.partition(topic);
+      counts[partition]++;
+      int after = nine.partition(topic);
+      if (after != partition) {
+        // A key only moves to the new partition
+        Assert.assertEquals(8, after);
+        moved++;
+      }
+    }
+    for (int count : counts) {
+      Assert.assertTrue("Unbalanced partition with " + count + " keys", count > 900 && count < 1600);
+    }
+    Assert.assertTrue("Moved " + moved + " keys", moved > 700 && moved < 1600);
+    Assert.assertTrue(eight.isPartitionId());
+    Assert.assertEquals(Integer.toString(eight.partition("Israel")), eight.partitionKey(message(1, "Israel")));
+    Assert.assertEquals(eight.partition("Israel"), new ConsistentHashPartitioner(new PrimaryTopicPartitioner(), 8, 128).partition("Israel"));
+  }
+
+  @Test
+  public void test_hot_keys_are_split() {
+    HotKeySplitter splitter = new HotKeySplitter(new PrimaryTopicPartitioner(), 4, 0.25, 100, 1000);
+    for (int i = 0; i < 100; i++) {
+      String key = splitter.partitionKey(message(i + 1, i % 2 == 0 ? "Israel" : "topic " + i));
+      Assert.assertEquals(i % 2 == 0 ? "Israel" : "topic " + i, key);
+    }
+    Assert.assertEquals(Collections.singleton("Israel"), splitter.getHotKeys());
+
+    Set<String> keys = new HashSet<>();
+    for (int i = 0; i < 50; i++) {
+      keys.add(splitter.partitionKey(message(1000 + i, "Israel")));
+    }
+    Assert.assertEquals(new HashSet<>(Arrays.asList("Israel", "Israel#1", "Israel#2", "Israel#3")), keys);
+    // The same message keeps its sub-key
+    Assert.assertEquals(splitter.partitionKey(message(42, "Israel")), splitter.partitionKey(message(42, "Israel")));
+    Assert.assertEquals("cold", splitter.partitionKey(message(7, "cold")));
+  }
+}
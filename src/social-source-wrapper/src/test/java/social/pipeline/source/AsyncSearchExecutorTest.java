@@ -0,0 +1,127 @@
+package social.pipeline.source;
+
+import org.junit.Assert;
+import org.junit.Test;
+import social.pipeline.impl.custom.CustomSocialQueryResult;
+import social.pipeline.impl.custom.PredefinedSource;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+public class AsyncSearchExecutorTest {
+
+  /**
+   * Blocks every search until released, counting the searches that were interrupted
+   */
+  private static class BlockingSource implements SocialSource {
+
+    private final Semaphore started = new Semaphore(0);
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final Semaphore interrupted = new Semaphore(0);
+
+    @Override
+    public SocialQueryResult search(SocialQuery query) throws Exception {
+      started.release();
+      try {
+        release.await();
+      } catch (InterruptedException e) {
+        interrupted.release();
+        throw e;
+      }
+      CustomSocialQueryResult result = new CustomSocialQueryResult();
+      result.setMessages(Collections.singletonList(new SocialMessage(query.getQuery())));
+      return result;
+    }
+
+    @Override
+    public void setOAuthConsumer(String key, String secret) {
+    }
+
+    @Override
+    public void setOAuthAccessToken(String accessToken, String tokenSecret) {
+    }
+  }
+
+  private static Throwable failure(CompletableFuture<?> future) throws InterruptedException {
+    try {
+      future.get(5, TimeUnit.SECONDS);
+    } catch (CancellationException e) {
+      return e;
+    } catch (ExecutionException e) {
+      return e.getCause();
+    } catch (TimeoutException e) {
+      Assert.fail("The future did not complete");
+    }
+    Assert.fail("The future did not fail");
+    return null;
+  }
+
+  @Test
+  public void test_runs_searches_concurrently_up_to_the_bound() throws Exception {
+    BlockingSource source = new BlockingSource();
+    try (AsyncSearchExecutor executor = new AsyncSearchExecutor(4, 2, 0)) {
+      List<CompletableFuture<SocialQueryResult>> futures = new ArrayList<>();
+      for (int i = 0; i < 7; i++) {
+        futures.add(executor.search(source, new SocialQuery("topic " + i)));
+      }
+      Assert.assertTrue(source.started.tryAcquire(4, 5, TimeUnit.SECONDS));
+      Assert.assertEquals(6, executor.getPendingSearches());
+      Assert.assertTrue(failure(futures.get(6)) instanceof RejectedExecutionException);
+
+      source.release.countDown();
+      for (int i = 0; i < 6; i++) {
+        Assert.assertEquals("topic " + i, futures.get(i).get(5, TimeUnit.SECONDS).getMessages().get(0).getText());
+      }
+    }
+  }
+
+  @Test
+  public void test_timeout_and_cancel_interrupt_the_search() throws Exception {
+    BlockingSource source = new BlockingSource();
+    try (AsyncSearchExecutor executor = new AsyncSearchExecutor(2, 10, 100)) {
+      CompletableFuture<SocialQueryResult> timedOut = executor.search(source, new SocialQuery("slow"));
+      Assert.assertTrue(failure(timedOut) instanceof TimeoutException);
+      Assert.assertTrue(source.interrupted.tryAcquire(5, TimeUnit.SECONDS));
+
+      CompletableFuture<SocialQueryResult> cancelled = executor.search(source, new SocialQuery("cancelled"), 0);
+      Assert.assertTrue(source.started.tryAcquire(2, 5, TimeUnit.SECONDS));
+      cancelled.cancel(true);
+      Assert.assertTrue(failure(cancelled) instanceof CancellationException);
+      Assert.assertTrue(source.interrupted.tryAcquire(5, TimeUnit.SECONDS));
+
+      // The threads are free again
+      source.release.countDown();
+      Assert.assertEquals("fast", executor.search(source, new SocialQuery("fast")).get(5, TimeUnit.SECONDS).getMessages().get(0).getText());
+      Assert.assertEquals(0, source.interrupted.availablePermits());
+    }
+  }
+
+  @Test
+  public void test_closing_the_default_executor_leaves_it_running() throws Exception {
+    AsyncSearchExecutor executor = AsyncSearchExecutor.getDefault();
+    executor.close();
+    Assert.assertSame(executor, AsyncSearchExecutor.getDefault());
+
+    BlockingSource source = new BlockingSource();
+    source.release.countDown();
+    Assert.assertEquals("after close", executor.search(source, new SocialQuery("after close")).get(5, TimeUnit.SECONDS).getMessages().get(0).getText());
+  }
+
+  @Test
+  public void test_predefined_source_completes_at_once() throws Exception {
+    SocialMessage message = new SocialMessage("Hello");
+    PredefinedSource source = new PredefinedSource(Collections.singletonList(message));
+    CompletableFuture<SocialQueryResult> future = source.searchAsync(new SocialQuery("my query"));
+    Assert.assertTrue(future.isDone());
+    Assert.assertSame(message, future.get().getMessages().get(0));
+  }
+}
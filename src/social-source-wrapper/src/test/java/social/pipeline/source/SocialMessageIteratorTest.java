@@ -0,0 +1,113 @@
+package social.pipeline.source;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class SocialMessageIteratorTest {
+
+  /**
+   * Serves messages with ids 1..total, newest first, honoring maxId and sinceId like the Twitter search API
+   */
+  private static class PagedSource implements SocialSource {
+
+    private final long total;
+    private final List<SocialQuery> queries = new ArrayList<>();
+
+    PagedSource(long total) {
+      this.total = total;
+    }
+
+    @Override
+    public SocialQueryResult search(SocialQuery query) {
+      queries.add(query.copy());
+      long from = query.getMaxId() > 0 ? Math.min(query.getMaxId(), total) : total;
+      List<SocialMessage> page = new ArrayList<>();
+      for (long id = from; id > Math.max(query.getSinceId(), 0) && page.size() < query.getCount(); id--) {
+        SocialMessage message = new SocialMessage("message " + id);
+        message.setId(id);
+        page.add(message);
+      }
+      return new SocialQueryResult() {
+        @Override
+        public List<SocialMessage> getMessages() {
+          return page;
+        }
+
+        @Override
+        public String getQuery() {
+          return query.getQuery();
+        }
+
+        @Override
+        public SocialQuery nextQuery() {
+          return new SocialQuery(query.getQuery());
+        }
+
+        @Override
+        public boolean hasNext() {
+          return page.size() == query.getCount();
+        }
+      };
+    }
+
+    @Override
+    public void setOAuthConsumer(String key, String secret) {
+
+    }
+
+    @Override
+    public void setOAuthAccessToken(String accessToken, String tokenSecret) {
+
+    }
+  }
+
+  @Test
+  public void test_stream_follows_pages() {
+    PagedSource source = new PagedSource(25);
+    SocialMessageIterator iterator = source.stream(new SocialQuery("topic", 10));
+
+    long expectedId = 25;
+    while (iterator.hasNext()) {
+      Assert.assertEquals(expectedId--, iterator.next().getId());
+    }
+    Assert.assertEquals(0, expectedId);
+    Assert.assertEquals(3, iterator.getPagesFetched());
+    Assert.assertEquals(1, iterator.getLowestId());
+    Assert.assertEquals(25, iterator.getHighestId());
+    Assert.assertEquals(15, source.queries.get(1).getMaxId());
+    Assert.assertEquals(5, source.queries.get(2).getMaxId());
+  }
+
+  @Test
+  public void test_stream_keeps_since_id() {
+    PagedSource source = new PagedSource(25);
+    SocialQuery query = new SocialQuery("topic", 10);
+    query.setSinceId(12);
+    SocialMessageIterator iterator = source.stream(query);
+
+    int count = 0;
+    while (iterator.hasNext()) {
+      Assert.assertTrue(iterator.next().getId() > 12);
+      count++;
+    }
+    Assert.assertEquals(13, count);
+    Assert.assertEquals(12, source.queries.get(1).getSinceId());
+  }
+
+  @Test
+  public void test_stream_message_budget() {
+    PagedSource source = new PagedSource(1000);
+    SocialMessageIterator iterator = source.stream(new SocialQuery("topic", 10), 15, -1);
+
+    int count = 0;
+    while (iterator.hasNext()) {
+      iterator.next();
+      count++;
+    }
+    Assert.assertEquals(15, count);
+    Assert.assertEquals(2, iterator.getPagesFetched());
+  }
+}
@@ -0,0 +1,91 @@
+package social.pipeline.source;
+
+import org.junit.Assert;
+import org.junit.Test;
+import social.pipeline.impl.custom.PredefinedSource;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+public class TopicQueryPlannerTest {
+
+  private static List<String> topics(int count) {
+    List<String> topics = new ArrayList<>();
+    for (int i = 0; i < count; i++) {
+      topics.add(i % 3 == 0 ? "topic number " + i : "#topic" + i);
+    }
+    return topics;
+  }
+
+  @Test
+  public void test_packs_topics_within_the_query_length() {
+    SocialQuery template = new SocialQuery("-filter:retweets", 100);
+    template.setLang("en");
+    List<String> topics = topics(300);
+    TopicQueryPlan plan = new TopicQueryPlanner().plan(topics, template);
+
+    Set<String> covered = new HashSet<>();
+    int totalLength = 0;
+    for (int i = 0; i < plan.size(); i++) {
+      SocialQuery query = plan.getQueries().get(i);
+      Assert.assertTrue(query.getQuery().length() <= TopicQueryPlanner.TWITTER_MAX_QUERY_LENGTH);
+      Assert.assertTrue(query.getQuery().endsWith(") -filter:retweets"));
+      Assert.assertEquals("en", query.getLang());
+      Assert.assertEquals(100, query.getCount());
+      for (String topic : plan.getTopics(i)) {
+        Assert.assertTrue(covered.add(topic));
+        Assert.assertTrue(query.getQuery().contains(TopicQueryPlanner.term(topic)));
+      }
+      totalLength += query.getQuery().length();
+    }
+    Assert.assertEquals(new HashSet<>(topics), covered);
+    // Every query but possibly the last is nearly full
+    Assert.assertTrue(plan.size() < 300 / 20);
+    Assert.assertTrue(totalLength > (plan.size() - 1) * (TopicQueryPlanner.TWITTER_MAX_QUERY_LENGTH - 25));
+    Assert.assertTrue(plan.getQueries().stream().anyMatch(query -> query.getQuery().contains("\"topic number 0\" OR ")));
+    Assert.assertEquals("-filter:retweets", template.getQuery());
+  }
+
+  @Test
+  public void test_folds_duplicates_and_rejects_oversized_topics() {
+    TopicQueryPlan plan = new TopicQueryPlanner(40).plan(Arrays.asList("Israel", " israel ", "Tel  \"Aviv\""), new SocialQuery());
+    Assert.assertEquals(Arrays.asList("\"Tel Aviv\" OR Israel"), Arrays.asList(plan.getQueries().get(0).getQuery()));
+    Assert.assertEquals(1, plan.size());
+
+    try {
+      new TopicQueryPlanner(10).plan(Arrays.asList("a very long topic"), new SocialQuery());
+      Assert.fail();
+    } catch (IllegalArgumentException e) {
+      Assert.assertTrue(e.getMessage().contains("a very long topic"));
+    }
+  }
+
+  @Test
+  public void test_demultiplexes_messages_to_their_topics() throws Exception {
+    TopicQueryPlan plan = new TopicQueryPlanner(30).plan(Arrays.asList("Israel", "Tel Aviv", "#climate", "Lana Del Rey"), new SocialQuery());
+    Assert.assertEquals(2, plan.size());
+    Assert.assertEquals("\"Lana Del Rey\" OR \"Tel Aviv\"", plan.getQueries().get(0).getQuery());
+
+    SocialMessage both = new SocialMessage("Lana del Rey cancels her TEL AVIV show, Israel reacts");
+    both.setId(1);
+    SocialMessage hashtag = new SocialMessage("Floods again #Climate");
+    hashtag.setId(2);
+    SocialMessage partial = new SocialMessage("Israeli startup opens in #climatechange week");
+    partial.setId(3);
+    PredefinedSource source = new PredefinedSource(Arrays.asList(both, hashtag, partial));
+
+    Map<String, List<SocialMessage>> byTopic = plan.searchAsync(source).get(5, TimeUnit.SECONDS);
+    Assert.assertEquals(Arrays.asList("Lana Del Rey", "Tel Aviv", "#climate", "Israel"), new ArrayList<>(byTopic.keySet()));
+    Assert.assertEquals(Arrays.asList(both), byTopic.get("Israel"));
+    Assert.assertEquals(Arrays.asList(hashtag), byTopic.get("#climate"));
+
+    Assert.assertTrue(plan.assignTopics(both));
+    Assert.assertEquals(Arrays.asList("Lana Del Rey", "Tel Aviv", "Israel"), both.getTopics());
+    Assert.assertFalse(plan.assignTopics(partial));
+  }
+}
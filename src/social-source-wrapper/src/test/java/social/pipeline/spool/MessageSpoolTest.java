@@ -0,0 +1,168 @@
+package social.pipeline.spool;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import social.pipeline.codec.SocialMessageCodec;
+import social.pipeline.sink.BatchingMessageSink;
+import social.pipeline.sink.InMemoryTransport;
+import social.pipeline.sink.MessageEncoders;
+import social.pipeline.sink.SinkOptions;
+import social.pipeline.source.SocialMessage;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
+public class MessageSpoolTest {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private static SpoolOptions options(int segmentBytes) {
+    SpoolOptions options = new SpoolOptions();
+    options.setSegmentBytes(segmentBytes);
+    options.setSync(SpoolOptions.Sync.OS);
+    return options;
+  }
+
+  private static SocialMessage message(long id) {
+    SocialMessage message = new SocialMessage("Message number " + id + " about #spools", 1543919460000L + id);
+    message.setId(id);
+    message.setLang("en");
+    message.setTopics(Arrays.asList("#spools"));
+    return message;
+  }
+
+  private static List<Long> readIds(MessageSpool spool, long offset, int maxRecords) throws Exception {
+    SocialMessageCodec codec = new SocialMessageCodec();
+    List<Long> ids = new ArrayList<>();
+    spool.read(offset, maxRecords, (recordOffset, payload) -> ids.add(codec.decode(payload).getId()));
+    return ids;
+  }
+
+  @Test
+  public void test_reads_back_across_segments_and_resumes_after_the_acknowledged_offset() throws Exception {
+    Path directory = folder.getRoot().toPath();
+    List<Long> offsets = new ArrayList<>();
+    try (MessageSpool spool = MessageSpool.open(directory, options(1024))) {
+      for (long id = 1; id <= 100; id++) {
+        offsets.add(spool.append(message(id)));
+      }
+      Assert.assertTrue(spool.getSegmentCount() > 5);
+      Assert.assertEquals(100, readIds(spool, spool.getAcknowledgedOffset(), Integer.MAX_VALUE).size());
+      Assert.assertEquals(Arrays.asList(41L, 42L, 43L), readIds(spool, offsets.get(40), 3));
+
+      int segments = spool.getSegmentCount();
+      spool.acknowledge(offsets.get(60));
+      Assert.assertTrue(spool.getSegmentCount() < segments);
+      Assert.assertEquals(61L, (long) readIds(spool, spool.getAcknowledgedOffset(), 1).get(0));
+    }
+
+    try (MessageSpool spool = MessageSpool.open(directory, options(1024))) {
+      Assert.assertEquals((long) offsets.get(60), spool.getAcknowledgedOffset());
+      List<Long> remaining = readIds(spool, spool.getAcknowledgedOffset(), Integer.MAX_VALUE);
+      Assert.assertEquals(40, remaining.size());
+      Assert.assertEquals(61L, (long) remaining.get(0));
+
+      spool.append(message(101));
+      Assert.assertEquals(41, readIds(spool, spool.getAcknowledgedOffset(), Integer.MAX_VALUE).size());
+    }
+  }
+
+  @Test
+  public void test_recovery_drops_a_torn_record() throws Exception {
+    Path directory = folder.getRoot().toPath();
+    long last;
+    try (MessageSpool spool = MessageSpool.open(directory, options(64 * 1024))) {
+      for (long id = 1; id < 10; id++) {
+        spool.append(message(id));
+      }
+      last = spool.append(message(10));
+    }
+
+    // Corrupt the payload of the last record, as a write cut short by a crash would
+    Path segment = Files.list(directory).filter(path -> path.toString().endsWith(".spool")).findFirst().get();
+    try (RandomAccessFile file = new RandomAccessFile(segment.toFile(), "rw")) {
+      file.seek(last + 20);
+      file.write("garbage".getBytes(StandardCharsets.UTF_8));
+    }
+
+    try (MessageSpool spool = MessageSpool.open(directory, options(64 * 1024))) {
+      Assert.assertEquals(last, spool.getWriteOffset());
+      spool.append(message(11));
+      List<Long> ids = readIds(spool, 0, Integer.MAX_VALUE);
+      Assert.assertEquals(10, ids.size());
+      Assert.assertEquals(11L, (long) ids.get(9));
+    }
+  }
+
+  @Test
+  public void test_full_spool_rejects_appends() throws Exception {
+    SpoolOptions options = options(1024);
+    options.setMaxBytes(2048);
+    try (MessageSpool spool = MessageSpool.open(folder.getRoot().toPath(), options)) {
+      try {
+        for (long id = 1; id <= 100; id++) {
+          spool.append(message(id));
+        }
+        Assert.fail();
+      } catch (IOException e) {
+        Assert.assertTrue(e.getMessage().startsWith("Spool is full"));
+      }
+      Assert.assertEquals(2, spool.getSegmentCount());
+    }
+  }
+
+  @Test
+  public void test_drainer_ships_all_records_through_a_failing_sink() throws Exception {
+    AtomicBoolean failNext = new AtomicBoolean(true);
+    InMemoryTransport delivered = new InMemoryTransport(64 * 1024);
+    InMemoryTransport transport = new InMemoryTransport(64 * 1024) {
+      @Override
+      public CompletableFuture<Void> send(List<byte[]> batch) {
+        if (failNext.getAndSet(false)) {
+          CompletableFuture<Void> failed = new CompletableFuture<>();
+          failed.completeExceptionally(new IOException("EventHub is down"));
+          return failed;
+        }
+        return delivered.send(batch);
+      }
+    };
+    SinkOptions sinkOptions = new SinkOptions();
+    sinkOptions.setMaxBatchEvents(10);
+    BatchingMessageSink sink = new BatchingMessageSink(transport, MessageEncoders.binary(), sinkOptions);
+
+    try (MessageSpool spool = MessageSpool.open(folder.getRoot().toPath(), options(4096));
+         SpoolDrainer drainer = new SpoolDrainer(spool, sink, 25, 5, 10).start()) {
+      for (long id = 1; id <= 200; id++) {
+        spool.append(message(id));
+      }
+      long deadline = System.currentTimeMillis() + 10000;
+      while (spool.getAcknowledgedOffset() < spool.getWriteOffset() && System.currentTimeMillis() < deadline) {
+        Thread.sleep(10);
+      }
+      Assert.assertEquals(spool.getWriteOffset(), spool.getAcknowledgedOffset());
+      Assert.assertEquals(200, drainer.getDrainedRecords());
+      Assert.assertEquals(1, drainer.getFailures());
+    }
+
+    // At least once: the batches of the failed read are sent again, in order
+    SocialMessageCodec codec = new SocialMessageCodec();
+    List<Long> ids = delivered.getBatches().stream().flatMap(List::stream)
+      .map(bytes -> codec.decode(ByteBuffer.wrap(bytes)).getId()).distinct().collect(Collectors.toList());
+    Assert.assertEquals(200, ids.size());
+    Assert.assertEquals(1L, (long) ids.get(0));
+    Assert.assertEquals(200L, (long) ids.get(199));
+  }
+}
@@ -0,0 +1,64 @@
+package social.pipeline.text;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+public class AhoCorasickTest {
+
+  private static List<String> matches(AhoCorasick automaton, String text) {
+    List<String> found = new ArrayList<>();
+    automaton.match(text, (pattern, start, end) -> found.add(automaton.getPattern(pattern) + "@" + start));
+    return found;
+  }
+
+  @Test
+  public void test_overlapping_and_case_insensitive_matches() {
+    AhoCorasick automaton = new AhoCorasick(Arrays.asList("he", "she", "his", "hers"));
+    Assert.assertEquals(Arrays.asList("she@1", "he@2", "hers@2"), matches(automaton, "uSHErs"));
+    Assert.assertEquals(Arrays.asList("his@0"), matches(automaton, "HIS"));
+    Assert.assertEquals(Arrays.asList("he@1"), matches(automaton, "the sea"));
+    Assert.assertTrue(matches(automaton, "nothing to see").isEmpty());
+  }
+
+  @Test
+  public void test_matches_agree_with_naive_search() {
+    Random random = new Random(42);
+    List<String> patterns = new ArrayList<>();
+    for (int i = 0; i < 200; i++) {
+      patterns.add(randomText(random, 1 + random.nextInt(5)));
+    }
+    AhoCorasick automaton = new AhoCorasick(patterns);
+
+    for (int t = 0; t < 50; t++) {
+      String text = randomText(random, 200);
+      int expected = 0;
+      for (int p = 0; p < patterns.size(); p++) {
+        if (patterns.indexOf(patterns.get(p)) != p) {
+          continue;
+        }
+        for (int i = text.indexOf(patterns.get(p)); i >= 0; i = text.indexOf(patterns.get(p), i + 1)) {
+          expected++;
+        }
+      }
+      int[] count = {0};
+      automaton.match(text, (pattern, start, end) -> {
+        Assert.assertEquals(patterns.get(pattern), text.substring(start, end));
+        count[0]++;
+      });
+      Assert.assertEquals(expected, count[0]);
+    }
+  }
+
+  private static String randomText(Random random, int length) {
+    StringBuilder text = new StringBuilder(length);
+    for (int i = 0; i < length; i++) {
+      text.append((char) ('a' + random.nextInt(4)));
+    }
+    return text.toString();
+  }
+}
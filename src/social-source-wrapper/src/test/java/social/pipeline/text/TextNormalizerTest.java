@@ -0,0 +1,27 @@
+package social.pipeline.text;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TextNormalizerTest {
+
+  @Test
+  public void test_normalize_retweet() {
+    Assert.assertEquals("meeting in tel aviv with other figures in 1995.",
+      TextNormalizer.normalize("RT @Agenthades1: Meeting in  Tel Aviv\nwith other figures in 1995. https://t.co/Stno2cx88w"));
+  }
+
+  @Test
+  public void test_normalized_hash_matches_normalize() {
+    String[] texts = {
+      "RT @user_1: Hello   World http://t.co/x",
+      "  hello world ",
+      "Hello World",
+      ""
+    };
+    for (String text : texts) {
+      Assert.assertEquals(TextNormalizer.hash(TextNormalizer.normalize(text)), TextNormalizer.normalizedHash(text));
+    }
+    Assert.assertEquals(TextNormalizer.normalizedHash(texts[0]), TextNormalizer.normalizedHash(texts[2]));
+  }
+}
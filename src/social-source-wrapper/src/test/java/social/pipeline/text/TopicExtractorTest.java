@@ -0,0 +1,41 @@
+package social.pipeline.text;
+
+import org.junit.Assert;
+import org.junit.Test;
+import social.pipeline.source.SocialMessage;
+
+import java.io.BufferedReader;
+import java.io.StringReader;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+
+public class TopicExtractorTest {
+
+  @Test
+  public void test_hashtags_mentions_and_cashtags() {
+    TopicExtractor extractor = new TopicExtractor();
+    Assert.assertEquals(Arrays.asList("@agenthades1", "#telaviv", "$AAPL"),
+      extractor.extract("RT @Agenthades1: Meeting in #TelAviv, buying $aapl for $100 #2018 mail@example.com #TELAVIV"));
+  }
+
+  @Test
+  public void test_dictionary_matches_whole_words() throws Exception {
+    Map<String, String> dictionary = TopicExtractor.readDictionary(new BufferedReader(new StringReader(
+      "# city names\nTel Aviv\ttlv\tTel-Aviv\nLana Del Rey\n")));
+    TopicExtractor extractor = new TopicExtractor(dictionary);
+    extractor.setExtractMentions(false);
+
+    Assert.assertEquals(4, extractor.getDictionarySize());
+    Assert.assertEquals(Arrays.asList("Lana Del Rey", "Tel Aviv"),
+      extractor.extract("@LanaDelRey lana del rey plays TEL AVIV, landing at TLV"));
+    Assert.assertEquals(Collections.emptyList(), extractor.extract("the hotel avivim in atlvs"));
+  }
+
+  @Test
+  public void test_apply_sets_topics() {
+    SocialMessage message = new TopicExtractor(Collections.singletonMap("israel", "Israel"))
+      .apply(new SocialMessage("Lana Del Rey defends decision to play Israel show #LanaDelRey"));
+    Assert.assertEquals(Arrays.asList("Israel", "#lanadelrey"), message.getTopics());
+  }
+}
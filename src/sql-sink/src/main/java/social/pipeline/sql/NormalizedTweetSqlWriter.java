@@ -0,0 +1,187 @@
+package social.pipeline.sql;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Writes tweets to three tables in batched transactions, one per micro-batch: the tweets table with
+ * one row per tweet, the tweet topics table with a (TweetId, TopicId) row per topic of a tweet and the
+ * topics dictionary. Unlike {@link TweetSqlWriter}, the content of a tweet is written once whatever
+ * its number of topics.
+ * <p>
+ * Topic ids are hashes of the topic names ({@link Tweet#topicId}), so the writer needs no lookup to
+ * link a tweet to its topics; it only adds the topics it has not seen to the dictionary. Writes are
+ * idempotent: rows already stored are skipped, so replaying a micro-batch does not duplicate rows.
+ * Concurrent writers may still race to insert the same row; the tables are meant to have primary
+ * keys that ignore duplicates (IGNORE_DUP_KEY on SQL Server).
+ * <p>
+ * The writer uses the connection it is given and turns its auto-commit off; the caller closes it.
+ * Instances are not thread safe.
+ */
+public class NormalizedTweetSqlWriter implements AutoCloseable {
+
+  private static final int MAX_KNOWN_TOPICS = 100000;
+
+  private final Connection connection;
+  private final SqlSinkOptions options;
+  private final SqlSinkMetrics metrics = new SqlSinkMetrics();
+  private final PreparedStatement insertTweet;
+  private final PreparedStatement insertTopic;
+  private final PreparedStatement insertTweetTopic;
+
+  // Topics stored by committed transactions, and those added by the current one
+  private final Set<Long> knownTopics = new HashSet<>();
+  private final Set<Long> transactionTopics = new HashSet<>();
+  private final Set<String> transactionTweets = new HashSet<>();
+
+  private int batchedTweets;
+  private int batchedTopics;
+  private int batchedTweetTopics;
+  private final WriteCounts counts = new WriteCounts();
+
+  public NormalizedTweetSqlWriter(Connection connection, SqlSinkOptions options) throws SQLException {
+    this.connection = connection;
+    this.options = options;
+    connection.setAutoCommit(false);
+    String tweets = options.getTableName();
+    String topics = options.getTopicsTableName();
+    String tweetTopics = options.getTweetTopicsTableName();
+    this.insertTweet = connection.prepareStatement("INSERT INTO " + tweets + " (TweetId, Content, TweetTime, Language) SELECT ?, ?, ?, ?"
+      + " WHERE NOT EXISTS (SELECT 1 FROM " + tweets + " WHERE TweetId = ?)");
+    this.insertTopic = connection.prepareStatement("INSERT INTO " + topics + " (TopicId, Topic) SELECT ?, ?"
+      + " WHERE NOT EXISTS (SELECT 1 FROM " + topics + " WHERE TopicId = ?)");
+    this.insertTweetTopic = connection.prepareStatement("INSERT INTO " + tweetTopics + " (TweetId, TopicId) SELECT ?, ?"
+      + " WHERE NOT EXISTS (SELECT 1 FROM " + tweetTopics + " WHERE TweetId = ? AND TopicId = ?)");
+  }
+
+  /**
+   * Adds the tweet and its topics to the current transaction, sending the batches to the database when they are full
+   */
+  public void write(Tweet tweet) throws SQLException {
+    String tweetId = tweet.getTweetId();
+    if (!transactionTweets.add(tweetId)) {
+      counts.duplicates++;
+      return;
+    }
+    insertTweet.setString(1, tweetId);
+    insertTweet.setString(2, tweet.getContent());
+    insertTweet.setTimestamp(3, tweet.getTweetTime());
+    insertTweet.setString(4, tweet.getLanguage());
+    insertTweet.setString(5, tweetId);
+    insertTweet.addBatch();
+    batchedTweets++;
+
+    List<String> topics = tweet.getTopics();
+    if (topics != null) {
+      for (String topic : topics) {
+        long topicId = Tweet.topicId(topic);
+        if (!knownTopics.contains(topicId) && transactionTopics.add(topicId)) {
+          insertTopic.setLong(1, topicId);
+          insertTopic.setString(2, topic);
+          insertTopic.setLong(3, topicId);
+          insertTopic.addBatch();
+          batchedTopics++;
+        }
+        insertTweetTopic.setString(1, tweetId);
+        insertTweetTopic.setLong(2, topicId);
+        insertTweetTopic.setString(3, tweetId);
+        insertTweetTopic.setLong(4, topicId);
+        insertTweetTopic.addBatch();
+        batchedTweetTopics++;
+      }
+    }
+
+    if (batchedTweets >= options.getBatchSize() || batchedTweetTopics >= options.getBatchSize()) {
+      executeBatches();
+    }
+  }
+
+  public void writeAll(Iterable<Tweet> tweets) throws SQLException {
+    for (Tweet tweet : tweets) {
+      write(tweet);
+    }
+  }
+
+  private void executeBatches() throws SQLException {
+    if (batchedTweets == 0) {
+      return;
+    }
+    long start = System.nanoTime();
+    // Dictionary and tweets first, so the rows linking them never refer to rows not yet written
+    if (batchedTopics > 0) {
+      counts.add(insertTopic.executeBatch());
+    }
+    counts.add(insertTweet.executeBatch());
+    if (batchedTweetTopics > 0) {
+      counts.add(insertTweetTopic.executeBatch());
+    }
+    batchedTweets = 0;
+    batchedTopics = 0;
+    batchedTweetTopics = 0;
+    metrics.recordBatch(System.nanoTime() - start);
+  }
+
+  /**
+   * Sends the pending rows and commits the transaction
+   */
+  public void commit() throws SQLException {
+    executeBatches();
+    long start = System.nanoTime();
+    connection.commit();
+    metrics.recordCommit(counts, System.nanoTime() - start);
+    if (knownTopics.size() + transactionTopics.size() > MAX_KNOWN_TOPICS) {
+      // Forgetting topics only costs an insert that is skipped
+      knownTopics.clear();
+    }
+    knownTopics.addAll(transactionTopics);
+    reset();
+  }
+
+  /**
+   * Drops the rows written since the last commit
+   */
+  public void rollback() throws SQLException {
+    insertTopic.clearBatch();
+    insertTweet.clearBatch();
+    insertTweetTopic.clearBatch();
+    connection.rollback();
+    metrics.recordRollback();
+    reset();
+  }
+
+  private void reset() {
+    transactionTweets.clear();
+    transactionTopics.clear();
+    batchedTweets = 0;
+    batchedTopics = 0;
+    batchedTweetTopics = 0;
+    counts.clear();
+  }
+
+  /**
+   * Counters of the rows of all three tables
+   */
+  public SqlSinkMetrics getMetrics() {
+    return metrics;
+  }
+
+  /**
+   * Rolls back the rows not committed and releases the statements, the connection stays open
+   */
+  @Override
+  public void close() throws SQLException {
+    try {
+      if (!transactionTweets.isEmpty()) {
+        rollback();
+      }
+    } finally {
+      insertTopic.close();
+      insertTweet.close();
+      insertTweetTopic.close();
+    }
+  }
+}
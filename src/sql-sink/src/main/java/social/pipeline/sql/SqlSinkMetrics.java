@@ -0,0 +1,97 @@
+package social.pipeline.sql;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counters of a {@link TweetSqlWriter}, safe to read while the writer is in use
+ */
+public class SqlSinkMetrics {
+
+  private final AtomicLong rowsWritten = new AtomicLong();
+  private final AtomicLong duplicateRows = new AtomicLong();
+  private final AtomicLong unreportedRows = new AtomicLong();
+  private final AtomicLong batches = new AtomicLong();
+  private final AtomicLong commits = new AtomicLong();
+  private final AtomicLong rollbacks = new AtomicLong();
+  private final AtomicLong databaseNanos = new AtomicLong();
+
+  void recordBatch(long nanos) {
+    batches.incrementAndGet();
+    databaseNanos.addAndGet(nanos);
+  }
+
+  void recordCommit(WriteCounts counts, long nanos) {
+    commits.incrementAndGet();
+    rowsWritten.addAndGet(counts.inserted);
+    duplicateRows.addAndGet(counts.duplicates);
+    unreportedRows.addAndGet(counts.unreported);
+    databaseNanos.addAndGet(nanos);
+  }
+
+  void recordRollback() {
+    rollbacks.incrementAndGet();
+  }
+
+  /**
+   * Rows inserted by committed transactions
+   */
+  public long getRowsWritten() {
+    return rowsWritten.get();
+  }
+
+  /**
+   * Rows skipped because a row with the same UniqueId was already stored
+   */
+  public long getDuplicateRows() {
+    return duplicateRows.get();
+  }
+
+  /**
+   * Rows committed whose statements the driver reported as {@link java.sql.Statement#SUCCESS_NO_INFO}. Each was
+   * either written or skipped as a duplicate, so they are in neither the written nor the duplicate count
+   */
+  public long getUnreportedRows() {
+    return unreportedRows.get();
+  }
+
+  public long getBatches() {
+    return batches.get();
+  }
+
+  public long getCommits() {
+    return commits.get();
+  }
+
+  public long getRollbacks() {
+    return rollbacks.get();
+  }
+
+  /**
+   * Time spent executing batches and commits
+   */
+  public double getDatabaseMillis() {
+    return (double) databaseNanos.get() / TimeUnit.MILLISECONDS.toNanos(1);
+  }
+
+  /**
+   * Rows written per second of database time, counting the unreported rows as written
+   */
+  public double getRowsPerSecond() {
+    long nanos = databaseNanos.get();
+    return nanos == 0 ? 0 : (rowsWritten.get() + unreportedRows.get()) * (double) TimeUnit.SECONDS.toNanos(1) / nanos;
+  }
+
+  @Override
+  public String toString() {
+    return "SqlSinkMetrics{" +
+      "rowsWritten=" + getRowsWritten() +
+      ", duplicateRows=" + getDuplicateRows() +
+      ", unreportedRows=" + getUnreportedRows() +
+      ", batches=" + getBatches() +
+      ", commits=" + getCommits() +
+      ", rollbacks=" + getRollbacks() +
+      ", rowsPerSecond=" + String.format("%.1f", getRowsPerSecond()) +
+      '}';
+  }
+}
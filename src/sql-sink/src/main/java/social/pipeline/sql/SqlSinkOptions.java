@@ -0,0 +1,95 @@
+package social.pipeline.sql;
+
+import java.io.Serializable;
+
+/**
+ * Target table and batching of a {@link TweetSqlWriter}
+ */
+public class SqlSinkOptions implements Serializable {
+
+  private static final long serialVersionUID = 1L;
+
+  private String tableName = "tweets";
+  private int batchSize = 1000;
+  private boolean bulkCopy = false;
+  private String stagingTableName;
+  private String topicsTableName = "topics";
+  private String tweetTopicsTableName = "tweet_topics";
+
+  public SqlSinkOptions() {
+  }
+
+  public SqlSinkOptions(String tableName) {
+    this.tableName = tableName;
+  }
+
+  /**
+   * Table with the UniqueId, Content, TweetTime, Language and Topic columns, or with the TweetId,
+   * Content, TweetTime and Language columns for a {@link NormalizedTweetSqlWriter}
+   */
+  public String getTableName() {
+    return tableName;
+  }
+
+  public void setTableName(String tableName) {
+    this.tableName = tableName;
+  }
+
+  /**
+   * Rows sent to the database per round trip
+   */
+  public int getBatchSize() {
+    return batchSize;
+  }
+
+  public void setBatchSize(int batchSize) {
+    this.batchSize = batchSize;
+  }
+
+  /**
+   * If true, rows are inserted into the staging table with plain batched INSERT statements, which
+   * drivers can turn into bulk loads (e.g. useBulkCopyForBatchInsert=true for SQL Server), and moved
+   * into the table on commit. Otherwise each row is inserted into the table directly.
+   */
+  public boolean isBulkCopy() {
+    return bulkCopy;
+  }
+
+  public void setBulkCopy(boolean bulkCopy) {
+    this.bulkCopy = bulkCopy;
+  }
+
+  /**
+   * Staging table of the bulk copy mode, by default a SQL Server temporary table #&lt;table&gt;_staging
+   * created per connection. A regular table must exist and be used by one writer at a time.
+   */
+  public String getStagingTableName() {
+    return stagingTableName != null ? stagingTableName : "#" + tableName + "_staging";
+  }
+
+  public void setStagingTableName(String stagingTableName) {
+    this.stagingTableName = stagingTableName;
+  }
+
+  /**
+   * Topic dictionary of a {@link NormalizedTweetSqlWriter}, with the TopicId and Topic columns
+   */
+  public String getTopicsTableName() {
+    return topicsTableName;
+  }
+
+  public void setTopicsTableName(String topicsTableName) {
+    this.topicsTableName = topicsTableName;
+  }
+
+  /**
+   * Topics of the tweets of a {@link NormalizedTweetSqlWriter}, with the TweetId and TopicId columns
+   */
+  public String getTweetTopicsTableName() {
+    return tweetTopicsTableName;
+  }
+
+  public void setTweetTopicsTableName(String tweetTopicsTableName) {
+    this.tweetTopicsTableName = tweetTopicsTableName;
+  }
+}
@@ -0,0 +1,102 @@
+package social.pipeline.sql;
+
+import social.pipeline.source.SocialMessage;
+import social.pipeline.text.TextNormalizer;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * A tweet and its topics, stored once in the tweets table with one narrow row per topic,
+ * see {@link NormalizedTweetSqlWriter}
+ */
+public class Tweet {
+
+  private String tweetId;
+  private String content;
+  private Timestamp tweetTime;
+  private String language;
+  private List<String> topics;
+
+  public Tweet() {
+  }
+
+  public Tweet(String tweetId, String content, Timestamp tweetTime, String language, List<String> topics) {
+    this.tweetId = tweetId;
+    this.content = content;
+    this.tweetTime = tweetTime;
+    this.language = language;
+    this.topics = topics;
+  }
+
+  /**
+   * Tweet with an id derived from its content and time, so the same tweet written twice yields the same id.
+   * Different tweets with the same text in the same second, the precision of tweet times, share the id as well
+   * and only the first is stored.
+   */
+  public static Tweet create(String content, Timestamp tweetTime, String language, List<String> topics) {
+    return new Tweet(tweetId(content, tweetTime), content, tweetTime, language, topics != null ? topics : Collections.<String>emptyList());
+  }
+
+  public static Tweet fromMessage(SocialMessage message) {
+    return create(message.getText(), new Timestamp(message.getTimestamp()), message.getLang(), message.getTopics());
+  }
+
+  /**
+   * Name based UUID of the content and time
+   */
+  public static String tweetId(String content, Timestamp tweetTime) {
+    String key = (tweetTime != null ? tweetTime.getTime() : "") + "\n" + (content != null ? content : "");
+    return UUID.nameUUIDFromBytes(key.getBytes(StandardCharsets.UTF_8)).toString();
+  }
+
+  /**
+   * Id of the topic in the topics dictionary, a hash of its name so writers need no lookup to know it
+   */
+  public static long topicId(String topic) {
+    return TextNormalizer.hash(topic);
+  }
+
+  public String getTweetId() {
+    return tweetId;
+  }
+
+  public void setTweetId(String tweetId) {
+    this.tweetId = tweetId;
+  }
+
+  public String getContent() {
+    return content;
+  }
+
+  public void setContent(String content) {
+    this.content = content;
+  }
+
+  public Timestamp getTweetTime() {
+    return tweetTime;
+  }
+
+  public void setTweetTime(Timestamp tweetTime) {
+    this.tweetTime = tweetTime;
+  }
+
+  public String getLanguage() {
+    return language;
+  }
+
+  public void setLanguage(String language) {
+    this.language = language;
+  }
+
+  public List<String> getTopics() {
+    return topics;
+  }
+
+  public void setTopics(List<String> topics) {
+    this.topics = topics;
+  }
+}
@@ -0,0 +1,107 @@
+package social.pipeline.sql;
+
+import social.pipeline.source.SocialMessage;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * One row of the tweets table: a tweet and one of its topics
+ */
+public class TweetRow {
+
+  private String uniqueId;
+  private String content;
+  private Timestamp tweetTime;
+  private String language;
+  private String topic;
+
+  public TweetRow() {
+  }
+
+  public TweetRow(String uniqueId, String content, Timestamp tweetTime, String language, String topic) {
+    this.uniqueId = uniqueId;
+    this.content = content;
+    this.tweetTime = tweetTime;
+    this.language = language;
+    this.topic = topic;
+  }
+
+  /**
+   * Row with an id derived from its content, time and topic, so writing the same row twice,
+   * e.g. when a stream is replayed after a restart, yields the same id. Different tweets with the same
+   * text and topic in the same second, the precision of tweet times, share the id as well and only the
+   * first is stored.
+   */
+  public static TweetRow create(String content, Timestamp tweetTime, String language, String topic) {
+    return new TweetRow(uniqueId(content, tweetTime, topic), content, tweetTime, language, topic);
+  }
+
+  /**
+   * One row per topic of the message, or a single row with a null topic if it has none
+   */
+  public static List<TweetRow> fromMessage(SocialMessage message) {
+    Timestamp tweetTime = new Timestamp(message.getTimestamp());
+    List<String> topics = message.getTopics();
+    List<TweetRow> rows = new ArrayList<>(topics != null && !topics.isEmpty() ? topics.size() : 1);
+    if (topics == null || topics.isEmpty()) {
+      rows.add(create(message.getText(), tweetTime, message.getLang(), null));
+    } else {
+      for (String topic : topics) {
+        rows.add(create(message.getText(), tweetTime, message.getLang(), topic));
+      }
+    }
+    return rows;
+  }
+
+  /**
+   * Name based UUID of the content, time and topic
+   */
+  public static String uniqueId(String content, Timestamp tweetTime, String topic) {
+    String key = (tweetTime != null ? tweetTime.getTime() : "") + "\n" + (topic != null ? topic : "") + "\n" + (content != null ? content : "");
+    return UUID.nameUUIDFromBytes(key.getBytes(StandardCharsets.UTF_8)).toString();
+  }
+
+  public String getUniqueId() {
+    return uniqueId;
+  }
+
+  public void setUniqueId(String uniqueId) {
+    this.uniqueId = uniqueId;
+  }
+
+  public String getContent() {
+    return content;
+  }
+
+  public void setContent(String content) {
+    this.content = content;
+  }
+
+  public Timestamp getTweetTime() {
+    return tweetTime;
+  }
+
+  public void setTweetTime(Timestamp tweetTime) {
+    this.tweetTime = tweetTime;
+  }
+
+  public String getLanguage() {
+    return language;
+  }
+
+  public void setLanguage(String language) {
+    this.language = language;
+  }
+
+  public String getTopic() {
+    return topic;
+  }
+
+  public void setTopic(String topic) {
+    this.topic = topic;
+  }
+}
@@ -0,0 +1,155 @@
+package social.pipeline.sql;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Writes tweet rows to a SQL table with batched prepared statements, one transaction per micro-batch.
+ * <p>
+ * Rows are buffered into JDBC batches of {@link SqlSinkOptions#getBatchSize()} and stored by
+ * {@link #commit()}. Writes are idempotent on UniqueId: a row whose id is already in the table, or
+ * already written in the same transaction, is skipped, so replaying a micro-batch after a restart
+ * does not duplicate rows. With {@link SqlSinkOptions#isBulkCopy()} the rows go through a staging
+ * table and are moved into the table with one statement per commit.
+ * <p>
+ * The writer uses the connection it is given and turns its auto-commit off; the caller closes it.
+ * Instances are not thread safe.
+ */
+public class TweetSqlWriter implements AutoCloseable {
+
+  static final String COLUMNS = "UniqueId, Content, TweetTime, Language, Topic";
+
+  private final Connection connection;
+  private final SqlSinkOptions options;
+  private final SqlSinkMetrics metrics = new SqlSinkMetrics();
+  private final PreparedStatement insert;
+  private final Set<String> transactionIds = new HashSet<>();
+
+  private int batched;
+  private long staged;
+  private final WriteCounts counts = new WriteCounts();
+
+  public TweetSqlWriter(Connection connection, SqlSinkOptions options) throws SQLException {
+    this.connection = connection;
+    this.options = options;
+    connection.setAutoCommit(false);
+    String table = options.getTableName();
+    if (options.isBulkCopy()) {
+      String staging = options.getStagingTableName();
+      if (staging.startsWith("#")) {
+        try (Statement statement = connection.createStatement()) {
+          statement.execute("SELECT TOP 0 " + COLUMNS + " INTO " + staging + " FROM " + table);
+        }
+        connection.commit();
+      }
+      this.insert = connection.prepareStatement("INSERT INTO " + staging + " (" + COLUMNS + ") VALUES (?, ?, ?, ?, ?)");
+    } else {
+      this.insert = connection.prepareStatement("INSERT INTO " + table + " (" + COLUMNS + ") SELECT ?, ?, ?, ?, ?"
+        + " WHERE NOT EXISTS (SELECT 1 FROM " + table + " WHERE UniqueId = ?)");
+    }
+  }
+
+  /**
+   * Adds the row to the current transaction, sending a batch to the database when it is full
+   */
+  public void write(TweetRow row) throws SQLException {
+    if (!transactionIds.add(row.getUniqueId())) {
+      counts.duplicates++;
+      return;
+    }
+    insert.setString(1, row.getUniqueId());
+    insert.setString(2, row.getContent());
+    insert.setTimestamp(3, row.getTweetTime());
+    insert.setString(4, row.getLanguage());
+    insert.setString(5, row.getTopic());
+    if (!options.isBulkCopy()) {
+      insert.setString(6, row.getUniqueId());
+    }
+    insert.addBatch();
+    if (++batched >= options.getBatchSize()) {
+      executeBatch();
+    }
+  }
+
+  public void writeAll(Iterable<TweetRow> rows) throws SQLException {
+    for (TweetRow row : rows) {
+      write(row);
+    }
+  }
+
+  private void executeBatch() throws SQLException {
+    if (batched == 0) {
+      return;
+    }
+    long start = System.nanoTime();
+    int[] updateCounts = insert.executeBatch();
+    if (options.isBulkCopy()) {
+      staged += batched;
+    } else {
+      counts.add(updateCounts);
+    }
+    batched = 0;
+    metrics.recordBatch(System.nanoTime() - start);
+  }
+
+  /**
+   * Sends the pending rows and commits the transaction
+   */
+  public void commit() throws SQLException {
+    executeBatch();
+    long start = System.nanoTime();
+    if (staged > 0) {
+      String table = options.getTableName();
+      String staging = options.getStagingTableName();
+      try (Statement statement = connection.createStatement()) {
+        int moved = statement.executeUpdate("INSERT INTO " + table + " (" + COLUMNS + ") SELECT " + COLUMNS + " FROM " + staging + " s"
+          + " WHERE NOT EXISTS (SELECT 1 FROM " + table + " t WHERE t.UniqueId = s.UniqueId)");
+        statement.executeUpdate("DELETE FROM " + staging);
+        counts.inserted += moved;
+        counts.duplicates += staged - moved;
+      }
+    }
+    connection.commit();
+    metrics.recordCommit(counts, System.nanoTime() - start);
+    reset();
+  }
+
+  /**
+   * Drops the rows written since the last commit
+   */
+  public void rollback() throws SQLException {
+    insert.clearBatch();
+    connection.rollback();
+    metrics.recordRollback();
+    reset();
+  }
+
+  private void reset() {
+    transactionIds.clear();
+    batched = 0;
+    staged = 0;
+    counts.clear();
+  }
+
+  public SqlSinkMetrics getMetrics() {
+    return metrics;
+  }
+
+  /**
+   * Rolls back the rows not committed and releases the statement, the connection stays open
+   */
+  @Override
+  public void close() throws SQLException {
+    try {
+      if (batched > 0 || staged > 0 || !transactionIds.isEmpty()) {
+        rollback();
+      }
+    } finally {
+      insert.close();
+    }
+  }
+}
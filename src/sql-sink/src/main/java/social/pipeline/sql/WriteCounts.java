@@ -0,0 +1,36 @@
+package social.pipeline.sql;
+
+import java.sql.Statement;
+
+/**
+ * Rows inserted, skipped and not reported by the statements of the current transaction of a writer
+ */
+final class WriteCounts {
+
+  long inserted;
+  long duplicates;
+  long unreported;
+
+  /**
+   * Adds the update counts of a batch of conditional inserts: 1 inserted a row, 0 skipped it, and
+   * {@link Statement#SUCCESS_NO_INFO}, which e.g. mssql-jdbc reports for batches sent as bulk copies,
+   * leaves the outcome unknown
+   */
+  void add(int[] updateCounts) {
+    for (int count : updateCounts) {
+      if (count == Statement.SUCCESS_NO_INFO) {
+        unreported++;
+      } else if (count == 0) {
+        duplicates++;
+      } else {
+        inserted++;
+      }
+    }
+  }
+
+  void clear() {
+    inserted = 0;
+    duplicates = 0;
+    unreported = 0;
+  }
+}
@@ -0,0 +1,111 @@
+package social.pipeline.sql;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import social.pipeline.source.SocialMessage;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class NormalizedTweetSqlWriterTest {
+
+  private Connection connection;
+
+  @Before
+  public void setup() throws Exception {
+    connection = DriverManager.getConnection("jdbc:h2:mem:normalized;DB_CLOSE_DELAY=-1");
+    try (Statement statement = connection.createStatement()) {
+      statement.execute("CREATE TABLE tweets (TweetId varchar(37) PRIMARY KEY, TweetTime timestamp, Content clob, Language varchar(10))");
+      statement.execute("CREATE TABLE topics (TopicId bigint PRIMARY KEY, Topic varchar(255))");
+      statement.execute("CREATE TABLE tweet_topics (TweetId varchar(37), TopicId bigint, PRIMARY KEY (TweetId, TopicId))");
+    }
+  }
+
+  @After
+  public void teardown() throws Exception {
+    try (Statement statement = connection.createStatement()) {
+      statement.execute("DROP ALL OBJECTS");
+    }
+    connection.close();
+  }
+
+  private static List<Tweet> tweets(int count) {
+    List<Tweet> tweets = new ArrayList<>();
+    for (int i = 0; i < count; i++) {
+      tweets.add(Tweet.create("Tweet " + i + " about three topics", new Timestamp(1543919460000L + i), "en",
+        Arrays.asList("#topic" + i % 7, "#topic" + (i + 1) % 7, "Israel")));
+    }
+    return tweets;
+  }
+
+  private long count(String query) throws Exception {
+    try (Statement statement = connection.createStatement(); ResultSet result = statement.executeQuery(query)) {
+      result.next();
+      return result.getLong(1);
+    }
+  }
+
+  @Test
+  public void test_stores_each_tweet_once_and_links_its_topics() throws Exception {
+    SqlSinkOptions options = new SqlSinkOptions();
+    options.setBatchSize(50);
+    try (NormalizedTweetSqlWriter writer = new NormalizedTweetSqlWriter(connection, options)) {
+      writer.writeAll(tweets(100));
+      writer.commit();
+      Assert.assertEquals(100, count("SELECT COUNT(*) FROM tweets"));
+      Assert.assertEquals(300, count("SELECT COUNT(*) FROM tweet_topics"));
+      Assert.assertEquals(8, count("SELECT COUNT(*) FROM topics"));
+      Assert.assertEquals(408, writer.getMetrics().getRowsWritten());
+
+      // A replayed micro-batch overlapping the first one, with a tweet repeated within it
+      List<Tweet> replay = tweets(120);
+      replay.add(replay.get(0));
+      writer.writeAll(replay);
+      writer.commit();
+      Assert.assertEquals(120, count("SELECT COUNT(*) FROM tweets"));
+      Assert.assertEquals(360, count("SELECT COUNT(*) FROM tweet_topics"));
+      Assert.assertEquals(8, count("SELECT COUNT(*) FROM topics"));
+      Assert.assertEquals(408 + 80, writer.getMetrics().getRowsWritten());
+      Assert.assertEquals(400 + 1, writer.getMetrics().getDuplicateRows());
+    }
+
+    Assert.assertEquals(120, count("SELECT COUNT(*) FROM tweets t JOIN tweet_topics tt ON tt.TweetId = t.TweetId"
+      + " JOIN topics p ON p.TopicId = tt.TopicId WHERE p.Topic = 'Israel'"));
+  }
+
+  @Test
+  public void test_rollback_forgets_the_topics_it_added() throws Exception {
+    try (NormalizedTweetSqlWriter writer = new NormalizedTweetSqlWriter(connection, new SqlSinkOptions())) {
+      writer.writeAll(tweets(10));
+      writer.rollback();
+      Assert.assertEquals(0, count("SELECT COUNT(*) FROM topics"));
+
+      // The topics of the rolled back transaction are written again
+      writer.writeAll(tweets(10));
+      writer.commit();
+      Assert.assertEquals(8, count("SELECT COUNT(*) FROM topics"));
+      writer.writeAll(tweets(2));
+    }
+    Assert.assertEquals(10, count("SELECT COUNT(*) FROM tweets"));
+  }
+
+  @Test
+  public void test_tweet_ids_depend_on_content_and_time_only() {
+    SocialMessage message = new SocialMessage("Lana Del Rey cancels Israel show", 1543919460000L);
+    message.setTopics(Arrays.asList("Lana Del Rey", "Israel"));
+    Tweet tweet = Tweet.fromMessage(message);
+    Assert.assertEquals(2, tweet.getTopics().size());
+    Assert.assertEquals(tweet.getTweetId(), Tweet.create(message.getText(), tweet.getTweetTime(), "en", null).getTweetId());
+    Assert.assertNotEquals(tweet.getTweetId(), Tweet.create(message.getText(), new Timestamp(1543919460001L), null, null).getTweetId());
+    Assert.assertEquals(Tweet.topicId("Israel"), Tweet.topicId("Israel"));
+    Assert.assertNotEquals(Tweet.topicId("Israel"), Tweet.topicId("israel"));
+  }
+}
@@ -0,0 +1,175 @@
+package social.pipeline.sql;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import social.pipeline.source.SocialMessage;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class TweetSqlWriterTest {
+
+  private static final String TABLE_DDL = "(UniqueId varchar(37), TweetTime timestamp, Content clob, Language varchar(10), Topic varchar(255))";
+
+  private Connection connection;
+
+  @Before
+  public void setup() throws Exception {
+    connection = DriverManager.getConnection("jdbc:h2:mem:tweets;DB_CLOSE_DELAY=-1");
+    try (Statement statement = connection.createStatement()) {
+      statement.execute("CREATE TABLE tweets " + TABLE_DDL);
+      statement.execute("CREATE TABLE tweets_staging " + TABLE_DDL);
+    }
+  }
+
+  @After
+  public void teardown() throws Exception {
+    try (Statement statement = connection.createStatement()) {
+      statement.execute("DROP ALL OBJECTS");
+    }
+    connection.close();
+  }
+
+  private static List<TweetRow> rows(int count) {
+    List<TweetRow> rows = new ArrayList<>();
+    for (int i = 0; i < count; i++) {
+      rows.add(TweetRow.create("It's tweet " + i + "'); DROP TABLE tweets; --", new Timestamp(1543919460000L + i), "en", "#topic" + i % 7));
+    }
+    return rows;
+  }
+
+  private long count(String table) throws Exception {
+    try (Statement statement = connection.createStatement(); ResultSet result = statement.executeQuery("SELECT COUNT(*) FROM " + table)) {
+      result.next();
+      return result.getLong(1);
+    }
+  }
+
+  @Test
+  public void test_writes_in_batches_and_skips_rows_already_stored() throws Exception {
+    SqlSinkOptions options = new SqlSinkOptions("tweets");
+    options.setBatchSize(100);
+    try (TweetSqlWriter writer = new TweetSqlWriter(connection, options)) {
+      writer.writeAll(rows(250));
+      writer.commit();
+      Assert.assertEquals(250, count("tweets"));
+      Assert.assertEquals(3, writer.getMetrics().getBatches());
+
+      // A replayed micro-batch overlapping the first one, with a row repeated within it
+      List<TweetRow> replay = rows(300);
+      replay.add(replay.get(299));
+      writer.writeAll(replay);
+      writer.commit();
+      Assert.assertEquals(300, count("tweets"));
+      Assert.assertEquals(300, writer.getMetrics().getRowsWritten());
+      Assert.assertEquals(251, writer.getMetrics().getDuplicateRows());
+      Assert.assertEquals(2, writer.getMetrics().getCommits());
+      Assert.assertTrue(writer.getMetrics().getRowsPerSecond() > 0);
+    }
+
+    TweetRow first = rows(1).get(0);
+    try (Statement statement = connection.createStatement();
+         ResultSet result = statement.executeQuery("SELECT Content, TweetTime, Topic FROM tweets WHERE UniqueId = '" + first.getUniqueId() + "'")) {
+      Assert.assertTrue(result.next());
+      Assert.assertEquals(first.getContent(), result.getString(1));
+      Assert.assertEquals(first.getTweetTime(), result.getTimestamp(2));
+      Assert.assertEquals("#topic0", result.getString(3));
+    }
+  }
+
+  /**
+   * The connection, with prepared statements whose batches report {@link Statement#SUCCESS_NO_INFO} for every row
+   */
+  private Connection withoutBatchRowCounts() {
+    return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{Connection.class}, (proxy, method, args) -> {
+      Object result = invoke(connection, method, args);
+      if (!(result instanceof PreparedStatement)) {
+        return result;
+      }
+      PreparedStatement statement = (PreparedStatement) result;
+      return Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{PreparedStatement.class}, (statementProxy, statementMethod, statementArgs) -> {
+        Object statementResult = invoke(statement, statementMethod, statementArgs);
+        if (statementMethod.getName().equals("executeBatch")) {
+          int[] updateCounts = (int[]) statementResult;
+          Arrays.fill(updateCounts, Statement.SUCCESS_NO_INFO);
+        }
+        return statementResult;
+      });
+    });
+  }
+
+  private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+    try {
+      return method.invoke(target, args);
+    } catch (InvocationTargetException e) {
+      throw e.getCause();
+    }
+  }
+
+  @Test
+  public void test_rows_without_a_reported_outcome_are_counted_as_unreported() throws Exception {
+    try (TweetSqlWriter writer = new TweetSqlWriter(withoutBatchRowCounts(), new SqlSinkOptions("tweets"))) {
+      writer.writeAll(rows(10));
+      writer.commit();
+      writer.writeAll(rows(15));
+      writer.commit();
+      Assert.assertEquals(0, writer.getMetrics().getRowsWritten());
+      Assert.assertEquals(0, writer.getMetrics().getDuplicateRows());
+      Assert.assertEquals(25, writer.getMetrics().getUnreportedRows());
+    }
+    Assert.assertEquals(15, count("tweets"));
+  }
+
+  @Test
+  public void test_rollback_and_close_drop_uncommitted_rows() throws Exception {
+    try (TweetSqlWriter writer = new TweetSqlWriter(connection, new SqlSinkOptions("tweets"))) {
+      writer.writeAll(rows(10));
+      writer.rollback();
+      writer.writeAll(rows(5));
+      Assert.assertEquals(1, writer.getMetrics().getRollbacks());
+    }
+    Assert.assertEquals(0, count("tweets"));
+  }
+
+  @Test
+  public void test_bulk_copy_goes_through_the_staging_table() throws Exception {
+    SqlSinkOptions options = new SqlSinkOptions("tweets");
+    options.setBulkCopy(true);
+    options.setStagingTableName("tweets_staging");
+    options.setBatchSize(64);
+    try (TweetSqlWriter writer = new TweetSqlWriter(connection, options)) {
+      writer.writeAll(rows(100));
+      writer.commit();
+      writer.writeAll(rows(150));
+      writer.commit();
+      Assert.assertEquals(150, writer.getMetrics().getRowsWritten());
+      Assert.assertEquals(100, writer.getMetrics().getDuplicateRows());
+    }
+    Assert.assertEquals(150, count("tweets"));
+    Assert.assertEquals(0, count("tweets_staging"));
+  }
+
+  @Test
+  public void test_rows_of_a_message_have_stable_ids() {
+    SocialMessage message = new SocialMessage("Lana Del Rey cancels Israel show", 1543919460000L);
+    message.setLang("en");
+    message.setTopics(Arrays.asList("Lana Del Rey", "Israel"));
+    List<TweetRow> rows = TweetRow.fromMessage(message);
+    Assert.assertEquals(2, rows.size());
+    Assert.assertEquals("Israel", rows.get(1).getTopic());
+    Assert.assertNotEquals(rows.get(0).getUniqueId(), rows.get(1).getUniqueId());
+    Assert.assertEquals(rows.get(0).getUniqueId(), TweetRow.fromMessage(message).get(0).getUniqueId());
+  }
+}
@@ -0,0 +1,214 @@
+package social.pipeline.detection;
+
+import social.pipeline.text.TextNormalizer;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Sliding window topic counter in bounded memory, for streams with too many distinct topics to
+ * count exactly. It reports the same alerts as {@link SlidingWindowCounter}, with approximate counts.
+ * <p>
+ * Each pane keeps a {@link CountMinSketch} of the mentions of all its topics and a {@link SpaceSaving}
+ * summary of its topK most mentioned ones, and the window keeps the sum of the pane sketches.
+ * When a window closes, the topics of the pane summaries are the candidates, and the count of each is
+ * the smallest of two upper bounds: the window sketch estimate, and the sum of the pane summary bounds.
+ * <p>
+ * Error bounds, with N the mentions in the window and n the most mentions in one of its panes:
+ * <ul>
+ * <li>a reported count is never below the true count, and exceeds it by at most epsilon * N with
+ * probability at least confidence, so a topic may be reported up to epsilon * N mentions early;</li>
+ * <li>a topic mentioned at least threshold times is reported if threshold exceeds panes * n / topK,
+ * since it then has more than n / topK mentions in one of the panes and so is in its summary.</li>
+ * </ul>
+ * Memory is panes + 1 sketches of width * depth longs plus panes summaries of topK topics, whatever
+ * the number of topics. Counters with the same settings can be {@link #merge merged}, e.g. across
+ * partitions. Instances are not thread safe.
+ */
+public class ApproximateWindowCounter implements TopicWindowCounter {
+
+  private static final long serialVersionUID = 1L;
+  private static final long NO_PANE = Long.MIN_VALUE;
+
+  private final long windowMillis;
+  private final long paneMillis;
+  private final long threshold;
+
+  private final CountMinSketch[] paneSketches;
+  private final SpaceSaving[] paneTopics;
+  private final long[] paneStarts;
+  private final CountMinSketch windowSketch;
+
+  private long currentPane = NO_PANE;
+  private long lateEvents;
+
+  /**
+   * @param epsilon    maximum overestimate of a count as a fraction of the mentions in the window
+   * @param confidence probability that a count is within the epsilon bound
+   * @param topK       topics tracked per pane
+   */
+  public ApproximateWindowCounter(long windowMillis, long paneMillis, long threshold,
+                                  double epsilon, double confidence, int topK) {
+    if (paneMillis <= 0 || windowMillis < paneMillis || windowMillis % paneMillis != 0) {
+      throw new IllegalArgumentException("Window of " + windowMillis + " ms is not a multiple of the " + paneMillis + " ms pane");
+    }
+    this.windowMillis = windowMillis;
+    this.paneMillis = paneMillis;
+    this.threshold = threshold;
+    int panes = (int) (windowMillis / paneMillis);
+    this.paneSketches = new CountMinSketch[panes];
+    this.paneTopics = new SpaceSaving[panes];
+    this.paneStarts = new long[panes];
+    for (int i = 0; i < panes; i++) {
+      paneSketches[i] = CountMinSketch.withError(epsilon, confidence);
+      paneTopics[i] = new SpaceSaving(topK);
+      paneStarts[i] = NO_PANE;
+    }
+    this.windowSketch = CountMinSketch.withError(epsilon, confidence);
+  }
+
+  @Override
+  public List<TopicAlert> add(String topic, long timestamp, long count) {
+    if (count <= 0) {
+      throw new IllegalArgumentException("Count must be positive: " + count);
+    }
+    long pane = paneStart(timestamp);
+    List<TopicAlert> alerts = advance(pane);
+    if (pane <= currentPane - windowMillis) {
+      lateEvents++;
+      return alerts;
+    }
+    int index = index(pane);
+    long hash = TextNormalizer.hash(topic);
+    paneStarts[index] = pane;
+    paneSketches[index].add(hash, count);
+    paneTopics[index].offer(topic, count);
+    windowSketch.add(hash, count);
+    return alerts;
+  }
+
+  @Override
+  public List<TopicAlert> advanceTo(long time) {
+    return advance(paneStart(time));
+  }
+
+  /**
+   * Adds the counts of a counter with the same settings, e.g. of another partition of the stream.
+   * This counter first moves forward to the newest pane of the other; panes of the other that
+   * are older than the window are ignored.
+   *
+   * @return the alerts of the windows closed by moving forward, empty if none
+   */
+  public List<TopicAlert> merge(ApproximateWindowCounter other) {
+    if (other.windowMillis != windowMillis || other.paneMillis != paneMillis || other.paneTopics[0].getCapacity() != paneTopics[0].getCapacity()) {
+      throw new IllegalArgumentException("Cannot merge counters with different settings");
+    }
+    List<TopicAlert> alerts = advance(other.currentPane);
+    for (int i = 0; i < other.paneStarts.length; i++) {
+      long pane = other.paneStarts[i];
+      if (pane == NO_PANE || pane <= currentPane - windowMillis) {
+        continue;
+      }
+      int index = index(pane);
+      paneStarts[index] = pane;
+      paneSketches[index].merge(other.paneSketches[i]);
+      paneTopics[index].merge(other.paneTopics[i]);
+      windowSketch.merge(other.paneSketches[i]);
+    }
+    return alerts;
+  }
+
+  private List<TopicAlert> advance(long pane) {
+    if (pane <= currentPane) {
+      return Collections.emptyList();
+    }
+    if (currentPane == NO_PANE) {
+      currentPane = pane;
+      return Collections.emptyList();
+    }
+
+    List<TopicAlert> alerts = new ArrayList<>();
+    Set<String> candidates = new LinkedHashSet<>();
+    while (currentPane < pane) {
+      long windowEnd = currentPane + paneMillis;
+      candidates.clear();
+      for (SpaceSaving topics : paneTopics) {
+        topics.forEach((topic, count, error) -> candidates.add(topic));
+      }
+      for (String topic : candidates) {
+        long count = count(topic);
+        if (count >= threshold) {
+          alerts.add(new TopicAlert(windowEnd - windowMillis, windowEnd, topic, count));
+        }
+      }
+
+      // The slot of the new pane holds the pane falling out of the window
+      currentPane = windowEnd;
+      int expired = index(currentPane);
+      windowSketch.subtract(paneSketches[expired]);
+      paneSketches[expired].clear();
+      paneTopics[expired].clear();
+      paneStarts[expired] = NO_PANE;
+
+      if (windowSketch.getTotal() == 0) {
+        // Nothing left to count, skip the empty windows in between
+        currentPane = pane;
+      }
+    }
+    return alerts;
+  }
+
+  private long paneStart(long timestamp) {
+    return Math.floorDiv(timestamp, paneMillis) * paneMillis;
+  }
+
+  private int index(long pane) {
+    return (int) Math.floorMod(pane / paneMillis, (long) paneStarts.length);
+  }
+
+  /**
+   * Upper bound of the count of the topic in the current window, see the class comment for its error
+   */
+  @Override
+  public long count(String topic) {
+    long summaryBound = 0;
+    for (SpaceSaving topics : paneTopics) {
+      summaryBound += topics.upperBound(topic);
+    }
+    return Math.min(windowSketch.estimate(TextNormalizer.hash(topic)), summaryBound);
+  }
+
+  @Override
+  public long getCurrentPaneStart() {
+    return currentPane;
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return windowSketch.getTotal() == 0;
+  }
+
+  /**
+   * Mentions counted in the current window
+   */
+  public long getTotal() {
+    return windowSketch.getTotal();
+  }
+
+  /**
+   * Events dropped because they were older than the window
+   */
+  public long getLateEvents() {
+    return lateEvents;
+  }
+
+  /**
+   * Memory held by the sketches, the bulk of the memory of the counter
+   */
+  public long memoryBytes() {
+    return windowSketch.memoryBytes() * (paneSketches.length + 1);
+  }
+}
@@ -0,0 +1,49 @@
+package social.pipeline.detection;
+
+import com.google.gson.JsonObject;
+
+/**
+ * A topic mentioned far more often than usual within a pane. Serialized as a {@link TopicAlert}
+ * over the pane, with the usual count of the topic per pane as "baseline" and the number of
+ * standard deviations above it as "zScore".
+ */
+public class BurstAlert extends TopicAlert {
+
+  private static final long serialVersionUID = 1L;
+
+  private double baseline;
+  private double zScore;
+
+  public BurstAlert() {
+  }
+
+  public BurstAlert(long windowStart, long windowEnd, String topic, long count, double baseline, double zScore) {
+    super(windowStart, windowEnd, topic, count);
+    this.baseline = baseline;
+    this.zScore = zScore;
+  }
+
+  @Override
+  protected JsonObject toJsonObject() {
+    JsonObject json = super.toJsonObject();
+    json.addProperty("baseline", baseline);
+    json.addProperty("zScore", zScore);
+    return json;
+  }
+
+  public double getBaseline() {
+    return baseline;
+  }
+
+  public void setBaseline(double baseline) {
+    this.baseline = baseline;
+  }
+
+  public double getZScore() {
+    return zScore;
+  }
+
+  public void setZScore(double zScore) {
+    this.zScore = zScore;
+  }
+}
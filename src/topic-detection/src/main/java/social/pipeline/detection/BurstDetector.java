@@ -0,0 +1,200 @@
+package social.pipeline.detection;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * Alerts on topics mentioned far more often than usual, instead of more often than one fixed threshold.
+ * <p>
+ * Each topic has a baseline: the exponentially weighted moving average and variance of its mentions
+ * per pane. The mentions of the current pane are compared to it as they arrive, and the topic alerts
+ * once per pane when they reach zThreshold standard deviations above the average and at least
+ * minCount. The deviation is floored at the square root of the average, as for Poisson counts, and at
+ * 1, so a topic with a flat baseline does not alert on a handful of mentions. A topic seen for the
+ * first time has an empty baseline: it alerts as soon as it reaches minCount mentions within a pane.
+ * <p>
+ * The state of a topic lives in primitive arrays indexed by its interned id and is only touched by the
+ * mentions of that topic: the panes a topic was not mentioned in are folded into its baseline as zeros
+ * on its next mention, so an update costs the same whatever the number of topics. The state is bounded
+ * by maxTopics: a new topic beyond it replaces the least recently mentioned of a small sample of topics.
+ * {@link #evictIdle} forgets the topics not mentioned for idleMillis. Instances are not thread safe;
+ * they are serializable so they can be kept as Spark group state.
+ */
+public class BurstDetector implements Serializable {
+
+  private static final long serialVersionUID = 1L;
+  private static final int EVICTION_SAMPLE = 16;
+  private static final int MAX_IDLE_FOLDS = 128;
+  private static final long NO_PANE = Long.MIN_VALUE;
+
+  private final BurstDetectorOptions options;
+  private final TopicIds topics = new TopicIds();
+
+  private double[] means;
+  private double[] variances;
+  private long[] counts;
+  private long[] panes;
+  private long[] alertedPanes;
+
+  private int evictionHand;
+  private long evictions;
+  private long lateEvents;
+
+  public BurstDetector(BurstDetectorOptions options) {
+    if (options.getMaxTopics() <= 0 || options.getPaneMillis() <= 0 || options.getAlpha() <= 0 || options.getAlpha() > 1) {
+      throw new IllegalArgumentException("Invalid burst detector options");
+    }
+    this.options = options;
+    allocate(Math.min(options.getMaxTopics(), 1024));
+  }
+
+  private void allocate(int size) {
+    means = means == null ? new double[size] : Arrays.copyOf(means, size);
+    variances = variances == null ? new double[size] : Arrays.copyOf(variances, size);
+    counts = counts == null ? new long[size] : Arrays.copyOf(counts, size);
+    panes = panes == null ? new long[size] : Arrays.copyOf(panes, size);
+    alertedPanes = alertedPanes == null ? new long[size] : Arrays.copyOf(alertedPanes, size);
+  }
+
+  public BurstAlert add(String topic, long timestamp) {
+    return add(topic, timestamp, 1);
+  }
+
+  /**
+   * Counts mentions of the topic at the given time
+   *
+   * @return the alert if the mentions make the topic burst in their pane for the first time, null otherwise
+   */
+  public BurstAlert add(String topic, long timestamp, long count) {
+    long pane = Math.floorDiv(timestamp, options.getPaneMillis());
+    int id = topics.find(topic);
+    if (id < 0) {
+      id = newTopic(topic, pane);
+    } else if (pane > panes[id]) {
+      fold(id, pane);
+    } else if (pane < panes[id]) {
+      // The baseline already moved past this pane
+      lateEvents++;
+      return null;
+    }
+
+    counts[id] += count;
+    if (alertedPanes[id] == pane || counts[id] < options.getMinCount()) {
+      return null;
+    }
+    double mean = means[id];
+    double zScore = (counts[id] - mean) / Math.sqrt(Math.max(Math.max(variances[id], mean), 1));
+    if (zScore < options.getZThreshold()) {
+      return null;
+    }
+    alertedPanes[id] = pane;
+    long paneStart = pane * options.getPaneMillis();
+    return new BurstAlert(paneStart, paneStart + options.getPaneMillis(), topic, counts[id], mean, zScore);
+  }
+
+  private int newTopic(String topic, long pane) {
+    if (topics.size() >= options.getMaxTopics()) {
+      evictOne();
+    }
+    int id = topics.id(topic);
+    if (id >= means.length) {
+      allocate((int) Math.min((long) means.length * 2, options.getMaxTopics()));
+    }
+    means[id] = 0;
+    variances[id] = 0;
+    counts[id] = 0;
+    panes[id] = pane;
+    alertedPanes[id] = NO_PANE;
+    return id;
+  }
+
+  /**
+   * Folds the finished pane of the topic and the panes without mentions since into its baseline
+   */
+  private void fold(int id, long pane) {
+    update(id, counts[id]);
+    long idle = Math.min(pane - panes[id] - 1, MAX_IDLE_FOLDS);
+    for (long i = 0; i < idle; i++) {
+      update(id, 0);
+    }
+    counts[id] = 0;
+    panes[id] = pane;
+  }
+
+  private void update(int id, double value) {
+    double alpha = options.getAlpha();
+    double diff = value - means[id];
+    double increment = alpha * diff;
+    means[id] += increment;
+    variances[id] = (1 - alpha) * (variances[id] + diff * increment);
+  }
+
+  /**
+   * Forgets the least recently mentioned topic of a sample, as an approximation of the least recently mentioned one
+   */
+  private void evictOne() {
+    int capacity = topics.capacity();
+    int victim = -1;
+    for (int i = 0; i < EVICTION_SAMPLE || victim < 0; i++) {
+      int id = evictionHand;
+      evictionHand = evictionHand + 1 == capacity ? 0 : evictionHand + 1;
+      if (topics.topic(id) != null && (victim < 0 || panes[id] < panes[victim]
+        || (panes[id] == panes[victim] && means[id] < means[victim]))) {
+        victim = id;
+      }
+    }
+    topics.release(victim);
+    evictions++;
+  }
+
+  /**
+   * Forgets the topics not mentioned for idleMillis before the given time
+   *
+   * @return the number of topics forgotten
+   */
+  public int evictIdle(long time) {
+    long oldestPane = Math.floorDiv(time - options.getIdleMillis(), options.getPaneMillis());
+    int evicted = 0;
+    for (int id = 0; id < topics.capacity(); id++) {
+      if (topics.topic(id) != null && panes[id] < oldestPane) {
+        topics.release(id);
+        evicted++;
+      }
+    }
+    evictions += evicted;
+    return evicted;
+  }
+
+  /**
+   * Average mentions of the topic per pane, up to its last finished pane, 0 if it has no baseline
+   */
+  public double getBaseline(String topic) {
+    int id = topics.find(topic);
+    return id < 0 ? 0 : means[id];
+  }
+
+  /**
+   * Number of topics with a baseline
+   */
+  public int getTopicCount() {
+    return topics.size();
+  }
+
+  /**
+   * Topics forgotten to stay within maxTopics or because they were idle
+   */
+  public long getEvictions() {
+    return evictions;
+  }
+
+  /**
+   * Mentions dropped because they were older than the latest pane of their topic
+   */
+  public long getLateEvents() {
+    return lateEvents;
+  }
+
+  public BurstDetectorOptions getOptions() {
+    return options;
+  }
+}
@@ -0,0 +1,84 @@
+package social.pipeline.detection;
+
+import java.io.Serializable;
+
+/**
+ * Sensitivity and state bounds of a {@link BurstDetector}
+ */
+public class BurstDetectorOptions implements Serializable {
+
+  private static final long serialVersionUID = 1L;
+
+  private long paneMillis = 60_000L;
+  private double alpha = 0.1;
+  private double zThreshold = 4;
+  private long minCount = 5;
+  private int maxTopics = 100_000;
+  private long idleMillis = 6 * 60 * 60 * 1000L;
+
+  /**
+   * Interval the mentions of a topic are counted over and compared to its baseline
+   */
+  public long getPaneMillis() {
+    return paneMillis;
+  }
+
+  public void setPaneMillis(long paneMillis) {
+    this.paneMillis = paneMillis;
+  }
+
+  /**
+   * Weight of the latest pane in the moving average and variance, higher adapts faster
+   */
+  public double getAlpha() {
+    return alpha;
+  }
+
+  public void setAlpha(double alpha) {
+    this.alpha = alpha;
+  }
+
+  /**
+   * Standard deviations above its baseline a pane count must reach to alert
+   */
+  public double getZThreshold() {
+    return zThreshold;
+  }
+
+  public void setZThreshold(double zThreshold) {
+    this.zThreshold = zThreshold;
+  }
+
+  /**
+   * Mentions within a pane a topic needs before it can alert, whatever its baseline
+   */
+  public long getMinCount() {
+    return minCount;
+  }
+
+  public void setMinCount(long minCount) {
+    this.minCount = minCount;
+  }
+
+  /**
+   * Maximum number of topics with a baseline, the least recently mentioned are evicted beyond it
+   */
+  public int getMaxTopics() {
+    return maxTopics;
+  }
+
+  public void setMaxTopics(int maxTopics) {
+    this.maxTopics = maxTopics;
+  }
+
+  /**
+   * Time without mentions after which {@link BurstDetector#evictIdle} forgets a topic
+   */
+  public long getIdleMillis() {
+    return idleMillis;
+  }
+
+  public void setIdleMillis(long idleMillis) {
+    this.idleMillis = idleMillis;
+  }
+}
@@ -0,0 +1,136 @@
+package social.pipeline.detection;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * Count-Min sketch of counts keyed on 64 bit hashes, in depth rows of width counters.
+ * <p>
+ * An estimate never underestimates and, with probability at least 1 - e^-depth, overestimates by at
+ * most e / width times the total count. Sketches of the same dimensions are linear: they can be
+ * merged by addition, e.g. across partitions, and subtracted, e.g. to remove an expired pane.
+ */
+public class CountMinSketch implements Serializable {
+
+  private static final long serialVersionUID = 1L;
+
+  private final int width;
+  private final int depth;
+  private final int mask;
+  private final long[] counters;
+  private long total;
+
+  /**
+   * @param width counters per row, rounded up to a power of two
+   * @param depth number of rows, one hash function each
+   */
+  public CountMinSketch(int width, int depth) {
+    if (width <= 0 || depth <= 0) {
+      throw new IllegalArgumentException("Invalid sketch dimensions " + width + "x" + depth);
+    }
+    this.width = Integer.highestOneBit(width * 2 - 1);
+    this.depth = depth;
+    this.mask = this.width - 1;
+    this.counters = new long[this.width * depth];
+  }
+
+  /**
+   * Smallest sketch overestimating by at most epsilon times the total count with the given probability
+   */
+  public static CountMinSketch withError(double epsilon, double confidence) {
+    if (epsilon <= 0 || confidence <= 0 || confidence >= 1) {
+      throw new IllegalArgumentException("Invalid error bounds " + epsilon + ", " + confidence);
+    }
+    int width = (int) Math.ceil(Math.E / epsilon);
+    int depth = (int) Math.ceil(-Math.log(1 - confidence));
+    return new CountMinSketch(width, depth);
+  }
+
+  public void add(long hash, long count) {
+    int h1 = (int) hash;
+    int h2 = (int) (hash >>> 32) | 1;
+    for (int row = 0; row < depth; row++) {
+      counters[row * width + ((h1 + row * h2) & mask)] += count;
+    }
+    total += count;
+  }
+
+  public long estimate(long hash) {
+    int h1 = (int) hash;
+    int h2 = (int) (hash >>> 32) | 1;
+    long estimate = Long.MAX_VALUE;
+    for (int row = 0; row < depth; row++) {
+      estimate = Math.min(estimate, counters[row * width + ((h1 + row * h2) & mask)]);
+    }
+    return estimate;
+  }
+
+  /**
+   * Adds the counts of a sketch of the same dimensions
+   */
+  public void merge(CountMinSketch other) {
+    checkCompatible(other);
+    for (int i = 0; i < counters.length; i++) {
+      counters[i] += other.counters[i];
+    }
+    total += other.total;
+  }
+
+  /**
+   * Removes the counts of a sketch of the same dimensions that were merged or added into this one
+   */
+  public void subtract(CountMinSketch other) {
+    checkCompatible(other);
+    for (int i = 0; i < counters.length; i++) {
+      counters[i] -= other.counters[i];
+    }
+    total -= other.total;
+  }
+
+  private void checkCompatible(CountMinSketch other) {
+    if (other.width != width || other.depth != depth) {
+      throw new IllegalArgumentException("Cannot combine a " + other.width + "x" + other.depth
+        + " sketch with a " + width + "x" + depth + " sketch");
+    }
+  }
+
+  public void clear() {
+    if (total != 0) {
+      Arrays.fill(counters, 0);
+      total = 0;
+    }
+  }
+
+  /**
+   * Sum of all counts added
+   */
+  public long getTotal() {
+    return total;
+  }
+
+  /**
+   * Maximum overestimate as a fraction of the total count, e / width
+   */
+  public double getEpsilon() {
+    return Math.E / width;
+  }
+
+  /**
+   * Probability that an estimate exceeds the epsilon bound, e^-depth
+   */
+  public double getDelta() {
+    return Math.exp(-depth);
+  }
+
+  public int getWidth() {
+    return width;
+  }
+
+  public int getDepth() {
+    return depth;
+  }
+
+  public long memoryBytes() {
+    return (long) counters.length * Long.BYTES;
+  }
+}
@@ -0,0 +1,162 @@
+package social.pipeline.detection;
+
+import social.pipeline.text.TextNormalizer;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * Open addressing map of non-negative int keys to long counts with linear probing and no boxing.
+ * An entry whose count drops to 0 is removed, so the map only holds live counts. Removal shifts
+ * the following entries back instead of leaving tombstones, the table grows when half full.
+ */
+public class IntLongMap implements Serializable {
+
+  private static final long serialVersionUID = 1L;
+  private static final int FREE = -1;
+
+  private int[] keys;
+  private long[] values;
+  private int mask;
+  private int size;
+
+  /**
+   * Receives the entries of the map, see {@link #forEach}
+   */
+  public interface EntryConsumer {
+    void accept(int key, long value);
+  }
+
+  public IntLongMap() {
+    this(16);
+  }
+
+  public IntLongMap(int expectedSize) {
+    allocate(Integer.highestOneBit(Math.max(expectedSize, 4) * 2 - 1) << 1);
+  }
+
+  private void allocate(int slots) {
+    keys = new int[slots];
+    values = new long[slots];
+    mask = slots - 1;
+    Arrays.fill(keys, FREE);
+  }
+
+  /**
+   * @return the count of the key, 0 if absent
+   */
+  public long get(int key) {
+    int slot = find(key);
+    return keys[slot] == FREE ? 0 : values[slot];
+  }
+
+  /**
+   * Adds delta to the count of the key, removing the entry if it becomes 0
+   *
+   * @return the new count
+   */
+  public long add(int key, long delta) {
+    if (key < 0) {
+      throw new IllegalArgumentException("Negative key " + key);
+    }
+    int slot = find(key);
+    if (keys[slot] == FREE) {
+      if (delta == 0) {
+        return 0;
+      }
+      if ((size + 1) * 2 > keys.length) {
+        grow();
+        slot = find(key);
+      }
+      keys[slot] = key;
+      values[slot] = delta;
+      size++;
+      return delta;
+    }
+    long value = values[slot] + delta;
+    if (value == 0) {
+      delete(slot);
+    } else {
+      values[slot] = value;
+    }
+    return value;
+  }
+
+  /**
+   * @return the count the key had, 0 if absent
+   */
+  public long remove(int key) {
+    int slot = find(key);
+    if (keys[slot] == FREE) {
+      return 0;
+    }
+    long value = values[slot];
+    delete(slot);
+    return value;
+  }
+
+  public void forEach(EntryConsumer consumer) {
+    for (int slot = 0; slot < keys.length; slot++) {
+      if (keys[slot] != FREE) {
+        consumer.accept(keys[slot], values[slot]);
+      }
+    }
+  }
+
+  public int size() {
+    return size;
+  }
+
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  public void clear() {
+    if (size > 0) {
+      Arrays.fill(keys, FREE);
+      Arrays.fill(values, 0);
+      size = 0;
+    }
+  }
+
+  private int find(int key) {
+    int slot = slot(key);
+    while (keys[slot] != FREE && keys[slot] != key) {
+      slot = (slot + 1) & mask;
+    }
+    return slot;
+  }
+
+  private int slot(int key) {
+    return (int) TextNormalizer.mix(key) & mask;
+  }
+
+  private void delete(int slot) {
+    size--;
+    int gap = slot;
+    for (int next = (gap + 1) & mask; keys[next] != FREE; next = (next + 1) & mask) {
+      // An entry can fill the gap unless its home slot lies cyclically between the gap and itself
+      int home = slot(keys[next]);
+      if (((next - home) & mask) >= ((next - gap) & mask)) {
+        keys[gap] = keys[next];
+        values[gap] = values[next];
+        gap = next;
+      }
+    }
+    keys[gap] = FREE;
+    values[gap] = 0;
+  }
+
+  private void grow() {
+    int[] oldKeys = keys;
+    long[] oldValues = values;
+    allocate(keys.length * 2);
+    for (int slot = 0; slot < oldKeys.length; slot++) {
+      if (oldKeys[slot] != FREE) {
+        int target = find(oldKeys[slot]);
+        keys[target] = oldKeys[slot];
+        values[target] = oldValues[slot];
+      }
+    }
+  }
+}
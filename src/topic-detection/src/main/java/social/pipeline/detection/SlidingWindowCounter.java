@@ -0,0 +1,163 @@
+package social.pipeline.detection;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Counts topic mentions over a window sliding by one pane, e.g. 10 minutes sliding every minute,
+ * and reports the topics mentioned at least threshold times in each window as it closes.
+ * <p>
+ * The window is a ring of per-pane counts plus the running total of the whole window, each a
+ * primitive map keyed on topic id. An event is added to its pane and to the total, and when time
+ * moves past the end of the newest pane the window closes: its alerts are read from the total and
+ * the oldest pane is subtracted from it and cleared for reuse. Adding an event costs the same
+ * whatever the number of topics; each window close costs one pass over the topics of the window.
+ * <p>
+ * Time moves forward with the event timestamps or explicitly with {@link #advanceTo}, e.g. from
+ * a Spark watermark. Events older than the window are dropped and counted as late. Events for a pane
+ * that has already closed count only toward the windows that are still open. Instances are not thread
+ * safe; they are serializable so they can be kept as Spark group state.
+ */
+public class SlidingWindowCounter implements TopicWindowCounter {
+
+  private static final long serialVersionUID = 1L;
+  private static final long NO_PANE = Long.MIN_VALUE;
+
+  private final long windowMillis;
+  private final long paneMillis;
+  private final long threshold;
+
+  private final TopicIds topics = new TopicIds();
+  private final IntLongMap[] panes;
+  private final IntLongMap totals = new IntLongMap();
+
+  private long currentPane = NO_PANE;
+  private long lateEvents;
+
+  /**
+   * @param windowMillis length of a window, a multiple of paneMillis
+   * @param paneMillis   slide of the window, also the granularity of the counts
+   * @param threshold    minimum count of a topic in a window to report it
+   */
+  public SlidingWindowCounter(long windowMillis, long paneMillis, long threshold) {
+    if (paneMillis <= 0 || windowMillis < paneMillis || windowMillis % paneMillis != 0) {
+      throw new IllegalArgumentException("Window of " + windowMillis + " ms is not a multiple of the " + paneMillis + " ms pane");
+    }
+    this.windowMillis = windowMillis;
+    this.paneMillis = paneMillis;
+    this.threshold = threshold;
+    this.panes = new IntLongMap[(int) (windowMillis / paneMillis)];
+    for (int i = 0; i < panes.length; i++) {
+      panes[i] = new IntLongMap();
+    }
+  }
+
+  @Override
+  public List<TopicAlert> add(String topic, long timestamp, long count) {
+    if (count <= 0) {
+      throw new IllegalArgumentException("Count must be positive: " + count);
+    }
+    long pane = paneStart(timestamp);
+    List<TopicAlert> alerts = advance(pane);
+    if (pane <= currentPane - windowMillis) {
+      lateEvents++;
+      return alerts;
+    }
+    int id = topics.id(topic);
+    panes[index(pane)].add(id, count);
+    totals.add(id, count);
+    return alerts;
+  }
+
+  @Override
+  public List<TopicAlert> advanceTo(long time) {
+    return advance(paneStart(time));
+  }
+
+  private List<TopicAlert> advance(long pane) {
+    if (pane <= currentPane) {
+      return Collections.emptyList();
+    }
+    if (currentPane == NO_PANE) {
+      currentPane = pane;
+      return Collections.emptyList();
+    }
+
+    List<TopicAlert> alerts = new ArrayList<>();
+    while (currentPane < pane) {
+      long windowEnd = currentPane + paneMillis;
+      totals.forEach((id, count) -> {
+        if (count >= threshold) {
+          alerts.add(new TopicAlert(windowEnd - windowMillis, windowEnd, topics.topic(id), count));
+        }
+      });
+
+      // The slot of the new pane holds the pane falling out of the window
+      currentPane = windowEnd;
+      IntLongMap expired = panes[index(currentPane)];
+      expired.forEach((id, count) -> {
+        if (totals.add(id, -count) == 0) {
+          topics.release(id);
+        }
+      });
+      expired.clear();
+
+      if (totals.isEmpty()) {
+        // Nothing left to count, skip the empty windows in between
+        currentPane = pane;
+      }
+    }
+    return alerts;
+  }
+
+  private long paneStart(long timestamp) {
+    return Math.floorDiv(timestamp, paneMillis) * paneMillis;
+  }
+
+  private int index(long pane) {
+    return (int) Math.floorMod(pane / paneMillis, (long) panes.length);
+  }
+
+  @Override
+  public long count(String topic) {
+    int id = topics.find(topic);
+    return id < 0 ? 0 : totals.get(id);
+  }
+
+  /**
+   * Number of distinct topics in the current window
+   */
+  public int getTopicCount() {
+    return totals.size();
+  }
+
+  @Override
+  public long getCurrentPaneStart() {
+    return currentPane;
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return totals.isEmpty();
+  }
+
+  /**
+   * Events dropped because they were older than the window
+   */
+  public long getLateEvents() {
+    return lateEvents;
+  }
+
+  public long getWindowMillis() {
+    return windowMillis;
+  }
+
+  public long getPaneMillis() {
+    return paneMillis;
+  }
+
+  public long getThreshold() {
+    return threshold;
+  }
+}
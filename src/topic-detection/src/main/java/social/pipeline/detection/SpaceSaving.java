@@ -0,0 +1,224 @@
+package social.pipeline.detection;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Space-Saving summary of the most frequent topics of a stream, holding at most capacity topics.
+ * <p>
+ * When a new topic arrives and the summary is full, it replaces the topic with the smallest count
+ * and inherits that count as its error. Every topic mentioned more than total / capacity times is
+ * in the summary, and the count of a topic overestimates its true count by at most its error,
+ * itself at most total / capacity. Summaries merge as described by Agarwal et al. "Mergeable
+ * summaries" with the same bounds over the merged stream. The counts are kept in a min-heap, an
+ * update costs O(log capacity).
+ */
+public class SpaceSaving implements Serializable {
+
+  private static final long serialVersionUID = 1L;
+
+  private final int capacity;
+  private final Map<String, Integer> slots;
+  private final String[] topics;
+  private final long[] counts;
+  private final long[] errors;
+  private final int[] heap;
+  private final int[] heapIndex;
+  private int size;
+  private long total;
+
+  /**
+   * Receives the topics of the summary, see {@link #forEach}
+   */
+  public interface TopicConsumer {
+    void accept(String topic, long count, long error);
+  }
+
+  public SpaceSaving(int capacity) {
+    if (capacity <= 0) {
+      throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+    }
+    this.capacity = capacity;
+    this.slots = new HashMap<>(capacity * 2);
+    this.topics = new String[capacity];
+    this.counts = new long[capacity];
+    this.errors = new long[capacity];
+    this.heap = new int[capacity];
+    this.heapIndex = new int[capacity];
+  }
+
+  public void offer(String topic, long count) {
+    total += count;
+    Integer slot = slots.get(topic);
+    if (slot != null) {
+      counts[slot] += count;
+      siftDown(heapIndex[slot]);
+    } else if (size < capacity) {
+      insert(topic, count, 0);
+    } else {
+      int min = heap[0];
+      slots.remove(topics[min]);
+      slots.put(topic, min);
+      topics[min] = topic;
+      errors[min] = counts[min];
+      counts[min] += count;
+      siftDown(0);
+    }
+  }
+
+  private void insert(String topic, long count, long error) {
+    int slot = size++;
+    slots.put(topic, slot);
+    topics[slot] = topic;
+    counts[slot] = count;
+    errors[slot] = error;
+    heap[slot] = slot;
+    heapIndex[slot] = slot;
+    siftUp(slot);
+  }
+
+  /**
+   * @return the estimated count of the topic, 0 if it is not in the summary
+   */
+  public long count(String topic) {
+    Integer slot = slots.get(topic);
+    return slot != null ? counts[slot] : 0;
+  }
+
+  /**
+   * @return the maximum overestimate of the count of the topic, 0 if it is not in the summary
+   */
+  public long error(String topic) {
+    Integer slot = slots.get(topic);
+    return slot != null ? errors[slot] : 0;
+  }
+
+  /**
+   * Upper bound of the true count of any topic, whether it is in the summary or not
+   */
+  public long upperBound(String topic) {
+    Integer slot = slots.get(topic);
+    return slot != null ? counts[slot] : minCount();
+  }
+
+  /**
+   * Upper bound of the true count of the topics not in the summary, 0 until it is full
+   */
+  public long minCount() {
+    return size < capacity ? 0 : counts[heap[0]];
+  }
+
+  /**
+   * Merges the topics of another summary, keeping the capacity most frequent of both
+   */
+  public void merge(SpaceSaving other) {
+    long thisMin = minCount();
+    long otherMin = other.minCount();
+    List<String> mergedTopics = new ArrayList<>(size + other.size);
+    List<long[]> mergedCounts = new ArrayList<>(size + other.size);
+    for (int slot = 0; slot < size; slot++) {
+      Integer otherSlot = other.slots.get(topics[slot]);
+      long count = counts[slot] + (otherSlot != null ? other.counts[otherSlot] : otherMin);
+      long error = errors[slot] + (otherSlot != null ? other.errors[otherSlot] : otherMin);
+      mergedTopics.add(topics[slot]);
+      mergedCounts.add(new long[]{count, error});
+    }
+    for (int slot = 0; slot < other.size; slot++) {
+      if (!slots.containsKey(other.topics[slot])) {
+        mergedTopics.add(other.topics[slot]);
+        mergedCounts.add(new long[]{other.counts[slot] + thisMin, other.errors[slot] + thisMin});
+      }
+    }
+
+    long mergedTotal = total + other.total;
+    clear();
+    total = mergedTotal;
+    for (int i = 0; i < mergedTopics.size(); i++) {
+      long[] entry = mergedCounts.get(i);
+      if (size < capacity) {
+        insert(mergedTopics.get(i), entry[0], entry[1]);
+      } else if (entry[0] > counts[heap[0]]) {
+        int min = heap[0];
+        slots.remove(topics[min]);
+        slots.put(mergedTopics.get(i), min);
+        topics[min] = mergedTopics.get(i);
+        counts[min] = entry[0];
+        errors[min] = entry[1];
+        siftDown(0);
+      }
+    }
+  }
+
+  public void forEach(TopicConsumer consumer) {
+    for (int slot = 0; slot < size; slot++) {
+      consumer.accept(topics[slot], counts[slot], errors[slot]);
+    }
+  }
+
+  public void clear() {
+    slots.clear();
+    for (int slot = 0; slot < size; slot++) {
+      topics[slot] = null;
+    }
+    size = 0;
+    total = 0;
+  }
+
+  /**
+   * Number of topics in the summary
+   */
+  public int size() {
+    return size;
+  }
+
+  public int getCapacity() {
+    return capacity;
+  }
+
+  /**
+   * Sum of all counts offered
+   */
+  public long getTotal() {
+    return total;
+  }
+
+  private void siftUp(int index) {
+    int slot = heap[index];
+    while (index > 0) {
+      int parent = (index - 1) >>> 1;
+      if (counts[heap[parent]] <= counts[slot]) {
+        break;
+      }
+      place(heap[parent], index);
+      index = parent;
+    }
+    place(slot, index);
+  }
+
+  private void siftDown(int index) {
+    int slot = heap[index];
+    while (true) {
+      int child = 2 * index + 1;
+      if (child >= size) {
+        break;
+      }
+      if (child + 1 < size && counts[heap[child + 1]] < counts[heap[child]]) {
+        child++;
+      }
+      if (counts[heap[child]] >= counts[slot]) {
+        break;
+      }
+      place(heap[child], index);
+      index = child;
+    }
+    place(slot, index);
+  }
+
+  private void place(int slot, int index) {
+    heap[index] = slot;
+    heapIndex[slot] = index;
+  }
+}
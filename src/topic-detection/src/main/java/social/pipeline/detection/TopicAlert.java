@@ -0,0 +1,97 @@
+package social.pipeline.detection;
+
+import com.google.gson.JsonObject;
+
+import java.io.Serializable;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * A topic mentioned count times within a window, serialized as the alerts of the threshold job:
+ * {"windowStart":"2018-12-04 10:21:00","windowEnd":"2018-12-04 10:31:00","topic":"Israel","count":7}
+ * with the window bounds in UTC.
+ */
+public class TopicAlert implements Serializable {
+
+  private static final long serialVersionUID = 1L;
+  private static final DateTimeFormatter TIMESTAMP_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss").withZone(ZoneOffset.UTC);
+
+  private long windowStart;
+  private long windowEnd;
+  private String topic;
+  private long count;
+
+  public TopicAlert() {
+  }
+
+  public TopicAlert(long windowStart, long windowEnd, String topic, long count) {
+    this.windowStart = windowStart;
+    this.windowEnd = windowEnd;
+    this.topic = topic;
+    this.count = count;
+  }
+
+  public String toJson() {
+    return toJsonObject().toString();
+  }
+
+  protected JsonObject toJsonObject() {
+    JsonObject json = new JsonObject();
+    json.addProperty("windowStart", formatTimestamp(windowStart));
+    json.addProperty("windowEnd", formatTimestamp(windowEnd));
+    json.addProperty("topic", topic);
+    json.addProperty("count", count);
+    return json;
+  }
+
+  /**
+   * Formats epoch millis the way Spark casts a timestamp to a string, in UTC
+   */
+  public static String formatTimestamp(long epochMillis) {
+    return TIMESTAMP_FORMAT.format(Instant.ofEpochMilli(epochMillis));
+  }
+
+  /**
+   * Start of the window in epoch millis, inclusive
+   */
+  public long getWindowStart() {
+    return windowStart;
+  }
+
+  public void setWindowStart(long windowStart) {
+    this.windowStart = windowStart;
+  }
+
+  /**
+   * End of the window in epoch millis, exclusive
+   */
+  public long getWindowEnd() {
+    return windowEnd;
+  }
+
+  public void setWindowEnd(long windowEnd) {
+    this.windowEnd = windowEnd;
+  }
+
+  public String getTopic() {
+    return topic;
+  }
+
+  public void setTopic(String topic) {
+    this.topic = topic;
+  }
+
+  public long getCount() {
+    return count;
+  }
+
+  public void setCount(long count) {
+    this.count = count;
+  }
+
+  @Override
+  public String toString() {
+    return toJson();
+  }
+}
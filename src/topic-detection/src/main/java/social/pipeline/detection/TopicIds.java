@@ -0,0 +1,85 @@
+package social.pipeline.detection;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Interns topic names into small dense int ids, so per-topic state can live in primitive maps and arrays.
+ * Released ids are reused by the next new topics, the ids stay below {@link #capacity()}.
+ */
+public class TopicIds implements Serializable {
+
+  private static final long serialVersionUID = 1L;
+
+  private final Map<String, Integer> ids = new HashMap<>();
+  private String[] topics = new String[16];
+  private int[] released = new int[16];
+  private int releasedCount;
+  private int nextId;
+
+  /**
+   * @return the id of the topic, assigning one if it is new
+   */
+  public int id(String topic) {
+    Integer id = ids.get(topic);
+    if (id != null) {
+      return id;
+    }
+    int newId;
+    if (releasedCount > 0) {
+      newId = released[--releasedCount];
+    } else {
+      newId = nextId++;
+      if (newId == topics.length) {
+        topics = Arrays.copyOf(topics, topics.length * 2);
+      }
+    }
+    topics[newId] = topic;
+    ids.put(topic, newId);
+    return newId;
+  }
+
+  /**
+   * @return the id of the topic, or -1 if it has none
+   */
+  public int find(String topic) {
+    Integer id = ids.get(topic);
+    return id != null ? id : -1;
+  }
+
+  public String topic(int id) {
+    return topics[id];
+  }
+
+  /**
+   * Forgets the topic of the id, which may be handed out again to another topic
+   */
+  public void release(int id) {
+    String topic = topics[id];
+    if (topic == null) {
+      return;
+    }
+    ids.remove(topic);
+    topics[id] = null;
+    if (releasedCount == released.length) {
+      released = Arrays.copyOf(released, released.length * 2);
+    }
+    released[releasedCount++] = id;
+  }
+
+  /**
+   * Number of topics with an id
+   */
+  public int size() {
+    return ids.size();
+  }
+
+  /**
+   * Upper bound of the ids handed out so far, the size for arrays indexed by id
+   */
+  public int capacity() {
+    return nextId;
+  }
+}
@@ -0,0 +1,44 @@
+package social.pipeline.detection;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * Counts topic mentions over a window sliding by one pane and reports, as each window closes,
+ * the topics mentioned at least a threshold number of times in it
+ */
+public interface TopicWindowCounter extends Serializable {
+
+  /**
+   * Counts mentions of the topic at the given time, closing the windows that end before it
+   *
+   * @return the alerts of the windows closed, empty if none
+   */
+  List<TopicAlert> add(String topic, long timestamp, long count);
+
+  default List<TopicAlert> add(String topic, long timestamp) {
+    return add(topic, timestamp, 1);
+  }
+
+  /**
+   * Closes the windows ending at or before the given time, e.g. the watermark of a stream
+   *
+   * @return the alerts of the windows closed, empty if none
+   */
+  List<TopicAlert> advanceTo(long time);
+
+  /**
+   * Count of the topic in the current, still open, window
+   */
+  long count(String topic);
+
+  /**
+   * Start of the newest pane in epoch millis, {@link Long#MIN_VALUE} before the first event
+   */
+  long getCurrentPaneStart();
+
+  /**
+   * True if no mention is counted in the current window
+   */
+  boolean isEmpty();
+}
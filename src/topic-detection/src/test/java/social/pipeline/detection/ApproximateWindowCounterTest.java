@@ -0,0 +1,100 @@
+package social.pipeline.detection;
+
+import org.junit.Assert;
+import org.junit.Test;
+import social.pipeline.text.TextNormalizer;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+public class ApproximateWindowCounterTest {
+
+  private static final long MINUTE = 60_000L;
+  private static final long T0 = 1543919460000L;
+  private static final double EPSILON = 0.001;
+
+  /**
+   * Ten minutes of mentions: a few trending topics over a long tail of topics mentioned once or twice
+   */
+  private static List<String[]> stream(long seed) {
+    Random random = new Random(seed);
+    List<String[]> events = new ArrayList<>();
+    for (int i = 0; i < 60_000; i++) {
+      long timestamp = T0 + i * 10L;
+      String topic = random.nextInt(10) == 0 ? "#trend" + random.nextInt(20) : "#tail" + random.nextInt(40_000);
+      events.add(new String[]{topic, String.valueOf(timestamp)});
+    }
+    return events;
+  }
+
+  private static Map<String, Long> alertCounts(List<TopicAlert> alerts) {
+    Map<String, Long> counts = new HashMap<>();
+    for (TopicAlert alert : alerts) {
+      Assert.assertEquals(T0 + 10 * MINUTE, alert.getWindowEnd());
+      counts.put(alert.getTopic(), alert.getCount());
+    }
+    return counts;
+  }
+
+  @Test
+  public void test_reports_the_exact_alerts_within_the_error_bound() {
+    SlidingWindowCounter exact = new SlidingWindowCounter(10 * MINUTE, MINUTE, 200);
+    ApproximateWindowCounter approximate = new ApproximateWindowCounter(10 * MINUTE, MINUTE, 200, EPSILON, 0.99, 100);
+    for (String[] event : stream(1)) {
+      exact.add(event[0], Long.parseLong(event[1]));
+      approximate.add(event[0], Long.parseLong(event[1]));
+    }
+    Assert.assertEquals(60_000, approximate.getTotal());
+    Map<String, Long> expected = alertCounts(exact.advanceTo(T0 + 10 * MINUTE));
+    Map<String, Long> actual = alertCounts(approximate.advanceTo(T0 + 10 * MINUTE));
+
+    Assert.assertEquals(20, expected.size());
+    for (Map.Entry<String, Long> alert : expected.entrySet()) {
+      long count = actual.get(alert.getKey());
+      Assert.assertTrue(count >= alert.getValue() && count <= alert.getValue() + EPSILON * 60_000);
+    }
+    for (Map.Entry<String, Long> alert : actual.entrySet()) {
+      Assert.assertTrue(alert.getKey(), alert.getValue() >= 200 && alert.getKey().startsWith("#trend"));
+    }
+  }
+
+  @Test
+  public void test_merged_partitions_report_the_alerts_of_the_whole_stream() {
+    ApproximateWindowCounter whole = new ApproximateWindowCounter(10 * MINUTE, MINUTE, 200, EPSILON, 0.99, 100);
+    ApproximateWindowCounter first = new ApproximateWindowCounter(10 * MINUTE, MINUTE, 200, EPSILON, 0.99, 100);
+    ApproximateWindowCounter second = new ApproximateWindowCounter(10 * MINUTE, MINUTE, 200, EPSILON, 0.99, 100);
+    for (String[] event : stream(2)) {
+      long timestamp = Long.parseLong(event[1]);
+      whole.add(event[0], timestamp);
+      (event[0].hashCode() % 2 == 0 ? first : second).add(event[0], timestamp);
+    }
+    Assert.assertTrue(first.merge(second).isEmpty());
+    Assert.assertEquals(whole.getTotal(), first.getTotal());
+    Assert.assertEquals(whole.count("#trend3"), first.count("#trend3"));
+
+    Map<String, Long> expected = alertCounts(whole.advanceTo(T0 + 10 * MINUTE));
+    Map<String, Long> merged = alertCounts(first.advanceTo(T0 + 10 * MINUTE));
+    Assert.assertEquals(expected.keySet(), merged.keySet());
+    Assert.assertEquals(whole.getTotal(), first.getTotal());
+  }
+
+  @Test
+  public void test_count_min_sketch_never_underestimates() {
+    CountMinSketch sketch = CountMinSketch.withError(0.01, 0.99);
+    Assert.assertEquals(512, sketch.getWidth());
+    Assert.assertEquals(5, sketch.getDepth());
+    for (long key = 0; key < 10_000; key++) {
+      sketch.add(TextNormalizer.mix(key), key % 10 + 1);
+    }
+    long overestimates = 0;
+    for (long key = 0; key < 10_000; key++) {
+      long estimate = sketch.estimate(TextNormalizer.mix(key));
+      Assert.assertTrue(estimate >= key % 10 + 1);
+      overestimates += estimate - (key % 10 + 1) > sketch.getEpsilon() * sketch.getTotal() ? 1 : 0;
+    }
+    Assert.assertTrue(overestimates <= 10_000 * sketch.getDelta() * 2);
+  }
+}
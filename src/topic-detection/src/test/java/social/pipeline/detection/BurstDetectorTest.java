@@ -0,0 +1,77 @@
+package social.pipeline.detection;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+public class BurstDetectorTest {
+
+  private static final long MINUTE = 60_000L;
+  private static final long T0 = 1543919460000L;
+
+  private static List<BurstAlert> addAll(BurstDetector detector, String topic, long pane, int count) {
+    List<BurstAlert> alerts = new ArrayList<>();
+    for (int i = 0; i < count; i++) {
+      BurstAlert alert = detector.add(topic, T0 + pane * MINUTE + i);
+      if (alert != null) {
+        alerts.add(alert);
+      }
+    }
+    return alerts;
+  }
+
+  @Test
+  public void test_popular_topics_do_not_alert_but_quiet_ones_spiking_do() {
+    BurstDetector detector = new BurstDetector(new BurstDetectorOptions());
+    Random random = new Random(7);
+    List<BurstAlert> alerts = new ArrayList<>();
+    for (int minute = 0; minute < 120; minute++) {
+      alerts.addAll(addAll(detector, "#popular", minute, 80 + random.nextInt(21)));
+      alerts.addAll(addAll(detector, "#quiet", minute, random.nextInt(3)));
+    }
+    // Only the first minute of the popular topic, measured against an empty baseline
+    Assert.assertEquals(1, alerts.size());
+    Assert.assertEquals(T0, alerts.get(0).getWindowStart());
+    Assert.assertEquals(90, detector.getBaseline("#popular"), 10);
+
+    alerts = addAll(detector, "#quiet", 120, 25);
+    Assert.assertEquals(1, alerts.size());
+    BurstAlert alert = alerts.get(0);
+    Assert.assertEquals("#quiet", alert.getTopic());
+    Assert.assertEquals(T0 + 120 * MINUTE, alert.getWindowStart());
+    Assert.assertEquals(T0 + 121 * MINUTE, alert.getWindowEnd());
+    Assert.assertTrue(alert.getCount() < 25 && alert.getZScore() >= 4);
+    Assert.assertTrue(alert.toJson().startsWith("{\"windowStart\":\"2018-12-04 12:31:00\",\"windowEnd\":\"2018-12-04 12:32:00\",\"topic\":\"#quiet\""));
+  }
+
+  @Test
+  public void test_idle_panes_decay_the_baseline() {
+    BurstDetector detector = new BurstDetector(new BurstDetectorOptions());
+    for (int minute = 0; minute < 60; minute++) {
+      addAll(detector, "#news", minute, 50);
+    }
+    Assert.assertTrue(addAll(detector, "#news", 60, 60).isEmpty());
+    // After a quiet day the same volume is a burst again
+    Assert.assertEquals(1, addAll(detector, "#news", 60 * 24, 60).size());
+    Assert.assertTrue(detector.getBaseline("#news") < 1);
+  }
+
+  @Test
+  public void test_state_is_bounded() {
+    BurstDetectorOptions options = new BurstDetectorOptions();
+    options.setMaxTopics(100);
+    options.setIdleMillis(10 * MINUTE);
+    BurstDetector detector = new BurstDetector(options);
+    for (int i = 0; i < 10_000; i++) {
+      detector.add("#topic" + i, T0 + i * 100L);
+    }
+    Assert.assertEquals(100, detector.getTopicCount());
+    Assert.assertEquals(9_900, detector.getEvictions());
+
+    Assert.assertEquals(100, detector.evictIdle(T0 + 10_000 * 100L + 11 * MINUTE));
+    Assert.assertEquals(0, detector.getTopicCount());
+  }
+}
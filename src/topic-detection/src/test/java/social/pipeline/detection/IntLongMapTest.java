@@ -0,0 +1,45 @@
+package social.pipeline.detection;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+public class IntLongMapTest {
+
+  @Test
+  public void test_removes_entries_reaching_zero() {
+    IntLongMap map = new IntLongMap();
+    Assert.assertEquals(2, map.add(7, 2));
+    Assert.assertEquals(0, map.add(7, -2));
+    Assert.assertEquals(0, map.add(8, 0));
+    Assert.assertTrue(map.isEmpty());
+  }
+
+  @Test
+  public void test_matches_hash_map_under_random_updates() {
+    IntLongMap map = new IntLongMap(4);
+    Map<Integer, Long> expected = new HashMap<>();
+    Random random = new Random(42);
+    for (int i = 0; i < 200_000; i++) {
+      int key = random.nextInt(500);
+      if (random.nextInt(4) == 0) {
+        Assert.assertEquals((long) expected.getOrDefault(key, 0L), map.remove(key));
+        expected.remove(key);
+      } else {
+        long delta = random.nextInt(5) - 2;
+        long value = expected.getOrDefault(key, 0L) + delta;
+        Assert.assertEquals(value, map.add(key, delta));
+        if (value == 0) {
+          expected.remove(key);
+        } else {
+          expected.put(key, value);
+        }
+      }
+    }
+    Assert.assertEquals(expected.size(), map.size());
+    map.forEach((key, value) -> Assert.assertEquals((long) expected.get(key), value));
+  }
+}
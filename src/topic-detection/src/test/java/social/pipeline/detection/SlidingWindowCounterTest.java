@@ -0,0 +1,72 @@
+package social.pipeline.detection;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class SlidingWindowCounterTest {
+
+  private static final long MINUTE = 60_000L;
+  private static final long T0 = 1543919460000L; // 2018-12-04 10:31:00 UTC
+
+  @Test
+  public void test_alerts_when_windows_close() {
+    SlidingWindowCounter counter = new SlidingWindowCounter(10 * MINUTE, MINUTE, 3);
+    Assert.assertTrue(counter.add("#gaza", T0).isEmpty());
+    Assert.assertTrue(counter.add("#gaza", T0 + 10_000).isEmpty());
+    Assert.assertTrue(counter.add("#gaza", T0 + MINUTE / 2).isEmpty());
+    Assert.assertTrue(counter.add("Israel", T0 + 59_999).isEmpty());
+    Assert.assertEquals(3, counter.count("#gaza"));
+
+    List<TopicAlert> alerts = counter.add("Israel", T0 + MINUTE);
+    Assert.assertEquals(1, alerts.size());
+    Assert.assertEquals("{\"windowStart\":\"2018-12-04 10:22:00\",\"windowEnd\":\"2018-12-04 10:32:00\",\"topic\":\"#gaza\",\"count\":3}",
+      alerts.get(0).toJson());
+
+    // Every window containing the first minute reports it again
+    for (int minute = 2; minute <= 10; minute++) {
+      alerts = counter.advanceTo(T0 + minute * MINUTE);
+      Assert.assertEquals(1, alerts.size());
+      Assert.assertEquals(T0 + minute * MINUTE, alerts.get(0).getWindowEnd());
+    }
+    Assert.assertEquals(0, counter.count("#gaza"));
+    Assert.assertEquals(1, counter.count("Israel"));
+    Assert.assertTrue(counter.advanceTo(T0 + 11 * MINUTE).isEmpty());
+    Assert.assertEquals(0, counter.getTopicCount());
+  }
+
+  @Test
+  public void test_counts_out_of_order_events_and_drops_late_ones() {
+    SlidingWindowCounter counter = new SlidingWindowCounter(3 * MINUTE, MINUTE, 2);
+    counter.add("a", T0 + 2 * MINUTE);
+    counter.add("a", T0 + MINUTE);
+    counter.add("a", T0 - MINUTE);
+    Assert.assertEquals(2, counter.count("a"));
+    Assert.assertEquals(1, counter.getLateEvents());
+
+    List<TopicAlert> alerts = counter.advanceTo(T0 + 3 * MINUTE);
+    Assert.assertEquals(1, alerts.size());
+    Assert.assertEquals(T0, alerts.get(0).getWindowStart());
+    Assert.assertEquals(2, alerts.get(0).getCount());
+  }
+
+  @Test
+  public void test_skips_idle_time_and_bounds_state() {
+    SlidingWindowCounter counter = new SlidingWindowCounter(10 * MINUTE, MINUTE, 1);
+    List<TopicAlert> alerts = new ArrayList<>();
+    for (int i = 0; i < 1000; i++) {
+      alerts.addAll(counter.add("topic" + i, T0 + i * 1000L * MINUTE));
+    }
+    // Each topic is reported by the ten windows containing its minute, then forgotten
+    Assert.assertEquals(999 * 10, alerts.size());
+    Assert.assertEquals(1, counter.getTopicCount());
+    Assert.assertEquals(T0 + 999 * 1000L * MINUTE, counter.getCurrentPaneStart());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void test_window_must_be_a_multiple_of_the_pane() {
+    new SlidingWindowCounter(10 * MINUTE, 7 * MINUTE, 1);
+  }
+}
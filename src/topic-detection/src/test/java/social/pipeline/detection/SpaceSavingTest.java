@@ -0,0 +1,39 @@
+package social.pipeline.detection;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class SpaceSavingTest {
+
+  @Test
+  public void test_keeps_frequent_topics_with_bounded_error() {
+    SpaceSaving summary = new SpaceSaving(10);
+    for (int i = 0; i < 10_000; i++) {
+      summary.offer(i % 4 == 0 ? "#frequent" : "#rare" + i, 1);
+    }
+    Assert.assertEquals(10, summary.size());
+    Assert.assertEquals(10_000, summary.getTotal());
+    long count = summary.count("#frequent");
+    Assert.assertTrue(count >= 2500 && count - summary.error("#frequent") <= 2500);
+    Assert.assertTrue(summary.error("#frequent") <= summary.getTotal() / 10);
+    Assert.assertTrue(summary.upperBound("#rare1") >= 1);
+  }
+
+  @Test
+  public void test_merge_keeps_upper_bounds() {
+    SpaceSaving first = new SpaceSaving(3);
+    SpaceSaving second = new SpaceSaving(3);
+    for (int i = 0; i < 30; i++) {
+      first.offer("a", 1);
+      second.offer(i % 2 == 0 ? "b" : "a", 1);
+      first.offer("x" + i, 1);
+      second.offer("y" + i, 1);
+    }
+    first.merge(second);
+    Assert.assertEquals(120, first.getTotal());
+    Assert.assertEquals(3, first.size());
+    Assert.assertTrue(first.count("a") >= 45);
+    Assert.assertTrue(first.upperBound("b") >= 15);
+    Assert.assertTrue(first.upperBound("x1") >= 1);
+  }
+}